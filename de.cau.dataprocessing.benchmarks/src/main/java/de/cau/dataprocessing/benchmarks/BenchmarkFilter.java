@@ -0,0 +1,33 @@
+package de.cau.dataprocessing.benchmarks;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * Increments its input.
+ */
+public class BenchmarkFilter implements IDataMangler {
+
+	private Integer in;
+
+	private Integer out;
+
+	public String getName() {
+		return "Benchmark Filter";
+	}
+
+	@InputPort(required = true)
+	public void setIn(Integer in) {
+		this.in = in;
+	}
+
+	@OutputPort
+	public Integer getOut() {
+		return out;
+	}
+
+	public void execute() {
+		out = in + 1;
+	}
+}
@@ -0,0 +1,38 @@
+package de.cau.dataprocessing.benchmarks;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+/**
+ * Sums up its inputs, so they are not optimized away.
+ */
+public class BenchmarkSink implements IDataMangler {
+
+	private Integer value;
+
+	private long sum;
+
+	private int count;
+
+	public String getName() {
+		return "Benchmark Sink";
+	}
+
+	@InputPort(required = true)
+	public void setValue(Integer value) {
+		this.value = value;
+	}
+
+	public void execute() {
+		sum += value;
+		count++;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public int getCount() {
+		return count;
+	}
+}
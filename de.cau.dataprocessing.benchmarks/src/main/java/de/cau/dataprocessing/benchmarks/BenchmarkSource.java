@@ -0,0 +1,36 @@
+package de.cau.dataprocessing.benchmarks;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * Provides the numbers from 0 up to its limit.
+ */
+public class BenchmarkSource implements IDataMangler {
+
+	private int count;
+
+	private int limit;
+
+	private Integer current;
+
+	public BenchmarkSource() {
+	}
+
+	public BenchmarkSource(int limit) {
+		this.limit = limit;
+	}
+
+	public String getName() {
+		return "Benchmark Source";
+	}
+
+	@OutputPort
+	public Integer getValue() {
+		return current;
+	}
+
+	public void execute() {
+		current = count < limit ? Integer.valueOf(count++) : null;
+	}
+}
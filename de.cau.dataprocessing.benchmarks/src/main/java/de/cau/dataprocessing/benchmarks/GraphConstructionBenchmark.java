@@ -0,0 +1,64 @@
+package de.cau.dataprocessing.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.cau.dataprocessing.engine.Graph;
+
+/**
+ * Building and tearing down large graphs with {@link Graph#addMangler}, {@link Graph#connect} and
+ * {@link Graph#removeIDM}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphConstructionBenchmark {
+
+	@Param({ "1000", "10000" })
+	int size;
+
+	Graph graph;
+
+	BenchmarkFilter[] filters;
+
+	@Setup(Level.Invocation)
+	public void setUp() {
+		graph = new Graph();
+		filters = Graphs.chain(graph, size);
+	}
+
+	@Benchmark
+	public Graph build() {
+		Graph graph = new Graph();
+		Graphs.chain(graph, size);
+		return graph;
+	}
+
+	@Benchmark
+	public Graph removeAll() {
+		for(BenchmarkFilter filter : filters) {
+			graph.removeIDM(filter);
+		}
+		return graph;
+	}
+
+	@Benchmark
+	public Object compile() {
+		return graph.compile();
+	}
+}
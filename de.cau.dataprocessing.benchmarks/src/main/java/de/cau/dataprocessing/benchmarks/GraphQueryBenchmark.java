@@ -0,0 +1,93 @@
+package de.cau.dataprocessing.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+
+/**
+ * The upstream and downstream queries of a {@link Graph}, asked for a mangler in the middle of a large chain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphQueryBenchmark {
+
+	@Param({ "1000", "10000" })
+	int size;
+
+	Graph graph;
+
+	IDataMangler idm;
+
+	InstanceMethod<IDataMangler> inPort;
+
+	InstanceMethod<IDataMangler> outPort;
+
+	@Setup
+	public void setUp() {
+		graph = new Graph();
+		BenchmarkFilter[] filters = Graphs.chain(graph, size);
+		idm = filters[size / 2];
+		inPort = Graphs.in(graph, idm);
+		outPort = Graphs.out(graph, idm);
+	}
+
+	private static void consume(Iterable<?> iterable, Blackhole bh) {
+		for(Object o : iterable) {
+			bh.consume(o);
+		}
+	}
+
+	@Benchmark
+	public void connectionsToIDM(Blackhole bh) {
+		consume(graph.getAllConnectionsToIDM(idm), bh);
+	}
+
+	@Benchmark
+	public void connectionsToInPort(Blackhole bh) {
+		consume(graph.getAllConnectionsToInPort(inPort), bh);
+	}
+
+	@Benchmark
+	public void connectionsFromIDM(Blackhole bh) {
+		consume(graph.getConnectionFromIDM(idm), bh);
+	}
+
+	@Benchmark
+	public void connectionsFromOutputPort(Blackhole bh) {
+		consume(graph.getConnectionsFromOutputPort(outPort), bh);
+	}
+
+	@Benchmark
+	public void followers(Blackhole bh) {
+		consume(graph.getFollowerIDMsOfIDM(idm), bh);
+	}
+
+	@Benchmark
+	public void predecessors(Blackhole bh) {
+		consume(graph.getPredecessorIDMsOfIDM(idm), bh);
+	}
+
+	@Benchmark
+	public void ports(Blackhole bh) {
+		consume(graph.getAllPortsOf(idm), bh);
+	}
+}
@@ -0,0 +1,42 @@
+package de.cau.dataprocessing.benchmarks;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+
+/**
+ * Helpers wiring the graphs of the benchmarks.
+ */
+final class Graphs {
+
+	private Graphs() {
+	}
+
+	static InstanceMethod<IDataMangler> in(Graph graph, IDataMangler idm) {
+		return graph.getInPortsOf(idm).iterator().next();
+	}
+
+	static InstanceMethod<IDataMangler> out(Graph graph, IDataMangler idm) {
+		return graph.getOutPortsOf(idm).iterator().next();
+	}
+
+	/**
+	 * @return the filters of a chain source->filters->sink
+	 */
+	static BenchmarkFilter[] chain(Graph graph, int filters) {
+		BenchmarkSource source = new BenchmarkSource();
+		BenchmarkSink sink = new BenchmarkSink();
+		BenchmarkFilter[] chain = new BenchmarkFilter[filters];
+		graph.addMangler(source);
+		IDataMangler last = source;
+		for(int i = 0; i < filters; i++) {
+			chain[i] = new BenchmarkFilter();
+			graph.addMangler(chain[i]);
+			graph.connect(out(graph, last), in(graph, chain[i]));
+			last = chain[i];
+		}
+		graph.addMangler(sink);
+		graph.connect(out(graph, last), in(graph, sink));
+		return chain;
+	}
+}
@@ -0,0 +1,10 @@
+package de.cau.dataprocessing.benchmarks;
+
+import de.cau.dataprocessing.filters.annotations.Parallel;
+
+/**
+ * A {@link BenchmarkFilter} replicated once per processor.
+ */
+@Parallel
+public class ParallelBenchmarkFilter extends BenchmarkFilter {
+}
@@ -0,0 +1,72 @@
+package de.cau.dataprocessing.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+
+/**
+ * Passing a value through the ports of a mangler, using the invokers of the {@link Graph} compared to
+ * reflective calls of the {@link InstanceMethod}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PortDispatchBenchmark {
+
+	BenchmarkFilter filter;
+
+	InstanceMethod<IDataMangler> inPort;
+
+	InstanceMethod<IDataMangler> outPort;
+
+	InputInvoker in;
+
+	OutputInvoker out;
+
+	Integer value = Integer.valueOf(42);
+
+	@Setup
+	public void setUp() {
+		Graph graph = new Graph();
+		filter = new BenchmarkFilter();
+		graph.addMangler(filter);
+		inPort = Graphs.in(graph, filter);
+		outPort = Graphs.out(graph, filter);
+		in = graph.getInputInvoker(inPort);
+		out = graph.getOutputInvoker(outPort);
+	}
+
+	@Benchmark
+	public Object invokers() {
+		in.set(value);
+		filter.execute();
+		return out.get();
+	}
+
+	@Benchmark
+	public Object reflection() throws Exception {
+		Method setter = inPort.getMethod();
+		setter.invoke(inPort.getInstance(), value);
+		filter.execute();
+		return outPort.getMethod().invoke(outPort.getInstance());
+	}
+}
@@ -0,0 +1,88 @@
+package de.cau.dataprocessing.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.inject.IPCModule;
+
+/**
+ * Records per second through source->filter->sink topologies executed by the {@link GraphExecutor}:
+ * <ul>
+ * <li>fused: a linear chain, which is fused into one operator</li>
+ * <li>fanOut: the filter feeds two sinks, so it is not fused with them</li>
+ * <li>parallel: the filter is replicated once per processor</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@State(Scope.Thread)
+public class ThroughputBenchmark {
+
+	static final int RECORDS = 100000;
+
+	@Param({ "fused", "fanOut", "parallel" })
+	String topology;
+
+	Injector injector;
+
+	Graph graph;
+
+	GraphExecutor executor;
+
+	BenchmarkSink sink;
+
+	@Setup(Level.Trial)
+	public void setUpInjector() {
+		injector = Guice.createInjector(new IPCModule());
+	}
+
+	@Setup(Level.Invocation)
+	public void setUp() {
+		graph = injector.getInstance(Graph.class);
+		executor = injector.getInstance(GraphExecutor.class);
+		BenchmarkSource source = new BenchmarkSource(RECORDS);
+		BenchmarkFilter filter = "parallel".equals(topology) ? new ParallelBenchmarkFilter() : new BenchmarkFilter();
+		sink = new BenchmarkSink();
+		graph.addMangler(source);
+		graph.addMangler(filter);
+		graph.addMangler(sink);
+		graph.connect(Graphs.out(graph, source), Graphs.in(graph, filter));
+		graph.connect(Graphs.out(graph, filter), Graphs.in(graph, sink));
+		if("fanOut".equals(topology)) {
+			BenchmarkSink sink2 = new BenchmarkSink();
+			graph.addMangler(sink2);
+			graph.connect(Graphs.out(graph, filter), Graphs.in(graph, sink2));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long records() throws Exception {
+		executor.run(graph);
+		if(sink.getCount() != RECORDS) {
+			throw new IllegalStateException("records lost: " + sink.getCount());
+		}
+		return sink.getSum();
+	}
+}
@@ -0,0 +1,88 @@
+package de.cau.dataprocessing.cache;
+
+import java.util.Arrays;
+
+/**
+ * Estimates how often keys have been seen recently by a count-min sketch of four rows of counters saturating at
+ * 15. Once as many keys have been counted as ten times the size the sketch has been created for, all counters are
+ * halved, so the estimates follow the recent popularity of the keys. Only used by a single thread.
+ */
+class FrequencySketch {
+
+	private static final int MAX = 15;
+
+	private static final int[] SEEDS = { 0x97cb3127, 0xb7b7a335, 0x4ae4f15b, 0x6b7e2c9d };
+
+	private final byte[][] rows = new byte[SEEDS.length][];
+
+	private final int mask;
+
+	private final int sampleSize;
+
+	private int samples;
+
+	/**
+	 * @param size the number of keys to tell apart
+	 */
+	FrequencySketch(int size) {
+		int width = Math.max(16, Integer.highestOneBit(Math.max(1, size) - 1) << 1);
+		for(int i = 0; i < rows.length; i++) {
+			rows[i] = new byte[width];
+		}
+		this.mask = width - 1;
+		this.sampleSize = 10 * Math.max(1, size);
+	}
+
+	private int indexOf(int hash, int row) {
+		int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+		return (h ^ h >>> 16) & mask;
+	}
+
+	private static int spread(Object key) {
+		int h = key.hashCode() * 0x85ebca6b;
+		return h ^ h >>> 15;
+	}
+
+	void increment(Object key) {
+		int hash = spread(key);
+		boolean added = false;
+		for(int i = 0; i < rows.length; i++) {
+			int index = indexOf(hash, i);
+			if(rows[i][index] < MAX) {
+				rows[i][index]++;
+				added = true;
+			}
+		}
+		if(added && ++samples >= sampleSize) {
+			age();
+		}
+	}
+
+	/**
+	 * @return the estimated number of recent occurrences of the key, at most 15
+	 */
+	int frequency(Object key) {
+		int hash = spread(key);
+		int frequency = MAX;
+		for(int i = 0; i < rows.length; i++) {
+			frequency = Math.min(frequency, rows[i][indexOf(hash, i)]);
+		}
+		return frequency;
+	}
+
+	private void age() {
+		for(byte[] row : rows) {
+			for(int i = 0; i < row.length; i++) {
+				row[i] >>= 1;
+			}
+		}
+		samples /= 2;
+	}
+
+	void clear() {
+		for(byte[] row : rows) {
+			Arrays.fill(row, (byte) 0);
+		}
+		samples = 0;
+	}
+}
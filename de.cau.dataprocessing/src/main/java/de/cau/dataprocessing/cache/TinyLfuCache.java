@@ -0,0 +1,178 @@
+package de.cau.dataprocessing.cache;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache evicting by W-TinyLFU: new entries are admitted to a small LRU window, entries evicted from the
+ * window compete with the least recently used entry of the main space, which is kept only if it has been used
+ * more often recently (see {@link FrequencySketch}). The main space is a segmented LRU, entries hit while on
+ * probation are protected. So a burst of keys seen once does not flush the popular ones, while keys becoming
+ * popular make it into the cache anyway.<p>
+ *
+ * Lookups and insertions take constant time. The cache is not thread-safe, it is meant to be owned by a single
+ * worker, e.g. to memoize the results of a mangler.
+ *
+ * @param <K> the type of the keys, which have to implement {@link Object#hashCode()} and {@link Object#equals(Object)}
+ * @param <V> the type of the values
+ */
+public class TinyLfuCache<K, V> {
+
+	private final int capacity;
+
+	private final int windowCapacity;
+
+	private final int protectedCapacity;
+
+	// all maps are in access order, the eldest entry is the least recently used one
+	private final LinkedHashMap<K, V> window = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+	private final LinkedHashMap<K, V> probation = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+	private final LinkedHashMap<K, V> protect = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+	private final FrequencySketch sketch;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	/**
+	 * @param capacity the maximum number of entries
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public TinyLfuCache(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("illegal capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		this.windowCapacity = Math.max(1, capacity / 100);
+		this.protectedCapacity = (capacity - windowCapacity) * 4 / 5;
+		this.sketch = new FrequencySketch(capacity);
+	}
+
+	/**
+	 * Looks a key up, counting a hit or a miss.
+	 *
+	 * @param key
+	 * @return the value, null if not cached
+	 */
+	public V get(K key) {
+		sketch.increment(key);
+		V value = window.get(key);
+		if(value == null) {
+			value = protect.get(key);
+		}
+		if(value == null) {
+			value = probation.remove(key);
+			if(value != null) {
+				protect.put(key, value);
+				if(protect.size() > protectedCapacity) {
+					// the least recently used protected entry is put on probation again
+					Map.Entry<K, V> eldest = removeEldest(protect);
+					probation.put(eldest.getKey(), eldest.getValue());
+				}
+			}
+		}
+		if(value == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return value;
+	}
+
+	/**
+	 * Caches a value, evicting an entry if the cache is full.
+	 *
+	 * @param key
+	 * @param value not null
+	 */
+	public void put(K key, V value) {
+		if(value == null) {
+			throw new NullPointerException("value must not be null");
+		}
+		if(window.containsKey(key)) {
+			window.put(key, value);
+			return;
+		} else if(protect.containsKey(key)) {
+			protect.put(key, value);
+			return;
+		} else if(probation.containsKey(key)) {
+			probation.put(key, value);
+			return;
+		}
+		window.put(key, value);
+		if(window.size() <= windowCapacity) {
+			return;
+		}
+		Map.Entry<K, V> candidate = removeEldest(window);
+		if(probation.size() + protect.size() < capacity - windowCapacity) {
+			probation.put(candidate.getKey(), candidate.getValue());
+			return;
+		}
+		evictions++;
+		LinkedHashMap<K, V> main = probation.isEmpty() ? protect : probation;
+		if(main.isEmpty()) {
+			return;
+		}
+		K victim = main.keySet().iterator().next();
+		if(sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+			main.remove(victim);
+			probation.put(candidate.getKey(), candidate.getValue());
+		}
+	}
+
+	private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> map) {
+		Iterator<Map.Entry<K, V>> entries = map.entrySet().iterator();
+		Map.Entry<K, V> eldest = entries.next();
+		// the entry is not valid anymore once removed
+		Map.Entry<K, V> copy = new AbstractMap.SimpleImmutableEntry<K, V>(eldest);
+		entries.remove();
+		return copy;
+	}
+
+	/**
+	 * @return true if the key is cached, without counting it as a hit or a miss
+	 */
+	public boolean containsKey(K key) {
+		return window.containsKey(key) || probation.containsKey(key) || protect.containsKey(key);
+	}
+
+	public int size() {
+		return window.size() + probation.size() + protect.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries evicted or not admitted as the cache was full
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Removes all entries and forgets the frequencies, the counters are kept.
+	 */
+	public void clear() {
+		window.clear();
+		probation.clear();
+		protect.clear();
+		sketch.clear();
+	}
+}
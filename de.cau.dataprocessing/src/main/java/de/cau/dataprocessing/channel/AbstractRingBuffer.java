@@ -0,0 +1,77 @@
+package de.cau.dataprocessing.channel;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Base of the lock-free ring buffers. The storage is allocated once, blocking operations spin, yield and
+ * finally park while the buffer is full or empty.
+ *
+ * @param <E> type of the elements
+ */
+abstract class AbstractRingBuffer<E> implements Channel<E> {
+
+	private static final int SPINS = 100;
+
+	private static final int YIELDS = 200;
+
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	AbstractRingBuffer(int capacity) {
+		if(capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity has to be a power of two: " + capacity);
+		}
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public void put(E e) throws InterruptedException {
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		for(int round = 0; !offer(e); round++) {
+			idle(round);
+		}
+	}
+
+	public E take() throws InterruptedException {
+		E e;
+		for(int round = 0; (e = poll()) == null; round++) {
+			idle(round);
+		}
+		return e;
+	}
+
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		E e;
+		for(int round = 0; (e = poll()) == null; round++) {
+			if(System.nanoTime() - deadline >= 0) {
+				return null;
+			}
+			idle(round);
+		}
+		return e;
+	}
+
+	static void idle(int round) throws InterruptedException {
+		if(round < SPINS) {
+			// busy spin
+		} else if(round < YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(10, round - YIELDS)));
+		}
+		if(Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package de.cau.dataprocessing.channel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded FIFO channel transporting elements from the workers of an execution to another worker.
+ *
+ * @param <E> type of the elements
+ */
+public interface Channel<E> {
+
+	/**
+	 * Adds the element, waiting for space to become available.
+	 *
+	 * @param e
+	 * @throws InterruptedException
+	 */
+	void put(E e) throws InterruptedException;
+
+	/**
+	 * Adds the element if there is space available.
+	 *
+	 * @param e
+	 * @return false if the channel is full
+	 */
+	boolean offer(E e);
+
+	/**
+	 * Removes the first element, waiting for one to become available.
+	 *
+	 * @return the element
+	 * @throws InterruptedException
+	 */
+	E take() throws InterruptedException;
+
+	/**
+	 * Removes the first element, waiting at most the given time for one to become available.
+	 *
+	 * @param timeout
+	 * @param unit
+	 * @return the element or <code>null</code> if the time elapsed
+	 * @throws InterruptedException
+	 */
+	E poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Removes the first element if there is one.
+	 *
+	 * @return the element or <code>null</code> if the channel is empty
+	 */
+	E poll();
+
+	int size();
+
+	int capacity();
+}
@@ -0,0 +1,24 @@
+package de.cau.dataprocessing.channel;
+
+import de.cau.dataprocessing.engine.Result;
+
+/**
+ * Creates the channels the engine passes {@link Result}s through.
+ */
+public interface ChannelFactory {
+
+	/**
+	 * @param producers number of threads putting elements into the channel
+	 * @param consumers number of threads taking elements from the channel
+	 * @return a new channel safe for the given number of producers and consumers
+	 */
+	Channel<Result> create(int producers, int consumers);
+
+	/**
+	 * @param producers number of threads putting elements into the channel
+	 * @param consumers number of threads taking elements from the channel
+	 * @param capacity minimum number of elements the channel holds, 0 for the default capacity
+	 * @return a new channel safe for the given number of producers and consumers
+	 */
+	Channel<Result> create(int producers, int consumers, int capacity);
+}
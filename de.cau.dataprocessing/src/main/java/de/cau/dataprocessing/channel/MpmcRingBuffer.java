@@ -0,0 +1,124 @@
+package de.cau.dataprocessing.channel;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// the indices are separated from each other and from the rest of the object by padding
+// to keep producers and consumers from invalidating each other's cache lines
+
+abstract class MpmcPad0<E> extends AbstractRingBuffer<E> {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+
+	MpmcPad0(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class MpmcProducerIndex<E> extends MpmcPad0<E> {
+	protected volatile long tail;
+
+	MpmcProducerIndex(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class MpmcPad1<E> extends MpmcProducerIndex<E> {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+
+	MpmcPad1(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class MpmcConsumerIndex<E> extends MpmcPad1<E> {
+	protected volatile long head;
+
+	MpmcConsumerIndex(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class MpmcPad2<E> extends MpmcConsumerIndex<E> {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+
+	MpmcPad2(int capacity) {
+		super(capacity);
+	}
+}
+
+/**
+ * A bounded lock-free ring buffer for any number of producer and consumer threads. Each slot carries a
+ * sequence number telling whether it is free for the producer or filled for the consumer of a certain lap.
+ *
+ * @param <E> type of the elements
+ */
+public class MpmcRingBuffer<E> extends MpmcPad2<E> {
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<MpmcProducerIndex> TAIL = AtomicLongFieldUpdater.newUpdater(MpmcProducerIndex.class, "tail");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<MpmcConsumerIndex> HEAD = AtomicLongFieldUpdater.newUpdater(MpmcConsumerIndex.class, "head");
+
+	private final AtomicReferenceArray<E> buffer;
+
+	private final AtomicLongArray sequences;
+
+	/**
+	 * @param capacity a power of two
+	 */
+	public MpmcRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new AtomicReferenceArray<E>(capacity);
+		this.sequences = new AtomicLongArray(capacity);
+		for(int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	public boolean offer(E e) {
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		while(true) {
+			long t = tail;
+			int index = (int) t & mask;
+			long diff = sequences.get(index) - t;
+			if(diff == 0) {
+				if(TAIL.compareAndSet(this, t, t + 1)) {
+					buffer.lazySet(index, e);
+					sequences.lazySet(index, t + 1);
+					return true;
+				}
+			} else if(diff < 0) {
+				// the slot of the previous lap has not been consumed yet
+				return false;
+			}
+		}
+	}
+
+	public E poll() {
+		while(true) {
+			long h = head;
+			int index = (int) h & mask;
+			long diff = sequences.get(index) - (h + 1);
+			if(diff == 0) {
+				if(HEAD.compareAndSet(this, h, h + 1)) {
+					E e = buffer.get(index);
+					buffer.lazySet(index, null);
+					sequences.lazySet(index, h + capacity);
+					return e;
+				}
+			} else if(diff < 0) {
+				// the slot has not been filled yet
+				return null;
+			}
+		}
+	}
+
+	public int size() {
+		long h = head;
+		return (int) Math.max(0, Math.min(capacity, tail - h));
+	}
+}
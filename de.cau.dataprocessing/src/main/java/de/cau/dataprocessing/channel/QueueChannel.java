@@ -0,0 +1,47 @@
+package de.cau.dataprocessing.channel;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Channel} backed by a {@link BlockingQueue}.
+ *
+ * @param <E> type of the elements
+ */
+public class QueueChannel<E> implements Channel<E> {
+
+	private final BlockingQueue<E> queue;
+
+	public QueueChannel(BlockingQueue<E> queue) {
+		this.queue = queue;
+	}
+
+	public void put(E e) throws InterruptedException {
+		queue.put(e);
+	}
+
+	public boolean offer(E e) {
+		return queue.offer(e);
+	}
+
+	public E take() throws InterruptedException {
+		return queue.take();
+	}
+
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return queue.poll(timeout, unit);
+	}
+
+	public E poll() {
+		return queue.poll();
+	}
+
+	public int size() {
+		return queue.size();
+	}
+
+	public int capacity() {
+		long capacity = (long) queue.size() + queue.remainingCapacity();
+		return (int) Math.min(Integer.MAX_VALUE, capacity);
+	}
+}
@@ -0,0 +1,40 @@
+package de.cau.dataprocessing.channel;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import de.cau.dataprocessing.engine.Result;
+
+/**
+ * Creates channels backed by the {@link BlockingQueue}s bound in the injector, regardless of the number of
+ * producers and consumers.
+ */
+public class QueueChannelFactory implements ChannelFactory {
+
+	private final Provider<BlockingQueue<Result>> queueProvider;
+
+	@Inject
+	public QueueChannelFactory(Provider<BlockingQueue<Result>> queueProvider) {
+		this.queueProvider = queueProvider;
+	}
+
+	public Channel<Result> create(int producers, int consumers) {
+		return new QueueChannel<Result>(queueProvider.get());
+	}
+
+	/**
+	 * Channels with an explicit capacity are backed by a {@link LinkedBlockingQueue} instead of the bound queue.
+	 */
+	public Channel<Result> create(int producers, int consumers, int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("negative capacity: " + capacity);
+		}
+		if(capacity == 0) {
+			return create(producers, consumers);
+		}
+		return new QueueChannel<Result>(new LinkedBlockingQueue<Result>(capacity));
+	}
+}
@@ -0,0 +1,46 @@
+package de.cau.dataprocessing.channel;
+
+import de.cau.dataprocessing.engine.Result;
+
+/**
+ * Creates preallocated lock-free ring buffers. A channel fed by a single producer and drained by a single
+ * consumer is a {@link SpscRingBuffer}, any other one a {@link MpmcRingBuffer}.
+ */
+public class RingBufferChannelFactory implements ChannelFactory {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final int capacity;
+
+	public RingBufferChannelFactory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity of the created channels, a power of two
+	 */
+	public RingBufferChannelFactory(int capacity) {
+		if(capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity has to be a power of two: " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	public Channel<Result> create(int producers, int consumers) {
+		return create(producers, consumers, 0);
+	}
+
+	/**
+	 * The capacity is rounded up to the next power of two.
+	 */
+	public Channel<Result> create(int producers, int consumers, int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("negative capacity: " + capacity);
+		}
+		int size = capacity == 0 ? this.capacity : Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+		if(producers == 1 && consumers == 1) {
+			return new SpscRingBuffer<Result>(size);
+		}
+		return new MpmcRingBuffer<Result>(size);
+	}
+}
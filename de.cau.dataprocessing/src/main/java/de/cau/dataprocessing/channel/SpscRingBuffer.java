@@ -0,0 +1,114 @@
+package de.cau.dataprocessing.channel;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+// the indices are separated from each other and from the rest of the object by padding
+// to keep producer and consumer from invalidating each other's cache lines
+
+abstract class SpscPad0<E> extends AbstractRingBuffer<E> {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+
+	SpscPad0(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class SpscProducerIndex<E> extends SpscPad0<E> {
+	protected volatile long tail;
+
+	// the producer's last view on head
+	protected long headCache;
+
+	SpscProducerIndex(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class SpscPad1<E> extends SpscProducerIndex<E> {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+
+	SpscPad1(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class SpscConsumerIndex<E> extends SpscPad1<E> {
+	protected volatile long head;
+
+	// the consumer's last view on tail
+	protected long tailCache;
+
+	SpscConsumerIndex(int capacity) {
+		super(capacity);
+	}
+}
+
+abstract class SpscPad2<E> extends SpscConsumerIndex<E> {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+
+	SpscPad2(int capacity) {
+		super(capacity);
+	}
+}
+
+/**
+ * A bounded lock-free ring buffer for exactly one producer and one consumer thread.
+ *
+ * @param <E> type of the elements
+ */
+public class SpscRingBuffer<E> extends SpscPad2<E> {
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<SpscProducerIndex> TAIL = AtomicLongFieldUpdater.newUpdater(SpscProducerIndex.class, "tail");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<SpscConsumerIndex> HEAD = AtomicLongFieldUpdater.newUpdater(SpscConsumerIndex.class, "head");
+
+	private final Object[] buffer;
+
+	/**
+	 * @param capacity a power of two
+	 */
+	public SpscRingBuffer(int capacity) {
+		super(capacity);
+		this.buffer = new Object[capacity];
+	}
+
+	public boolean offer(E e) {
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		long t = tail;
+		if(t - headCache >= capacity) {
+			headCache = head;
+			if(t - headCache >= capacity) {
+				return false;
+			}
+		}
+		buffer[(int) t & mask] = e;
+		// publishes the element
+		TAIL.lazySet(this, t + 1);
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long h = head;
+		if(h >= tailCache) {
+			tailCache = tail;
+			if(h >= tailCache) {
+				return null;
+			}
+		}
+		int index = (int) h & mask;
+		E e = (E) buffer[index];
+		buffer[index] = null;
+		HEAD.lazySet(this, h + 1);
+		return e;
+	}
+
+	public int size() {
+		long h = head;
+		return (int) Math.max(0, Math.min(capacity, tail - h));
+	}
+}
@@ -0,0 +1,70 @@
+package de.cau.dataprocessing.checkpoint;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A consistent snapshot of a running graph: its {@link Topology} and the states of its {@link Checkpointable}
+ * manglers, each one taken once the mangler had processed exactly the values preceding the checkpoint's barrier.
+ * The states are identified by the position of the mangler in the graph and the index of its replica, see
+ * {@link #key(int, int)}.
+ */
+public class Checkpoint {
+
+	private final long id;
+
+	private final long timestamp;
+
+	private final Topology topology;
+
+	private final Map<String, byte[]> states;
+
+	/**
+	 * @param id increasing with every checkpoint of a graph
+	 * @param timestamp in milliseconds since the epoch
+	 * @param topology of the graph
+	 * @param states by their {@link #key(int, int) keys}
+	 */
+	public Checkpoint(long id, long timestamp, Topology topology, Map<String, byte[]> states) {
+		this.id = id;
+		this.timestamp = timestamp;
+		this.topology = topology;
+		this.states = Collections.unmodifiableMap(new HashMap<String, byte[]>(states));
+	}
+
+	/**
+	 * @return the key of the state of the given replica of the mangler at the given position
+	 */
+	public static String key(int position, int replica) {
+		return position + "#" + replica;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * @return the state of the given key, null if there is none
+	 */
+	public byte[] getState(String key) {
+		return states.get(key);
+	}
+
+	public Map<String, byte[]> getStates() {
+		return states;
+	}
+
+	@Override
+	public String toString() {
+		return "checkpoint " + id + " of " + states.size() + " states";
+	}
+}
@@ -0,0 +1,215 @@
+package de.cau.dataprocessing.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the checkpoints of a graph in a local directory, one file per checkpoint named
+ * <code>checkpoint-&lt;id&gt;</code>. Checkpoints are written by a thread of the store, so taking them does not
+ * wait for the disk. A checkpoint is written to a temporary file, synced and then renamed, so a crash never
+ * leaves an incomplete one behind. Only the latest checkpoints are retained.<p>
+ *
+ * The format: {@link #MAGIC}, {@link #VERSION}, id, timestamp, the topology as the number of manglers and their
+ * class names followed by the number of connections and the connections, then the number of states and each
+ * state as its key, its length in bytes and its bytes. Strings are modified UTF-8, all numbers big endian.
+ */
+public class CheckpointStore implements Closeable {
+
+	static final int MAGIC = 0x43484b50;
+
+	static final int VERSION = 1;
+
+	private static final String PREFIX = "checkpoint-";
+
+	private final File directory;
+
+	private final int retained;
+
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "checkpoint-writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * @param directory created if it does not exist
+	 * @param retained number of checkpoints kept, older ones are deleted
+	 * @throws IllegalArgumentException if less than one checkpoint is to be retained
+	 * @throws IOException if the directory can not be created
+	 */
+	public CheckpointStore(File directory, int retained) throws IOException {
+		if(retained < 1) {
+			throw new IllegalArgumentException("illegal number of retained checkpoints: " + retained);
+		}
+		Files.createDirectories(directory.toPath());
+		this.directory = directory;
+		this.retained = retained;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Writes the given checkpoint asynchronously, then deletes the checkpoints which are not retained anymore.
+	 *
+	 * @return completed once the checkpoint is on disk, exceptionally with an {@link UncheckedIOException} if it
+	 * could not be written
+	 */
+	public CompletableFuture<Checkpoint> write(final Checkpoint checkpoint) {
+		final CompletableFuture<Checkpoint> written = new CompletableFuture<Checkpoint>();
+		writer.execute(new Runnable() {
+			public void run() {
+				try {
+					store(checkpoint);
+					prune();
+					written.complete(checkpoint);
+				} catch (IOException e) {
+					written.completeExceptionally(new UncheckedIOException("cannot write " + checkpoint, e));
+				} catch (Throwable t) {
+					written.completeExceptionally(t);
+				}
+			}
+		});
+		return written;
+	}
+
+	/**
+	 * Waits until the checkpoints passed to {@link #write(Checkpoint)} so far have been written, or failed, and
+	 * the older ones have been deleted.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void flush() throws InterruptedException {
+		try {
+			writer.submit(new Runnable() {
+				public void run() {
+				}
+			}).get();
+		} catch (RejectedExecutionException e) {
+			// closed, the pending checkpoints are written nevertheless
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void store(Checkpoint checkpoint) throws IOException {
+		File tmp = new File(directory, PREFIX + checkpoint.getId() + ".tmp");
+		FileOutputStream file = new FileOutputStream(tmp);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(checkpoint.getId());
+			out.writeLong(checkpoint.getTimestamp());
+			checkpoint.getTopology().writeTo(out);
+			out.writeInt(checkpoint.getStates().size());
+			for(Map.Entry<String, byte[]> e : checkpoint.getStates().entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeInt(e.getValue().length);
+				out.write(e.getValue());
+			}
+			out.flush();
+			file.getFD().sync();
+		} finally {
+			file.close();
+		}
+		Files.move(tmp.toPath(), new File(directory, PREFIX + checkpoint.getId()).toPath(),
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void prune() throws IOException {
+		List<Long> ids = getIds();
+		for(int i = 0; i < ids.size() - retained; i++) {
+			Files.deleteIfExists(new File(directory, PREFIX + ids.get(i)).toPath());
+		}
+	}
+
+	/**
+	 * @return the ids of the checkpoints on disk in ascending order
+	 */
+	public List<Long> getIds() {
+		List<Long> ids = new ArrayList<Long>();
+		String[] names = directory.list();
+		if(names != null) {
+			for(String name : names) {
+				if(name.startsWith(PREFIX) && name.indexOf('.') < 0) {
+					try {
+						ids.add(Long.parseLong(name.substring(PREFIX.length())));
+					} catch (NumberFormatException e) {
+						// not a checkpoint
+					}
+				}
+			}
+		}
+		Collections.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * @return the checkpoint with the highest id, null if there is none
+	 * @throws IOException if it can not be read
+	 */
+	public Checkpoint latest() throws IOException {
+		List<Long> ids = getIds();
+		return ids.isEmpty() ? null : read(ids.get(ids.size() - 1));
+	}
+
+	/**
+	 * @throws IOException if the checkpoint does not exist or can not be read
+	 */
+	public Checkpoint read(long id) throws IOException {
+		File file = new File(directory, PREFIX + id);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is no checkpoint of version " + VERSION);
+			}
+			long stored = in.readLong();
+			long timestamp = in.readLong();
+			Topology topology = Topology.readFrom(in);
+			Map<String, byte[]> states = new HashMap<String, byte[]>();
+			for(int i = in.readInt(); i > 0; i--) {
+				String key = in.readUTF();
+				byte[] state = new byte[in.readInt()];
+				in.readFully(state);
+				states.put(key, state);
+			}
+			return new Checkpoint(stored, timestamp, topology, states);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Stops the thread writing checkpoints once the pending ones have been written.
+	 */
+	public void close() {
+		writer.shutdown();
+	}
+}
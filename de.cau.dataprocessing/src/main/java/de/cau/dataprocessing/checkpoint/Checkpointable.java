@@ -0,0 +1,27 @@
+package de.cau.dataprocessing.checkpoint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An {@link de.cau.dataprocessing.filters.IDataMangler} keeping state between its executions which is part of a
+ * {@link Checkpoint}. Both methods are called by the thread executing the mangler, never during an execution:
+ * {@link #snapshot(DataOutput)} once the mangler has processed every value preceding the checkpoint's barrier,
+ * {@link #restore(DataInput)} before the mangler is executed for the first time.<p>
+ *
+ * Sources restoring their position are what keeps a restart from replaying the whole input, e.g. the index of
+ * the next record to read. The snapshot should be quick, writing it to disk happens asynchronously.
+ */
+public interface Checkpointable {
+
+	/**
+	 * Writes the current state.
+	 */
+	void snapshot(DataOutput out) throws IOException;
+
+	/**
+	 * Reads a state written by {@link #snapshot(DataOutput)}.
+	 */
+	void restore(DataInput in) throws IOException;
+}
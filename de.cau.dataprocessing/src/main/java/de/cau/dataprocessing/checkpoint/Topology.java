@@ -0,0 +1,164 @@
+package de.cau.dataprocessing.checkpoint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+
+/**
+ * The shape of a {@link Graph}: the classes of its manglers by their position, i.e. the order they have been
+ * added in, and the connections between their ports, each one identified as
+ * <code>&lt;position&gt;.&lt;output port&gt;-&gt;&lt;position&gt;.&lt;input port&gt;</code>. Two graphs built the
+ * same way have equal topologies, which is what allows restoring the state of one from a checkpoint of the other.
+ */
+public final class Topology {
+
+	private final List<String> manglers;
+
+	// sorted
+	private final List<String> connections;
+
+	// null unless created of a graph
+	private final Map<IDataMangler, Integer> positions;
+
+	private Topology(List<String> manglers, List<String> connections, Map<IDataMangler, Integer> positions) {
+		this.manglers = Collections.unmodifiableList(manglers);
+		this.connections = Collections.unmodifiableList(connections);
+		this.positions = positions;
+	}
+
+	public static Topology of(Graph graph) {
+		List<String> manglers = new ArrayList<String>();
+		Map<IDataMangler, Integer> positions = new IdentityHashMap<IDataMangler, Integer>();
+		for(IDataMangler idm : graph.getAllIDMs()) {
+			positions.put(idm, manglers.size());
+			manglers.add(idm.getClass().getName());
+		}
+		TreeSet<String> connections = new TreeSet<String>();
+		for(IDataMangler idm : graph.getAllIDMs()) {
+			for(InstanceMethod<IDataMangler> out : graph.getOutPortsOf(idm)) {
+				for(InstanceMethod<IDataMangler> in : graph.getConnectionsFromOutputPort(out)) {
+					connections.add(positions.get(idm) + "." + out.getMethod().getName() + "->"
+							+ positions.get(in.getInstance()) + "." + in.getMethod().getName());
+				}
+			}
+		}
+		return new Topology(manglers, new ArrayList<String>(connections), positions);
+	}
+
+	/**
+	 * @return the class names of the manglers by their position
+	 */
+	public List<String> getManglers() {
+		return manglers;
+	}
+
+	public List<String> getConnections() {
+		return connections;
+	}
+
+	/**
+	 * @return the position of a mangler of the graph this topology has been created of
+	 * @throws IllegalArgumentException if the mangler is not part of the graph
+	 */
+	public int positionOf(IDataMangler idm) {
+		Integer position = positions != null ? positions.get(idm) : null;
+		if(position == null) {
+			throw new IllegalArgumentException(idm + " is not part of the graph");
+		}
+		return position;
+	}
+
+	/**
+	 * Builds a graph of this topology, creating every mangler using its public constructor without parameters.
+	 *
+	 * @throws IllegalStateException if a mangler can not be created or a port does not exist
+	 */
+	public Graph rebuild() {
+		Graph graph = new Graph();
+		List<IDataMangler> instances = new ArrayList<IDataMangler>(manglers.size());
+		for(String name : manglers) {
+			IDataMangler idm;
+			try {
+				idm = Class.forName(name).asSubclass(IDataMangler.class).getConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("cannot create " + name, e);
+			}
+			graph.addMangler(idm);
+			instances.add(idm);
+		}
+		for(String connection : connections) {
+			int arrow = connection.indexOf("->");
+			String out = connection.substring(0, arrow);
+			String in = connection.substring(arrow + 2);
+			graph.connect(port(graph.getOutPortsOf(mangler(instances, out)), out),
+					port(graph.getInPortsOf(mangler(instances, in)), in));
+		}
+		return graph;
+	}
+
+	private static IDataMangler mangler(List<IDataMangler> instances, String port) {
+		return instances.get(Integer.parseInt(port.substring(0, port.indexOf('.'))));
+	}
+
+	private static InstanceMethod<IDataMangler> port(Iterable<InstanceMethod<IDataMangler>> ports, String port) {
+		String name = port.substring(port.indexOf('.') + 1);
+		for(InstanceMethod<IDataMangler> candidate : ports) {
+			if(candidate.getMethod().getName().equals(name)) {
+				return candidate;
+			}
+		}
+		throw new IllegalStateException("no port " + port);
+	}
+
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(manglers.size());
+		for(String mangler : manglers) {
+			out.writeUTF(mangler);
+		}
+		out.writeInt(connections.size());
+		for(String connection : connections) {
+			out.writeUTF(connection);
+		}
+	}
+
+	static Topology readFrom(DataInput in) throws IOException {
+		List<String> manglers = new ArrayList<String>();
+		for(int i = in.readInt(); i > 0; i--) {
+			manglers.add(in.readUTF());
+		}
+		List<String> connections = new ArrayList<String>();
+		for(int i = in.readInt(); i > 0; i--) {
+			connections.add(in.readUTF());
+		}
+		return new Topology(manglers, connections, null);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof Topology)) {
+			return false;
+		}
+		Topology other = (Topology) obj;
+		return manglers.equals(other.manglers) && connections.equals(other.connections);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * manglers.hashCode() + connections.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return manglers + " " + connections;
+	}
+}
@@ -0,0 +1,257 @@
+package de.cau.dataprocessing.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The types of the fields of a {@link RecordSchema} and how their values are written. Integral values are
+ * written as zigzag {@link Varint}s, floating point values in the byte order of the buffer, strings as the
+ * length of their UTF-8 encoding plus one (0 for <code>null</code>) followed by the encoding.<p>
+ *
+ * The accessors are method handles of the type <code>(Object)T</code> and <code>(Object,T)void</code>, where
+ * <code>T</code> is the {@link #getType() type} of the field.
+ */
+public enum FieldType {
+
+	LONG(1, long.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			Varint.putLong(buffer, (long) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, Varint.getLong(buffer));
+		}
+
+		void skip(ByteBuffer buffer) {
+			Varint.getUnsignedLong(buffer);
+		}
+	},
+	INT(2, int.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			Varint.putInt(buffer, (int) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, Varint.getInt(buffer));
+		}
+
+		void skip(ByteBuffer buffer) {
+			Varint.getUnsignedLong(buffer);
+		}
+	},
+	SHORT(3, short.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			Varint.putInt(buffer, (short) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, (short) Varint.getInt(buffer));
+		}
+
+		void skip(ByteBuffer buffer) {
+			Varint.getUnsignedLong(buffer);
+		}
+	},
+	BYTE(4, byte.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			buffer.put((byte) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, buffer.get());
+		}
+
+		void skip(ByteBuffer buffer) {
+			buffer.get();
+		}
+	},
+	BOOLEAN(5, boolean.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			buffer.put((boolean) getter.invokeExact(record) ? (byte) 1 : (byte) 0);
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, buffer.get() != 0);
+		}
+
+		void skip(ByteBuffer buffer) {
+			buffer.get();
+		}
+	},
+	CHAR(6, char.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			buffer.putChar((char) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, buffer.getChar());
+		}
+
+		void skip(ByteBuffer buffer) {
+			buffer.position(buffer.position() + 2);
+		}
+	},
+	DOUBLE(7, double.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			buffer.putDouble((double) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, buffer.getDouble());
+		}
+
+		void skip(ByteBuffer buffer) {
+			buffer.position(buffer.position() + 8);
+		}
+	},
+	FLOAT(8, float.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			buffer.putFloat((float) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, buffer.getFloat());
+		}
+
+		void skip(ByteBuffer buffer) {
+			buffer.position(buffer.position() + 4);
+		}
+	},
+	STRING(9, String.class) {
+		void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable {
+			putString(buffer, (String) getter.invokeExact(record));
+		}
+
+		void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable {
+			setter.invokeExact(record, getString(buffer));
+		}
+
+		void skip(ByteBuffer buffer) {
+			long length = Varint.getUnsignedLong(buffer);
+			if(length > 0) {
+				buffer.position(buffer.position() + (int) (length - 1));
+			}
+		}
+	};
+
+	private final byte code;
+
+	private final Class<?> type;
+
+	private FieldType(int code, Class<?> type) {
+		this.code = (byte) code;
+		this.type = type;
+	}
+
+	/**
+	 * @return the code of the type in a written schema
+	 */
+	public byte getCode() {
+		return code;
+	}
+
+	/**
+	 * @return the type of the getter and setter of the field
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	abstract void write(ByteBuffer buffer, Object record, MethodHandle getter) throws Throwable;
+
+	abstract void read(ByteBuffer buffer, Object record, MethodHandle setter) throws Throwable;
+
+	abstract void skip(ByteBuffer buffer);
+
+	/**
+	 * @return the field type of the given Java type, null if it is not supported
+	 */
+	public static FieldType of(Class<?> type) {
+		for(FieldType fieldType : values()) {
+			if(fieldType.type == type) {
+				return fieldType;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @throws IllegalStateException if the code is unknown
+	 */
+	public static FieldType ofCode(byte code) {
+		for(FieldType fieldType : values()) {
+			if(fieldType.code == code) {
+				return fieldType;
+			}
+		}
+		throw new IllegalStateException("unknown field type " + code);
+	}
+
+	/**
+	 * Writes the string without encoding it into an intermediate array.
+	 */
+	static void putString(ByteBuffer buffer, String value) {
+		if(value == null) {
+			buffer.put((byte) 0);
+			return;
+		}
+		int length = value.length();
+		int size = 0;
+		for(int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if(c < 0x80) {
+				size++;
+			} else if(c < 0x800) {
+				size += 2;
+			} else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				size += 4;
+				i++;
+			} else if(Character.isSurrogate(c)) {
+				size++;
+			} else {
+				size += 3;
+			}
+		}
+		Varint.putUnsignedLong(buffer, size + 1L);
+		for(int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if(c < 0x80) {
+				buffer.put((byte) c);
+			} else if(c < 0x800) {
+				buffer.put((byte) (0xC0 | c >> 6));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			} else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xF0 | cp >> 18));
+				buffer.put((byte) (0x80 | cp >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | cp >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | cp & 0x3F));
+			} else if(Character.isSurrogate(c)) {
+				// unpaired surrogates are replaced like String.getBytes does
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | c >> 12));
+				buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+
+	static String getString(ByteBuffer buffer) {
+		int length = (int) Varint.getUnsignedLong(buffer) - 1;
+		if(length < 0) {
+			return null;
+		}
+		String value;
+		if(buffer.hasArray()) {
+			value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,210 @@
+package de.cau.dataprocessing.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.google.common.base.Throwables;
+
+import de.cau.dataprocessing.data.Record;
+
+/**
+ * Encodes and decodes {@link Record}s of one class straight to and from a {@link ByteBuffer} as laid out by
+ * its {@link RecordSchema}. The accessors of the fields are looked up once per class, encoding and decoding
+ * only call them, nothing is allocated apart from the strings of decoded records.<p>
+ *
+ * Data written with another version of the schema is read by the codec returned by
+ * {@link #forWriter(RecordSchema)}: fields unknown to the class are skipped, fields missing in the data keep
+ * the value the record had before.
+ *
+ * @param <T> the record class
+ */
+public final class RecordCodec<T extends Record> {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final ClassValue<RecordCodec<?>> CACHE = new ClassValue<RecordCodec<?>>() {
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		protected RecordCodec<?> computeValue(Class<?> type) {
+			return new RecordCodec(type.asSubclass(Record.class));
+		}
+	};
+
+	private final Class<T> clazz;
+
+	private final RecordSchema schema;
+
+	// the schema of the data read, differs from the class' schema if written by another version
+	private final RecordSchema writer;
+
+	// per field of the written schema: its type and the accessor of the class, null if skipped
+	private final FieldType[] types;
+
+	private final MethodHandle[] getters;
+
+	private final MethodHandle[] setters;
+
+	// null unless the class has a constructor without parameters
+	private final MethodHandle constructor;
+
+	private RecordCodec(Class<T> clazz) {
+		this(clazz, RecordSchema.of(clazz), null);
+	}
+
+	private RecordCodec(Class<T> clazz, RecordSchema schema, RecordSchema writer) {
+		this.clazz = clazz;
+		this.schema = schema;
+		this.writer = writer != null ? writer : schema;
+		List<RecordSchema.Field> fields = this.writer.getFields();
+		types = new FieldType[fields.size()];
+		getters = new MethodHandle[fields.size()];
+		setters = new MethodHandle[fields.size()];
+		try {
+			for(int i = 0; i < types.length; i++) {
+				RecordSchema.Field field = fields.get(i);
+				types[i] = field.getType();
+				RecordSchema.Field own = schema.getField(field.getName());
+				if(own == null) {
+					continue;
+				}
+				if(own.getType() != field.getType()) {
+					throw new IllegalStateException("field " + field.getName() + " of " + clazz.getName() + " changed from "
+							+ field.getType() + " to " + own.getType());
+				}
+				String property = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+				Class<?> type = field.getType().getType();
+				Method getter = clazz.getMethod((type == boolean.class && !hasGetter(clazz, property) ? "is" : "get") + property);
+				Method setter = clazz.getMethod("set" + property, type);
+				getter.setAccessible(true);
+				setter.setAccessible(true);
+				getters[i] = LOOKUP.unreflect(getter).asType(MethodType.methodType(type, Object.class));
+				setters[i] = LOOKUP.unreflect(setter).asType(MethodType.methodType(void.class, Object.class, type));
+			}
+			constructor = constructor(clazz);
+		} catch (IllegalStateException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("cannot create codec for " + clazz.getName(), e);
+		}
+	}
+
+	private static boolean hasGetter(Class<?> clazz, String property) {
+		try {
+			clazz.getMethod("get" + property);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static MethodHandle constructor(Class<?> clazz) throws IllegalAccessException {
+		try {
+			Constructor<?> constructor = clazz.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the codec of a record class, which is created only once.
+	 *
+	 * @param clazz
+	 * @return the codec
+	 * @throws IllegalArgumentException if the schema of the class can not be derived
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Record> RecordCodec<T> of(Class<T> clazz) {
+		return (RecordCodec<T>) CACHE.get(clazz);
+	}
+
+	/**
+	 * Returns a codec reading data written with the given schema into records of this codec's class.
+	 *
+	 * @param written the schema the data has been written with
+	 * @return the codec, this one if the schemas are equal
+	 * @throws IllegalStateException if a field of both schemas has a different type
+	 */
+	public RecordCodec<T> forWriter(RecordSchema written) {
+		if(written.equals(writer)) {
+			return this;
+		}
+		return new RecordCodec<T>(clazz, schema, written);
+	}
+
+	/**
+	 * @return the schema of the class
+	 */
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the schema of the data this codec reads and writes
+	 */
+	public RecordSchema getWriterSchema() {
+		return writer;
+	}
+
+	/**
+	 * Writes the record at the buffer's position.
+	 *
+	 * @throws IllegalStateException if the codec reads data of another schema
+	 * @throws java.nio.BufferOverflowException if the buffer is too small, its position is undefined then
+	 */
+	public void encode(T record, ByteBuffer buffer) {
+		if(writer != schema) {
+			throw new IllegalStateException("codec reads data written with " + writer);
+		}
+		try {
+			for(int i = 0; i < types.length; i++) {
+				types[i].write(buffer, record, getters[i]);
+			}
+		} catch (Throwable t) {
+			throw Throwables.propagate(t);
+		}
+	}
+
+	/**
+	 * Reads a record at the buffer's position into the given one.
+	 *
+	 * @return the given record
+	 */
+	public T decode(ByteBuffer buffer, T record) {
+		try {
+			for(int i = 0; i < types.length; i++) {
+				if(setters[i] != null) {
+					types[i].read(buffer, record, setters[i]);
+				} else {
+					types[i].skip(buffer);
+				}
+			}
+		} catch (Throwable t) {
+			throw Throwables.propagate(t);
+		}
+		return record;
+	}
+
+	/**
+	 * Reads a record at the buffer's position into a new one.
+	 *
+	 * @throws IllegalStateException if the class has no constructor without parameters
+	 */
+	public T decode(ByteBuffer buffer) {
+		if(constructor == null) {
+			throw new IllegalStateException(clazz.getName() + " has no constructor without parameters");
+		}
+		try {
+			return decode(buffer, clazz.cast((Object) constructor.invokeExact()));
+		} catch (Throwable t) {
+			throw Throwables.propagate(t);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package de.cau.dataprocessing.codec;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.cau.dataprocessing.data.Record;
+
+/**
+ * The binary layout of a {@link Record} class: its name, {@link RecordVersion version} and fields. The fields
+ * are the properties with a public getter and setter of a {@link FieldType supported type}, ordered by name,
+ * and are written in that order without any tags.<p>
+ *
+ * A schema is written once in front of the records it describes, e.g. in the header of a file, so data written
+ * with an older version of a class stays readable, see {@link RecordCodec#forWriter(RecordSchema)}.
+ */
+public final class RecordSchema {
+
+	private static final int MAGIC = 0x52534348;
+
+	private final String name;
+
+	private final int version;
+
+	private final List<Field> fields;
+
+	public RecordSchema(String name, int version, List<Field> fields) {
+		this.name = name;
+		this.version = version;
+		this.fields = Collections.unmodifiableList(new ArrayList<Field>(fields));
+	}
+
+	/**
+	 * Derives the schema of a record class.
+	 *
+	 * @param clazz
+	 * @return the schema
+	 * @throws IllegalArgumentException if a property with getter and setter has an unsupported type
+	 */
+	public static RecordSchema of(Class<? extends Record> clazz) {
+		Map<String, Field> fields = new TreeMap<String, Field>();
+		for(Method getter : clazz.getMethods()) {
+			String property = property(getter);
+			if(property == null) {
+				continue;
+			}
+			Method setter;
+			try {
+				setter = clazz.getMethod("set" + property, getter.getReturnType());
+			} catch (NoSuchMethodException e) {
+				continue;
+			}
+			if(Modifier.isStatic(setter.getModifiers())) {
+				continue;
+			}
+			FieldType type = FieldType.of(getter.getReturnType());
+			if(type == null) {
+				throw new IllegalArgumentException("property " + property + " of " + clazz.getName()
+						+ " has an unsupported type " + getter.getReturnType().getName());
+			}
+			String name = Character.toLowerCase(property.charAt(0)) + property.substring(1);
+			fields.put(name, new Field(name, type));
+		}
+		RecordVersion version = clazz.getAnnotation(RecordVersion.class);
+		return new RecordSchema(clazz.getName(), version != null ? version.value() : 1,
+				new ArrayList<Field>(fields.values()));
+	}
+
+	// the capitalized property name of a getter, null if the method is none
+	private static String property(Method m) {
+		if(Modifier.isStatic(m.getModifiers()) || m.getParameterTypes().length != 0 || m.getDeclaringClass() == Object.class) {
+			return null;
+		}
+		String name = m.getName();
+		if(name.startsWith("get") && name.length() > 3 && m.getReturnType() != void.class) {
+			return name.substring(3);
+		} else if(name.startsWith("is") && name.length() > 2 && m.getReturnType() == boolean.class) {
+			return name.substring(2);
+		}
+		return null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public List<Field> getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return the field with the given name, null if there is none
+	 */
+	public Field getField(String name) {
+		for(Field field : fields) {
+			if(field.getName().equals(name)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the schema at the buffer's position.
+	 *
+	 * @throws java.nio.BufferOverflowException if the buffer is too small
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		FieldType.putString(buffer, name);
+		Varint.putUnsignedLong(buffer, version);
+		Varint.putUnsignedLong(buffer, fields.size());
+		for(Field field : fields) {
+			FieldType.putString(buffer, field.getName());
+			buffer.put(field.getType().getCode());
+		}
+	}
+
+	/**
+	 * Reads a schema written by {@link #writeTo(ByteBuffer)} at the buffer's position.
+	 *
+	 * @throws IllegalStateException if the buffer does not contain a schema
+	 */
+	public static RecordSchema readFrom(ByteBuffer buffer) {
+		if(buffer.getInt() != MAGIC) {
+			throw new IllegalStateException("no record schema");
+		}
+		String name = FieldType.getString(buffer);
+		int version = (int) Varint.getUnsignedLong(buffer);
+		int count = (int) Varint.getUnsignedLong(buffer);
+		List<Field> fields = new ArrayList<Field>(count);
+		for(int i = 0; i < count; i++) {
+			String field = FieldType.getString(buffer);
+			fields.add(new Field(field, FieldType.ofCode(buffer.get())));
+		}
+		return new RecordSchema(name, version, fields);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode() * 31 + fields.hashCode() + version;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof RecordSchema)) {
+			return false;
+		}
+		RecordSchema other = (RecordSchema) obj;
+		return name.equals(other.name) && version == other.version && fields.equals(other.fields);
+	}
+
+	@Override
+	public String toString() {
+		return name + " v" + version + " " + fields;
+	}
+
+	/**
+	 * A field of a schema.
+	 */
+	public static final class Field {
+
+		private final String name;
+
+		private final FieldType type;
+
+		public Field(String name, FieldType type) {
+			this.name = name;
+			this.type = type;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public FieldType getType() {
+			return type;
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode() * 31 + type.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Field)) {
+				return false;
+			}
+			Field other = (Field) obj;
+			return name.equals(other.name) && type == other.type;
+		}
+
+		@Override
+		public String toString() {
+			return name + ":" + type;
+		}
+	}
+}
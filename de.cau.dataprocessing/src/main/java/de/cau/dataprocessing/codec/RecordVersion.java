@@ -0,0 +1,17 @@
+package de.cau.dataprocessing.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The version of the {@link RecordSchema} of a {@link de.cau.dataprocessing.data.Record} class, which should be
+ * increased whenever its fields change. Classes without this annotation have version 1.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RecordVersion {
+
+	int value();
+}
@@ -0,0 +1,66 @@
+package de.cau.dataprocessing.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length encoding of integers: 7 bits per byte, least significant group first, the high bit of a byte
+ * tells whether another one follows. Signed values are zigzag encoded first, so small negative values stay
+ * short as well.
+ */
+public final class Varint {
+
+	private Varint() {
+	}
+
+	public static void putUnsignedLong(ByteBuffer buffer, long value) {
+		while((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * @throws IllegalStateException if the value is longer than 10 bytes
+	 */
+	public static long getUnsignedLong(ByteBuffer buffer) {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if(b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("malformed varint");
+	}
+
+	public static void putLong(ByteBuffer buffer, long value) {
+		putUnsignedLong(buffer, (value << 1) ^ (value >> 63));
+	}
+
+	public static long getLong(ByteBuffer buffer) {
+		long value = getUnsignedLong(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static void putInt(ByteBuffer buffer, int value) {
+		putLong(buffer, value);
+	}
+
+	public static int getInt(ByteBuffer buffer) {
+		return (int) getLong(buffer);
+	}
+
+	/**
+	 * @return the number of bytes the unsigned value takes
+	 */
+	public static int sizeOfUnsigned(long value) {
+		int size = 1;
+		while((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+}
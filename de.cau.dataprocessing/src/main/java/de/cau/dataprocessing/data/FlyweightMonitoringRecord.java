@@ -0,0 +1,126 @@
+package de.cau.dataprocessing.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link MonitoringRecord} reading and writing its values in place in a {@link ByteBuffer}, usually a direct one.
+ * The record occupies {@link #SIZE} bytes starting at its offset:
+ *
+ * <pre>
+ *  0 timestamp   long
+ *  8 traceId     long
+ * 16 duration    long
+ * 24 operationId int
+ * 28 (padding)
+ * </pre>
+ *
+ * The byte order is the one of the buffer.
+ */
+public class FlyweightMonitoringRecord extends MonitoringRecord {
+
+	public static final int TIMESTAMP_OFFSET = 0;
+
+	public static final int TRACE_ID_OFFSET = 8;
+
+	public static final int DURATION_OFFSET = 16;
+
+	public static final int OPERATION_ID_OFFSET = 24;
+
+	public static final int SIZE = 32;
+
+	private ByteBuffer buffer;
+
+	private int offset;
+
+	// the slab this record belongs to, if any
+	private final MonitoringRecordSlab slab;
+
+	public FlyweightMonitoringRecord() {
+		this.slab = null;
+	}
+
+	FlyweightMonitoringRecord(MonitoringRecordSlab slab, ByteBuffer buffer, int offset) {
+		this.slab = slab;
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+
+	/**
+	 * Points this record to another position.
+	 *
+	 * @param buffer
+	 * @param offset of the record's first byte
+	 * @return this record
+	 * @throws IllegalStateException if the record belongs to a {@link MonitoringRecordSlab}
+	 * @throws IndexOutOfBoundsException if the record does not fit into the buffer at the offset
+	 */
+	public FlyweightMonitoringRecord wrap(ByteBuffer buffer, int offset) {
+		if(slab != null) {
+			throw new IllegalStateException("record belongs to a slab");
+		}
+		if(offset < 0 || offset + SIZE > buffer.capacity()) {
+			throw new IndexOutOfBoundsException("offset " + offset);
+		}
+		this.buffer = buffer;
+		this.offset = offset;
+		return this;
+	}
+
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Tells the slab this record belongs to that the record is not used anymore. Has to be called by the last
+	 * mangler processing the record if the slab is pooled by a {@link MonitoringRecordAllocator}.
+	 */
+	public void release() {
+		if(slab != null) {
+			slab.release();
+		}
+	}
+
+	@Override
+	public long getTimestamp() {
+		return buffer.getLong(offset + TIMESTAMP_OFFSET);
+	}
+
+	@Override
+	public void setTimestamp(long timestamp) {
+		buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+	}
+
+	@Override
+	public long getTraceId() {
+		return buffer.getLong(offset + TRACE_ID_OFFSET);
+	}
+
+	@Override
+	public void setTraceId(long traceId) {
+		buffer.putLong(offset + TRACE_ID_OFFSET, traceId);
+	}
+
+	@Override
+	public int getOperationId() {
+		return buffer.getInt(offset + OPERATION_ID_OFFSET);
+	}
+
+	@Override
+	public void setOperationId(int operationId) {
+		buffer.putInt(offset + OPERATION_ID_OFFSET, operationId);
+	}
+
+	@Override
+	public long getDuration() {
+		return buffer.getLong(offset + DURATION_OFFSET);
+	}
+
+	@Override
+	public void setDuration(long duration) {
+		buffer.putLong(offset + DURATION_OFFSET, duration);
+	}
+}
@@ -1,6 +1,80 @@
 package de.cau.dataprocessing.data;
 
-
+/**
+ * A monitored execution of an operation.<p>
+ *
+ * Instances of this class hold their values on the heap, {@link FlyweightMonitoringRecord}s read and write them
+ * in place in a buffer.
+ */
 public class MonitoringRecord extends Record {
 
+	private long timestamp;
+
+	private long traceId;
+
+	private int operationId;
+
+	private long duration;
+
+	/**
+	 * @return the start of the execution in nanoseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the id of the trace the execution belongs to
+	 */
+	public long getTraceId() {
+		return traceId;
+	}
+
+	public void setTraceId(long traceId) {
+		this.traceId = traceId;
+	}
+
+	/**
+	 * @return the id of the executed operation
+	 */
+	public int getOperationId() {
+		return operationId;
+	}
+
+	public void setOperationId(int operationId) {
+		this.operationId = operationId;
+	}
+
+	/**
+	 * @return the duration of the execution in nanoseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+
+	/**
+	 * Copies all values of the given record.
+	 *
+	 * @param other
+	 */
+	public void copyFrom(MonitoringRecord other) {
+		setTimestamp(other.getTimestamp());
+		setTraceId(other.getTraceId());
+		setOperationId(other.getOperationId());
+		setDuration(other.getDuration());
+	}
+
+	@Override
+	public String toString() {
+		return "MonitoringRecord[timestamp=" + getTimestamp() + ", traceId=" + getTraceId() + ", operationId="
+				+ getOperationId() + ", duration=" + getDuration() + "]";
+	}
 }
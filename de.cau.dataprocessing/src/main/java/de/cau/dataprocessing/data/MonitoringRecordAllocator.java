@@ -0,0 +1,70 @@
+package de.cau.dataprocessing.data;
+
+import de.cau.dataprocessing.channel.MpmcRingBuffer;
+
+/**
+ * Allocates {@link FlyweightMonitoringRecord}s from a bounded pool of {@link MonitoringRecordSlab}s. A slab is
+ * reused as soon as all of its records have been released, so the memory used for records does not grow with
+ * the number of records but with the number of records in flight. If all slabs are in use, allocating waits for
+ * one to be recycled.<p>
+ *
+ * An allocator is used by a single thread, e.g. the one of a source.
+ */
+public class MonitoringRecordAllocator {
+
+	private final int recordsPerSlab;
+
+	private final int maxSlabs;
+
+	private final MpmcRingBuffer<MonitoringRecordSlab> free;
+
+	private int slabs;
+
+	private MonitoringRecordSlab current;
+
+	/**
+	 * @param recordsPerSlab
+	 * @param maxSlabs maximum number of slabs, a power of two
+	 */
+	public MonitoringRecordAllocator(int recordsPerSlab, int maxSlabs) {
+		this.recordsPerSlab = recordsPerSlab;
+		this.maxSlabs = maxSlabs;
+		this.free = new MpmcRingBuffer<MonitoringRecordSlab>(maxSlabs);
+	}
+
+	/**
+	 * @return a record to be released once it is not used anymore
+	 * @throws InterruptedException if interrupted while waiting for a slab to be recycled
+	 */
+	public FlyweightMonitoringRecord allocate() throws InterruptedException {
+		if(current == null) {
+			current = free.poll();
+			if(current == null) {
+				if(slabs < maxSlabs) {
+					current = new MonitoringRecordSlab(recordsPerSlab, this);
+					slabs++;
+				} else {
+					current = free.take();
+				}
+			}
+		}
+		FlyweightMonitoringRecord record = current.allocate();
+		if(current.isFull()) {
+			// from now on the slab may be recycled by the thread releasing its last record
+			current = null;
+		}
+		return record;
+	}
+
+	/**
+	 * @return the number of slabs created so far
+	 */
+	public int getSlabCount() {
+		return slabs;
+	}
+
+	void recycle(MonitoringRecordSlab slab) {
+		slab.clear();
+		free.offer(slab);
+	}
+}
@@ -0,0 +1,89 @@
+package de.cau.dataprocessing.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of {@link FlyweightMonitoringRecord}s stored in a single direct buffer outside of the heap.
+ * The flyweights of all slots are created along with the slab, so allocating a record does not create any object.<p>
+ *
+ * Records are allocated by a single thread, they may be released by any thread.
+ */
+public class MonitoringRecordSlab {
+
+	private final ByteBuffer buffer;
+
+	private final FlyweightMonitoringRecord[] records;
+
+	private final AtomicInteger released = new AtomicInteger();
+
+	private int allocated;
+
+	private MonitoringRecordAllocator owner;
+
+	/**
+	 * @param capacity number of records
+	 */
+	public MonitoringRecordSlab(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity " + capacity);
+		}
+		this.buffer = ByteBuffer.allocateDirect(capacity * FlyweightMonitoringRecord.SIZE).order(ByteOrder.nativeOrder());
+		this.records = new FlyweightMonitoringRecord[capacity];
+		for(int i = 0; i < capacity; i++) {
+			records[i] = new FlyweightMonitoringRecord(this, buffer, i * FlyweightMonitoringRecord.SIZE);
+		}
+	}
+
+	MonitoringRecordSlab(int capacity, MonitoringRecordAllocator owner) {
+		this(capacity);
+		this.owner = owner;
+	}
+
+	/**
+	 * @return the record in the next free slot or <code>null</code> if the slab is full
+	 */
+	public FlyweightMonitoringRecord allocate() {
+		return allocated < records.length ? records[allocated++] : null;
+	}
+
+	/**
+	 * @param index
+	 * @return the record in the given slot
+	 * @throws IndexOutOfBoundsException if the slot has not been allocated
+	 */
+	public FlyweightMonitoringRecord get(int index) {
+		if(index < 0 || index >= allocated) {
+			throw new IndexOutOfBoundsException("index " + index);
+		}
+		return records[index];
+	}
+
+	public int size() {
+		return allocated;
+	}
+
+	public int capacity() {
+		return records.length;
+	}
+
+	public boolean isFull() {
+		return allocated == records.length;
+	}
+
+	/**
+	 * Makes all slots available again.
+	 */
+	public void clear() {
+		allocated = 0;
+		released.set(0);
+	}
+
+	void release() {
+		// a full slab of an allocator is recycled once all of its records have been released
+		if(released.incrementAndGet() == records.length && owner != null) {
+			owner.recycle(this);
+		}
+	}
+}
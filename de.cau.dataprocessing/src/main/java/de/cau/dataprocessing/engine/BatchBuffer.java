@@ -0,0 +1,85 @@
+package de.cau.dataprocessing.engine;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+import de.cau.dataprocessing.reflect.InputInvoker;
+
+/**
+ * Collects the values for an input port taking batches and sets them as an array once the batch is full,
+ * it has been waiting too long or the input has ended. Only used by a single worker.
+ */
+class BatchBuffer {
+
+	private final InputInvoker port;
+
+	private final Operator.Batch batch;
+
+	private Object[] values;
+
+	private int count;
+
+	private long deadline;
+
+	BatchBuffer(InputInvoker port, Operator.Batch batch) {
+		this.port = port;
+		this.batch = batch;
+	}
+
+	/**
+	 * @param value
+	 * @return true if the batch has been set on the port
+	 */
+	boolean add(Object value) {
+		if(values == null) {
+			values = (Object[]) Array.newInstance(batch.getType(), batch.getSize());
+		}
+		if(count == 0) {
+			deadline = System.nanoTime() + batch.getMaxLatency();
+		}
+		values[count++] = value;
+		if(count == values.length) {
+			// the full array is handed over as is, the next batch gets a new one
+			Object[] full = values;
+			values = null;
+			count = 0;
+			port.set(full);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the incomplete batch on the port.
+	 *
+	 * @return false if there has been no value to set
+	 */
+	boolean flush() {
+		if(count == 0) {
+			return false;
+		}
+		Object[] partial = Arrays.copyOf(values, count);
+		Arrays.fill(values, 0, count, null);
+		count = 0;
+		port.set(partial);
+		return true;
+	}
+
+	boolean isPending() {
+		return count > 0;
+	}
+
+	/**
+	 * @return whether an incomplete batch is to be set after some time
+	 */
+	boolean isTimed() {
+		return batch.getMaxLatency() > 0;
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} the pending batch has to be set at
+	 */
+	long getDeadline() {
+		return deadline;
+	}
+}
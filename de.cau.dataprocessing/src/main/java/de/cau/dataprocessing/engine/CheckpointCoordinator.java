@@ -0,0 +1,143 @@
+package de.cau.dataprocessing.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import de.cau.dataprocessing.checkpoint.Checkpoint;
+import de.cau.dataprocessing.checkpoint.CheckpointStore;
+import de.cau.dataprocessing.checkpoint.Topology;
+
+/**
+ * Collects the states of the workers of one execution into checkpoints. A checkpoint is triggered by raising
+ * the requested id, which the sources notice between their executions: they take their snapshots and send a
+ * barrier downstream, every other worker takes its snapshot once the barriers of all its producers arrived.
+ * Once every worker acknowledged its snapshot the checkpoint is handed to the store. Only one checkpoint is
+ * pending at a time. Since a worker which has ended can not take snapshots anymore, the pending checkpoint is
+ * aborted when a worker ends before acknowledging it and no checkpoints are triggered after that.
+ */
+class CheckpointCoordinator {
+
+	private final CheckpointStore store;
+
+	private final Topology topology;
+
+	// number of workers taking snapshots
+	private final int participants;
+
+	private volatile long requested;
+
+	private long last;
+
+	private boolean ended;
+
+	// null unless a checkpoint is pending
+	private CompletableFuture<Checkpoint> pending;
+
+	private Map<String, byte[]> states;
+
+	private int acknowledged;
+
+	/**
+	 * @param last id of the last checkpoint of the graph, 0 if none
+	 */
+	CheckpointCoordinator(CheckpointStore store, Topology topology, int participants, long last) {
+		this.store = store;
+		this.topology = topology;
+		this.participants = participants;
+		this.requested = last;
+		this.last = last;
+	}
+
+	/**
+	 * @return the id of the latest checkpoint triggered
+	 */
+	long getRequested() {
+		return requested;
+	}
+
+	/**
+	 * Triggers a checkpoint unless one is pending already.
+	 *
+	 * @return completed once the pending checkpoint has been written
+	 */
+	synchronized CompletableFuture<Checkpoint> trigger() {
+		if(pending != null) {
+			return pending;
+		}
+		CompletableFuture<Checkpoint> future = new CompletableFuture<Checkpoint>();
+		if(ended) {
+			future.completeExceptionally(new IllegalStateException("the execution has ended"));
+			return future;
+		}
+		pending = future;
+		states = new HashMap<String, byte[]>();
+		acknowledged = 0;
+		requested = ++last;
+		return future;
+	}
+
+	/**
+	 * Adds the states a worker took for the given checkpoint.
+	 */
+	void acknowledge(long id, Map<String, byte[]> snapshots) {
+		CompletableFuture<Checkpoint> future;
+		Checkpoint checkpoint;
+		synchronized(this) {
+			if(pending == null || id != last) {
+				// aborted
+				return;
+			}
+			states.putAll(snapshots);
+			if(++acknowledged < participants) {
+				return;
+			}
+			future = pending;
+			checkpoint = new Checkpoint(id, System.currentTimeMillis(), topology, states);
+			pending = null;
+			states = null;
+		}
+		store.write(checkpoint).whenComplete(new BiConsumer<Checkpoint, Throwable>() {
+			public void accept(Checkpoint written, Throwable t) {
+				if(t != null) {
+					future.completeExceptionally(t);
+				} else {
+					future.complete(written);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits until the checkpoints acknowledged so far have been written.
+	 */
+	void flush() throws InterruptedException {
+		store.flush();
+	}
+
+	/**
+	 * Called by a worker which has ended.
+	 *
+	 * @param acknowledged the id of the last checkpoint the worker acknowledged
+	 */
+	synchronized void ended(long acknowledged) {
+		ended = true;
+		if(pending != null && acknowledged < last) {
+			abort(new CancellationException("a worker ended before checkpoint " + last));
+		}
+	}
+
+	/**
+	 * Aborts the pending checkpoint, if any, and stops triggering new ones.
+	 */
+	synchronized void abort(Throwable cause) {
+		ended = true;
+		if(pending != null) {
+			pending.completeExceptionally(cause);
+			pending = null;
+			states = null;
+		}
+	}
+}
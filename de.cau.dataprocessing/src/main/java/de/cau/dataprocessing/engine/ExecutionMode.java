@@ -0,0 +1,27 @@
+package de.cau.dataprocessing.engine;
+
+import de.cau.dataprocessing.filters.annotations.Blocking;
+
+/**
+ * The threads the {@link GraphExecutor} runs the workers of the operators on.
+ *
+ * @author Robert von Massow
+ * @since 0.1
+ *
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Every worker has a platform thread of its own.
+	 */
+	PLATFORM,
+
+	/**
+	 * Workers of operators containing a {@link Blocking} mangler run on virtual threads, so large graphs of
+	 * blocking manglers do not need as many platform threads. Workers of CPU-bound operators keep a platform
+	 * thread each rather than sharing a bounded pool: a worker runs for the whole execution and waits for its
+	 * predecessors and followers, so workers sharing fewer threads than there are of them could wait for each
+	 * other forever. If the JVM does not support virtual threads, this is the same as {@link #PLATFORM}.
+	 */
+	VIRTUAL
+}
@@ -0,0 +1,320 @@
+package de.cau.dataprocessing.engine;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Iterables;
+
+import de.cau.dataprocessing.checkpoint.Topology;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.annotations.OverflowPolicy;
+import de.cau.dataprocessing.filters.annotations.Parallel;
+import de.cau.dataprocessing.metrics.GraphMetrics;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+
+/**
+ * An immutable snapshot of a {@link Graph} as created by {@link Graph#compile()}. It holds the
+ * {@link IDataMangler}s in topological order and the {@link Operator}s they are fused into. Later changes
+ * of the graph do not affect the plan. Manglers marked {@link Parallel} are not fused, their operators are
+ * replicated instead (see {@link Operator#getReplicas()}). Neither are manglers with ports discarding results
+ * on overflow, as fusing them would not leave anything to discard.
+ *
+ * @author Robert von Massow
+ * @since 0.1
+ *
+ */
+public class ExecutionPlan {
+
+	private final List<IDataMangler> order;
+
+	private final List<Operator> operators = new ArrayList<Operator>();
+
+	private final Map<IDataMangler, Operator> operatorOf = new HashMap<IDataMangler, Operator>();
+
+	private final GraphMetrics metrics;
+
+	private final Topology topology;
+
+	ExecutionPlan(Graph graph, List<IDataMangler> order) {
+		this.metrics = graph.getMetrics();
+		this.topology = Topology.of(graph);
+		this.order = Collections.unmodifiableList(new ArrayList<IDataMangler>(order));
+		Map<IDataMangler, Set<IDataMangler>> followers = new HashMap<IDataMangler, Set<IDataMangler>>();
+		Map<IDataMangler, Set<IDataMangler>> predecessors = new HashMap<IDataMangler, Set<IDataMangler>>();
+		for(IDataMangler idm : order) {
+			Set<IDataMangler> targets = new LinkedHashSet<IDataMangler>();
+			for(InstanceMethod<IDataMangler> target : graph.getConnectionFromIDM(idm)) {
+				targets.add(target.getInstance());
+			}
+			followers.put(idm, targets);
+			Set<IDataMangler> origins = new LinkedHashSet<IDataMangler>();
+			for(InstanceMethod<IDataMangler> origin : graph.getAllConnectionsToIDM(idm)) {
+				origins.add(origin.getInstance());
+			}
+			predecessors.put(idm, origins);
+		}
+		// in topological order, every mangler not fused yet starts a chain
+		for(IDataMangler idm : order) {
+			if(operatorOf.containsKey(idm)) {
+				continue;
+			}
+			List<IDataMangler> chain = new ArrayList<IDataMangler>();
+			chain.add(idm);
+			IDataMangler last = idm;
+			// replicated manglers and manglers which may discard results run on operators of their own
+			while(!isReplicated(graph, last) && followers.get(last).size() == 1) {
+				IDataMangler next = followers.get(last).iterator().next();
+				if(predecessors.get(next).size() != 1 || isReplicated(graph, next) || isLossy(graph, next)) {
+					break;
+				}
+				chain.add(next);
+				last = next;
+			}
+			Operator operator = createOperator(graph, chain, chain, invokersOf(graph, chain));
+			if(isReplicated(graph, idm)) {
+				replicate(graph, operator);
+			}
+			for(IDataMangler fused : chain) {
+				operatorOf.put(fused, operator);
+			}
+			operators.add(operator);
+		}
+		for(Operator operator : operators) {
+			Set<Operator> targets = new LinkedHashSet<Operator>();
+			for(IDataMangler follower : followers.get(operator.getTail())) {
+				targets.add(operatorOf.get(follower));
+			}
+			for(Operator target : targets) {
+				operator.addFollower(target);
+			}
+		}
+	}
+
+	/**
+	 * @return true if an input port of the mangler may discard results, which requires a channel in front of it
+	 */
+	private static boolean isLossy(Graph graph, IDataMangler idm) {
+		for(InstanceMethod<IDataMangler> inPort : graph.getInPortsOf(idm)) {
+			if(inPort.getMethod().getAnnotation(InputPort.class).overflow() != OverflowPolicy.BLOCK) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isReplicated(Graph graph, IDataMangler idm) {
+		return ClassPorts.of(idm.getClass()).getParallel() != null && !Iterables.contains(graph.getAllSources(), idm);
+	}
+
+	/**
+	 * Creates the replicas of the given operator, each one bound to a new instance of its mangler.
+	 */
+	private static void replicate(Graph graph, Operator operator) {
+		IDataMangler idm = operator.getHead();
+		Parallel parallel = ClassPorts.of(idm.getClass()).getParallel();
+		int count = parallel.replicas() > 0 ? parallel.replicas() : Runtime.getRuntime().availableProcessors();
+		List<Operator> replicas = new ArrayList<Operator>(count);
+		replicas.add(operator);
+		for(int i = 1; i < count; i++) {
+			IDataMangler replica = newReplica(idm);
+			ClassPorts ports = ClassPorts.of(replica.getClass());
+			Map<InstanceMethod<IDataMangler>, Object> invokers = new HashMap<InstanceMethod<IDataMangler>, Object>();
+			for(InstanceMethod<IDataMangler> port : graph.getInPortsOf(idm)) {
+				invokers.put(port, ports.bindInputPort(ports.getInputPorts().indexOf(port.getMethod()), replica));
+			}
+			for(InstanceMethod<IDataMangler> port : graph.getOutPortsOf(idm)) {
+				invokers.put(port, ports.bindOutputPort(ports.getOutputPorts().indexOf(port.getMethod()), replica));
+			}
+			replicas.add(createOperator(graph, Collections.singletonList(idm), Collections.singletonList(replica), invokers));
+		}
+		Map<IDataMangler, Method> keys = new HashMap<IDataMangler, Method>();
+		Method keyPort = ClassPorts.of(idm.getClass()).getKeyPort();
+		if(keyPort != null) {
+			for(InstanceMethod<IDataMangler> origin : graph.getAllConnectionsToInPort(new InstanceMethod<IDataMangler>(idm, keyPort))) {
+				if(!keys.containsKey(origin.getInstance())) {
+					keys.put(origin.getInstance(), origin.getMethod());
+				}
+			}
+		}
+		operator.replicate(replicas, parallel.partitioning(), parallel.ordered(), keys);
+	}
+
+	private static IDataMangler newReplica(IDataMangler idm) {
+		IDataMangler replica;
+		try {
+			replica = idm.getClass().getConstructor().newInstance();
+		} catch (Exception e) {
+			throw new IllegalArgumentException("cannot replicate " + idm, e);
+		}
+		if(idm instanceof IDataMangler.AbstractDataMangler) {
+			((IDataMangler.AbstractDataMangler) replica).setName(idm.getName());
+		}
+		return replica;
+	}
+
+	/**
+	 * @return the invokers of all ports of the given manglers as known to the graph
+	 */
+	private static Map<InstanceMethod<IDataMangler>, Object> invokersOf(Graph graph, List<IDataMangler> chain) {
+		Map<InstanceMethod<IDataMangler>, Object> invokers = new HashMap<InstanceMethod<IDataMangler>, Object>();
+		for(IDataMangler idm : chain) {
+			for(InstanceMethod<IDataMangler> port : graph.getInPortsOf(idm)) {
+				invokers.put(port, graph.getInputInvoker(port));
+			}
+			for(InstanceMethod<IDataMangler> port : graph.getOutPortsOf(idm)) {
+				invokers.put(port, graph.getOutputInvoker(port));
+			}
+		}
+		return invokers;
+	}
+
+	/**
+	 * @param chain the manglers of the graph
+	 * @param instances the instances executed for the manglers, either the manglers themselves or replicas
+	 * @param invokers the invokers of the ports of the chain, input or output invokers respectively
+	 */
+	private static Operator createOperator(Graph graph, List<IDataMangler> chain, List<IDataMangler> instances,
+			Map<InstanceMethod<IDataMangler>, Object> invokers) {
+		// the ports of manglers memoizing their results are accessed through their memos
+		invokers = new HashMap<InstanceMethod<IDataMangler>, Object>(invokers);
+		Memo[] memos = new Memo[chain.size()];
+		for(int i = 0; i < chain.size(); i++) {
+			IDataMangler idm = chain.get(i);
+			int size = ClassPorts.of(idm.getClass()).getCacheSize();
+			if(size > 0) {
+				memos[i] = new Memo(instances.get(i), size);
+				for(InstanceMethod<IDataMangler> port : graph.getInPortsOf(idm)) {
+					invokers.put(port, memos[i].wrap((InputInvoker) invokers.get(port)));
+				}
+				for(InstanceMethod<IDataMangler> port : graph.getOutPortsOf(idm)) {
+					invokers.put(port, memos[i].wrap((OutputInvoker) invokers.get(port)));
+				}
+			}
+		}
+		List<Operator.Stage> stages = new ArrayList<Operator.Stage>(chain.size());
+		for(int i = 0; i < chain.size(); i++) {
+			IDataMangler idm = chain.get(i);
+			IDataMangler next = i + 1 < chain.size() ? chain.get(i + 1) : null;
+			List<Operator.Link> links = new ArrayList<Operator.Link>();
+			for(InstanceMethod<IDataMangler> outPort : graph.getOutPortsOf(idm)) {
+				List<InputInvoker> targets = new ArrayList<InputInvoker>();
+				boolean external = false;
+				for(InstanceMethod<IDataMangler> inPort : graph.getConnectionsFromOutputPort(outPort)) {
+					if(inPort.getInstance() == next) {
+						targets.add((InputInvoker) invokers.get(inPort));
+					} else {
+						external = true;
+					}
+				}
+				boolean batch = outPort.getMethod().getAnnotation(OutputPort.class).batch();
+				links.add(new Operator.Link(outPort, (OutputInvoker) invokers.get(outPort), targets, external, batch));
+			}
+			List<InputInvoker> required = new ArrayList<InputInvoker>();
+			Map<InputInvoker, Operator.Batch> batches = new IdentityHashMap<InputInvoker, Operator.Batch>();
+			Map<InputInvoker, InstanceMethod<IDataMangler>> inputs = new IdentityHashMap<InputInvoker, InstanceMethod<IDataMangler>>();
+			for(InstanceMethod<IDataMangler> inPort : graph.getInPortsOf(idm)) {
+				inputs.put((InputInvoker) invokers.get(inPort), inPort);
+				InputPort annotation = inPort.getMethod().getAnnotation(InputPort.class);
+				if(annotation.required()) {
+					required.add((InputInvoker) invokers.get(inPort));
+				}
+				if(annotation.batchSize() > 1) {
+					batches.put((InputInvoker) invokers.get(inPort), new Operator.Batch(
+							inPort.getMethod().getParameterTypes()[0].getComponentType(), annotation.batchSize(),
+							TimeUnit.MILLISECONDS.toNanos(annotation.maxLatency())));
+				}
+			}
+			stages.add(new Operator.Stage(instances.get(i), idm, links, required, batches, inputs, memos[i]));
+		}
+		IDataMangler head = chain.get(0);
+		Map<IDataMangler, Map<Method, List<InputInvoker>>> routes = new HashMap<IDataMangler, Map<Method, List<InputInvoker>>>();
+		for(InstanceMethod<IDataMangler> inPort : graph.getInPortsOf(head)) {
+			for(InstanceMethod<IDataMangler> outPort : graph.getAllConnectionsToInPort(inPort)) {
+				Map<Method, List<InputInvoker>> ports = routes.get(outPort.getInstance());
+				if(ports == null) {
+					ports = new HashMap<Method, List<InputInvoker>>();
+					routes.put(outPort.getInstance(), ports);
+				}
+				List<InputInvoker> targets = ports.get(outPort.getMethod());
+				if(targets == null) {
+					targets = new ArrayList<InputInvoker>();
+					ports.put(outPort.getMethod(), targets);
+				}
+				targets.add((InputInvoker) invokers.get(inPort));
+			}
+		}
+		for(Map.Entry<IDataMangler, Map<Method, List<InputInvoker>>> e : routes.entrySet()) {
+			e.setValue(Collections.unmodifiableMap(e.getValue()));
+		}
+		// the least lossy policy, sampling and the largest capacity of the head's ports
+		OverflowPolicy overflow = null;
+		int capacity = 0;
+		int sampling = Integer.MAX_VALUE;
+		for(InstanceMethod<IDataMangler> inPort : graph.getInPortsOf(head)) {
+			InputPort annotation = inPort.getMethod().getAnnotation(InputPort.class);
+			if(overflow == null || annotation.overflow().compareTo(overflow) < 0) {
+				overflow = annotation.overflow();
+			}
+			capacity = Math.max(capacity, annotation.capacity());
+			if(annotation.overflow() == OverflowPolicy.SAMPLE) {
+				sampling = Math.min(sampling, annotation.sampling());
+			}
+		}
+		return new Operator(stages, routes, Iterables.contains(graph.getAllSources(), head),
+				overflow != null ? overflow : OverflowPolicy.BLOCK, capacity, overflow == OverflowPolicy.SAMPLE ? sampling : 1);
+	}
+
+	/**
+	 * @return all manglers, each one after all of its predecessors
+	 */
+	public List<IDataMangler> getOrder() {
+		return order;
+	}
+
+	/**
+	 * @return the topology of the graph at the time it has been compiled
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * @return the metrics of the graph the plan has been compiled from
+	 */
+	public GraphMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return the operators in topological order of their heads
+	 */
+	public List<Operator> getOperators() {
+		return Collections.unmodifiableList(operators);
+	}
+
+	/**
+	 * @param idm
+	 * @return the operator the given mangler has been fused into
+	 * @throws IllegalArgumentException if the mangler is not part of the plan
+	 */
+	public Operator getOperatorOf(IDataMangler idm) {
+		Operator operator = operatorOf.get(idm);
+		if(operator == null) {
+			throw new IllegalArgumentException(idm + " is not part of the plan");
+		}
+		return operator;
+	}
+}
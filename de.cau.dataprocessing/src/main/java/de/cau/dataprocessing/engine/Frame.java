@@ -0,0 +1,176 @@
+package de.cau.dataprocessing.engine;
+
+import java.util.Arrays;
+
+/**
+ * The values of the ports of an {@link de.cau.dataprocessing.filters.IDataMangler}, indexed by a dense slot
+ * per port, i.e. the index of the port in {@link de.cau.dataprocessing.reflect.ClassPorts}. Values of
+ * <code>long</code>, <code>int</code> and <code>double</code> ports are kept unboxed. The arrays are
+ * allocated once, a frame is meant to be {@link #clear() cleared} and reused.
+ *
+ * @author Robert von Massow
+ * @since 0.1
+ *
+ */
+public class Frame {
+
+	public static final byte UNSET = 0;
+
+	public static final byte OBJECT = 1;
+
+	public static final byte LONG = 2;
+
+	public static final byte INT = 3;
+
+	public static final byte DOUBLE = 4;
+
+	private final Object[] values;
+
+	// long and int values, raw bits of double values
+	private final long[] primitives;
+
+	private final byte[] kinds;
+
+	private int count;
+
+	public Frame(int size) {
+		values = new Object[size];
+		primitives = new long[size];
+		kinds = new byte[size];
+	}
+
+	public int size() {
+		return kinds.length;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	public boolean isSet(int slot) {
+		return kinds[slot] != UNSET;
+	}
+
+	/**
+	 * @param slot
+	 * @return the kind of the value in the slot, {@link #UNSET} if there is none
+	 */
+	public byte getKind(int slot) {
+		return kinds[slot];
+	}
+
+	private void mark(int slot, byte kind) {
+		if(kinds[slot] == UNSET) {
+			count++;
+		}
+		kinds[slot] = kind;
+	}
+
+	public void put(int slot, Object value) {
+		values[slot] = value;
+		mark(slot, OBJECT);
+	}
+
+	public void putLong(int slot, long value) {
+		primitives[slot] = value;
+		mark(slot, LONG);
+	}
+
+	public void putInt(int slot, int value) {
+		primitives[slot] = value;
+		mark(slot, INT);
+	}
+
+	public void putDouble(int slot, double value) {
+		primitives[slot] = Double.doubleToRawLongBits(value);
+		mark(slot, DOUBLE);
+	}
+
+	/**
+	 * Puts a primitive value of the given kind as stored in {@link #getBits(int)}.
+	 */
+	void putBits(int slot, byte kind, long bits) {
+		primitives[slot] = bits;
+		mark(slot, kind);
+	}
+
+	/**
+	 * @return the long or int value in the slot, the raw bits of a double value
+	 */
+	long getBits(int slot) {
+		return primitives[slot];
+	}
+
+	/**
+	 * @param slot
+	 * @return the value in the slot, boxed if primitive, <code>null</code> if unset
+	 */
+	public Object get(int slot) {
+		switch(kinds[slot]) {
+		case OBJECT:
+			return values[slot];
+		case LONG:
+			return Long.valueOf(primitives[slot]);
+		case INT:
+			return Integer.valueOf((int) primitives[slot]);
+		case DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(primitives[slot]));
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if the slot does not hold a primitive value of the kind
+	 */
+	public long getLong(int slot) {
+		check(slot, LONG);
+		return primitives[slot];
+	}
+
+	public int getInt(int slot) {
+		check(slot, INT);
+		return (int) primitives[slot];
+	}
+
+	public double getDouble(int slot) {
+		check(slot, DOUBLE);
+		return Double.longBitsToDouble(primitives[slot]);
+	}
+
+	private void check(int slot, byte kind) {
+		if(kinds[slot] != kind) {
+			throw new IllegalStateException("slot " + slot + " holds a value of kind " + kinds[slot] + ", not " + kind);
+		}
+	}
+
+	/**
+	 * @param slot
+	 * @return the hash code of the value in the slot as if it was boxed, 0 if unset or <code>null</code>
+	 */
+	public int hashOf(int slot) {
+		switch(kinds[slot]) {
+		case OBJECT:
+			return values[slot] != null ? values[slot].hashCode() : 0;
+		case LONG:
+			return Long.hashCode(primitives[slot]);
+		case INT:
+			return (int) primitives[slot];
+		case DOUBLE:
+			return Double.hashCode(Double.longBitsToDouble(primitives[slot]));
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Unsets all slots and drops the references to their values.
+	 */
+	public void clear() {
+		if(count > 0) {
+			Arrays.fill(values, null);
+			Arrays.fill(kinds, UNSET);
+			count = 0;
+		}
+	}
+}
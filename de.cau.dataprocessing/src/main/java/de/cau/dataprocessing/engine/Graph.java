@@ -2,22 +2,26 @@ package de.cau.dataprocessing.engine;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import de.cau.dataprocessing.filters.IDataMangler;
 import de.cau.dataprocessing.filters.annotations.InputPort;
 import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.metrics.GraphMetrics;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.reflect.InputInvoker;
 import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.reflect.OutputInvoker;
 
 /**
  * This class describes a directed hyper graph of {@link IDataMangler} and their methods annotated
@@ -30,19 +34,35 @@ import de.cau.dataprocessing.reflect.InstanceMethod;
  */
 public class Graph {
 	// connections in graph (from -> to)
-	private Map<InstanceMethod<IDataMangler>, Collection<InstanceMethod<IDataMangler>>> mapping = new HashMap<InstanceMethod<IDataMangler>, Collection<InstanceMethod<IDataMangler>>>();
+	private Map<InstanceMethod<IDataMangler>, Set<InstanceMethod<IDataMangler>>> mapping = new HashMap<InstanceMethod<IDataMangler>, Set<InstanceMethod<IDataMangler>>>();
+
+	// connections in graph (to -> from)
+	private Map<InstanceMethod<IDataMangler>, Set<InstanceMethod<IDataMangler>>> reverseMapping = new HashMap<InstanceMethod<IDataMangler>, Set<InstanceMethod<IDataMangler>>>();
 
 	private Map<IDataMangler, Iterable<InstanceMethod<IDataMangler>>> inPortsOf = new HashMap<IDataMangler, Iterable<InstanceMethod<IDataMangler>>>();
 
 	private Map<IDataMangler, Iterable<InstanceMethod<IDataMangler>>> outPortsOf = new HashMap<IDataMangler, Iterable<InstanceMethod<IDataMangler>>>();
 
-	private Map<IDataMangler, Iterable<InstanceMethod<IDataMangler>>> allNodes = new HashMap<IDataMangler, Iterable<InstanceMethod<IDataMangler>>>();
+	private Map<IDataMangler, Iterable<InstanceMethod<IDataMangler>>> allNodes = new LinkedHashMap<IDataMangler, Iterable<InstanceMethod<IDataMangler>>>();
 
+	// number of connections between two manglers (from -> to -> count)
 	private Map<IDataMangler, Map<IDataMangler, Integer>> idmMapping = new HashMap<IDataMangler, Map<IDataMangler, Integer>>();
 
-	private List<IDataMangler> sources = new ArrayList<IDataMangler>();
+	// number of connections between two manglers (to -> from -> count)
+	private Map<IDataMangler, Map<IDataMangler, Integer>> reverseIdmMapping = new HashMap<IDataMangler, Map<IDataMangler, Integer>>();
+
+	// number of connections from an output port to a mangler (to -> from -> count)
+	private Map<IDataMangler, Map<InstanceMethod<IDataMangler>, Integer>> upstreamPorts = new HashMap<IDataMangler, Map<InstanceMethod<IDataMangler>, Integer>>();
+
+	private Map<InstanceMethod<IDataMangler>, InputInvoker> inputInvokers = new HashMap<InstanceMethod<IDataMangler>, InputInvoker>();
+
+	private Map<InstanceMethod<IDataMangler>, OutputInvoker> outputInvokers = new HashMap<InstanceMethod<IDataMangler>, OutputInvoker>();
 
-	private List<IDataMangler> sinks = new ArrayList<IDataMangler>();
+	private Set<IDataMangler> sources = new LinkedHashSet<IDataMangler>();
+
+	private Set<IDataMangler> sinks = new LinkedHashSet<IDataMangler>();
+
+	private final GraphMetrics metrics = new GraphMetrics();
 
 	/**
 	 * Adds the given {@link IDataMangler} to the graph's nodes.<p>
@@ -52,48 +72,76 @@ public class Graph {
 	 *
 	 * If the given {@link IDataMangler} does not provide any input ports, it is considered to be a source,
 	 * if it does not provide any output ports, it is a sink. These can also be retrieved using {@link #getAllSources()} or
-	 * {@link #getAllSinks()} respectively.
+	 * {@link #getAllSinks()} respectively.<p>
+	 *
+	 * Ports declaring batches ({@link InputPort#batchSize()}, {@link OutputPort#batch()}) have to take or return
+	 * an array of objects.<p>
+	 *
+	 * The ports of a class are looked up only once and shared by all of its instances, the port instances of a
+	 * mangler are stable, i.e. every call of {@link #getInPortsOf(IDataMangler)} returns the same ones.
+	 * The invokers used to access the ports are created here as well, see {@link #getInputInvoker(InstanceMethod)}
+	 * and {@link #getOutputInvoker(InstanceMethod)}.
 	 * @param idm
+	 * @throws IllegalArgumentException if a batch port does not take or return an array of objects
 	 */
 	public void addMangler(final IDataMangler idm) {
-		Class<? extends IDataMangler> clazz = idm.getClass();
-		List<Method> methods = Arrays.asList(clazz.getMethods());
-		// collect inputs
-		Collection<Method> iPorts = Collections2.<Method>filter(methods, new Predicate<Method>() {
-
-			public boolean apply(Method input) {
-				return input.getAnnotation(InputPort.class) != null;
-			}
-
-		});
-		// if none: source, else cache them
+		// ports and invoker factories are looked up once per class
+		ClassPorts ports = ClassPorts.of(idm.getClass());
+		List<InstanceMethod<IDataMangler>> iPorts = new ArrayList<InstanceMethod<IDataMangler>>(ports.getInputPorts().size());
+		for(int i = 0; i < ports.getInputPorts().size(); i++) {
+			InstanceMethod<IDataMangler> port = new InstanceMethod<IDataMangler>(idm, ports.getInputPorts().get(i));
+			iPorts.add(port);
+			inputInvokers.put(port, ports.bindInputPort(i, idm));
+		}
+		List<InstanceMethod<IDataMangler>> oPorts = new ArrayList<InstanceMethod<IDataMangler>>(ports.getOutputPorts().size());
+		for(int i = 0; i < ports.getOutputPorts().size(); i++) {
+			InstanceMethod<IDataMangler> port = new InstanceMethod<IDataMangler>(idm, ports.getOutputPorts().get(i));
+			oPorts.add(port);
+			outputInvokers.put(port, ports.bindOutputPort(i, idm));
+		}
+		// if none: source/sink
 		if(iPorts.isEmpty()) {
 			sources.add(idm);
 		}
-		inPortsOf.put(idm, Collections2.transform(iPorts, new Function<Method, InstanceMethod<IDataMangler>>() {
-
-			public InstanceMethod<IDataMangler> apply(Method input) {
-				return new InstanceMethod<IDataMangler>(idm, input);
-			}
-		}));
-		Collection<Method> oPorts = Collections2.<Method>filter(methods, new Predicate<Method>() {
-
-			public boolean apply(Method input) {
-				return input.getAnnotation(OutputPort.class) != null;
-			}
-
-		});
-		// if none: sink, else cache them
 		if(oPorts.isEmpty()) {
 			sinks.add(idm);
 		}
-		outPortsOf.put(idm, Collections2.transform(oPorts, new Function<Method, InstanceMethod<IDataMangler>>() {
+		inPortsOf.put(idm, iPorts);
+		outPortsOf.put(idm, oPorts);
+		List<InstanceMethod<IDataMangler>> all = new ArrayList<InstanceMethod<IDataMangler>>(iPorts.size() + oPorts.size());
+		all.addAll(iPorts);
+		all.addAll(oPorts);
+		allNodes.put(idm, all);
+	}
 
-			public InstanceMethod<IDataMangler> apply(Method input) {
-				return new InstanceMethod<IDataMangler>(idm, input);
-			}
-		}));
-		allNodes.put(idm, Iterables.concat(inPortsOf.get(idm), outPortsOf.get(idm)));
+	/**
+	 * Returns the invoker setting values on the given input port.
+	 *
+	 * @param port
+	 * @return the invoker bound to the port's instance
+	 * @throws IllegalArgumentException if the port is not an input port of an {@link IDataMangler} in the graph
+	 */
+	public InputInvoker getInputInvoker(InstanceMethod<IDataMangler> port) {
+		InputInvoker invoker = inputInvokers.get(port);
+		if(invoker == null) {
+			throw new IllegalArgumentException(port + " is not an input port in the graph");
+		}
+		return invoker;
+	}
+
+	/**
+	 * Returns the invoker reading values from the given output port.
+	 *
+	 * @param port
+	 * @return the invoker bound to the port's instance
+	 * @throws IllegalArgumentException if the port is not an output port of an {@link IDataMangler} in the graph
+	 */
+	public OutputInvoker getOutputInvoker(InstanceMethod<IDataMangler> port) {
+		OutputInvoker invoker = outputInvokers.get(port);
+		if(invoker == null) {
+			throw new IllegalArgumentException(port + " is not an output port in the graph");
+		}
+		return invoker;
 	}
 
 	/**
@@ -106,7 +154,6 @@ public class Graph {
 	 * @throws IllegalArgumentException if the origin is not an output port or the target is not
 	 * 		an input port
 	 */
-	@SuppressWarnings("unchecked")
 	public void connect(InstanceMethod<IDataMangler> origin, InstanceMethod<IDataMangler> target) {
 		if(allNodes.get(origin.getInstance()) == null) {
 			throw new IllegalStateException(origin + " not added to graph");
@@ -114,29 +161,61 @@ public class Graph {
 		if(allNodes.get(target.getInstance()) == null) {
 			throw new IllegalStateException(target + " not added to graph");
 		}
-		if(Iterables.isEmpty(outPortsOf.get(origin.getInstance()))) {
+		if(!outputInvokers.containsKey(origin)) {
 			throw new IllegalArgumentException("source " + origin + " is not well defined");
 		}
-		if(Iterables.isEmpty(inPortsOf.get(target.getInstance()))) {
+		if(!inputInvokers.containsKey(target)) {
 			throw new IllegalArgumentException("target " +target + " is not well defined");
 		}
-		Collection<InstanceMethod<IDataMangler>> connections = this.mapping.get(origin);
+		Set<InstanceMethod<IDataMangler>> connections = this.mapping.get(origin);
 		if(connections == null) {
-			connections = Lists.<InstanceMethod<IDataMangler>>newArrayList();
+			connections = new LinkedHashSet<InstanceMethod<IDataMangler>>();
 			this.mapping.put(origin, connections);
 		}
-		Map<IDataMangler, Integer> affected = idmMapping.get(origin.getInstance());
-		if(affected == null) {
-			affected = Maps.<IDataMangler, Integer>newHashMap();
-			idmMapping.put(origin.getInstance(), affected);
+		if(connections.add(target)) {
+			Set<InstanceMethod<IDataMangler>> origins = reverseMapping.get(target);
+			if(origins == null) {
+				origins = new LinkedHashSet<InstanceMethod<IDataMangler>>();
+				reverseMapping.put(target, origins);
+			}
+			origins.add(origin);
+			count(origin, target, 1);
+		}
+	}
+
+	// updates the number of connections between the manglers of the given ports
+	private void count(InstanceMethod<IDataMangler> origin, InstanceMethod<IDataMangler> target, int delta) {
+		count(idmMapping, origin.getInstance(), target.getInstance(), delta);
+		count(reverseIdmMapping, target.getInstance(), origin.getInstance(), delta);
+		count(upstreamPorts, target.getInstance(), origin, delta);
+	}
+
+	private static <K, V> void count(Map<K, Map<V, Integer>> counts, K key, V value, int delta) {
+		Map<V, Integer> values = counts.get(key);
+		if(values == null) {
+			values = new LinkedHashMap<V, Integer>();
+			counts.put(key, values);
 		}
-		if(affected.get(target.getInstance()) == null) {
-			affected.put(target.getInstance(), 0);
+		Integer count = values.get(value);
+		int updated = (count != null ? count : 0) + delta;
+		if(updated > 0) {
+			values.put(value, updated);
+		} else {
+			values.remove(value);
+			if(values.isEmpty()) {
+				counts.remove(key);
+			}
 		}
-		if(!connections.contains(target)) {
-			Iterables.<InstanceMethod<IDataMangler>>addAll(connections, Lists.<InstanceMethod<IDataMangler>>newArrayList(target));
-			affected.put(target.getInstance(), affected.get(target.getInstance()) + 1);
+	}
+
+	// removes an existing connection from the reverse indexes
+	private void unlink(InstanceMethod<IDataMangler> origin, InstanceMethod<IDataMangler> target) {
+		Set<InstanceMethod<IDataMangler>> origins = reverseMapping.get(target);
+		origins.remove(origin);
+		if(origins.isEmpty()) {
+			reverseMapping.remove(target);
 		}
+		count(origin, target, -1);
 	}
 
 	public Iterable<IDataMangler> getAllIDMs() {
@@ -161,7 +240,7 @@ public class Graph {
 	public boolean isConnected(InstanceMethod<IDataMangler> source, InstanceMethod<IDataMangler> target) {
 		Collection<InstanceMethod<IDataMangler>> collection = mapping.get(source);
 		if(collection != null) {
-			return Iterables.contains(collection, target);
+			return collection.contains(target);
 		} else {
 			return false;
 		}
@@ -176,17 +255,13 @@ public class Graph {
 	 */
 	public boolean disconnect(final InstanceMethod<IDataMangler> sourcePort,
 			final InstanceMethod<IDataMangler> targetPort) {
-		Collection<InstanceMethod<IDataMangler>> connections = mapping.get(sourcePort);
-		if(connections != null) {
-			Map<IDataMangler, Integer> map = idmMapping.get(sourcePort.getInstance());
-			IDataMangler targetIDM = targetPort.getInstance();
-			map.put(targetIDM, map.get(targetIDM) - 1);
-			return Iterables.removeIf(connections, new Predicate<InstanceMethod<IDataMangler>>() {
-
-				public boolean apply(InstanceMethod<IDataMangler> input) {
-					return input == targetPort;
-				}
-			});
+		Set<InstanceMethod<IDataMangler>> connections = mapping.get(sourcePort);
+		if(connections != null && connections.remove(targetPort)) {
+			if(connections.isEmpty()) {
+				mapping.remove(sourcePort);
+			}
+			unlink(sourcePort, targetPort);
+			return true;
 		}
 		return false;
 	}
@@ -194,6 +269,7 @@ public class Graph {
 
 	/**
 	 * Removes the given {@link IDataMangler} from the graph, disconnecting all ports currently in use.
+	 * Takes time linear in the number of its ports and connections.
 	 *
 	 * @param idm
 	 * @throws IllegalStateException if the node has not been added before
@@ -205,25 +281,28 @@ public class Graph {
 		final Iterable<InstanceMethod<IDataMangler>> outPorts = outPortsOf.get(idm);
 		final Iterable<InstanceMethod<IDataMangler>> inPorts = inPortsOf.get(idm);
 		for(InstanceMethod<IDataMangler> p : outPorts) {
-			mapping.remove(p);
+			Set<InstanceMethod<IDataMangler>> targets = mapping.remove(p);
+			if(targets != null) {
+				for(InstanceMethod<IDataMangler> target : targets) {
+					unlink(p, target);
+				}
+			}
+			outputInvokers.remove(p);
 		}
-		for(InstanceMethod<IDataMangler> connections : mapping.keySet()) {
-			Collection<InstanceMethod<IDataMangler>> fromTo = mapping.get(connections);
-			Collection<InstanceMethod<IDataMangler>> filtered = Collections2.filter(fromTo, new Predicate<InstanceMethod<IDataMangler>>() {
-
-				public boolean apply(InstanceMethod<IDataMangler> input) {
-					return Iterables.contains(inPorts, input);
+		for(InstanceMethod<IDataMangler> p : inPorts) {
+			Set<InstanceMethod<IDataMangler>> origins = reverseMapping.get(p);
+			if(origins != null) {
+				for(InstanceMethod<IDataMangler> origin : new ArrayList<InstanceMethod<IDataMangler>>(origins)) {
+					disconnect(origin, p);
 				}
-			});
-			mapping.put(connections, filtered);
+			}
+			inputInvokers.remove(p);
 		}
 		allNodes.remove(idm);
-		for(IDataMangler e: idmMapping.keySet()) {
-			idmMapping.get(e).remove(idm);
-		}
-		idmMapping.remove(idm);
-		Iterables.removeAll(sources, Lists.newArrayList(idm));
-		Iterables.removeAll(sinks, Lists.newArrayList(idm));
+		inPortsOf.remove(idm);
+		outPortsOf.remove(idm);
+		sources.remove(idm);
+		sinks.remove(idm);
 	}
 
 	public Iterable<IDataMangler> getAllSources() {
@@ -234,6 +313,33 @@ public class Graph {
 		return Iterables.unmodifiableIterable(sinks);
 	}
 
+	/**
+	 * Returns the {@link IDataMangler}s the connected sinks depend on, i.e. every sink with a connected input port
+	 * and every mangler reaching one of them, found by walking the connections backwards. The values of any
+	 * other mangler are not consumed by a sink.
+	 *
+	 * @return the demanded manglers, sinks first
+	 */
+	public synchronized Set<IDataMangler> getDemandedIDMs() {
+		Set<IDataMangler> demanded = new LinkedHashSet<IDataMangler>();
+		LinkedList<IDataMangler> pending = new LinkedList<IDataMangler>();
+		for(IDataMangler sink : sinks) {
+			if(reverseIdmMapping.containsKey(sink)) {
+				pending.add(sink);
+			}
+		}
+		while(!pending.isEmpty()) {
+			IDataMangler idm = pending.removeFirst();
+			if(demanded.add(idm)) {
+				Map<IDataMangler, Integer> predecessors = reverseIdmMapping.get(idm);
+				if(predecessors != null) {
+					pending.addAll(predecessors.keySet());
+				}
+			}
+		}
+		return demanded;
+	}
+
 	/**
 	 * Returns all input ports of a previously added {@link IDataMangler}.
 	 *
@@ -262,25 +368,16 @@ public class Graph {
 		return Iterables.unmodifiableIterable(outPortsOf.get(idm));
 	}
 
+	/**
+	 * Returns the output ports connected to any input port of the given {@link IDataMangler}, each one once.
+	 *
+	 * @param idm
+	 * @return the output ports
+	 */
 	public Iterable<InstanceMethod<IDataMangler>> getAllConnectionsToIDM(final IDataMangler idm) {
-		Iterable<InstanceMethod<IDataMangler>> ports = Iterables.filter(mapping.keySet(), new Predicate<InstanceMethod<IDataMangler>>() {
-
-			@Override
-			public boolean apply(final InstanceMethod<IDataMangler> outPort) {
-				Collection<InstanceMethod<IDataMangler>> inPorts = mapping.get(outPort);
-				Iterable<InstanceMethod<IDataMangler>> filteredInPorts = Iterables.filter(inPorts, new Predicate<InstanceMethod<IDataMangler>>() {
-
-					@Override
-					public boolean apply(InstanceMethod<IDataMangler> inPort) {
-						boolean b = inPort.getInstance() == idm;
-						return b;
-					}
-				});
-				return !Iterables.isEmpty(filteredInPorts);
-			}
-
-		});
-		return Iterables.unmodifiableIterable(ports);
+		Map<InstanceMethod<IDataMangler>, Integer> ports = upstreamPorts.get(idm);
+		return ports != null ? Iterables.unmodifiableIterable(ports.keySet())
+				: Collections.<InstanceMethod<IDataMangler>>emptyList();
 	}
 
 
@@ -288,23 +385,9 @@ public class Graph {
 		if(inPortsOf.get(inPort.getInstance()) == null) {
 			throw new IllegalArgumentException();
 		}
-		Iterable<InstanceMethod<IDataMangler>> ports = Iterables.filter(mapping.keySet(), new Predicate<InstanceMethod<IDataMangler>>() {
-
-			@Override
-			public boolean apply(final InstanceMethod<IDataMangler> outPort) {
-				Collection<InstanceMethod<IDataMangler>> connectionsToInPorts = mapping.get(outPort);
-				Iterable<InstanceMethod<IDataMangler>> filtered = Iterables.filter(connectionsToInPorts, new Predicate<InstanceMethod<IDataMangler>>() {
-
-					@Override
-					public boolean apply(InstanceMethod<IDataMangler> inPortToBeChecked) {
-						return inPortToBeChecked.equals(inPort);
-					}
-				});
-				return Iterables.contains(filtered, inPort);
-			}
-
-		});
-		return Iterables.unmodifiableIterable(ports);
+		Set<InstanceMethod<IDataMangler>> origins = reverseMapping.get(inPort);
+		return origins != null ? Iterables.unmodifiableIterable(origins)
+				: Collections.<InstanceMethod<IDataMangler>>emptyList();
 	}
 
 	public Iterable<InstanceMethod<IDataMangler>> getConnectionFromIDM(IDataMangler idm) {
@@ -335,11 +418,71 @@ public class Graph {
 						})));
 	}
 
+	/**
+	 * Freezes the current state of the graph into an {@link ExecutionPlan}. The manglers are sorted topologically
+	 * and linear chains of them are fused into a single {@link Operator}.
+	 *
+	 * @return the plan
+	 * @throws IllegalStateException if the graph contains a cycle
+	 */
+	public synchronized ExecutionPlan compile() {
+		Map<IDataMangler, Integer> inDegree = new HashMap<IDataMangler, Integer>();
+		LinkedList<IDataMangler> ready = new LinkedList<IDataMangler>();
+		for(IDataMangler idm : allNodes.keySet()) {
+			Map<IDataMangler, Integer> predecessors = reverseIdmMapping.get(idm);
+			if(predecessors == null) {
+				ready.add(idm);
+			} else {
+				inDegree.put(idm, predecessors.size());
+			}
+		}
+		List<IDataMangler> order = new ArrayList<IDataMangler>(allNodes.size());
+		while(!ready.isEmpty()) {
+			IDataMangler idm = ready.removeFirst();
+			order.add(idm);
+			Map<IDataMangler, Integer> targets = idmMapping.get(idm);
+			if(targets != null) {
+				for(IDataMangler target : targets.keySet()) {
+					int remaining = inDegree.get(target) - 1;
+					inDegree.put(target, remaining);
+					if(remaining == 0) {
+						ready.add(target);
+					}
+				}
+			}
+		}
+		if(order.size() != allNodes.size()) {
+			throw new IllegalStateException("graph contains a cycle");
+		}
+		return new ExecutionPlan(this, order);
+	}
+
+	/**
+	 * Returns the metrics recorded by the executions of this graph, i.e. the values passed through every
+	 * mangler and port, the latency of the manglers and the state of the channels between them.
+	 *
+	 * @return the metrics of this graph
+	 */
+	public GraphMetrics getMetrics() {
+		return metrics;
+	}
+
 	public Iterable<IDataMangler> getFollowerIDMsOfIDM(
 			IDataMangler idm) {
 		Map<IDataMangler, Integer> map = idmMapping.get(idm);
 		return map != null ? Iterables.unmodifiableIterable(map.keySet()) : Collections.<IDataMangler>emptyList();
 	}
 
+	/**
+	 * Returns the {@link IDataMangler}s with an output port connected to an input port of the given one.
+	 *
+	 * @param idm
+	 * @return the predecessors
+	 */
+	public Iterable<IDataMangler> getPredecessorIDMsOfIDM(IDataMangler idm) {
+		Map<IDataMangler, Integer> map = reverseIdmMapping.get(idm);
+		return map != null ? Iterables.unmodifiableIterable(map.keySet()) : Collections.<IDataMangler>emptyList();
+	}
+
 
 }
@@ -0,0 +1,1320 @@
+package de.cau.dataprocessing.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.inject.Inject;
+
+import de.cau.dataprocessing.channel.Channel;
+import de.cau.dataprocessing.channel.ChannelFactory;
+import de.cau.dataprocessing.channel.MpmcRingBuffer;
+import de.cau.dataprocessing.checkpoint.Checkpoint;
+import de.cau.dataprocessing.checkpoint.CheckpointStore;
+import de.cau.dataprocessing.checkpoint.Checkpointable;
+import de.cau.dataprocessing.filters.Abortable;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.annotations.OverflowPolicy;
+import de.cau.dataprocessing.filters.annotations.Parallel;
+import de.cau.dataprocessing.metrics.ChannelMetrics;
+import de.cau.dataprocessing.metrics.GraphMetrics;
+import de.cau.dataprocessing.metrics.ManglerMetrics;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+
+/**
+ * Executes the {@link ExecutionPlan} of a {@link Graph}. Every {@link Operator} runs on a worker thread of its own,
+ * which is a virtual thread for blocking operators in {@link ExecutionMode#VIRTUAL},
+ * and receives the {@link Result}s of its predecessors through a {@link Channel}, so the operators of
+ * a pipeline work concurrently. Within an operator the values are passed on without any channel. The
+ * {@link ChannelFactory} is told the number of predecessors of an operator, which is the number of producers
+ * of its channel.<p>
+ *
+ * Sources ({@link Graph#getAllSources()}) are executed over and over again. A source is exhausted as soon
+ * as an execution does not provide a value on any of its output ports. Every other mangler is executed
+ * whenever values have been set on its input ports, but not before each of its
+ * {@link InputPort#required()} ports has been set once. <code>null</code> values of output ports are not passed on.
+ * Input ports taking batches are set once the batch is full, has been waiting for {@link InputPort#maxLatency()}
+ * or the input ended. The values of batch output ports are passed on one by one.
+ * Results are reused by the worker which created them once every follower has released them, values of
+ * <code>long</code>, <code>int</code> and <code>double</code> ports are passed on without boxing.
+ * The channels are bounded ({@link InputPort#capacity()}), what happens while one is full is declared by
+ * {@link InputPort#overflow()}: predecessors either wait, or results are discarded.
+ * The replicas of an operator ({@link Operator#getReplicas()}) run on workers of their own, the results of the
+ * predecessors are distributed over them as declared by {@link Parallel}. If ordered, a merger passes the
+ * results of the replicas on in the order of their inputs.
+ * Every execution records its metrics ({@link Graph#getMetrics()}), which are registered with JMX while
+ * it is running.
+ * The results of manglers with {@link OutputPort#cache() cacheable} ports are memoized by the values of their input
+ * ports, each worker keeps a cache of its own. The mangler is not executed if its results are cached.
+ * Manglers implementing {@link Flushable} are flushed once their input ended and the values of their output
+ * ports are passed on once more, e.g. to emit pending aggregates. Manglers implementing {@link Closeable} are
+ * closed after that. If a mangler fails or the execution is stopped, the {@link Abortable} manglers not closed yet
+ * are aborted instead.
+ * The execution is finished when the sinks ({@link Graph#getAllSinks()}) have consumed all results of
+ * their exhausted predecessors.<p>
+ *
+ * If {@link #setCheckpointing(CheckpointStore, long, TimeUnit) enabled}, checkpoints are taken by asynchronous
+ * barrier snapshots: the sources take the snapshots of their {@link Checkpointable} manglers between two
+ * executions and send a barrier along with their results. Every other operator takes its snapshots once the
+ * barriers of all its predecessors arrived, holding back the results of those which sent theirs already, so
+ * each snapshot reflects exactly the results preceding the barriers. Pending batches are set before a
+ * snapshot. Nothing waits for a checkpoint to be written, and only the inputs of operators waiting for
+ * barriers are paused. An execution {@link #start(ExecutionPlan, Checkpoint) started} from a checkpoint
+ * restores the states before any mangler is executed.
+ *
+ * @author Robert von Massow
+ * @since 0.1
+ *
+ */
+public class GraphExecutor {
+
+	// marks the end of the results of one input of an ordered replica
+	private static final Result BOUNDARY = new Result(0);
+
+	// upper bound of the results a worker keeps for reuse
+	private static final int MAX_POOL = 1024;
+
+	private final ChannelFactory channelFactory;
+
+	private final List<Thread> workers = new CopyOnWriteArrayList<Thread>();
+
+	private volatile Throwable failure;
+
+	// metrics of the current execution
+	private GraphMetrics metrics;
+
+	private volatile ExecutionMode mode = ExecutionMode.PLATFORM;
+
+	private volatile CheckpointStore checkpointStore;
+
+	private volatile long checkpointInterval;
+
+	// null unless checkpoints of the current execution are taken
+	private volatile CheckpointCoordinator coordinator;
+
+	private ScheduledExecutorService checkpointTimer;
+
+	// number of workers and mergers of the current execution, each one identifies the results it passes on
+	private int origins;
+
+	@Inject
+	public GraphExecutor(ChannelFactory channelFactory) {
+		this.channelFactory = channelFactory;
+	}
+
+	public ExecutionMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Selects the threads of the following executions.
+	 *
+	 * @param mode
+	 */
+	public void setMode(ExecutionMode mode) {
+		if(mode == null) {
+			throw new IllegalArgumentException("mode must not be null");
+		}
+		this.mode = mode;
+	}
+
+	/**
+	 * Takes checkpoints of the following executions.
+	 *
+	 * @param store the checkpoints are written to, null to take none
+	 * @param interval between two checkpoints, 0 to take them on {@link #checkpoint()} only
+	 * @param unit of the interval
+	 */
+	public void setCheckpointing(CheckpointStore store, long interval, TimeUnit unit) {
+		if(interval < 0) {
+			throw new IllegalArgumentException("illegal interval: " + interval);
+		}
+		this.checkpointStore = store;
+		this.checkpointInterval = unit.toNanos(interval);
+	}
+
+	/**
+	 * Triggers a checkpoint of the current execution, unless one is pending already.
+	 *
+	 * @return completed once the checkpoint has been written, exceptionally if it failed or has been aborted
+	 * because a worker ended before it took its snapshot
+	 * @throws IllegalStateException if no execution taking checkpoints is running
+	 */
+	public CompletableFuture<Checkpoint> checkpoint() {
+		CheckpointCoordinator coordinator = this.coordinator;
+		if(coordinator == null) {
+			throw new IllegalStateException("no execution taking checkpoints is running");
+		}
+		return coordinator.trigger();
+	}
+
+	/**
+	 * @return true if {@link ExecutionMode#VIRTUAL} actually uses virtual threads on this JVM
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return WorkerThreads.isVirtualSupported();
+	}
+
+	/**
+	 * Compiles the given graph and starts its execution.
+	 *
+	 * @param graph
+	 * @throws IllegalStateException if a previous execution has not been awaited or the graph contains a cycle
+	 * @see #start(ExecutionPlan)
+	 */
+	public void start(Graph graph) {
+		start(graph.compile());
+	}
+
+	/**
+	 * Compiles the given graph and starts its execution from a checkpoint.
+	 *
+	 * @param graph
+	 * @param checkpoint null to start without restoring any state
+	 * @see #start(ExecutionPlan, Checkpoint)
+	 */
+	public void start(Graph graph, Checkpoint checkpoint) {
+		start(graph.compile(), checkpoint);
+	}
+
+	/**
+	 * Starts one worker per {@link Operator} of the given plan and returns immediately.
+	 *
+	 * @param plan
+	 * @throws IllegalStateException if a previous execution has not been awaited
+	 */
+	public void start(ExecutionPlan plan) {
+		start(plan, null);
+	}
+
+	/**
+	 * Restores the states of the {@link Checkpointable} manglers of the given plan from a checkpoint, then
+	 * starts one worker per {@link Operator} and returns immediately.
+	 *
+	 * @param plan
+	 * @param checkpoint null to start without restoring any state
+	 * @throws IllegalArgumentException if the checkpoint has been taken of a graph of another topology
+	 * @throws IllegalStateException if a previous execution has not been awaited, the replicas of the plan differ
+	 * from the ones of the checkpoint, a state can not be restored or checkpoints are taken and an operator
+	 * preserving the order of its replicas has more than one predecessor
+	 */
+	public synchronized void start(ExecutionPlan plan, Checkpoint checkpoint) {
+		if(!workers.isEmpty()) {
+			throw new IllegalStateException("executor is already running");
+		}
+		Map<Operator, Integer> producers = new IdentityHashMap<Operator, Integer>();
+		int participants = 0;
+		for(Operator operator : plan.getOperators()) {
+			int count = 0;
+			for(Operator predecessor : operator.getPredecessors()) {
+				count += predecessor.isOrdered() ? 1 : predecessor.getReplicas().size();
+			}
+			producers.put(operator, count);
+			if(operator.isSource() || count > 0) {
+				participants += operator.getReplicas().size();
+			}
+			// the merger can not tell the results preceding a barrier from the ones following it
+			if(checkpointStore != null && operator.isOrdered() && count > 1) {
+				throw new IllegalStateException("cannot take checkpoints of " + operator
+						+ ", which preserves the order of more than one predecessor");
+			}
+		}
+		if(checkpoint != null) {
+			restore(plan, checkpoint);
+		}
+		failure = null;
+		origins = 0;
+		boolean virtual = mode == ExecutionMode.VIRTUAL;
+		CheckpointStore store = checkpointStore;
+		if(store != null) {
+			List<Long> ids = store.getIds();
+			long last = ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+			if(checkpoint != null) {
+				last = Math.max(last, checkpoint.getId());
+			}
+			coordinator = new CheckpointCoordinator(store, plan.getTopology(), participants, last);
+		}
+		metrics = plan.getMetrics();
+		metrics.started();
+		// one inbox per replica
+		Map<Operator, List<Channel<Result>>> inboxes = new IdentityHashMap<Operator, List<Channel<Result>>>();
+		Map<Operator, List<ChannelMetrics>> gauges = new IdentityHashMap<Operator, List<ChannelMetrics>>();
+		Map<Operator, Output> outputs = new IdentityHashMap<Operator, Output>();
+		for(Operator operator : plan.getOperators()) {
+			int count = producers.get(operator);
+			if(count > 0) {
+				List<Channel<Result>> channels = new ArrayList<Channel<Result>>();
+				List<ChannelMetrics> channelMetrics = new ArrayList<ChannelMetrics>();
+				for(int i = 0; i < operator.getReplicas().size(); i++) {
+					Channel<Result> channel = channelFactory.create(count, 1, operator.getCapacity());
+					channels.add(channel);
+					channelMetrics.add(metrics.channel(name("operator", operator, i), channel));
+				}
+				inboxes.put(operator, channels);
+				gauges.put(operator, channelMetrics);
+				outputs.put(operator, new Output(channels, channelMetrics, operator.getPartitioning(), operator.getKeys(),
+						operator.getOverflow() == OverflowPolicy.SAMPLE ? operator.getSampling() : 0));
+			}
+		}
+		for(Operator operator : plan.getOperators()) {
+			List<Output> followers = new ArrayList<Output>();
+			for(Operator follower : operator.getFollowers()) {
+				followers.add(outputs.get(follower));
+			}
+			List<Operator> replicas = operator.getReplicas();
+			List<Channel<Result>> merged = new ArrayList<Channel<Result>>();
+			for(int i = 0; i < replicas.size(); i++) {
+				Channel<Result> inbox = inboxes.containsKey(operator) ? inboxes.get(operator).get(i) : null;
+				ChannelMetrics gauge = gauges.containsKey(operator) ? gauges.get(operator).get(i) : null;
+				Worker worker;
+				if(operator.isOrdered()) {
+					Channel<Result> channel = channelFactory.create(1, 1);
+					merged.add(channel);
+					Output output = new Output(channel, metrics.channel(name("merger", operator, i), channel));
+					worker = new Worker(replicas.get(i), i, operator.getTail(), inbox, gauge, producers.get(operator),
+							Collections.singletonList(output), channel, plan);
+				} else {
+					worker = new Worker(replicas.get(i), i, operator.getTail(), inbox, gauge, producers.get(operator),
+							followers, null, plan);
+				}
+				add(worker, name("operator", operator, i), virtual && operator.isBlocking());
+			}
+			if(operator.isOrdered()) {
+				add(new Merger(merged, followers), "merger-" + operator, virtual);
+			}
+		}
+		metrics.register();
+		for(Thread worker : workers) {
+			worker.start();
+		}
+		if(coordinator != null && checkpointInterval > 0) {
+			final CheckpointCoordinator periodic = coordinator;
+			checkpointTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "checkpoint-timer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			checkpointTimer.scheduleAtFixedRate(new Runnable() {
+				public void run() {
+					periodic.trigger();
+				}
+			}, checkpointInterval, checkpointInterval, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Restores the states of the manglers of every replica, which are identified by the position of their
+	 * mangler in the graph and the index of the replica.
+	 */
+	private static void restore(ExecutionPlan plan, Checkpoint checkpoint) {
+		if(!checkpoint.getTopology().equals(plan.getTopology())) {
+			throw new IllegalArgumentException(checkpoint + " has been taken of another graph: " + checkpoint.getTopology());
+		}
+		int restored = 0;
+		for(Operator operator : plan.getOperators()) {
+			List<Operator> replicas = operator.getReplicas();
+			for(int i = 0; i < replicas.size(); i++) {
+				for(Operator.Stage stage : replicas.get(i).getStages()) {
+					if(!(stage.getMangler() instanceof Checkpointable)) {
+						continue;
+					}
+					String key = Checkpoint.key(plan.getTopology().positionOf(stage.getOrigin()), i);
+					byte[] state = checkpoint.getState(key);
+					if(state == null) {
+						throw new IllegalStateException(checkpoint + " contains no state of " + stage.getMangler()
+								+ " (" + key + ")");
+					}
+					try {
+						((Checkpointable) stage.getMangler()).restore(new DataInputStream(new ByteArrayInputStream(state)));
+					} catch (IOException e) {
+						throw new IllegalStateException("cannot restore " + stage.getMangler() + " from " + checkpoint, e);
+					}
+					restored++;
+				}
+			}
+		}
+		if(restored != checkpoint.getStates().size()) {
+			throw new IllegalStateException(checkpoint + " contains states of replicas the plan does not have");
+		}
+	}
+
+	private static String name(String prefix, Operator operator, int replica) {
+		return prefix + "-" + operator + (operator.getReplicas().size() > 1 ? "#" + replica : "");
+	}
+
+	private void add(Runnable worker, String name, boolean virtual) {
+		workers.add(WorkerThreads.newThread(worker, name, virtual));
+	}
+
+	/**
+	 * Waits for all workers of the current execution to finish and for its checkpoints to be written.
+	 *
+	 * @throws InterruptedException
+	 * @throws ExecutionException if a mangler failed, the cause is the exception it has thrown
+	 */
+	public synchronized void await() throws InterruptedException, ExecutionException {
+		for(Thread worker : workers) {
+			worker.join();
+		}
+		workers.clear();
+		if(checkpointTimer != null) {
+			checkpointTimer.shutdownNow();
+			checkpointTimer = null;
+		}
+		if(coordinator != null) {
+			coordinator.abort(new CancellationException("the execution has ended"));
+			// checkpoints are acknowledged by the workers, all of them are being written by now
+			coordinator.flush();
+			coordinator = null;
+		}
+		if(metrics != null) {
+			metrics.unregister();
+			metrics = null;
+		}
+		if(failure != null) {
+			throw new ExecutionException(failure);
+		}
+	}
+
+	/**
+	 * Executes the given graph and waits for it to finish.
+	 *
+	 * @param graph
+	 * @throws InterruptedException
+	 * @throws ExecutionException if a mangler failed
+	 */
+	public void run(Graph graph) throws InterruptedException, ExecutionException {
+		start(graph);
+		await();
+	}
+
+	/**
+	 * Interrupts all workers of the current execution. Results not yet consumed are discarded.
+	 */
+	public void stop() {
+		for(Thread worker : workers) {
+			worker.interrupt();
+		}
+	}
+
+	private void fail(Throwable t) {
+		synchronized(workers) {
+			if(failure == null) {
+				failure = t;
+			}
+		}
+		stop();
+	}
+
+	/**
+	 * Marks the end of the results of one producer of a channel, or a checkpoint's barrier.
+	 */
+	private static final class Marker extends Result {
+
+		// 0 for the end
+		final long checkpoint;
+
+		Marker(int origin, long checkpoint) {
+			super(0);
+			this.checkpoint = checkpoint;
+			setOrigin(origin);
+		}
+
+		boolean isEnd() {
+			return checkpoint == 0;
+		}
+	}
+
+	/**
+	 * An input port of a mangler of the operator along with its state in the current execution.
+	 */
+	private static class Target {
+
+		final InputInvoker port;
+
+		final int stage;
+
+		final boolean required;
+
+		// null unless the port takes batches
+		final BatchBuffer batch;
+
+		final LongAdder values;
+
+		final ManglerMetrics metrics;
+
+		// the primitive values the port takes without boxing, Frame.OBJECT if none
+		final byte kind;
+
+		boolean provided;
+
+		Target(InputInvoker port, int stage, boolean required, BatchBuffer batch, LongAdder values, ManglerMetrics metrics) {
+			this.port = port;
+			this.kind = batch != null ? Frame.OBJECT : kindOf(port);
+			this.stage = stage;
+			this.required = required;
+			this.batch = batch;
+			this.values = values;
+			this.metrics = metrics;
+		}
+	}
+
+	private static byte kindOf(InputInvoker port) {
+		if(port instanceof InputInvoker.OfLong) {
+			return Frame.LONG;
+		} else if(port instanceof InputInvoker.OfInt) {
+			return Frame.INT;
+		} else if(port instanceof InputInvoker.OfDouble) {
+			return Frame.DOUBLE;
+		}
+		return Frame.OBJECT;
+	}
+
+	/**
+	 * The input ports an output port of a predecessor is connected to.
+	 */
+	private static class Route {
+
+		final Target[] targets;
+
+		final boolean unpack;
+
+		Route(Target[] targets, boolean unpack) {
+			this.targets = targets;
+			this.unpack = unpack;
+		}
+	}
+
+	/**
+	 * The inboxes of a following operator, one per replica.
+	 */
+	private static class Output {
+
+		private final List<Channel<Result>> channels;
+
+		private final List<ChannelMetrics> metrics;
+
+		private final Parallel.Partitioning partitioning;
+
+		// predecessor -> slot of its output port providing the key
+		private final Map<IDataMangler, Integer> keys = new IdentityHashMap<IDataMangler, Integer>();
+
+		// keep one in this many results instead of waiting for space, 0 to wait for every result
+		private final int sampling;
+
+		// the results which found the inboxes full
+		private final AtomicLong overflowed = new AtomicLong();
+
+		// shared by all predecessors to distribute their results in turn
+		private final AtomicLong sequence = new AtomicLong();
+
+		Output(List<Channel<Result>> channels, List<ChannelMetrics> metrics, Parallel.Partitioning partitioning,
+				Map<IDataMangler, Method> keys, int sampling) {
+			this.channels = channels;
+			this.metrics = metrics;
+			this.partitioning = partitioning;
+			for(Map.Entry<IDataMangler, Method> e : keys.entrySet()) {
+				this.keys.put(e.getKey(), ClassPorts.of(e.getKey().getClass()).getOutputPorts().indexOf(e.getValue()));
+			}
+			this.sampling = sampling;
+		}
+
+		/**
+		 * @return the number of results the inboxes hold at most
+		 */
+		int capacity() {
+			long capacity = 0;
+			for(Channel<Result> channel : channels) {
+				capacity += channel.capacity();
+			}
+			return (int) Math.min(capacity, Integer.MAX_VALUE);
+		}
+
+		Output(Channel<Result> channel, ChannelMetrics metrics) {
+			this(Collections.singletonList(channel), Collections.singletonList(metrics), Parallel.Partitioning.ROUND_ROBIN,
+					Collections.<IDataMangler, Method>emptyMap(), 0);
+		}
+
+		/**
+		 * Puts the result into the inbox of one replica. Results without a key go to the first replica.
+		 * A discarded result is released.
+		 */
+		void put(Result result) throws InterruptedException {
+			int size = channels.size();
+			int index;
+			if(size == 1) {
+				index = 0;
+			} else if(partitioning == Parallel.Partitioning.HASH) {
+				Integer slot = keys.get(result.getSrc());
+				int hash = slot != null ? result.hashOf(slot) : 0;
+				hash ^= hash >>> 16;
+				index = (hash & Integer.MAX_VALUE) % size;
+			} else {
+				index = (int) (sequence.getAndIncrement() % size);
+			}
+			Channel<Result> channel = channels.get(index);
+			if(channel.offer(result)) {
+				return;
+			}
+			if(sampling > 0 && overflowed.getAndIncrement() % sampling != 0) {
+				metrics.get(index).recordDropped();
+				result.release();
+			} else {
+				long start = System.nanoTime();
+				channel.put(result);
+				metrics.get(index).recordBlocked(System.nanoTime() - start);
+			}
+		}
+
+		/**
+		 * Puts a marker into the inbox of every replica, waiting for space as markers are never discarded.
+		 */
+		void mark(Marker marker) throws InterruptedException {
+			for(Channel<Result> channel : channels) {
+				channel.put(marker);
+			}
+		}
+	}
+
+	/**
+	 * Passes the results of the replicas of an ordered operator on in the order their inputs have been
+	 * distributed, i.e. it takes the results of one input from each replica in turn. Once a replica passed a
+	 * barrier on, every other one has passed on the results of all inputs preceding it, so their next results
+	 * are the barrier as well.
+	 */
+	private class Merger implements Runnable {
+
+		private final List<Channel<Result>> replicas;
+
+		private final List<Output> followers;
+
+		private final int origin = origins++;
+
+		Merger(List<Channel<Result>> replicas, List<Output> followers) {
+			this.replicas = replicas;
+			this.followers = followers;
+		}
+
+		public void run() {
+			try {
+				boolean[] ended = new boolean[replicas.size()];
+				int remaining = replicas.size();
+				int current = 0;
+				while(remaining > 0) {
+					if(ended[current]) {
+						current = (current + 1) % ended.length;
+						continue;
+					}
+					Result result = replicas.get(current).take();
+					if(result instanceof Marker && ((Marker) result).isEnd()) {
+						ended[current] = true;
+						remaining--;
+						current = (current + 1) % ended.length;
+					} else if(result instanceof Marker) {
+						align(((Marker) result).checkpoint, current, ended);
+					} else if(result == BOUNDARY) {
+						current = (current + 1) % ended.length;
+					} else if(followers.isEmpty()) {
+						result.release();
+					} else {
+						result.setOrigin(origin);
+						result.retain(followers.size() - 1);
+						for(Output follower : followers) {
+							follower.put(result);
+						}
+					}
+				}
+				Marker end = new Marker(origin, 0);
+				for(Output follower : followers) {
+					follower.mark(end);
+				}
+			} catch (InterruptedException e) {
+				// stopped
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}
+
+		/**
+		 * Takes the barriers of the other replicas and passes one on.
+		 */
+		private void align(long checkpoint, int current, boolean[] ended) throws InterruptedException {
+			for(int i = 0; i < ended.length; i++) {
+				if(i != current && !ended[i]) {
+					Result result = replicas.get(i).take();
+					if(!(result instanceof Marker) || ((Marker) result).checkpoint != checkpoint) {
+						throw new IllegalStateException("replica " + i + " is not aligned with checkpoint " + checkpoint);
+					}
+				}
+			}
+			Marker barrier = new Marker(origin, checkpoint);
+			for(Output follower : followers) {
+				follower.mark(barrier);
+			}
+		}
+	}
+
+	private class Worker implements Runnable {
+
+		private final Operator operator;
+
+		private final IDataMangler[] manglers;
+
+		private final Operator.Link[][] links;
+
+		// per stage and link: the input ports of the next stage
+		private final Target[][][] next;
+
+		// per stage and link: the value read after the last execution
+		private final Object[][] values;
+
+		// per stage: number of required input ports which have not been set yet
+		private final int[] missing;
+
+		// per stage: input ports taking batches
+		private final Target[][] batched;
+
+		// batches to be set after some time
+		private final List<Target> timed = new ArrayList<Target>();
+
+		// predecessor -> input ports of the head by the slots of its output ports
+		private final Map<IDataMangler, Route[]> routes = new IdentityHashMap<IDataMangler, Route[]>();
+
+		// the mangler the followers know the results by, differs from the tail for replicas
+		private final IDataMangler src;
+
+		private final Channel<Result> inbox;
+
+		private final ChannelMetrics inboxMetrics;
+
+		// per stage: the memo executing the mangler, null unless it memoizes its results
+		private final Memo[] memos;
+
+		// per stage: the metrics of the mangler
+		private final ManglerMetrics[] metrics;
+
+		// per stage and link: the number of values provided by the output port
+		private final LongAdder[][] provided;
+
+		// inboxes of the following operators
+		private final List<Output> followers;
+
+		// null unless the results have to be merged in order
+		private final Channel<Result> boundaries;
+
+		// released results of this worker, ready to be reused
+		private final Channel<Result> pool;
+
+		// number of output ports of the tail, i.e. slots of a result
+		private final int slots;
+
+		// discard the oldest results while the inbox is backlogged
+		private final boolean dropOldest;
+
+		private boolean shedding;
+
+		// set once the manglers have been closed or aborted
+		private boolean closed;
+
+		private int producers;
+
+		private final int origin = origins++;
+
+		private final Marker end = new Marker(origin, 0);
+
+		// per stage: the key of the state of a Checkpointable mangler, null for other manglers
+		private final String[] stateKeys;
+
+		// the producers whose barrier arrived while waiting for the barriers of the others
+		private final BitSet aligned = new BitSet();
+
+		// the results of aligned producers, held back until the snapshot has been taken
+		private ArrayDeque<Result> held = new ArrayDeque<Result>();
+
+		// the checkpoint of the barrier last passed on, or waited for while aligning
+		private long checkpoint;
+
+		Worker(Operator operator, int replica, IDataMangler src, Channel<Result> inbox, ChannelMetrics inboxMetrics,
+				int producers, List<Output> followers, Channel<Result> boundaries, ExecutionPlan plan) {
+			this.operator = operator;
+			this.src = src;
+			this.inbox = inbox;
+			this.inboxMetrics = inboxMetrics;
+			this.producers = producers;
+			this.followers = followers;
+			this.boundaries = boundaries;
+			this.dropOldest = operator.getOverflow() == OverflowPolicy.DROP_OLDEST;
+			this.slots = ClassPorts.of(src.getClass()).getOutputPorts().size();
+			long capacity = 2;
+			for(Output follower : followers) {
+				capacity += follower.capacity();
+			}
+			this.pool = new MpmcRingBuffer<Result>(Integer.highestOneBit((int) Math.min(capacity, MAX_POOL) - 1) << 1);
+			List<Operator.Stage> stages = operator.getStages();
+			int size = stages.size();
+			manglers = new IDataMangler[size];
+			links = new Operator.Link[size][];
+			next = new Target[size][][];
+			values = new Object[size][];
+			missing = new int[size];
+			batched = new Target[size][];
+			stateKeys = new String[size];
+			memos = new Memo[size];
+			metrics = new ManglerMetrics[size];
+			provided = new LongAdder[size][];
+			List<Map<InputInvoker, Target>> targets = new ArrayList<Map<InputInvoker, Target>>(size);
+			for(int i = 0; i < size; i++) {
+				targets.add(new IdentityHashMap<InputInvoker, Target>());
+				manglers[i] = stages.get(i).getMangler();
+				memos[i] = stages.get(i).getMemo();
+				if(manglers[i] instanceof Checkpointable) {
+					stateKeys[i] = Checkpoint.key(plan.getTopology().positionOf(stages.get(i).getOrigin()), replica);
+				}
+				links[i] = stages.get(i).getLinks().toArray(new Operator.Link[0]);
+				metrics[i] = GraphExecutor.this.metrics.of(stages.get(i).getOrigin());
+				provided[i] = new LongAdder[links[i].length];
+				for(int j = 0; j < links[i].length; j++) {
+					provided[i][j] = GraphExecutor.this.metrics.counterOf(links[i][j].getInstanceMethod());
+				}
+				values[i] = new Object[links[i].length];
+				missing[i] = stages.get(i).getRequired().size();
+				List<Target> batches = new ArrayList<Target>();
+				for(Map.Entry<InputInvoker, Operator.Batch> e : stages.get(i).getBatches().entrySet()) {
+					Target target = target(targets, stages, i, e.getKey());
+					batches.add(target);
+					if(target.batch.isTimed()) {
+						timed.add(target);
+					}
+				}
+				batched[i] = batches.toArray(new Target[0]);
+			}
+			for(int i = 0; i < size; i++) {
+				next[i] = new Target[links[i].length][];
+				for(int j = 0; j < links[i].length; j++) {
+					List<InputInvoker> ports = links[i][j].getTargets();
+					next[i][j] = new Target[ports.size()];
+					for(int k = 0; k < ports.size(); k++) {
+						next[i][j][k] = target(targets, stages, i + 1, ports.get(k));
+					}
+				}
+			}
+			for(Map.Entry<IDataMangler, Map<Method, List<InputInvoker>>> e : operator.getRoutes().entrySet()) {
+				List<Method> outputs = ClassPorts.of(e.getKey().getClass()).getOutputPorts();
+				Route[] ports = new Route[outputs.size()];
+				for(Map.Entry<Method, List<InputInvoker>> p : e.getValue().entrySet()) {
+					Target[] heads = new Target[p.getValue().size()];
+					for(int k = 0; k < heads.length; k++) {
+						heads[k] = target(targets, stages, 0, p.getValue().get(k));
+					}
+					ports[outputs.indexOf(p.getKey())] = new Route(heads, p.getKey().getAnnotation(OutputPort.class).batch());
+				}
+				routes.put(e.getKey(), ports);
+			}
+			if(coordinator != null) {
+				checkpoint = coordinator.getRequested();
+			}
+		}
+
+		private Target target(List<Map<InputInvoker, Target>> targets, List<Operator.Stage> stages, int stage, InputInvoker port) {
+			Target target = targets.get(stage).get(port);
+			if(target == null) {
+				Operator.Batch batch = stages.get(stage).getBatches().get(port);
+				target = new Target(port, stage, stages.get(stage).getRequired().contains(port),
+						batch != null ? new BatchBuffer(port, batch) : null,
+						GraphExecutor.this.metrics.counterOf(stages.get(stage).getInputs().get(port)), metrics[stage]);
+				targets.get(stage).put(port, target);
+			}
+			return target;
+		}
+
+		public void run() {
+			try {
+				if(operator.isSource()) {
+					while(!Thread.currentThread().isInterrupted()) {
+						if(coordinator != null && coordinator.getRequested() > checkpoint) {
+							barrier(coordinator.getRequested());
+						}
+						if(!fire(0)) {
+							break;
+						}
+						if(!timed.isEmpty()) {
+							flushExpired(System.nanoTime());
+						}
+					}
+				} else if(inbox != null) {
+					while(producers > 0) {
+						// the inbox may not be empty when stopped
+						if(Thread.interrupted()) {
+							throw new InterruptedException();
+						}
+						Result result = timed.isEmpty() ? inbox.take() : poll();
+						if(result != null) {
+							receive(result);
+						}
+						if(!timed.isEmpty()) {
+							flushExpired(System.nanoTime());
+						}
+					}
+				}
+				if(Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				if(coordinator != null && (operator.isSource() || inbox != null)) {
+					coordinator.ended(checkpoint);
+				}
+				flushAll();
+				close();
+				for(Output follower : followers) {
+					follower.mark(end);
+				}
+			} catch (InterruptedException e) {
+				// stopped, or interrupted as another worker failed
+				Throwable cause = failure;
+				abort(cause != null ? cause : new CancellationException("execution stopped"));
+			} catch (Throwable t) {
+				fail(t);
+				abort(t);
+			}
+		}
+
+		private void receive(Result result) throws IOException, InterruptedException {
+			if(!aligned.isEmpty() && aligned.get(result.getOrigin())) {
+				held.add(result);
+			} else if(result instanceof Marker) {
+				Marker marker = (Marker) result;
+				if(marker.isEnd()) {
+					producers--;
+				} else {
+					aligned.set(marker.getOrigin());
+					checkpoint = marker.checkpoint;
+				}
+				if(!aligned.isEmpty() && aligned.cardinality() >= producers) {
+					aligned.clear();
+					barrier(checkpoint);
+					// the held results may contain the next barriers already
+					ArrayDeque<Result> released = held;
+					held = new ArrayDeque<Result>();
+					for(Result next = released.poll(); next != null; next = released.poll()) {
+						receive(next);
+					}
+				}
+			} else {
+				if(!dropOldest || !isBacklogged()) {
+					deliver(result);
+				} else {
+					inboxMetrics.recordDropped();
+				}
+				result.release();
+				if(boundaries != null) {
+					boundaries.put(BOUNDARY);
+				}
+			}
+		}
+
+		/**
+		 * Sets the pending batches, takes the snapshots of the operator's manglers for the given checkpoint and
+		 * passes the barrier on.
+		 */
+		private void barrier(long id) throws IOException, InterruptedException {
+			checkpoint = id;
+			for(int i = 0; i < batched.length; i++) {
+				flushBatches(i);
+			}
+			Map<String, byte[]> states = new HashMap<String, byte[]>();
+			for(int i = 0; i < manglers.length; i++) {
+				if(stateKeys[i] != null) {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					((Checkpointable) manglers[i]).snapshot(new DataOutputStream(bytes));
+					states.put(stateKeys[i], bytes.toByteArray());
+				}
+			}
+			coordinator.acknowledge(id, states);
+			Marker barrier = new Marker(origin, id);
+			for(Output follower : followers) {
+				follower.mark(barrier);
+			}
+		}
+
+		/**
+		 * Closes the {@link Closeable} manglers of the operator once their input ended.
+		 */
+		private void close() throws IOException {
+			closed = true;
+			for(IDataMangler idm : manglers) {
+				if(idm instanceof Closeable) {
+					((Closeable) idm).close();
+				}
+			}
+		}
+
+		/**
+		 * Aborts the {@link Abortable} manglers of the operator unless they have been closed already.
+		 */
+		private void abort(Throwable cause) {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			for(IDataMangler idm : manglers) {
+				if(idm instanceof Abortable) {
+					try {
+						((Abortable) idm).abort(cause);
+					} catch (RuntimeException e) {
+						fail(e);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Once the inbox has been full, it is backlogged until it is down to half of its capacity.
+		 */
+		private boolean isBacklogged() {
+			int size = inbox.size();
+			if(size >= inbox.capacity() - 1) {
+				shedding = true;
+			} else if(size <= inbox.capacity() / 2) {
+				shedding = false;
+			}
+			return shedding;
+		}
+
+		/**
+		 * Waits for the next result, but not longer than the earliest pending batch has to be set.
+		 */
+		private Result poll() throws InterruptedException {
+			long deadline = Long.MAX_VALUE;
+			boolean pending = false;
+			for(Target target : timed) {
+				if(target.batch.isPending() && (!pending || target.batch.getDeadline() - deadline < 0)) {
+					deadline = target.batch.getDeadline();
+					pending = true;
+				}
+			}
+			if(!pending) {
+				return inbox.take();
+			}
+			return inbox.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		private void flushExpired(long now) throws InterruptedException {
+			for(Target target : timed) {
+				if(target.batch.isPending() && now - target.batch.getDeadline() >= 0 && flush(target)
+						&& missing[target.stage] == 0) {
+					fire(target.stage);
+				}
+			}
+		}
+
+		/**
+		 * Sets the incomplete batches and flushes the {@link Flushable} manglers, stage by stage as executing or
+		 * flushing a stage may provide values to the next one.
+		 */
+		private void flushAll() throws IOException, InterruptedException {
+			for(int i = 0; i < batched.length; i++) {
+				flushBatches(i);
+				if(manglers[i] instanceof Flushable) {
+					((Flushable) manglers[i]).flush();
+					emit(i);
+				}
+			}
+		}
+
+		/**
+		 * Sets the incomplete batches of the given stage and executes it.
+		 */
+		private void flushBatches(int stage) throws InterruptedException {
+			boolean flushed = false;
+			for(Target target : batched[stage]) {
+				flushed |= flush(target);
+			}
+			if(flushed && missing[stage] == 0) {
+				fire(stage);
+			}
+		}
+
+		private boolean flush(Target target) {
+			if(target.batch.flush()) {
+				provided(target);
+				return true;
+			}
+			return false;
+		}
+
+		private void provided(Target target) {
+			if(!target.provided) {
+				target.provided = true;
+				if(target.required) {
+					missing[target.stage]--;
+				}
+			}
+		}
+
+		/**
+		 * Sets a value on the given input ports.
+		 *
+		 * @return true if any port has been set, false if the value has only been added to batches
+		 */
+		private boolean set(Target[] targets, Object value) {
+			boolean set = false;
+			for(Target target : targets) {
+				set |= set(target, value);
+			}
+			return set;
+		}
+
+		private boolean set(Target target, Object value) {
+			target.values.increment();
+			target.metrics.recordIn();
+			if(target.batch == null) {
+				target.port.set(value);
+			} else if(!target.batch.add(value)) {
+				return false;
+			}
+			provided(target);
+			return true;
+		}
+
+		/**
+		 * Sets a primitive value of the given kind on the given input ports, boxing it only for ports which do
+		 * not take that kind.
+		 *
+		 * @return true if any port has been set, false if the value has only been added to batches
+		 */
+		private boolean set(Target[] targets, byte kind, long bits) {
+			boolean set = false;
+			for(Target target : targets) {
+				if(target.kind != kind) {
+					set |= set(target, box(kind, bits));
+					continue;
+				}
+				target.values.increment();
+				target.metrics.recordIn();
+				switch(kind) {
+				case Frame.LONG:
+					((InputInvoker.OfLong) target.port).setLong(bits);
+					break;
+				case Frame.INT:
+					((InputInvoker.OfInt) target.port).setInt((int) bits);
+					break;
+				default:
+					((InputInvoker.OfDouble) target.port).setDouble(Double.longBitsToDouble(bits));
+				}
+				provided(target);
+				set = true;
+			}
+			return set;
+		}
+
+		/**
+		 * Sets the values of an output port providing batches one by one, executing the stage after each one.
+		 *
+		 * @return true if the stage has been executed
+		 */
+		private boolean unpack(int stage, Target[] targets, Object[] values) throws InterruptedException {
+			boolean fired = false;
+			for(Object value : values) {
+				if(value != null && set(targets, value) && missing[stage] == 0) {
+					fire(stage);
+					fired = true;
+				}
+			}
+			return fired;
+		}
+
+		/**
+		 * Sets the values of a predecessor on the input ports of the head and executes it if it is ready.
+		 */
+		private void deliver(Result result) throws InterruptedException {
+			Route[] ports = routes.get(result.getSrc());
+			boolean set = false;
+			boolean fired = false;
+			for(int slot = 0; slot < ports.length; slot++) {
+				Route route = ports[slot];
+				if(route != null && !route.unpack && result.isSet(slot)) {
+					byte kind = result.getKind(slot);
+					set |= kind == Frame.OBJECT ? set(route.targets, result.get(slot))
+							: set(route.targets, kind, result.getBits(slot));
+				}
+			}
+			for(int slot = 0; slot < ports.length; slot++) {
+				Route route = ports[slot];
+				if(route != null && route.unpack && result.isSet(slot)) {
+					fired |= unpack(0, route.targets, (Object[]) result.get(slot));
+				}
+			}
+			if(set && !fired && missing[0] == 0) {
+				fire(0);
+			}
+		}
+
+		/**
+		 * Executes the mangler of the given stage, unless its results have been memoized, and passes the values of
+		 * its output ports on, either to the next stage or to the followers of the operator.
+		 *
+		 * @return false if no output port provided a value
+		 */
+		private boolean fire(int index) throws InterruptedException {
+			long start = System.nanoTime();
+			if(memos[index] == null) {
+				manglers[index].execute();
+			} else if(memos[index].execute()) {
+				metrics[index].recordCacheHit();
+				return emit(index);
+			} else {
+				metrics[index].recordCacheMiss();
+			}
+			metrics[index].recordExecution(System.nanoTime() - start);
+			return emit(index);
+		}
+
+		/**
+		 * Passes the values of the output ports of the given stage on.
+		 *
+		 * @return false if no output port provided a value
+		 */
+		private boolean emit(int index) throws InterruptedException {
+			boolean provided = false;
+			Operator.Link[] ports = links[index];
+			if(index + 1 < manglers.length) {
+				Object[] values = this.values[index];
+				boolean set = false;
+				boolean fired = false;
+				for(int j = 0; j < ports.length; j++) {
+					byte kind = ports[j].getKind();
+					if(kind != Frame.OBJECT) {
+						provided = true;
+						count(index, j, 1);
+						set |= set(next[index][j], kind, read(ports[j].getOut(), kind));
+						continue;
+					}
+					values[j] = ports[j].getOut().get();
+					if(isProvided(ports[j], values[j])) {
+						provided = true;
+						count(index, j, values[j]);
+						if(!ports[j].isBatch()) {
+							set |= set(next[index][j], values[j]);
+						}
+					}
+				}
+				for(int j = 0; j < ports.length; j++) {
+					if(ports[j].isBatch() && isProvided(ports[j], values[j])) {
+						fired |= unpack(index + 1, next[index][j], (Object[]) values[j]);
+					}
+					values[j] = null;
+				}
+				if(set && !fired && missing[index + 1] == 0) {
+					fire(index + 1);
+				}
+			} else {
+				Result result = null;
+				for(int j = 0; j < ports.length; j++) {
+					byte kind = ports[j].getKind();
+					if(kind != Frame.OBJECT) {
+						long bits = read(ports[j].getOut(), kind);
+						provided = true;
+						count(index, j, 1);
+						if(ports[j].isExternal()) {
+							result = result != null ? result : acquire();
+							result.putBits(ports[j].getSlot(), kind, bits);
+						}
+						continue;
+					}
+					Object value = ports[j].getOut().get();
+					if(isProvided(ports[j], value)) {
+						provided = true;
+						count(index, j, value);
+						if(ports[j].isExternal()) {
+							result = result != null ? result : acquire();
+							result.put(ports[j].getSlot(), value);
+						}
+					}
+				}
+				if(result != null) {
+					result.retain(followers.size());
+					for(Output follower : followers) {
+						follower.put(result);
+					}
+				}
+			}
+			return provided;
+		}
+
+		/**
+		 * @return a cleared result of the tail, reused if any has been released
+		 */
+		private Result acquire() {
+			Result result = pool.poll();
+			if(result == null) {
+				result = new Result(slots, pool);
+			}
+			result.setSrc(src);
+			result.setOrigin(origin);
+			return result;
+		}
+
+		private Object box(byte kind, long bits) {
+			switch(kind) {
+			case Frame.LONG:
+				return Long.valueOf(bits);
+			case Frame.INT:
+				return Integer.valueOf((int) bits);
+			default:
+				return Double.valueOf(Double.longBitsToDouble(bits));
+			}
+		}
+
+		private long read(OutputInvoker out, byte kind) {
+			switch(kind) {
+			case Frame.LONG:
+				return ((OutputInvoker.OfLong) out).getLong();
+			case Frame.INT:
+				return ((OutputInvoker.OfInt) out).getInt();
+			default:
+				return Double.doubleToRawLongBits(((OutputInvoker.OfDouble) out).getDouble());
+			}
+		}
+
+		private void count(int stage, int link, Object value) {
+			count(stage, link, links[stage][link].isBatch() ? ((Object[]) value).length : 1);
+		}
+
+		private void count(int stage, int link, int count) {
+			provided[stage][link].add(count);
+			metrics[stage].recordOut(count);
+		}
+
+		private boolean isProvided(Operator.Link link, Object value) {
+			return value != null && (!link.isBatch() || ((Object[]) value).length > 0);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package de.cau.dataprocessing.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.cau.dataprocessing.cache.TinyLfuCache;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+
+/**
+ * Memoizes the results of a mangler with {@link OutputPort#cache() cacheable} output ports. The invokers of its
+ * ports are wrapped: the input invokers record the values set, the output invokers return the results of the
+ * last {@link #execute()}, which either executes the mangler or looks its results up by the values of the input
+ * ports. Values of <code>long</code>, <code>int</code> and <code>double</code> ports are recorded and returned
+ * without boxing. The input ports of cacheable manglers take immutable values only, batches are copied when
+ * their results are memoized, so the keys of the cache do not change. Only used by a single worker.
+ */
+class Memo {
+
+	private final IDataMangler idm;
+
+	private final TinyLfuCache<Key, Results> cache;
+
+	private final List<OutputInvoker> outputs = new ArrayList<OutputInvoker>();
+
+	// the values last set on the input ports, primitive ones as bits
+	private Object[] inputs = new Object[0];
+
+	private long[] inputBits = new long[0];
+
+	// looks the current values up without copying them
+	private final Key probe = new Key();
+
+	private Results results;
+
+	Memo(IDataMangler idm, int size) {
+		this.idm = idm;
+		this.cache = new TinyLfuCache<Key, Results>(size);
+	}
+
+	/**
+	 * @return an invoker recording the values set on the given one, of the same primitive kind
+	 */
+	InputInvoker wrap(final InputInvoker port) {
+		final int slot = inputs.length;
+		inputs = Arrays.copyOf(inputs, slot + 1);
+		inputBits = Arrays.copyOf(inputBits, slot + 1);
+		if(port instanceof InputInvoker.OfLong) {
+			final InputInvoker.OfLong target = (InputInvoker.OfLong) port;
+			return new InputInvoker.OfLong() {
+
+				public void setLong(long value) {
+					inputBits[slot] = value;
+					target.setLong(value);
+				}
+			};
+		} else if(port instanceof InputInvoker.OfInt) {
+			final InputInvoker.OfInt target = (InputInvoker.OfInt) port;
+			return new InputInvoker.OfInt() {
+
+				public void setInt(int value) {
+					inputBits[slot] = value;
+					target.setInt(value);
+				}
+			};
+		} else if(port instanceof InputInvoker.OfDouble) {
+			final InputInvoker.OfDouble target = (InputInvoker.OfDouble) port;
+			return new InputInvoker.OfDouble() {
+
+				public void setDouble(double value) {
+					inputBits[slot] = Double.doubleToLongBits(value);
+					target.setDouble(value);
+				}
+			};
+		}
+		return new InputInvoker() {
+
+			public void set(Object value) {
+				inputs[slot] = value;
+				port.set(value);
+			}
+		};
+	}
+
+	/**
+	 * @return an invoker returning the memoized results of the given one, of the same primitive kind
+	 */
+	OutputInvoker wrap(OutputInvoker port) {
+		final int slot = outputs.size();
+		outputs.add(port);
+		if(port instanceof OutputInvoker.OfLong) {
+			return new OutputInvoker.OfLong() {
+
+				public long getLong() {
+					return results.bits[slot];
+				}
+			};
+		} else if(port instanceof OutputInvoker.OfInt) {
+			return new OutputInvoker.OfInt() {
+
+				public int getInt() {
+					return (int) results.bits[slot];
+				}
+			};
+		} else if(port instanceof OutputInvoker.OfDouble) {
+			return new OutputInvoker.OfDouble() {
+
+				public double getDouble() {
+					return Double.longBitsToDouble(results.bits[slot]);
+				}
+			};
+		}
+		return new OutputInvoker() {
+
+			public Object get() {
+				return results.values[slot];
+			}
+		};
+	}
+
+	/**
+	 * Executes the mangler unless its results for the current values of the input ports have been memoized.
+	 *
+	 * @return true if the results have been memoized
+	 */
+	boolean execute() {
+		probe.set(inputs, inputBits);
+		results = cache.get(probe);
+		if(results != null) {
+			return true;
+		}
+		idm.execute();
+		results = new Results(outputs.size());
+		for(int i = 0; i < outputs.size(); i++) {
+			OutputInvoker port = outputs.get(i);
+			if(port instanceof OutputInvoker.OfLong) {
+				results.bits[i] = ((OutputInvoker.OfLong) port).getLong();
+			} else if(port instanceof OutputInvoker.OfInt) {
+				results.bits[i] = ((OutputInvoker.OfInt) port).getInt();
+			} else if(port instanceof OutputInvoker.OfDouble) {
+				results.bits[i] = Double.doubleToRawLongBits(((OutputInvoker.OfDouble) port).getDouble());
+			} else {
+				results.values[i] = port.get();
+			}
+		}
+		cache.put(probe.snapshot(), results);
+		return false;
+	}
+
+	/**
+	 * The results of one execution.
+	 */
+	private static class Results {
+
+		final Object[] values;
+
+		final long[] bits;
+
+		Results(int size) {
+			values = new Object[size];
+			bits = new long[size];
+		}
+	}
+
+	/**
+	 * The values of the input ports, compared by their contents, which includes batches.
+	 */
+	private static class Key {
+
+		private Object[] values;
+
+		private long[] bits;
+
+		private int hash;
+
+		void set(Object[] values, long[] bits) {
+			this.values = values;
+			this.bits = bits;
+			this.hash = 31 * Arrays.deepHashCode(values) + Arrays.hashCode(bits);
+		}
+
+		/**
+		 * @return a key of copies of the current values, batches are copied as well
+		 */
+		Key snapshot() {
+			Object[] copy = values.clone();
+			for(int i = 0; i < copy.length; i++) {
+				if(copy[i] instanceof Object[]) {
+					copy[i] = ((Object[]) copy[i]).clone();
+				}
+			}
+			Key key = new Key();
+			key.values = copy;
+			key.bits = bits.clone();
+			key.hash = hash;
+			return key;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && Arrays.equals(bits, other.bits) && Arrays.deepEquals(values, other.values);
+		}
+	}
+}
@@ -0,0 +1,397 @@
+package de.cau.dataprocessing.engine;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OverflowPolicy;
+import de.cau.dataprocessing.filters.annotations.Parallel;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+
+/**
+ * A linear chain of {@link IDataMangler}s of an {@link ExecutionPlan}, which is executed by a single worker.
+ * Each mangler but the last one has the next one as its only follower, which in turn has no other predecessor.
+ * The values of the output ports are set on the input ports of the next mangler directly, only the results
+ * of the last mangler are passed on to the following operators.
+ *
+ * @author Robert von Massow
+ * @since 0.1
+ *
+ */
+public class Operator {
+
+	private final List<Stage> stages;
+
+	// predecessor -> its output port -> input ports of the head
+	private final Map<IDataMangler, Map<Method, List<InputInvoker>>> routes;
+
+	private final List<Operator> followers = new ArrayList<Operator>();
+
+	private final List<Operator> predecessors = new ArrayList<Operator>();
+
+	private final boolean source;
+
+	private final OverflowPolicy overflow;
+
+	private final int capacity;
+
+	private final int sampling;
+
+	// all replicas including this operator, only this one unless replicated
+	private List<Operator> replicas = Collections.singletonList(this);
+
+	private Parallel.Partitioning partitioning = Parallel.Partitioning.ROUND_ROBIN;
+
+	private boolean ordered;
+
+	// predecessor -> its output port connected to the key port of the head
+	private Map<IDataMangler, Method> keys = Collections.emptyMap();
+
+	Operator(List<Stage> stages, Map<IDataMangler, Map<Method, List<InputInvoker>>> routes, boolean source,
+			OverflowPolicy overflow, int capacity, int sampling) {
+		this.stages = Collections.unmodifiableList(stages);
+		this.routes = Collections.unmodifiableMap(routes);
+		this.source = source;
+		this.overflow = overflow;
+		this.capacity = capacity;
+		this.sampling = sampling;
+	}
+
+	void addFollower(Operator follower) {
+		followers.add(follower);
+		follower.predecessors.add(this);
+	}
+
+	void replicate(List<Operator> replicas, Parallel.Partitioning partitioning, boolean ordered, Map<IDataMangler, Method> keys) {
+		this.replicas = Collections.unmodifiableList(replicas);
+		this.partitioning = partitioning;
+		this.ordered = ordered;
+		this.keys = Collections.unmodifiableMap(keys);
+	}
+
+	public List<IDataMangler> getManglers() {
+		List<IDataMangler> manglers = new ArrayList<IDataMangler>(stages.size());
+		for(Stage stage : stages) {
+			manglers.add(stage.getMangler());
+		}
+		return manglers;
+	}
+
+	public IDataMangler getHead() {
+		return stages.get(0).getMangler();
+	}
+
+	public IDataMangler getTail() {
+		return stages.get(stages.size() - 1).getMangler();
+	}
+
+	/**
+	 * @return true if any mangler of this operator is marked {@link Blocking}
+	 */
+	public boolean isBlocking() {
+		for(Stage stage : stages) {
+			if(stage.getOrigin().getClass().isAnnotationPresent(Blocking.class)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the head of this operator is a source of the graph
+	 */
+	public boolean isSource() {
+		return source;
+	}
+
+	/**
+	 * @return the policy applied while the inbox of this operator is full, see {@link InputPort#overflow()}
+	 */
+	public OverflowPolicy getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * @return one in this many results is kept while the inbox is full if {@link OverflowPolicy#SAMPLE sampled},
+	 * see {@link InputPort#sampling()}
+	 */
+	public int getSampling() {
+		return sampling;
+	}
+
+	/**
+	 * @return the capacity of the inbox of this operator, 0 for the default capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public List<Operator> getFollowers() {
+		return Collections.unmodifiableList(followers);
+	}
+
+	public List<Operator> getPredecessors() {
+		return Collections.unmodifiableList(predecessors);
+	}
+
+	/**
+	 * Returns the replicas of this operator, which run concurrently on manglers of their own. The first
+	 * replica is this operator, the others are not part of the plan's topology, i.e. they have neither
+	 * followers nor predecessors.
+	 *
+	 * @return the replicas, only this operator if its mangler is not marked {@link Parallel}
+	 */
+	public List<Operator> getReplicas() {
+		return replicas;
+	}
+
+	public Parallel.Partitioning getPartitioning() {
+		return partitioning;
+	}
+
+	/**
+	 * @return true if the results of the replicas are passed on in the order of their inputs
+	 */
+	public boolean isOrdered() {
+		return ordered && partitioning == Parallel.Partitioning.ROUND_ROBIN && replicas.size() > 1;
+	}
+
+	/**
+	 * @return predecessor -> its output port connected to the {@link InputPort#key()} port of the head
+	 */
+	Map<IDataMangler, Method> getKeys() {
+		return keys;
+	}
+
+	List<Stage> getStages() {
+		return stages;
+	}
+
+	Map<IDataMangler, Map<Method, List<InputInvoker>>> getRoutes() {
+		return routes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for(Stage stage : stages) {
+			if(sb.length() > 0) {
+				sb.append("->");
+			}
+			sb.append(stage.getMangler().getName());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * One mangler of the chain along with the wiring of its ports.
+	 */
+	static class Stage {
+
+		private final IDataMangler idm;
+
+		private final IDataMangler origin;
+
+		private final List<Link> links;
+
+		private final List<InputInvoker> required;
+
+		private final Map<InputInvoker, Batch> batches;
+
+		private final Map<InputInvoker, InstanceMethod<IDataMangler>> inputs;
+
+		private final Memo memo;
+
+		Stage(IDataMangler idm, IDataMangler origin, List<Link> links, List<InputInvoker> required,
+				Map<InputInvoker, Batch> batches, Map<InputInvoker, InstanceMethod<IDataMangler>> inputs, Memo memo) {
+			this.idm = idm;
+			this.origin = origin;
+			this.links = Collections.unmodifiableList(links);
+			this.required = Collections.unmodifiableList(required);
+			this.batches = Collections.unmodifiableMap(batches);
+			this.inputs = Collections.unmodifiableMap(inputs);
+			this.memo = memo;
+		}
+
+		IDataMangler getMangler() {
+			return idm;
+		}
+
+		/**
+		 * @return the mangler of the graph, which differs from {@link #getMangler()} for replicas
+		 */
+		IDataMangler getOrigin() {
+			return origin;
+		}
+
+		/**
+		 * @return the input ports of the mangler of the graph by their invokers
+		 */
+		Map<InputInvoker, InstanceMethod<IDataMangler>> getInputs() {
+			return inputs;
+		}
+
+		/**
+		 * @return the output ports of the mangler
+		 */
+		List<Link> getLinks() {
+			return links;
+		}
+
+		/**
+		 * @return the required input ports of the mangler
+		 */
+		List<InputInvoker> getRequired() {
+			return required;
+		}
+
+		/**
+		 * @return the input ports of the mangler taking batches
+		 */
+		Map<InputInvoker, Batch> getBatches() {
+			return batches;
+		}
+
+		/**
+		 * @return the memo executing the mangler, null unless its output ports are cacheable
+		 */
+		Memo getMemo() {
+			return memo;
+		}
+	}
+
+	/**
+	 * The batch an input port takes.
+	 */
+	static class Batch {
+
+		private final Class<?> type;
+
+		private final int size;
+
+		private final long maxLatency;
+
+		Batch(Class<?> type, int size, long maxLatency) {
+			this.type = type;
+			this.size = size;
+			this.maxLatency = maxLatency;
+		}
+
+		/**
+		 * @return the component type of the batch array
+		 */
+		Class<?> getType() {
+			return type;
+		}
+
+		int getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the maximum latency in nanoseconds, 0 if unbounded
+		 */
+		long getMaxLatency() {
+			return maxLatency;
+		}
+	}
+
+	/**
+	 * An output port and the input ports of the next mangler in the chain it is connected to.
+	 */
+	static class Link {
+
+		private final InstanceMethod<IDataMangler> port;
+
+		private final OutputInvoker out;
+
+		private final List<InputInvoker> targets;
+
+		private final boolean external;
+
+		private final boolean batch;
+
+		private final int slot;
+
+		private final byte kind;
+
+		Link(InstanceMethod<IDataMangler> port, OutputInvoker out, List<InputInvoker> targets, boolean external, boolean batch) {
+			this.port = port;
+			this.out = out;
+			this.targets = Collections.unmodifiableList(targets);
+			this.external = external;
+			this.batch = batch;
+			this.slot = ClassPorts.of(port.getInstance().getClass()).getOutputPorts().indexOf(port.getMethod());
+			this.kind = kindOf(out);
+		}
+
+		static byte kindOf(OutputInvoker out) {
+			if(out instanceof OutputInvoker.OfLong) {
+				return Frame.LONG;
+			} else if(out instanceof OutputInvoker.OfInt) {
+				return Frame.INT;
+			} else if(out instanceof OutputInvoker.OfDouble) {
+				return Frame.DOUBLE;
+			}
+			return Frame.OBJECT;
+		}
+
+		Method getPort() {
+			return port.getMethod();
+		}
+
+		/**
+		 * @return the output port of the mangler of the graph
+		 */
+		InstanceMethod<IDataMangler> getInstanceMethod() {
+			return port;
+		}
+
+		OutputInvoker getOut() {
+			return out;
+		}
+
+		/**
+		 * @return the input ports of the next mangler within the operator
+		 */
+		List<InputInvoker> getTargets() {
+			return targets;
+		}
+
+		/**
+		 * @return true if the port is connected to the head of a following operator
+		 */
+		boolean isExternal() {
+			return external;
+		}
+
+		/**
+		 * @return true if the port returns arrays of values
+		 */
+		boolean isBatch() {
+			return batch;
+		}
+
+		/**
+		 * @return the slot of the port in the {@link Result}s of the mangler
+		 */
+		int getSlot() {
+			return slot;
+		}
+
+		/**
+		 * @return the {@link Frame} kind of the values, primitive if the invoker does not box them
+		 */
+		byte getKind() {
+			return kind;
+		}
+	}
+}
@@ -0,0 +1,507 @@
+package de.cau.dataprocessing.engine;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.cau.dataprocessing.filters.Abortable;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.annotations.Parallel;
+import de.cau.dataprocessing.metrics.GraphMetrics;
+import de.cau.dataprocessing.metrics.ManglerMetrics;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+
+/**
+ * Executes a {@link Graph} on demand of its sinks, as opposed to the {@link GraphExecutor} pushing the values of
+ * the sources through it. Only the manglers reaching a connected sink ({@link Graph#getDemandedIDMs()}) take part,
+ * and only their output ports connected to another one of them are read, so branches no sink consumes the values
+ * of cost nothing.<p>
+ *
+ * A sink {@link #pull(IDataMangler) pulls} the next result of one of its predecessors, which in turn pull from
+ * theirs while they have none, down to the sources, which are executed once per pull. The results of a mangler
+ * are queued for each of its followers, so values consumed by several sinks are computed once. Apart from that,
+ * the manglers are executed as by the {@link GraphExecutor}: <code>null</code> values are not passed on, a mangler
+ * is not executed before each of its {@link InputPort#required()} ports has been set once, batches are set once
+ * full or the input ended, and {@link Flushable} and {@link Closeable} manglers are flushed and closed once
+ * their input ended, or {@link Abortable} ones aborted once a mangler failed. The values provided while the
+ * predecessors end, e.g. by their last batch or by flushing them, are passed on before the input of a mangler
+ * ends. A source is exhausted as soon as an execution does not provide a value on any of its demanded output
+ * ports.<p>
+ *
+ * The execution runs on the calling thread and must not be shared. Manglers are neither replicated
+ * ({@link Parallel}) nor checkpointed, and {@link InputPort#maxLatency()} does not apply, as nothing waits.
+ * The results of manglers with {@link OutputPort#cache() cacheable} ports are memoized as well.
+ *
+ * @author Robert von Massow
+ * @since 0.1
+ *
+ */
+public class PullExecution {
+
+	// demanded manglers, predecessors first
+	private final Map<IDataMangler, Node> nodes = new LinkedHashMap<IDataMangler, Node>();
+
+	private final List<Node> sinks = new ArrayList<Node>();
+
+	/**
+	 * Wires the demanded manglers of the given graph. Later changes of the graph do not affect the execution.
+	 *
+	 * @param graph
+	 * @throws IllegalStateException if the demanded manglers contain a cycle
+	 */
+	public PullExecution(Graph graph) {
+		GraphMetrics metrics = graph.getMetrics();
+		Set<IDataMangler> demanded = graph.getDemandedIDMs();
+		Map<IDataMangler, Node> unordered = new IdentityHashMap<IDataMangler, Node>();
+		for(IDataMangler idm : demanded) {
+			unordered.put(idm, new Node(graph, idm, metrics));
+		}
+		for(Node node : unordered.values()) {
+			node.connect(graph, unordered, metrics);
+		}
+		for(IDataMangler idm : demanded) {
+			order(unordered.get(idm), new IdentityHashMap<Node, Boolean>());
+		}
+		for(IDataMangler sink : graph.getAllSinks()) {
+			if(nodes.containsKey(sink)) {
+				sinks.add(nodes.get(sink));
+			}
+		}
+		metrics.started();
+	}
+
+	/**
+	 * Adds the given node after its predecessors.
+	 *
+	 * @param visiting the nodes whose predecessors are being added
+	 */
+	private void order(Node node, Map<Node, Boolean> visiting) {
+		if(nodes.containsKey(node.idm)) {
+			return;
+		}
+		if(visiting.put(node, Boolean.TRUE) != null) {
+			throw new IllegalStateException("graph contains a cycle");
+		}
+		for(Edge edge : node.incoming) {
+			order(edge.origin, visiting);
+		}
+		visiting.remove(node);
+		nodes.put(node.idm, node);
+	}
+
+	/**
+	 * @return the manglers taking part in the execution, each one after its predecessors
+	 */
+	public Set<IDataMangler> getManglers() {
+		return Collections.unmodifiableSet(nodes.keySet());
+	}
+
+	/**
+	 * Sets the next result of a predecessor on the input ports of the given sink and executes it if it is ready,
+	 * executing the predecessors as far as needed.
+	 *
+	 * @param sink
+	 * @return false if the input of the sink ended, which has been flushed and closed then
+	 * @throws IllegalArgumentException if the mangler is not a connected sink of the graph
+	 * @throws ExecutionException if a mangler failed, the cause is the exception it has thrown
+	 */
+	public boolean pull(IDataMangler sink) throws ExecutionException {
+		Node node = nodes.get(sink);
+		if(node == null || !sinks.contains(node)) {
+			throw new IllegalArgumentException(sink + " is not a connected sink of the graph");
+		}
+		try {
+			return pull(node);
+		} catch (IOException e) {
+			abort(e);
+			throw new ExecutionException(e);
+		} catch (RuntimeException e) {
+			abort(e);
+			throw new ExecutionException(e);
+		}
+	}
+
+	/**
+	 * Aborts the {@link Abortable} manglers whose input has not ended, which end then.
+	 */
+	private void abort(Throwable cause) {
+		for(Node node : nodes.values()) {
+			if(!node.ended) {
+				node.ended = true;
+				if(node.idm instanceof Abortable) {
+					((Abortable) node.idm).abort(cause);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pulls from all sinks in turn until their input ended.
+	 *
+	 * @throws ExecutionException if a mangler failed, the cause is the exception it has thrown
+	 */
+	public void run() throws ExecutionException {
+		boolean pending = true;
+		while(pending) {
+			pending = false;
+			for(Node sink : sinks) {
+				pending |= pull(sink.idm);
+			}
+		}
+	}
+
+	/**
+	 * Executes a source once, or sets the next result of a predecessor on the input ports of a mangler,
+	 * pulling from the predecessors until one is available.
+	 *
+	 * @return false if the node ended
+	 */
+	private boolean pull(Node node) throws IOException {
+		if(node.ended) {
+			return false;
+		}
+		if(node.source) {
+			if(fire(node)) {
+				return true;
+			}
+			end(node);
+			return false;
+		}
+		int size = node.incoming.size();
+		while(true) {
+			for(int i = 0; i < size; i++) {
+				Edge edge = node.incoming.get((node.next + i) % size);
+				Object[] values = edge.queue.poll();
+				if(values != null) {
+					node.next = (node.next + i + 1) % size;
+					deliver(node, edge, values);
+					return true;
+				}
+			}
+			boolean pulled = false;
+			for(int i = 0; i < size && !pulled; i++) {
+				Edge edge = node.incoming.get((node.next + i) % size);
+				pulled = pull(edge.origin);
+			}
+			// the predecessors may have provided values while ending
+			if(!pulled && !isQueued(node)) {
+				end(node);
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return true if results of a predecessor are queued for the given node
+	 */
+	private static boolean isQueued(Node node) {
+		for(Edge edge : node.incoming) {
+			if(!edge.queue.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the values of a predecessor on the input ports of the given node and executes it if it is ready.
+	 */
+	private void deliver(Node node, Edge edge, Object[] values) {
+		boolean set = false;
+		boolean fired = false;
+		for(int j = 0; j < values.length; j++) {
+			if(edge.routes[j] != null && values[j] != null && !edge.origin.batches[j]) {
+				set |= set(edge.routes[j], values[j]);
+			}
+		}
+		for(int j = 0; j < values.length; j++) {
+			if(edge.routes[j] != null && values[j] != null && edge.origin.batches[j]) {
+				for(Object value : (Object[]) values[j]) {
+					if(value != null && set(edge.routes[j], value) && node.missing == 0) {
+						fire(node);
+						fired = true;
+					}
+				}
+			}
+		}
+		if(set && !fired && node.missing == 0) {
+			fire(node);
+		}
+	}
+
+	/**
+	 * @return true if any port has been set, false if the value has only been added to batches
+	 */
+	private static boolean set(Input[] inputs, Object value) {
+		boolean set = false;
+		for(Input input : inputs) {
+			input.values.increment();
+			input.node.metrics.recordIn();
+			if(input.batch == null) {
+				input.port.set(value);
+			} else if(!input.batch.add(value)) {
+				continue;
+			}
+			provided(input);
+			set = true;
+		}
+		return set;
+	}
+
+	private static void provided(Input input) {
+		if(!input.provided) {
+			input.provided = true;
+			if(input.required) {
+				input.node.missing--;
+			}
+		}
+	}
+
+	/**
+	 * Executes the mangler of the given node, unless its results have been memoized, and queues the values of its
+	 * output ports for its followers.
+	 *
+	 * @return false if no output port provided a value
+	 */
+	private static boolean fire(Node node) {
+		long start = System.nanoTime();
+		if(node.memo == null) {
+			node.idm.execute();
+		} else if(node.memo.execute()) {
+			node.metrics.recordCacheHit();
+			return emit(node);
+		} else {
+			node.metrics.recordCacheMiss();
+		}
+		node.metrics.recordExecution(System.nanoTime() - start);
+		return emit(node);
+	}
+
+	/**
+	 * Queues the values of the output ports of the given node for the followers connected to them.
+	 *
+	 * @return false if no output port provided a value
+	 */
+	private static boolean emit(Node node) {
+		Object[] values = null;
+		for(int j = 0; j < node.outputs.length; j++) {
+			Object value = node.outputs[j].get();
+			if(value != null && (!node.batches[j] || ((Object[]) value).length > 0)) {
+				values = values != null ? values : new Object[node.outputs.length];
+				values[j] = value;
+				int count = node.batches[j] ? ((Object[]) value).length : 1;
+				node.provided[j].add(count);
+				node.metrics.recordOut(count);
+			}
+		}
+		if(values == null) {
+			return false;
+		}
+		for(Edge edge : node.outgoing) {
+			for(int j = 0; j < values.length; j++) {
+				if(values[j] != null && edge.routes[j] != null) {
+					edge.queue.add(values);
+					break;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the incomplete batches of the given node, then flushes and closes its mangler.
+	 */
+	private static void end(Node node) throws IOException {
+		node.ended = true;
+		boolean flushed = false;
+		for(Input input : node.batched) {
+			if(input.batch.flush()) {
+				provided(input);
+				flushed = true;
+			}
+		}
+		if(flushed && node.missing == 0) {
+			fire(node);
+		}
+		if(node.idm instanceof Flushable) {
+			((Flushable) node.idm).flush();
+			emit(node);
+		}
+		if(node.idm instanceof Closeable) {
+			((Closeable) node.idm).close();
+		}
+	}
+
+	/**
+	 * A demanded mangler along with its demanded output ports.
+	 */
+	private static class Node {
+
+		final IDataMangler idm;
+
+		final boolean source;
+
+		final ManglerMetrics metrics;
+
+		// null unless the mangler memoizes its results
+		final Memo memo;
+
+		// the demanded output ports
+		final List<InstanceMethod<IDataMangler>> ports = new ArrayList<InstanceMethod<IDataMangler>>();
+
+		OutputInvoker[] outputs;
+
+		// per output port: whether it provides batches
+		boolean[] batches;
+
+		// per output port: the number of values provided
+		LongAdder[] provided;
+
+		final Map<InstanceMethod<IDataMangler>, Input> inputs = new IdentityHashMap<InstanceMethod<IDataMangler>, Input>();
+
+		final List<Input> batched = new ArrayList<Input>();
+
+		final List<Edge> incoming = new ArrayList<Edge>();
+
+		final List<Edge> outgoing = new ArrayList<Edge>();
+
+		// number of required input ports which have not been set yet
+		int missing;
+
+		// the incoming edge to take the next result from
+		int next;
+
+		boolean ended;
+
+		Node(Graph graph, IDataMangler idm, GraphMetrics metrics) {
+			this.idm = idm;
+			this.metrics = metrics.of(idm);
+			int cacheSize = ClassPorts.of(idm.getClass()).getCacheSize();
+			this.memo = cacheSize > 0 ? new Memo(idm, cacheSize) : null;
+			boolean source = true;
+			for(InstanceMethod<IDataMangler> port : graph.getInPortsOf(idm)) {
+				source = false;
+				InputPort annotation = port.getMethod().getAnnotation(InputPort.class);
+				InputInvoker invoker = graph.getInputInvoker(port);
+				if(memo != null) {
+					invoker = memo.wrap(invoker);
+				}
+				BatchBuffer batch = annotation.batchSize() > 1 ? new BatchBuffer(invoker, new Operator.Batch(
+						port.getMethod().getParameterTypes()[0].getComponentType(), annotation.batchSize(), 0)) : null;
+				Input input = new Input(this, invoker, annotation.required(), batch, metrics.counterOf(port));
+				inputs.put(port, input);
+				if(batch != null) {
+					batched.add(input);
+				}
+				if(input.required) {
+					missing++;
+				}
+			}
+			this.source = source;
+		}
+
+		/**
+		 * Reads the demanded output ports and creates the edges to the followers among the given nodes.
+		 */
+		void connect(Graph graph, Map<IDataMangler, Node> nodes, GraphMetrics metrics) {
+			Set<Node> followers = new LinkedHashSet<Node>();
+			List<List<Input>> targets = new ArrayList<List<Input>>();
+			for(InstanceMethod<IDataMangler> port : graph.getOutPortsOf(idm)) {
+				List<Input> inputs = new ArrayList<Input>();
+				for(InstanceMethod<IDataMangler> target : graph.getConnectionsFromOutputPort(port)) {
+					Node follower = nodes.get(target.getInstance());
+					if(follower != null) {
+						inputs.add(follower.inputs.get(target));
+						followers.add(follower);
+					}
+				}
+				if(!inputs.isEmpty()) {
+					ports.add(port);
+					targets.add(inputs);
+				}
+			}
+			int size = ports.size();
+			outputs = new OutputInvoker[size];
+			batches = new boolean[size];
+			provided = new LongAdder[size];
+			for(int j = 0; j < size; j++) {
+				outputs[j] = memo != null ? memo.wrap(graph.getOutputInvoker(ports.get(j)))
+						: graph.getOutputInvoker(ports.get(j));
+				batches[j] = ports.get(j).getMethod().getAnnotation(OutputPort.class).batch();
+				provided[j] = metrics.counterOf(ports.get(j));
+			}
+			for(Node follower : followers) {
+				Edge edge = new Edge(this, size);
+				for(int j = 0; j < size; j++) {
+					List<Input> routed = new ArrayList<Input>();
+					for(Input input : targets.get(j)) {
+						if(input.node == follower) {
+							routed.add(input);
+						}
+					}
+					edge.routes[j] = routed.isEmpty() ? null : routed.toArray(new Input[0]);
+				}
+				outgoing.add(edge);
+				follower.incoming.add(edge);
+			}
+		}
+	}
+
+	/**
+	 * The results of a node queued for one of its followers.
+	 */
+	private static class Edge {
+
+		final Node origin;
+
+		// per output port of the origin: the input ports of the follower, null if not connected
+		final Input[][] routes;
+
+		final ArrayDeque<Object[]> queue = new ArrayDeque<Object[]>();
+
+		Edge(Node origin, int ports) {
+			this.origin = origin;
+			this.routes = new Input[ports][];
+		}
+	}
+
+	private static class Input {
+
+		final Node node;
+
+		final InputInvoker port;
+
+		final boolean required;
+
+		// null unless the port takes batches
+		final BatchBuffer batch;
+
+		final LongAdder values;
+
+		boolean provided;
+
+		Input(Node node, InputInvoker port, boolean required, BatchBuffer batch, LongAdder values) {
+			this.node = node;
+			this.port = port;
+			this.required = required;
+			this.batch = batch;
+			this.values = values;
+		}
+	}
+}
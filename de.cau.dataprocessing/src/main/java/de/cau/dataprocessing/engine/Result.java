@@ -1,15 +1,46 @@
 package de.cau.dataprocessing.engine;
 
-import java.lang.reflect.Method;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+import de.cau.dataprocessing.channel.Channel;
 import de.cau.dataprocessing.filters.IDataMangler;
 
-public class Result {
+/**
+ * The values an {@link IDataMangler} provided on its output ports after one execution, indexed by the slots
+ * of the output ports. Results are passed to several consumers and recycled once all of them have
+ * {@link #release() released} it.
+ */
+public class Result extends Frame {
+
+	private static final AtomicIntegerFieldUpdater<Result> REFS = AtomicIntegerFieldUpdater.newUpdater(Result.class, "refs");
 
 	private IDataMangler src;
 
-	private Map<Method, Object> data;
+	// the worker which passed the result on, tells the producers of a channel apart
+	private int origin;
+
+	// the pool the result returns to, null if it is not recycled
+	private final Channel<Result> pool;
+
+	private volatile int refs;
+
+	/**
+	 * Creates a result which is not recycled.
+	 *
+	 * @param size number of output ports
+	 */
+	public Result(int size) {
+		this(size, null);
+	}
+
+	/**
+	 * @param size number of output ports
+	 * @param pool the result is offered to once released
+	 */
+	public Result(int size, Channel<Result> pool) {
+		super(size);
+		this.pool = pool;
+	}
 
 	public IDataMangler getSrc() {
 		return src;
@@ -19,16 +50,30 @@ public class Result {
 		this.src = src;
 	}
 
-	public Object getData(Method o) {
-		return data.get(o);
+	int getOrigin() {
+		return origin;
 	}
 
-	public void putForPort(Method o, Object data) {
-		this.data.put(o, data);
+	void setOrigin(int origin) {
+		this.origin = origin;
 	}
 
-	public Iterable<Method> methods() {
-		return data.keySet();
+	/**
+	 * @param consumers number of consumers, which have to release the result
+	 */
+	public void retain(int consumers) {
+		REFS.addAndGet(this, consumers);
 	}
 
+	/**
+	 * Called by a consumer once it does not use the result anymore. The last one clears the result and returns
+	 * it to its pool.
+	 */
+	public void release() {
+		if(REFS.decrementAndGet(this) == 0 && pool != null) {
+			clear();
+			src = null;
+			pool.offer(this);
+		}
+	}
 }
@@ -0,0 +1,74 @@
+package de.cau.dataprocessing.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Creates the threads of the workers. Virtual threads are created through <code>Thread.ofVirtual()</code>
+ * if the JVM provides it, which is looked up reflectively to keep running on JVMs without virtual threads. Support
+ * is probed once by creating an unstarted virtual thread, as a JVM may provide it as a preview API only.
+ */
+final class WorkerThreads {
+
+	// Thread.ofVirtual(), Thread.Builder#name(String) and Thread.Builder#unstarted(Runnable), null if unsupported
+	private static final MethodHandle OF_VIRTUAL;
+
+	private static final MethodHandle NAME;
+
+	private static final MethodHandle UNSTARTED;
+
+	static {
+		MethodHandle ofVirtual = null;
+		MethodHandle name = null;
+		MethodHandle unstarted = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+					MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")))
+					.asType(MethodType.methodType(Object.class));
+			name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class))
+					.asType(MethodType.methodType(Object.class, Object.class, String.class));
+			unstarted = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class))
+					.asType(MethodType.methodType(Thread.class, Object.class, Runnable.class));
+			// a preview API throws UnsupportedOperationException unless enabled
+			Thread probe = (Thread) unstarted.invokeExact((Object) ofVirtual.invokeExact(), (Runnable) new Runnable() {
+				public void run() {
+				}
+			});
+		} catch (Throwable t) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		UNSTARTED = unstarted;
+	}
+
+	private WorkerThreads() {
+	}
+
+	static boolean isVirtualSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * @param virtual if true and supported, a virtual thread is created, otherwise a daemon platform thread
+	 * @return the unstarted thread
+	 */
+	static Thread newThread(Runnable runnable, String name, boolean virtual) {
+		if(virtual && OF_VIRTUAL != null) {
+			try {
+				Object builder = NAME.invokeExact((Object) OF_VIRTUAL.invokeExact(), name);
+				return (Thread) UNSTARTED.invokeExact(builder, runnable);
+			} catch (Throwable t) {
+				throw Throwables.propagate(t);
+			}
+		}
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+}
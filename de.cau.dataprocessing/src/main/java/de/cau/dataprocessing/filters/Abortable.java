@@ -0,0 +1,15 @@
+package de.cau.dataprocessing.filters;
+
+/**
+ * An {@link IDataMangler} told when its execution ends without its input having ended, e.g. to signal the
+ * failure to a consumer outside the graph. It is called by the thread which executed the mangler, instead of
+ * {@link java.io.Closeable#close()}, once a mangler failed or the execution has been stopped.
+ */
+public interface Abortable {
+
+	/**
+	 * @param cause the failure of a mangler, or a {@link java.util.concurrent.CancellationException} if the
+	 *        execution has been stopped
+	 */
+	void abort(Throwable cause);
+}
@@ -0,0 +1,18 @@
+package de.cau.dataprocessing.filters.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link de.cau.dataprocessing.filters.IDataMangler} which blocks in its ports or
+ * {@link de.cau.dataprocessing.filters.IDataMangler#execute()}, e.g. on I/O, rather than using the CPU.
+ * Manglers without this annotation are considered CPU-bound.
+ *
+ * @see de.cau.dataprocessing.engine.ExecutionMode#VIRTUAL
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Blocking {
+}
@@ -14,4 +14,40 @@ public @interface InputPort {
 	Configuration config() default @Configuration(false);
 
 	boolean required() default false;
+
+	/**
+	 * Number of values collected before the port is set. If greater than one, the port takes an array
+	 * of the values' type and the mangler is executed once per batch instead of once per value.
+	 */
+	int batchSize() default 1;
+
+	/**
+	 * Maximum time in milliseconds a value waits in an incomplete batch before the batch is set anyway.
+	 * 0 means incomplete batches are only set when the input ends.
+	 */
+	long maxLatency() default 0;
+
+	/**
+	 * If true, the values of this port are the keys of a mangler partitioned by {@link Parallel.Partitioning#HASH}.
+	 */
+	boolean key() default false;
+
+	/**
+	 * Number of results the channel to the mangler holds before the overflow policy applies, 0 means the
+	 * default of the {@link de.cau.dataprocessing.channel.ChannelFactory}. If the ports of a mangler differ,
+	 * the largest capacity is used.
+	 */
+	int capacity() default 0;
+
+	/**
+	 * If the ports of a mangler differ, the least lossy policy is used, i.e. the first one declared in
+	 * {@link OverflowPolicy}.
+	 */
+	OverflowPolicy overflow() default OverflowPolicy.BLOCK;
+
+	/**
+	 * With {@link OverflowPolicy#SAMPLE}, one in this many results is kept while the channel is full. If the
+	 * ports of a mangler differ, the smallest number is used.
+	 */
+	int sampling() default 10;
 }
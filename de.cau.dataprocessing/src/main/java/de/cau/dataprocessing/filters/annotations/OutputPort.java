@@ -9,4 +9,18 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD )
 public @interface OutputPort {
 
+	/**
+	 * If true, the port returns an array of values, which are passed on one by one.
+	 */
+	boolean batch() default false;
+
+	/**
+	 * If positive, the port is cacheable: its mangler is a pure function of its input ports, so its results are
+	 * memoized by the values of its input ports, up to this number of them, and a mangler is not executed again
+	 * for values seen recently. Either all output ports of a mangler are cacheable or none, the largest number
+	 * applies. The values of cacheable ports are passed on again and must not be modified. The input ports of a
+	 * mangler with cacheable ports have to take immutable values: primitives, their wrappers, strings, enums or
+	 * arrays of these.
+	 */
+	int cache() default 0;
 }
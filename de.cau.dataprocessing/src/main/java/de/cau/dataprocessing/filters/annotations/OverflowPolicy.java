@@ -0,0 +1,26 @@
+package de.cau.dataprocessing.filters.annotations;
+
+/**
+ * What happens to the results of the predecessors of a mangler while the channel to it is full.
+ *
+ * @see InputPort#overflow()
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * The predecessors wait until the mangler has caught up, which slows down the whole graph upstream.
+	 */
+	BLOCK,
+
+	/**
+	 * The mangler discards the oldest results once the channel is full, until it is down to half of its capacity.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The predecessors keep one in {@link InputPort#sampling()} of the results arriving while the channel is full,
+	 * waiting for space for it, and discard the others. So the mangler sees an evenly spread sample of them at
+	 * its own pace, and every result while it keeps up.
+	 */
+	SAMPLE
+}
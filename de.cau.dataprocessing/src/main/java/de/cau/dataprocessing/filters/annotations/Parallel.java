@@ -0,0 +1,41 @@
+package de.cau.dataprocessing.filters.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link de.cau.dataprocessing.filters.IDataMangler} which does not keep state between its executions,
+ * or only per key, so several replicas of it may run concurrently. The replicas are created using the public
+ * constructor without parameters. Sources are not replicated.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Parallel {
+
+	/**
+	 * Number of replicas, 0 means one per available processor.
+	 */
+	int replicas() default 0;
+
+	Partitioning partitioning() default Partitioning.ROUND_ROBIN;
+
+	/**
+	 * If true, the results of the replicas are passed on in the order their inputs have been distributed.
+	 * Only applies to {@link Partitioning#ROUND_ROBIN}, hashing keeps the order per key anyway.
+	 */
+	boolean ordered() default false;
+
+	enum Partitioning {
+		/**
+		 * The results of the predecessors are distributed over the replicas in turn.
+		 */
+		ROUND_ROBIN,
+		/**
+		 * The results of the predecessors are distributed by the hash code of the value for the
+		 * {@link InputPort#key()} port, so all values with the same key reach the same replica.
+		 */
+		HASH
+	}
+}
@@ -0,0 +1,204 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.cau.dataprocessing.codec.Varint;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+/**
+ * A sink writing {@link MonitoringRecord}s to compressed columnar segment files. The values of a fixed number of
+ * records are collected column by column, then encoded and written as one segment. Timestamps and trace ids
+ * are mostly ascending, so their differences take few bytes, and the few operations seen are encoded by their
+ * index in a dictionary. Closing the sink writes the records collected so far as a last, smaller segment.
+ * The segments of a stream written before are kept, the numbering continues after the last one of them. The
+ * columns, the dictionary and the buffer a segment is encoded into are reused for every segment.
+ *
+ * @see ColumnarSegments
+ * @see ColumnarRecordSource
+ */
+public class ColumnarRecordSink implements IDataMangler, Closeable {
+
+	// upper bound of the bytes a record takes: three varint longs and an index
+	private static final int MAX_RECORD_SIZE = 35;
+
+	private final File directory;
+
+	private final String prefix;
+
+	private final long[] timestamps;
+
+	private final long[] traceIds;
+
+	private final int[] operationIds;
+
+	private final long[] durations;
+
+	// per record: the index of its operation in the dictionary
+	private final int[] codes;
+
+	// per index: the operation
+	private final int[] ids;
+
+	private final Map<Integer, Integer> dictionary = new HashMap<Integer, Integer>();
+
+	// null until the first segment is written
+	private ByteBuffer buffer;
+
+	private MonitoringRecord record;
+
+	private int count;
+
+	private int segments;
+
+	// the index of the next segment, -1 until the segments written before have been looked up
+	private int next = -1;
+
+	/**
+	 * @param directory the segments are written to
+	 * @param prefix of the segments' names
+	 * @param recordsPerSegment
+	 */
+	public ColumnarRecordSink(File directory, String prefix, int recordsPerSegment) {
+		if(recordsPerSegment < 1 || size(recordsPerSegment) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("illegal number of records per segment: " + recordsPerSegment);
+		}
+		this.directory = directory;
+		this.prefix = prefix;
+		this.timestamps = new long[recordsPerSegment];
+		this.traceIds = new long[recordsPerSegment];
+		this.operationIds = new int[recordsPerSegment];
+		this.durations = new long[recordsPerSegment];
+		this.codes = new int[recordsPerSegment];
+		this.ids = new int[recordsPerSegment];
+	}
+
+	// upper bound of the size of a segment, the dictionary may take an id per record
+	private static long size(int records) {
+		return ColumnarSegments.HEADER_SIZE + 5 + (long) records * (MAX_RECORD_SIZE + 5);
+	}
+
+	public String getName() {
+		return "Columnar record sink";
+	}
+
+	@InputPort(required = true)
+	public void setRecord(MonitoringRecord record) {
+		this.record = record;
+	}
+
+	public void execute() {
+		timestamps[count] = record.getTimestamp();
+		traceIds[count] = record.getTraceId();
+		operationIds[count] = record.getOperationId();
+		durations[count] = record.getDuration();
+		if(++count == timestamps.length) {
+			write();
+		}
+	}
+
+	private void write() {
+		if(buffer == null) {
+			buffer = ByteBuffer.allocate((int) size(timestamps.length)).order(ColumnarSegments.ORDER);
+		}
+		buffer.clear();
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for(int i = 0; i < count; i++) {
+			min = Math.min(min, timestamps[i]);
+			max = Math.max(max, timestamps[i]);
+		}
+		buffer.putInt(ColumnarSegments.MAGIC);
+		buffer.putInt(ColumnarSegments.VERSION);
+		buffer.putInt(count);
+		buffer.putLong(min);
+		buffer.putLong(max);
+		buffer.position(ColumnarSegments.HEADER_SIZE);
+		// the dictionary in the order the operations have been seen
+		dictionary.clear();
+		for(int i = 0; i < count; i++) {
+			Integer code = dictionary.get(operationIds[i]);
+			if(code == null) {
+				code = dictionary.size();
+				dictionary.put(operationIds[i], code);
+				ids[code] = operationIds[i];
+			}
+			codes[i] = code;
+		}
+		Varint.putUnsignedLong(buffer, dictionary.size());
+		for(int i = 0; i < dictionary.size(); i++) {
+			Varint.putInt(buffer, ids[i]);
+		}
+		putDeltas(buffer, timestamps);
+		putDeltas(buffer, traceIds);
+		for(int i = 0; i < count; i++) {
+			Varint.putUnsignedLong(buffer, codes[i]);
+		}
+		for(int i = 0; i < count; i++) {
+			Varint.putLong(buffer, durations[i]);
+		}
+		buffer.putInt(ColumnarSegments.LENGTH_OFFSET, buffer.position() - ColumnarSegments.HEADER_SIZE);
+		buffer.flip();
+		if(next < 0) {
+			next = ColumnarSegments.next(directory, prefix);
+		}
+		File file = ColumnarSegments.segment(directory, prefix, next);
+		File tmp = new File(directory, file.getName() + ".tmp");
+		// the move would replace it
+		if(file.exists()) {
+			throw new IllegalStateException("segment " + file + " exists already");
+		}
+		try {
+			FileOutputStream out = new FileOutputStream(tmp);
+			try {
+				FileChannel channel = out.getChannel();
+				while(buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			} finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot write segment " + file, e);
+		}
+		next++;
+		segments++;
+		count = 0;
+	}
+
+	private void putDeltas(ByteBuffer buffer, long[] column) {
+		long previous = 0;
+		for(int i = 0; i < count; i++) {
+			Varint.putLong(buffer, column[i] - previous);
+			previous = column[i];
+		}
+	}
+
+	/**
+	 * @return the number of segments written so far
+	 */
+	public int getSegmentCount() {
+		return segments;
+	}
+
+	/**
+	 * Writes the records collected so far as a segment. Further records are written to a new segment.
+	 */
+	public void close() {
+		if(count > 0) {
+			write();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+
+import de.cau.dataprocessing.checkpoint.Checkpointable;
+import de.cau.dataprocessing.codec.Varint;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * A source replaying the {@link MonitoringRecord}s of columnar segment files written by
+ * {@link ColumnarRecordSink} whose timestamps are within a range. Only the header of a segment is read to tell
+ * whether any of its records are within the range, the others are skipped without decoding them. The columns
+ * of the remaining segments are decoded one segment at a time, into columns reused for every segment. Each record
+ * provided is a new one, as the consumers may keep it. Checkpoints contain the segment and the index of the next
+ * record, so a restored source continues where it left off.
+ *
+ * @see ColumnarSegments
+ */
+public class ColumnarRecordSource implements IDataMangler, Checkpointable {
+
+	private final Iterator<File> segments;
+
+	private final long from;
+
+	private final long to;
+
+	private final ByteBuffer header = ByteBuffer.allocate(ColumnarSegments.HEADER_SIZE).order(ColumnarSegments.ORDER);
+
+	private ByteBuffer body = ByteBuffer.allocate(0);
+
+	private int[] dictionary = new int[0];
+
+	// null until the first segment is read
+	private File file;
+
+	private int count;
+
+	private int index;
+
+	private long[] timestamps = new long[0];
+
+	private long[] traceIds = new long[0];
+
+	private int[] operationIds = new int[0];
+
+	private long[] durations = new long[0];
+
+	private int skipped;
+
+	private MonitoringRecord record;
+
+	/**
+	 * Replays all records.
+	 *
+	 * @param directory containing the segments
+	 * @param prefix of the segments' names
+	 */
+	public ColumnarRecordSource(File directory, String prefix) {
+		this(directory, prefix, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Replays the records with a timestamp of at least <code>from</code> and less than <code>to</code>.
+	 *
+	 * @param directory containing the segments
+	 * @param prefix of the segments' names
+	 * @param from
+	 * @param to {@link Long#MAX_VALUE} for no upper bound
+	 */
+	public ColumnarRecordSource(File directory, String prefix, long from, long to) {
+		if(from > to) {
+			throw new IllegalArgumentException("illegal range: " + from + " to " + to);
+		}
+		this.segments = ColumnarSegments.list(directory, prefix).iterator();
+		this.from = from;
+		this.to = to;
+	}
+
+	public String getName() {
+		return "Columnar record source";
+	}
+
+	@OutputPort
+	public MonitoringRecord getRecord() {
+		return record;
+	}
+
+	/**
+	 * @return the number of segments skipped by their index so far
+	 */
+	public int getSkippedSegments() {
+		return skipped;
+	}
+
+	public void execute() {
+		while(true) {
+			while(index == count) {
+				if(!segments.hasNext()) {
+					record = null;
+					return;
+				}
+				read(segments.next());
+			}
+			int i = index++;
+			if(timestamps[i] >= from && (timestamps[i] < to || to == Long.MAX_VALUE)) {
+				record = new MonitoringRecord();
+				record.setTimestamp(timestamps[i]);
+				record.setTraceId(traceIds[i]);
+				record.setOperationId(operationIds[i]);
+				record.setDuration(durations[i]);
+				return;
+			}
+		}
+	}
+
+	public void snapshot(DataOutput out) throws IOException {
+		out.writeUTF(file != null ? file.getName() : "");
+		out.writeInt(index);
+	}
+
+	public void restore(DataInput in) throws IOException {
+		String name = in.readUTF();
+		int next = in.readInt();
+		if(name.isEmpty()) {
+			return;
+		}
+		while(file == null || !file.getName().equals(name)) {
+			if(!segments.hasNext()) {
+				throw new IOException("segment " + name + " does not exist anymore");
+			}
+			read(segments.next());
+		}
+		// the segment may not be decoded if it has been skipped
+		index = Math.min(next, count);
+	}
+
+	/**
+	 * Decodes the columns of the given segment unless none of its records are within the range.
+	 */
+	private void read(File file) {
+		this.file = file;
+		count = 0;
+		index = 0;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				header.clear();
+				while(header.hasRemaining() && channel.read(header) >= 0) {
+				}
+				if(header.hasRemaining() || header.getInt(0) != ColumnarSegments.MAGIC
+						|| header.getInt(4) != ColumnarSegments.VERSION) {
+					throw new IllegalStateException(file + " is no columnar segment of version " + ColumnarSegments.VERSION);
+				}
+				long min = header.getLong(ColumnarSegments.MIN_TIMESTAMP_OFFSET);
+				long max = header.getLong(ColumnarSegments.MAX_TIMESTAMP_OFFSET);
+				if(max < from || min >= to && to != Long.MAX_VALUE) {
+					skipped++;
+					return;
+				}
+				int length = header.getInt(ColumnarSegments.LENGTH_OFFSET);
+				if(length < 0 || ColumnarSegments.HEADER_SIZE + (long) length > channel.size()) {
+					throw new IllegalStateException("segment " + file + " is truncated");
+				}
+				if(length > body.capacity()) {
+					body = ByteBuffer.allocate(length).order(ColumnarSegments.ORDER);
+				}
+				body.clear();
+				body.limit(length);
+				while(body.hasRemaining() && channel.read(body) >= 0) {
+				}
+				body.flip();
+				decode(header.getInt(ColumnarSegments.COUNT_OFFSET), body);
+			} finally {
+				raf.close();
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalStateException("segment " + file + " is corrupt", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot read segment " + file, e);
+		}
+	}
+
+	private void decode(int records, ByteBuffer body) {
+		if(records > timestamps.length) {
+			timestamps = new long[records];
+			traceIds = new long[records];
+			operationIds = new int[records];
+			durations = new long[records];
+		}
+		long size = Varint.getUnsignedLong(body);
+		// each entry takes a byte at least
+		if(size > body.remaining()) {
+			throw new IllegalStateException("segment " + file + " is corrupt");
+		}
+		if(size > dictionary.length) {
+			dictionary = new int[(int) size];
+		}
+		for(int i = 0; i < size; i++) {
+			dictionary[i] = Varint.getInt(body);
+		}
+		getDeltas(body, timestamps, records);
+		getDeltas(body, traceIds, records);
+		for(int i = 0; i < records; i++) {
+			long code = Varint.getUnsignedLong(body);
+			if(code >= size) {
+				throw new IllegalStateException("segment " + file + " is corrupt");
+			}
+			operationIds[i] = dictionary[(int) code];
+		}
+		for(int i = 0; i < records; i++) {
+			durations[i] = Varint.getLong(body);
+		}
+		count = records;
+	}
+
+	private static void getDeltas(ByteBuffer body, long[] column, int records) {
+		long previous = 0;
+		for(int i = 0; i < records; i++) {
+			previous += Varint.getLong(body);
+			column[i] = previous;
+		}
+	}
+}
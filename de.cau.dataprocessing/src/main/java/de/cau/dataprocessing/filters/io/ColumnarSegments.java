@@ -0,0 +1,91 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import de.cau.dataprocessing.codec.Varint;
+import de.cau.dataprocessing.data.MonitoringRecord;
+
+/**
+ * The format of compressed segment files storing the values of {@link MonitoringRecord}s column by column. A
+ * segment starts with a header
+ *
+ * <pre>
+ *  0 magic         int
+ *  4 version       int
+ *  8 count         int
+ * 12 min timestamp long
+ * 20 max timestamp long
+ * 28 body length   int
+ * </pre>
+ *
+ * which serves as the index of the segment: a reader skips a segment by its header if none of its timestamps
+ * are of interest. The body holds the dictionary of the operation ids, the number of ids followed by the ids,
+ * then the columns of all records, one after another:
+ *
+ * <ol>
+ * <li>timestamps, each the difference to the previous one</li>
+ * <li>trace ids, each the difference to the previous one</li>
+ * <li>operation ids, each the index of the id in the dictionary</li>
+ * <li>durations</li>
+ * </ol>
+ *
+ * All values of the body are {@link Varint}s, the differences and durations signed, counts and indexes unsigned.
+ * The header is little endian. The segments of a stream are named <code>prefix-000000.col</code>,
+ * <code>prefix-000001.col</code> and so on, each is written completely before it gets its name.
+ *
+ * @see ColumnarRecordSink
+ * @see ColumnarRecordSource
+ */
+public final class ColumnarSegments {
+
+	public static final int MAGIC = 0x434F4C53;
+
+	public static final int VERSION = 1;
+
+	public static final int COUNT_OFFSET = 8;
+
+	public static final int MIN_TIMESTAMP_OFFSET = 12;
+
+	public static final int MAX_TIMESTAMP_OFFSET = 20;
+
+	public static final int LENGTH_OFFSET = 28;
+
+	public static final int HEADER_SIZE = 32;
+
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	public static final String SUFFIX = ".col";
+
+	private ColumnarSegments() {
+	}
+
+	/**
+	 * @param directory
+	 * @param prefix
+	 * @param index
+	 * @return the file of the segment with the given index
+	 */
+	public static File segment(File directory, String prefix, int index) {
+		return new File(directory, String.format("%s-%06d%s", prefix, index, SUFFIX));
+	}
+
+	/**
+	 * @param directory
+	 * @param prefix
+	 * @return the segments of the given stream in order
+	 */
+	public static List<File> list(File directory, String prefix) {
+		return RecordSegments.list(directory, prefix, SUFFIX);
+	}
+
+	/**
+	 * @param directory
+	 * @param prefix
+	 * @return the index following the one of the last segment of the given stream, 0 if there is none
+	 */
+	public static int next(File directory, String prefix) {
+		return RecordSegments.next(directory, prefix, SUFFIX);
+	}
+}
@@ -0,0 +1,58 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of direct buffers of one size, so buffers are not allocated per read. Only used by a single thread.
+ */
+class DirectBufferPool {
+
+	private final int bufferSize;
+
+	private final int maxPooled;
+
+	private final ByteOrder order;
+
+	private final ArrayDeque<ByteBuffer> free = new ArrayDeque<ByteBuffer>();
+
+	private int allocated;
+
+	/**
+	 * @param bufferSize
+	 * @param maxPooled the number of released buffers kept for reuse, further ones are dropped
+	 * @param order of the buffers
+	 */
+	DirectBufferPool(int bufferSize, int maxPooled, ByteOrder order) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+		this.order = order;
+	}
+
+	/**
+	 * @return a cleared buffer
+	 */
+	ByteBuffer acquire() {
+		ByteBuffer buffer = free.poll();
+		if(buffer == null) {
+			allocated++;
+			buffer = ByteBuffer.allocateDirect(bufferSize).order(order);
+		}
+		return buffer;
+	}
+
+	void release(ByteBuffer buffer) {
+		if(free.size() < maxPooled) {
+			buffer.clear();
+			free.push(buffer);
+		}
+	}
+
+	/**
+	 * @return the number of buffers allocated so far
+	 */
+	int getAllocated() {
+		return allocated;
+	}
+}
@@ -0,0 +1,126 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.StandardOpenOption;
+
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+/**
+ * A sink appending {@link MonitoringRecord}s to segment files mapped into memory. Each segment is created with
+ * space for a fixed number of records, once it is full the next one is started. The record count in the
+ * header is updated with each record, so the segments can be read at any time. The segments of a stream written
+ * before are kept, the numbering continues after the last one of them.
+ *
+ * @see RecordSegments
+ * @see MappedRecordFileSource
+ */
+public class MappedRecordFileSink implements IDataMangler, Closeable {
+
+	private final File directory;
+
+	private final String prefix;
+
+	private final int recordsPerSegment;
+
+	private final FlyweightMonitoringRecord slot = new FlyweightMonitoringRecord();
+
+	private MonitoringRecord record;
+
+	private MappedByteBuffer segment;
+
+	private int segments;
+
+	// the index of the next segment, -1 until the segments written before have been looked up
+	private int next = -1;
+
+	private int count;
+
+	/**
+	 * @param directory the segments are written to
+	 * @param prefix of the segments' names
+	 * @param recordsPerSegment
+	 */
+	public MappedRecordFileSink(File directory, String prefix, int recordsPerSegment) {
+		if(recordsPerSegment < 1 || RecordSegments.size(recordsPerSegment) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("illegal number of records per segment: " + recordsPerSegment);
+		}
+		this.directory = directory;
+		this.prefix = prefix;
+		this.recordsPerSegment = recordsPerSegment;
+	}
+
+	public String getName() {
+		return "Mapped record file sink";
+	}
+
+	@InputPort(required = true)
+	public void setRecord(MonitoringRecord record) {
+		this.record = record;
+	}
+
+	public void execute() {
+		if(segment == null || count == recordsPerSegment) {
+			roll();
+		}
+		slot.wrap(segment, (int) RecordSegments.size(count)).copyFrom(record);
+		segment.putLong(RecordSegments.COUNT_OFFSET, ++count);
+	}
+
+	/**
+	 * @throws IllegalStateException if the next segment exists already
+	 */
+	private void roll() {
+		close();
+		if(next < 0) {
+			next = RecordSegments.next(directory, prefix);
+		}
+		File file = RecordSegments.segment(directory, prefix, next);
+		try {
+			// fails instead of replacing an existing segment
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			try {
+				// mapping the whole segment sizes the file
+				segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, RecordSegments.size(recordsPerSegment));
+			} finally {
+				channel.close();
+			}
+		} catch (FileAlreadyExistsException e) {
+			throw new IllegalStateException("segment " + file + " exists already", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot create segment " + file, e);
+		}
+		next++;
+		segments++;
+		segment.order(RecordSegments.ORDER);
+		segment.putInt(0, RecordSegments.MAGIC);
+		segment.putInt(4, RecordSegments.VERSION);
+		segment.putLong(RecordSegments.COUNT_OFFSET, 0);
+		count = 0;
+	}
+
+	/**
+	 * @return the number of segments started so far
+	 */
+	public int getSegmentCount() {
+		return segments;
+	}
+
+	/**
+	 * Writes the current segment to the disk. Further records are written to a new segment.
+	 */
+	public void close() {
+		if(segment != null) {
+			segment.force();
+			segment = null;
+		}
+	}
+}
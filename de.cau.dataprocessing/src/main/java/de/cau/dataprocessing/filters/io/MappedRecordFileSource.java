@@ -0,0 +1,117 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+
+import de.cau.dataprocessing.checkpoint.Checkpointable;
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * A source replaying the {@link MonitoringRecord}s of segment files written by {@link MappedRecordFileSink}.
+ * The segments are mapped into memory one after another, the records provided are flyweights reading
+ * their values from the mapping, nothing is copied. Checkpoints contain the segment and the index of the next
+ * record, so a restored source continues where it left off.
+ *
+ * @see RecordSegments
+ */
+public class MappedRecordFileSource implements IDataMangler, Checkpointable {
+
+	private final Iterator<File> segments;
+
+	// null until the first segment is mapped
+	private File file;
+
+	private MappedByteBuffer segment;
+
+	private long count;
+
+	private long index;
+
+	private FlyweightMonitoringRecord record;
+
+	/**
+	 * @param directory containing the segments
+	 * @param prefix of the segments' names
+	 */
+	public MappedRecordFileSource(File directory, String prefix) {
+		this.segments = RecordSegments.list(directory, prefix).iterator();
+	}
+
+	public String getName() {
+		return "Mapped record file source";
+	}
+
+	@OutputPort
+	public MonitoringRecord getRecord() {
+		return record;
+	}
+
+	public void execute() {
+		while(segment == null || index == count) {
+			if(!segments.hasNext()) {
+				record = null;
+				return;
+			}
+			map(segments.next());
+		}
+		record = new FlyweightMonitoringRecord().wrap(segment,
+				(int) (RecordSegments.HEADER_SIZE + index++ * FlyweightMonitoringRecord.SIZE));
+	}
+
+	public void snapshot(DataOutput out) throws IOException {
+		out.writeUTF(file != null ? file.getName() : "");
+		out.writeLong(index);
+	}
+
+	public void restore(DataInput in) throws IOException {
+		String name = in.readUTF();
+		long next = in.readLong();
+		if(name.isEmpty()) {
+			return;
+		}
+		while(file == null || !file.getName().equals(name)) {
+			if(!segments.hasNext()) {
+				throw new IOException("segment " + name + " does not exist anymore");
+			}
+			map(segments.next());
+		}
+		index = next;
+	}
+
+	private void map(File file) {
+		this.file = file;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				if(channel.size() < RecordSegments.HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+					throw new IllegalStateException("illegal size of segment " + file);
+				}
+				// the mapping stays valid after the channel has been closed
+				segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot map segment " + file, e);
+		}
+		segment.order(RecordSegments.ORDER);
+		if(segment.getInt(0) != RecordSegments.MAGIC || segment.getInt(4) != RecordSegments.VERSION) {
+			throw new IllegalStateException(file + " is no segment of version " + RecordSegments.VERSION);
+		}
+		count = segment.getLong(RecordSegments.COUNT_OFFSET);
+		if(RecordSegments.size(0) + count * FlyweightMonitoringRecord.SIZE > segment.capacity()) {
+			throw new IllegalStateException("segment " + file + " is truncated");
+		}
+		index = 0;
+	}
+}
@@ -0,0 +1,352 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.Abortable;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * A source receiving {@link MonitoringRecord}s from any number of producers over TCP and UDP. A single
+ * {@link Selector} on the worker of the source serves the listening socket, all connections and the datagram
+ * socket, so the number of producers does not cost any threads. Each execution provides one record, the records
+ * received by one round of the selector are provided before the next round waits for more. A round reads no more
+ * than {@link #MAX_BATCH} records, or the records of one buffer if that is more, the remaining ones are read by
+ * the next round.<p>
+ *
+ * Records are sent in the layout of {@link FlyweightMonitoringRecord}, little endian: a connection sends a stream
+ * of records, which may be split across packets at any byte; each datagram carries whole records, datagrams of
+ * other lengths are dropped, as are datagrams larger than the buffers. The records are read from pooled direct
+ * buffers, a connection holds a buffer only while a record is split across its reads, and copied into a new
+ * record each, as the consumers may keep it.<p>
+ *
+ * The source is exhausted once {@link #stop() stopped} or interrupted, records arriving later are lost.
+ * Closing or aborting it closes all sockets.
+ */
+@Blocking
+public class NetworkRecordSource implements IDataMangler, Closeable, Abortable {
+
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	public static final int MAX_BATCH = 1024;
+
+	private static final int MAX_POOLED = 64;
+
+	private final Selector selector;
+
+	// null unless receiving over TCP
+	private final ServerSocketChannel server;
+
+	// null unless receiving over UDP
+	private final DatagramChannel datagrams;
+
+	private final DirectBufferPool pool;
+
+	// one larger than the pooled buffers, so larger datagrams are told from the ones filling a buffer
+	private final ByteBuffer datagram;
+
+	private final FlyweightMonitoringRecord flyweight = new FlyweightMonitoringRecord();
+
+	// the records received by the current round
+	private final MonitoringRecord[] received;
+
+	private final int recordsPerBuffer;
+
+	private int count;
+
+	private int next;
+
+	private volatile boolean stopped;
+
+	private volatile int connections;
+
+	private volatile long dropped;
+
+	private volatile long truncated;
+
+	private boolean ended;
+
+	private MonitoringRecord record;
+
+	/**
+	 * Starts listening with buffers of {@link #DEFAULT_BUFFER_SIZE}, see
+	 * {@link #NetworkRecordSource(InetSocketAddress, InetSocketAddress, int)}.
+	 */
+	public NetworkRecordSource(InetSocketAddress tcp, InetSocketAddress udp) throws IOException {
+		this(tcp, udp, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Starts listening at the given addresses, the producers may connect right away.
+	 *
+	 * @param tcp address accepting connections, null to not receive over TCP
+	 * @param udp address receiving datagrams, null to not receive over UDP
+	 * @param bufferSize of the direct buffers records are read into
+	 * @throws IOException if an address can not be bound
+	 */
+	public NetworkRecordSource(InetSocketAddress tcp, InetSocketAddress udp, int bufferSize) throws IOException {
+		if(tcp == null && udp == null) {
+			throw new IllegalArgumentException("neither a TCP nor a UDP address");
+		}
+		if(bufferSize < FlyweightMonitoringRecord.SIZE) {
+			throw new IllegalArgumentException("illegal buffer size: " + bufferSize);
+		}
+		recordsPerBuffer = bufferSize / FlyweightMonitoringRecord.SIZE;
+		received = new MonitoringRecord[Math.max(MAX_BATCH, recordsPerBuffer)];
+		pool = new DirectBufferPool(bufferSize, MAX_POOLED, ORDER);
+		datagram = udp != null ? ByteBuffer.allocateDirect(bufferSize + 1).order(ORDER) : null;
+		selector = Selector.open();
+		try {
+			if(tcp != null) {
+				server = ServerSocketChannel.open();
+				server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+				server.bind(tcp, 1024);
+				server.configureBlocking(false);
+				server.register(selector, SelectionKey.OP_ACCEPT);
+			} else {
+				server = null;
+			}
+			if(udp != null) {
+				datagrams = DatagramChannel.open();
+				datagrams.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+				datagrams.bind(udp);
+				datagrams.configureBlocking(false);
+				datagrams.register(selector, SelectionKey.OP_READ);
+			} else {
+				datagrams = null;
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	public String getName() {
+		return "Network record source";
+	}
+
+	@OutputPort
+	public MonitoringRecord getRecord() {
+		return record;
+	}
+
+	/**
+	 * @return the address accepting connections, null unless receiving over TCP
+	 */
+	public InetSocketAddress getTcpAddress() throws IOException {
+		return server != null ? (InetSocketAddress) server.getLocalAddress() : null;
+	}
+
+	/**
+	 * @return the address receiving datagrams, null unless receiving over UDP
+	 */
+	public InetSocketAddress getUdpAddress() throws IOException {
+		return datagrams != null ? (InetSocketAddress) datagrams.getLocalAddress() : null;
+	}
+
+	/**
+	 * @return the number of open connections
+	 */
+	public int getConnectionCount() {
+		return connections;
+	}
+
+	/**
+	 * @return the number of datagrams dropped as they did not carry whole records, including truncated ones
+	 */
+	public long getDroppedDatagrams() {
+		return dropped;
+	}
+
+	/**
+	 * @return the number of datagrams dropped as they were larger than the buffers
+	 */
+	public long getTruncatedDatagrams() {
+		return truncated;
+	}
+
+	/**
+	 * @return the number of direct buffers allocated so far
+	 */
+	public int getAllocatedBuffers() {
+		return pool.getAllocated();
+	}
+
+	/**
+	 * Ends the input of the source. May be called by any thread.
+	 */
+	public void stop() {
+		stopped = true;
+		selector.wakeup();
+	}
+
+	public void execute() {
+		record = null;
+		if(ended) {
+			return;
+		}
+		if(next == count) {
+			next = 0;
+			count = 0;
+			try {
+				while(count == 0) {
+					if(stopped || Thread.currentThread().isInterrupted()) {
+						ended = true;
+						close();
+						return;
+					}
+					select();
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot receive records", e);
+			}
+		}
+		record = received[next];
+		received[next++] = null;
+	}
+
+	/**
+	 * Serves the sockets ready, until the records of another buffer might not fit into the round anymore.
+	 */
+	private void select() throws IOException {
+		selector.select();
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while(keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if(!key.isValid()) {
+				continue;
+			}
+			if(key.isAcceptable()) {
+				accept();
+			} else if(count + recordsPerBuffer > received.length) {
+				// still ready in the next round
+				continue;
+			} else if(key.channel() == datagrams) {
+				receive();
+			} else {
+				read(key);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ);
+			connections++;
+		}
+	}
+
+	private void read(SelectionKey key) {
+		SocketChannel channel = (SocketChannel) key.channel();
+		ByteBuffer buffer = (ByteBuffer) key.attachment();
+		if(buffer == null) {
+			buffer = pool.acquire();
+		}
+		int read;
+		try {
+			read = channel.read(buffer);
+		} catch (IOException e) {
+			// reset by the producer
+			read = -1;
+		}
+		decode(buffer);
+		buffer.compact();
+		if(read < 0) {
+			// a record split by the end of the connection is discarded
+			key.cancel();
+			close(channel);
+			connections--;
+		}
+		if(read < 0 || buffer.position() == 0) {
+			key.attach(null);
+			pool.release(buffer);
+		} else {
+			key.attach(buffer);
+		}
+	}
+
+	private void receive() throws IOException {
+		while(count + recordsPerBuffer <= received.length && datagrams.receive(datagram) != null) {
+			if(datagram.position() == datagram.capacity()) {
+				// the rest of the datagram has been discarded
+				truncated++;
+				dropped++;
+			} else if(datagram.position() % FlyweightMonitoringRecord.SIZE != 0) {
+				dropped++;
+			} else {
+				decode(datagram);
+			}
+			datagram.clear();
+		}
+	}
+
+	/**
+	 * Copies the whole records between the start and the position of the buffer into new records. The buffer is
+	 * flipped then and positioned after the last record.
+	 */
+	private void decode(ByteBuffer buffer) {
+		buffer.flip();
+		int offset = buffer.position();
+		while(buffer.limit() - offset >= FlyweightMonitoringRecord.SIZE) {
+			MonitoringRecord record = new MonitoringRecord();
+			record.copyFrom(flyweight.wrap(buffer, offset));
+			received[count++] = record;
+			offset += FlyweightMonitoringRecord.SIZE;
+		}
+		buffer.position(offset);
+	}
+
+	private static void close(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// ignored
+		}
+	}
+
+	/**
+	 * Closes the connections and stops listening.
+	 */
+	public void close() {
+		if(selector.isOpen()) {
+			for(SelectionKey key : selector.keys()) {
+				close(key.channel());
+			}
+			close(selector);
+		}
+		if(server != null) {
+			close(server);
+		}
+		if(datagrams != null) {
+			close(datagrams);
+		}
+		connections = 0;
+	}
+
+	/**
+	 * Closes the connections and stops listening, so the addresses are free again after a failed execution.
+	 */
+	public void abort(Throwable cause) {
+		ended = true;
+		close();
+	}
+}
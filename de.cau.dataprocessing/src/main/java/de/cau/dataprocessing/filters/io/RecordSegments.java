@@ -0,0 +1,117 @@
+package de.cau.dataprocessing.filters.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+
+/**
+ * The format of segment files storing {@link FlyweightMonitoringRecord}s. A segment starts with a header
+ *
+ * <pre>
+ *  0 magic   int
+ *  4 version int
+ *  8 count   long
+ * </pre>
+ *
+ * followed by space for a fixed number of records, of which the first <code>count</code> are valid. All values
+ * are little endian. The segments of a stream are named <code>prefix-000000.seg</code>,
+ * <code>prefix-000001.seg</code> and so on.
+ */
+public final class RecordSegments {
+
+	public static final int MAGIC = 0x4D524543;
+
+	public static final int VERSION = 1;
+
+	public static final int COUNT_OFFSET = 8;
+
+	public static final int HEADER_SIZE = 16;
+
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	public static final String SUFFIX = ".seg";
+
+	private RecordSegments() {
+	}
+
+	/**
+	 * @param directory
+	 * @param prefix
+	 * @param index
+	 * @return the file of the segment with the given index
+	 */
+	public static File segment(File directory, String prefix, int index) {
+		return new File(directory, String.format("%s-%06d%s", prefix, index, SUFFIX));
+	}
+
+	/**
+	 * @param directory
+	 * @param prefix
+	 * @return the segments of the given stream in order
+	 */
+	public static List<File> list(File directory, String prefix) {
+		return list(directory, prefix, SUFFIX);
+	}
+
+	/**
+	 * @return the files of the given stream with the given suffix in order
+	 */
+	static List<File> list(File directory, final String prefix, final String suffix) {
+		File[] files = directory.listFiles(new FileFilter() {
+
+			public boolean accept(File file) {
+				String name = file.getName();
+				return file.isFile() && name.startsWith(prefix + "-") && name.endsWith(suffix)
+						&& name.length() == prefix.length() + 7 + suffix.length();
+			}
+		});
+		if(files == null) {
+			throw new IllegalArgumentException(directory + " is not a directory");
+		}
+		Arrays.sort(files, new Comparator<File>() {
+
+			public int compare(File a, File b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return Arrays.asList(files);
+	}
+
+	/**
+	 * @param directory
+	 * @param prefix
+	 * @return the index following the one of the last segment of the given stream, 0 if there is none
+	 */
+	public static int next(File directory, String prefix) {
+		return next(directory, prefix, SUFFIX);
+	}
+
+	/**
+	 * @return the index following the one of the last file of the given stream with the given suffix
+	 */
+	static int next(File directory, String prefix, String suffix) {
+		List<File> segments = list(directory, prefix, suffix);
+		for(int i = segments.size() - 1; i >= 0; i--) {
+			String name = segments.get(i).getName();
+			try {
+				return Integer.parseInt(name.substring(prefix.length() + 1, name.length() - suffix.length())) + 1;
+			} catch (NumberFormatException e) {
+				// no segment of the stream
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param records
+	 * @return the size of a segment with space for the given number of records
+	 */
+	public static long size(int records) {
+		return HEADER_SIZE + (long) records * FlyweightMonitoringRecord.SIZE;
+	}
+}
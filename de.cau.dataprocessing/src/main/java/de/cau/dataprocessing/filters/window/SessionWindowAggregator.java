@@ -0,0 +1,197 @@
+package de.cau.dataprocessing.filters.window;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates records in sessions, i.e. windows of records which are less than a gap apart. A session ends one
+ * gap after its last record. A record arriving out of order may extend a session or join two of them, whose
+ * aggregates are merged. A record is only late if it does not fall into a session which is still open.
+ */
+public class SessionWindowAggregator extends WindowAggregator {
+
+	private final long gap;
+
+	private final String name;
+
+	// key -> session start -> session
+	private final Map<Integer, TreeMap<Long, Session>> sessions = new HashMap<Integer, TreeMap<Long, Session>>();
+
+	// the open sessions by their end, entries of sessions which ended later or have been merged are stale
+	private final PriorityQueue<Deadline> deadlines = new PriorityQueue<Deadline>();
+
+	/**
+	 * @param gap between the records of a session
+	 * @param maxOutOfOrderness how far records may lag behind the largest timestamp seen
+	 * @param unit of gap and bound
+	 * @param byOperation if true, the sessions are per operation id
+	 */
+	public SessionWindowAggregator(long gap, long maxOutOfOrderness, TimeUnit unit, boolean byOperation) {
+		super(maxOutOfOrderness, unit, byOperation);
+		this.gap = nanos(gap, unit);
+		this.name = "Session window " + gap + " " + unit;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	protected long latestEnd(long timestamp) {
+		return timestamp + gap;
+	}
+
+	/**
+	 * A record less than a gap before a session or within it belongs to the session, even if the session it would
+	 * start on its own had ended at the watermark.
+	 */
+	@Override
+	protected boolean isLate(int key, long timestamp) {
+		TreeMap<Long, Session> open = sessions.get(key);
+		if(open != null) {
+			Map.Entry<Long, Session> before = open.floorEntry(timestamp);
+			if(before != null && before.getValue().end > timestamp) {
+				return false;
+			}
+			Long after = open.higherKey(timestamp);
+			if(after != null && after < timestamp + gap) {
+				return false;
+			}
+		}
+		return super.isLate(key, timestamp);
+	}
+
+	@Override
+	protected void add(int key, long timestamp, long value) {
+		TreeMap<Long, Session> open = sessions.get(key);
+		if(open == null) {
+			open = new TreeMap<Long, Session>();
+			sessions.put(key, open);
+		}
+		Session session = null;
+		Map.Entry<Long, Session> before = open.floorEntry(timestamp);
+		if(before != null && before.getValue().end > timestamp) {
+			session = before.getValue();
+		}
+		long end = session != null ? session.end : Long.MIN_VALUE;
+		// sessions starting less than a gap after the record are joined
+		Iterator<Session> after = open.subMap(timestamp, false, timestamp + gap, false).values().iterator();
+		while(after.hasNext()) {
+			Session other = after.next();
+			after.remove();
+			if(session == null) {
+				session = other;
+				end = other.end;
+			} else {
+				session.aggregate.merge(other.aggregate);
+				session.end = Math.max(session.end, other.end);
+				other.merged = true;
+				release(other.aggregate);
+			}
+		}
+		if(session == null) {
+			session = new Session(key, timestamp, acquire());
+			open.put(timestamp, session);
+		} else if(session.start > timestamp) {
+			session.start = timestamp;
+			open.put(timestamp, session);
+		}
+		session.aggregate.add(value);
+		session.end = Math.max(session.end, timestamp + gap);
+		if(session.end != end) {
+			deadlines.add(new Deadline(session));
+		}
+	}
+
+	@Override
+	protected void advance(long watermark) {
+		while(!deadlines.isEmpty() && deadlines.peek().end <= watermark) {
+			Deadline deadline = deadlines.poll();
+			Session session = deadline.session;
+			if(session.merged || session.end != deadline.end) {
+				continue;
+			}
+			TreeMap<Long, Session> open = sessions.get(session.key);
+			open.remove(session.start);
+			if(open.isEmpty()) {
+				sessions.remove(session.key);
+			}
+			emit(session.key, session.start, session.end, session.aggregate);
+			release(session.aggregate);
+		}
+	}
+
+	@Override
+	protected void writeWindows(DataOutput out) throws IOException {
+		out.writeInt(sessions.size());
+		for(Map.Entry<Integer, TreeMap<Long, Session>> open : sessions.entrySet()) {
+			out.writeInt(open.getKey());
+			out.writeInt(open.getValue().size());
+			for(Session session : open.getValue().values()) {
+				out.writeLong(session.start);
+				out.writeLong(session.end);
+				session.aggregate.writeTo(out);
+			}
+		}
+	}
+
+	@Override
+	protected void readWindows(DataInput in) throws IOException {
+		for(int i = in.readInt(); i > 0; i--) {
+			int key = in.readInt();
+			TreeMap<Long, Session> open = new TreeMap<Long, Session>();
+			for(int j = in.readInt(); j > 0; j--) {
+				Session session = new Session(key, in.readLong(), acquire());
+				session.end = in.readLong();
+				session.aggregate.readFrom(in);
+				open.put(session.start, session);
+				deadlines.add(new Deadline(session));
+			}
+			sessions.put(key, open);
+		}
+	}
+
+	private static class Session {
+
+		final int key;
+
+		long start;
+
+		// one gap after the last record
+		long end;
+
+		final WindowAggregate aggregate;
+
+		boolean merged;
+
+		Session(int key, long start, WindowAggregate aggregate) {
+			this.key = key;
+			this.start = start;
+			this.end = start;
+			this.aggregate = aggregate;
+		}
+	}
+
+	private static class Deadline implements Comparable<Deadline> {
+
+		final long end;
+
+		final Session session;
+
+		Deadline(Session session) {
+			this.end = session.end;
+			this.session = session;
+		}
+
+		public int compareTo(Deadline o) {
+			return Long.compare(end, o.end);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package de.cau.dataprocessing.filters.window;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates records in overlapping windows of a fixed size, which start every slide. Instead of adding a
+ * record to each of its windows, it is added to the aggregate of its pane, i.e. the slide it falls into, and
+ * the panes of a window are merged when it is emitted. The size has to be a multiple of the slide, windows
+ * are aligned to multiples of the slide since the epoch. Windows without any record are not emitted.
+ */
+public class SlidingWindowAggregator extends WindowAggregator {
+
+	private static final long NONE = Long.MIN_VALUE;
+
+	private final long size;
+
+	private final long slide;
+
+	private final String name;
+
+	// pane start -> key -> aggregate
+	private final TreeMap<Long, TreeMap<Integer, WindowAggregate>> panes = new TreeMap<Long, TreeMap<Integer, WindowAggregate>>();
+
+	// end of the next window to emit
+	private long next = NONE;
+
+	/**
+	 * @param size of the windows
+	 * @param slide distance of the starts of consecutive windows
+	 * @param maxOutOfOrderness how far records may lag behind the largest timestamp seen
+	 * @param unit of size, slide and bound
+	 * @param byOperation if true, the records are aggregated per operation id
+	 * @throws IllegalArgumentException if the size is no multiple of the slide
+	 */
+	public SlidingWindowAggregator(long size, long slide, long maxOutOfOrderness, TimeUnit unit, boolean byOperation) {
+		super(maxOutOfOrderness, unit, byOperation);
+		this.size = nanos(size, unit);
+		this.slide = nanos(slide, unit);
+		if(this.size % this.slide != 0) {
+			throw new IllegalArgumentException("size " + size + " is no multiple of slide " + slide);
+		}
+		this.name = "Sliding window " + size + "/" + slide + " " + unit;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private long paneOf(long timestamp) {
+		return Math.floorDiv(timestamp, slide) * slide;
+	}
+
+	@Override
+	protected long latestEnd(long timestamp) {
+		return paneOf(timestamp) + size;
+	}
+
+	@Override
+	protected void add(int key, long timestamp, long value) {
+		long start = paneOf(timestamp);
+		TreeMap<Integer, WindowAggregate> pane = panes.get(start);
+		if(pane == null) {
+			pane = new TreeMap<Integer, WindowAggregate>();
+			panes.put(start, pane);
+		}
+		WindowAggregate aggregate = pane.get(key);
+		if(aggregate == null) {
+			aggregate = acquire();
+			pane.put(key, aggregate);
+		}
+		aggregate.add(value);
+	}
+
+	@Override
+	protected void advance(long watermark) {
+		while(!panes.isEmpty()) {
+			long first = panes.firstKey();
+			// skip the windows without any pane
+			if(next == NONE || first >= next) {
+				next = first + slide;
+			}
+			if(next > watermark) {
+				break;
+			}
+			TreeMap<Integer, WindowAggregate> window = new TreeMap<Integer, WindowAggregate>();
+			for(TreeMap<Integer, WindowAggregate> pane : panes.subMap(next - size, next).values()) {
+				for(Map.Entry<Integer, WindowAggregate> e : pane.entrySet()) {
+					WindowAggregate aggregate = window.get(e.getKey());
+					if(aggregate == null) {
+						aggregate = acquire();
+						window.put(e.getKey(), aggregate);
+					}
+					aggregate.merge(e.getValue());
+				}
+			}
+			for(Map.Entry<Integer, WindowAggregate> e : window.entrySet()) {
+				emit(e.getKey(), next - size, next, e.getValue());
+				release(e.getValue());
+			}
+			// panes only contained by emitted windows
+			while(!panes.isEmpty() && panes.firstKey() + size <= next) {
+				for(WindowAggregate aggregate : panes.pollFirstEntry().getValue().values()) {
+					release(aggregate);
+				}
+			}
+			next += slide;
+		}
+	}
+
+	@Override
+	protected void writeWindows(DataOutput out) throws IOException {
+		out.writeLong(next);
+		out.writeInt(panes.size());
+		for(Map.Entry<Long, TreeMap<Integer, WindowAggregate>> pane : panes.entrySet()) {
+			out.writeLong(pane.getKey());
+			writeAggregates(out, pane.getValue());
+		}
+	}
+
+	@Override
+	protected void readWindows(DataInput in) throws IOException {
+		next = in.readLong();
+		for(int i = in.readInt(); i > 0; i--) {
+			long start = in.readLong();
+			panes.put(start, readAggregates(in));
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package de.cau.dataprocessing.filters.window;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates records in consecutive windows of a fixed size, each record belongs to exactly one window.
+ * Windows are aligned to multiples of their size since the epoch.
+ */
+public class TumblingWindowAggregator extends WindowAggregator {
+
+	private final long size;
+
+	private final String name;
+
+	// window start -> key -> aggregate
+	private final TreeMap<Long, TreeMap<Integer, WindowAggregate>> windows = new TreeMap<Long, TreeMap<Integer, WindowAggregate>>();
+
+	/**
+	 * @param size of the windows
+	 * @param maxOutOfOrderness how far records may lag behind the largest timestamp seen
+	 * @param unit of size and bound
+	 * @param byOperation if true, the records are aggregated per operation id
+	 */
+	public TumblingWindowAggregator(long size, long maxOutOfOrderness, TimeUnit unit, boolean byOperation) {
+		super(maxOutOfOrderness, unit, byOperation);
+		this.size = nanos(size, unit);
+		this.name = "Tumbling window " + size + " " + unit;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private long startOf(long timestamp) {
+		return Math.floorDiv(timestamp, size) * size;
+	}
+
+	@Override
+	protected long latestEnd(long timestamp) {
+		return startOf(timestamp) + size;
+	}
+
+	@Override
+	protected void add(int key, long timestamp, long value) {
+		long start = startOf(timestamp);
+		TreeMap<Integer, WindowAggregate> window = windows.get(start);
+		if(window == null) {
+			window = new TreeMap<Integer, WindowAggregate>();
+			windows.put(start, window);
+		}
+		WindowAggregate aggregate = window.get(key);
+		if(aggregate == null) {
+			aggregate = acquire();
+			window.put(key, aggregate);
+		}
+		aggregate.add(value);
+	}
+
+	@Override
+	protected void advance(long watermark) {
+		Iterator<Map.Entry<Long, TreeMap<Integer, WindowAggregate>>> it = windows.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<Long, TreeMap<Integer, WindowAggregate>> window = it.next();
+			long start = window.getKey();
+			if(start + size > watermark) {
+				break;
+			}
+			for(Map.Entry<Integer, WindowAggregate> e : window.getValue().entrySet()) {
+				emit(e.getKey(), start, start + size, e.getValue());
+				release(e.getValue());
+			}
+			it.remove();
+		}
+	}
+
+	@Override
+	protected void writeWindows(DataOutput out) throws IOException {
+		out.writeInt(windows.size());
+		for(Map.Entry<Long, TreeMap<Integer, WindowAggregate>> window : windows.entrySet()) {
+			out.writeLong(window.getKey());
+			writeAggregates(out, window.getValue());
+		}
+	}
+
+	@Override
+	protected void readWindows(DataInput in) throws IOException {
+		for(int i = in.readInt(); i > 0; i--) {
+			long start = in.readLong();
+			windows.put(start, readAggregates(in));
+		}
+	}
+}
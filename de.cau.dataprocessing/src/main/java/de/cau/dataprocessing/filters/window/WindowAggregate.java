@@ -0,0 +1,117 @@
+package de.cau.dataprocessing.filters.window;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import de.cau.dataprocessing.metrics.QuantileSketch;
+
+/**
+ * The incrementally maintained aggregates of the values of one window: count, sum, minimum, maximum and a
+ * {@link QuantileSketch}. Adding a value costs O(1), aggregates of parts of a window can be
+ * {@link #merge(WindowAggregate) merged}.
+ */
+public class WindowAggregate {
+
+	private long count;
+
+	private long sum;
+
+	private long min = Long.MAX_VALUE;
+
+	private long max = Long.MIN_VALUE;
+
+	private final QuantileSketch sketch = new QuantileSketch();
+
+	public void add(long value) {
+		count++;
+		sum += value;
+		if(value < min) {
+			min = value;
+		}
+		if(value > max) {
+			max = value;
+		}
+		sketch.record(value);
+	}
+
+	public void merge(WindowAggregate other) {
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		sketch.merge(other.sketch);
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public long getMin() {
+		return min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @see QuantileSketch#getValueAtPercentile(double)
+	 */
+	public long getValueAtPercentile(double percentile) {
+		return sketch.getValueAtPercentile(percentile);
+	}
+
+	public void reset() {
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = Long.MIN_VALUE;
+		sketch.reset();
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeLong(sum);
+		out.writeLong(min);
+		out.writeLong(max);
+		sketch.writeTo(out);
+	}
+
+	/**
+	 * Replaces the aggregates by the ones written by {@link #writeTo(DataOutput)}.
+	 */
+	public void readFrom(DataInput in) throws IOException {
+		count = in.readLong();
+		sum = in.readLong();
+		min = in.readLong();
+		max = in.readLong();
+		sketch.readFrom(in);
+	}
+
+	/**
+	 * @return the result of the window with the given bounds
+	 */
+	WindowResult toResult(int key, long start, long end) {
+		WindowResult result = new WindowResult();
+		result.setKey(key);
+		result.setStart(start);
+		result.setEnd(end);
+		result.setCount(count);
+		result.setSum(sum);
+		result.setMin(min);
+		result.setMax(max);
+		result.setP50(sketch.getValueAtPercentile(50));
+		result.setP90(sketch.getValueAtPercentile(90));
+		result.setP99(sketch.getValueAtPercentile(99));
+		return result;
+	}
+}
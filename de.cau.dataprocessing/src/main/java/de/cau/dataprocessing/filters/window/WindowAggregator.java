@@ -0,0 +1,226 @@
+package de.cau.dataprocessing.filters.window;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import de.cau.dataprocessing.checkpoint.Checkpointable;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * Aggregates the durations of {@link MonitoringRecord}s in windows over their timestamps, either of all
+ * records or per operation id. The records may arrive out of order by up to a bound: the watermark is the
+ * largest timestamp seen minus that bound, a window is emitted once it ends at or before the watermark.
+ * Records belonging only to windows which have been emitted already are late, they are dropped and counted.
+ * The windows still open once the input ended are emitted when the mangler is flushed.<p>
+ *
+ * Every record is added to the aggregate of its window or pane in O(1), the records themselves are not kept.
+ * Aggregates are reused once their window has been emitted. The open windows and the watermark are part of
+ * checkpoints, so a restored aggregator continues with the windows it had.
+ */
+public abstract class WindowAggregator implements IDataMangler, Flushable, Checkpointable {
+
+	/**
+	 * The key of the windows if the records are not grouped by operation.
+	 */
+	public static final int ALL = -1;
+
+	private static final WindowResult[] NONE = new WindowResult[0];
+
+	private final long maxOutOfOrderness;
+
+	private final boolean byOperation;
+
+	private final List<WindowResult> pending = new ArrayList<WindowResult>();
+
+	private final ArrayDeque<WindowAggregate> free = new ArrayDeque<WindowAggregate>();
+
+	private MonitoringRecord record;
+
+	private WindowResult[] results = NONE;
+
+	private long maxTimestamp = Long.MIN_VALUE;
+
+	private long watermark = Long.MIN_VALUE;
+
+	private long late;
+
+	/**
+	 * @param maxOutOfOrderness how far records may lag behind the largest timestamp seen
+	 * @param unit of the bound
+	 * @param byOperation if true, the records are aggregated per operation id
+	 */
+	protected WindowAggregator(long maxOutOfOrderness, TimeUnit unit, boolean byOperation) {
+		if(maxOutOfOrderness < 0) {
+			throw new IllegalArgumentException("illegal out of orderness: " + maxOutOfOrderness);
+		}
+		this.maxOutOfOrderness = unit.toNanos(maxOutOfOrderness);
+		this.byOperation = byOperation;
+	}
+
+	@InputPort(required = true)
+	public void setRecord(MonitoringRecord record) {
+		this.record = record;
+	}
+
+	/**
+	 * @return the windows completed by the last execution
+	 */
+	@OutputPort(batch = true)
+	public WindowResult[] getResults() {
+		return results;
+	}
+
+	public void execute() {
+		long timestamp = record.getTimestamp();
+		int key = byOperation ? record.getOperationId() : ALL;
+		if(isLate(key, timestamp)) {
+			late++;
+		} else {
+			add(key, timestamp, record.getDuration());
+		}
+		if(timestamp > maxTimestamp) {
+			maxTimestamp = timestamp;
+			long advanced = timestamp - maxOutOfOrderness;
+			if(advanced > watermark) {
+				watermark = advanced;
+				advance(watermark);
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * Emits all open windows.
+	 */
+	public void flush() {
+		advance(Long.MAX_VALUE);
+		publish();
+	}
+
+	private void publish() {
+		results = pending.isEmpty() ? NONE : pending.toArray(new WindowResult[pending.size()]);
+		pending.clear();
+	}
+
+	/**
+	 * @return the number of records dropped because they were late
+	 */
+	public long getLateRecords() {
+		return late;
+	}
+
+	/**
+	 * @return the current watermark in nanoseconds
+	 */
+	public long getWatermark() {
+		return watermark;
+	}
+
+	public void snapshot(DataOutput out) throws IOException {
+		out.writeLong(maxTimestamp);
+		out.writeLong(watermark);
+		out.writeLong(late);
+		writeWindows(out);
+	}
+
+	public void restore(DataInput in) throws IOException {
+		maxTimestamp = in.readLong();
+		watermark = in.readLong();
+		late = in.readLong();
+		readWindows(in);
+	}
+
+	/**
+	 * Writes the open windows along with their aggregates.
+	 */
+	protected abstract void writeWindows(DataOutput out) throws IOException;
+
+	/**
+	 * Reads the windows written by {@link #writeWindows(DataOutput)}, there are no open windows yet.
+	 */
+	protected abstract void readWindows(DataInput in) throws IOException;
+
+	/**
+	 * @return the end of the last window the given timestamp belongs to
+	 */
+	protected abstract long latestEnd(long timestamp);
+
+	/**
+	 * @return true if all windows of the given key the timestamp belongs to have been emitted, by default if
+	 * the {@link #latestEnd(long) last one} ends at or before the watermark
+	 */
+	protected boolean isLate(int key, long timestamp) {
+		return latestEnd(timestamp) <= watermark;
+	}
+
+	/**
+	 * Adds the value of a record which is not late.
+	 */
+	protected abstract void add(int key, long timestamp, long value);
+
+	/**
+	 * {@link #emit(int, long, long, WindowAggregate) Emits} the windows ending at or before the watermark.
+	 */
+	protected abstract void advance(long watermark);
+
+	protected void emit(int key, long start, long end, WindowAggregate aggregate) {
+		pending.add(aggregate.toResult(key, start, end));
+	}
+
+	/**
+	 * @return an empty aggregate, reused if any has been released
+	 */
+	protected WindowAggregate acquire() {
+		WindowAggregate aggregate = free.poll();
+		return aggregate != null ? aggregate : new WindowAggregate();
+	}
+
+	/**
+	 * Writes the aggregates of the given window or pane by their keys.
+	 */
+	protected static void writeAggregates(DataOutput out, Map<Integer, WindowAggregate> aggregates) throws IOException {
+		out.writeInt(aggregates.size());
+		for(Map.Entry<Integer, WindowAggregate> e : aggregates.entrySet()) {
+			out.writeInt(e.getKey());
+			e.getValue().writeTo(out);
+		}
+	}
+
+	/**
+	 * Reads aggregates written by {@link #writeAggregates(DataOutput, Map)}.
+	 */
+	protected TreeMap<Integer, WindowAggregate> readAggregates(DataInput in) throws IOException {
+		TreeMap<Integer, WindowAggregate> aggregates = new TreeMap<Integer, WindowAggregate>();
+		for(int i = in.readInt(); i > 0; i--) {
+			int key = in.readInt();
+			WindowAggregate aggregate = acquire();
+			aggregate.readFrom(in);
+			aggregates.put(key, aggregate);
+		}
+		return aggregates;
+	}
+
+	protected void release(WindowAggregate aggregate) {
+		aggregate.reset();
+		free.push(aggregate);
+	}
+
+	protected static long nanos(long duration, TimeUnit unit) {
+		long nanos = unit.toNanos(duration);
+		if(nanos <= 0) {
+			throw new IllegalArgumentException("illegal duration: " + duration + " " + unit);
+		}
+		return nanos;
+	}
+}
@@ -0,0 +1,128 @@
+package de.cau.dataprocessing.filters.window;
+
+import de.cau.dataprocessing.data.Record;
+
+/**
+ * The aggregated durations of the {@link de.cau.dataprocessing.data.MonitoringRecord}s of one window.
+ */
+public class WindowResult extends Record {
+
+	private int key;
+
+	private long start;
+
+	private long end;
+
+	private long count;
+
+	private long sum;
+
+	private long min;
+
+	private long max;
+
+	private long p50;
+
+	private long p90;
+
+	private long p99;
+
+	/**
+	 * @return the operation id the window aggregates, {@link WindowAggregator#ALL} if not grouped
+	 */
+	public int getKey() {
+		return key;
+	}
+
+	public void setKey(int key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return the first timestamp of the window
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	public void setStart(long start) {
+		this.start = start;
+	}
+
+	/**
+	 * @return the first timestamp after the window
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	public void setEnd(long end) {
+		this.end = end;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public void setSum(long sum) {
+		this.sum = sum;
+	}
+
+	public long getMin() {
+		return min;
+	}
+
+	public void setMin(long min) {
+		this.min = min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public void setMax(long max) {
+		this.max = max;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public void setP50(long p50) {
+		this.p50 = p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public void setP90(long p90) {
+		this.p90 = p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public void setP99(long p99) {
+		this.p99 = p99;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	@Override
+	public String toString() {
+		return "WindowResult[key=" + key + ", start=" + start + ", end=" + end + ", count=" + count + ", sum=" + sum
+				+ ", min=" + min + ", max=" + max + ", p50=" + p50 + ", p90=" + p90 + ", p99=" + p99 + "]";
+	}
+}
@@ -0,0 +1,54 @@
+package de.cau.dataprocessing.flow;
+
+import java.util.concurrent.Flow;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+
+/**
+ * Connects the ports of a {@link Graph} to {@link Flow} publishers and subscribers, so a graph can be embedded in
+ * asynchronous applications. Both directions honour the demand of the subscriber.
+ */
+public final class Flows {
+
+	private Flows() {
+	}
+
+	/**
+	 * Adds a {@link PublisherSink} to the graph, which publishes the values of the given output port.
+	 *
+	 * @param graph
+	 * @param port an {@link OutputPort} of a mangler in the graph
+	 * @return the publisher, which takes a single subscriber
+	 * @throws IllegalStateException if the mangler of the port has not been added to the graph
+	 * @throws IllegalArgumentException if the port is not an output port
+	 */
+	public static <T> Flow.Publisher<T> publish(Graph graph, InstanceMethod<IDataMangler> port) {
+		PublisherSink<T> sink = new PublisherSink<T>();
+		graph.addMangler(sink);
+		graph.connect(port, graph.getInPortsOf(sink).iterator().next());
+		return sink;
+	}
+
+	/**
+	 * Adds a {@link SubscriberSource} to the graph, which sets the items of the given publisher on the given input
+	 * port once the graph is executed.
+	 *
+	 * @param graph
+	 * @param publisher
+	 * @param port an {@link InputPort} of a mangler in the graph taking the items
+	 * @return the source
+	 * @throws IllegalStateException if the mangler of the port has not been added to the graph
+	 * @throws IllegalArgumentException if the port is not an input port
+	 */
+	public static <T> SubscriberSource<T> subscribe(Graph graph, Flow.Publisher<? extends T> publisher,
+			InstanceMethod<IDataMangler> port) {
+		SubscriberSource<T> source = new SubscriberSource<T>(publisher);
+		graph.addMangler(source);
+		graph.connect(graph.getOutPortsOf(source).iterator().next(), port);
+		return source;
+	}
+}
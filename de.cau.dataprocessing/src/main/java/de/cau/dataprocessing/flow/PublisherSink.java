@@ -0,0 +1,223 @@
+package de.cau.dataprocessing.flow;
+
+import java.io.Closeable;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import de.cau.dataprocessing.filters.Abortable;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+/**
+ * A sink publishing the values set on its input port to a single {@link Flow.Subscriber}. Each execution waits
+ * for the subscriber to {@link Flow.Subscription#request(long) request} the value, so a slow subscriber slows the
+ * graph down through the bounded channels in front of the sink. Values set after the subscriber cancelled are
+ * discarded. The subscriber is completed once the input of the sink ended, and signalled the failure once a
+ * mangler failed or the execution has been stopped ({@link Abortable}). An execution fails if there has been no
+ * subscriber for the given timeout.<p>
+ *
+ * Apart from {@link Flow.Subscriber#onSubscribe(Flow.Subscription)}, the subscriber is signalled by the thread
+ * executing the sink, a request of no values as well, so the signals never overlap. Only a subscriber subscribing
+ * after the sink ended is signalled the end by the subscribing thread.<p>
+ *
+ * The sink is {@link Blocking}, so it waits on a virtual thread in {@link de.cau.dataprocessing.engine.ExecutionMode#VIRTUAL}.
+ *
+ * @param <T> the type of the values
+ * @see Flows#publish(de.cau.dataprocessing.engine.Graph, de.cau.dataprocessing.reflect.InstanceMethod)
+ */
+@Blocking
+public class PublisherSink<T> implements IDataMangler, Flow.Publisher<T>, Closeable, Abortable {
+
+	public static final long DEFAULT_SUBSCRIBE_TIMEOUT = TimeUnit.MINUTES.toNanos(1);
+
+	private final long subscribeTimeout;
+
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	private final AtomicBoolean terminated = new AtomicBoolean();
+
+	private final AtomicLong demand = new AtomicLong();
+
+	// set once the subscriber has been told its subscription
+	private volatile Flow.Subscriber<? super T> subscriber;
+
+	private volatile boolean cancelled;
+
+	// the error of an illegal request, signalled by the worker
+	private volatile Throwable error;
+
+	private volatile boolean completed;
+
+	// the cause the sink has been aborted for
+	private volatile Throwable aborted;
+
+	// the worker waiting for demand
+	private volatile Thread waiter;
+
+	private Object value;
+
+	public PublisherSink() {
+		this(DEFAULT_SUBSCRIBE_TIMEOUT, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param subscribeTimeout how long an execution waits for a subscriber
+	 * @param unit of the timeout
+	 */
+	public PublisherSink(long subscribeTimeout, TimeUnit unit) {
+		if(subscribeTimeout < 0) {
+			throw new IllegalArgumentException("negative timeout: " + subscribeTimeout);
+		}
+		this.subscribeTimeout = unit.toNanos(subscribeTimeout);
+	}
+
+	public String getName() {
+		return "Publisher sink";
+	}
+
+	@InputPort(required = true)
+	public void setValue(Object value) {
+		this.value = value;
+	}
+
+	/**
+	 * @param subscriber signalled {@link IllegalStateException} if the sink already has a subscriber
+	 */
+	public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+		if(!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				public void request(long n) {
+				}
+
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException(getName() + " already has a subscriber"));
+			return;
+		}
+		subscriber.onSubscribe(new Flow.Subscription() {
+
+			public void request(long n) {
+				if(n <= 0) {
+					if(error == null) {
+						error = new IllegalArgumentException("non-positive request: " + n);
+					}
+					wakeUp();
+					return;
+				}
+				long current;
+				do {
+					current = demand.get();
+				} while(current != Long.MAX_VALUE && !demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+				wakeUp();
+			}
+
+			public void cancel() {
+				cancelled = true;
+				wakeUp();
+			}
+		});
+		this.subscriber = subscriber;
+		wakeUp();
+		// the worker does not signal anymore
+		if(completed || aborted != null) {
+			signalEnd();
+		}
+	}
+
+	private void wakeUp() {
+		Thread thread = waiter;
+		if(thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Waits for the subscriber to request the value and passes it on.
+	 *
+	 * @throws IllegalStateException if there has been no subscriber for the timeout
+	 */
+	@SuppressWarnings("unchecked")
+	public void execute() {
+		long deadline = System.nanoTime() + subscribeTimeout;
+		while(!cancelled && !terminated.get()) {
+			if(error != null) {
+				signalEnd();
+				return;
+			}
+			Flow.Subscriber<? super T> current = subscriber;
+			if(current != null && take()) {
+				current.onNext((T) value);
+				return;
+			}
+			long remaining = deadline - System.nanoTime();
+			if(current == null && remaining <= 0) {
+				throw new IllegalStateException(getName() + " has had no subscriber for "
+						+ TimeUnit.NANOSECONDS.toMillis(subscribeTimeout) + " ms");
+			}
+			waiter = Thread.currentThread();
+			if(!cancelled && error == null) {
+				if(subscriber == null) {
+					LockSupport.parkNanos(this, remaining);
+				} else if(demand.get() == 0) {
+					LockSupport.park(this);
+				}
+			}
+			waiter = null;
+			if(Thread.currentThread().isInterrupted()) {
+				// stopped, the sink is aborted
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return false if the subscriber did not request any value
+	 */
+	private boolean take() {
+		long current;
+		do {
+			current = demand.get();
+			if(current == 0) {
+				return false;
+			}
+		} while(current != Long.MAX_VALUE && !demand.compareAndSet(current, current - 1));
+		return true;
+	}
+
+	/**
+	 * Completes the subscriber, which may subscribe later on.
+	 */
+	public void close() {
+		completed = true;
+		signalEnd();
+	}
+
+	/**
+	 * Signals the cause to the subscriber, which may subscribe later on.
+	 */
+	public void abort(Throwable cause) {
+		aborted = cause;
+		signalEnd();
+	}
+
+	/**
+	 * Signals the error of an illegal request, the failure or the completion to the subscriber, once.
+	 */
+	private void signalEnd() {
+		Flow.Subscriber<? super T> current = subscriber;
+		Throwable cause = error != null ? error : aborted;
+		if(current == null || cancelled || (cause == null && !completed) || !terminated.compareAndSet(false, true)) {
+			return;
+		}
+		if(cause != null) {
+			current.onError(cause);
+		} else {
+			current.onComplete();
+		}
+	}
+}
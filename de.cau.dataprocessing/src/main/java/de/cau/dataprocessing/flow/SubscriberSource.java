@@ -0,0 +1,164 @@
+package de.cau.dataprocessing.flow;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.LockSupport;
+
+import de.cau.dataprocessing.channel.SpscRingBuffer;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * A source providing the items of a {@link Flow.Publisher}, one per execution. It subscribes once created, but
+ * requests items only once executed: as many as it buffers, then requests more whenever half of them have been
+ * provided, so the publisher never gets ahead of the graph by more than the buffer. The items are handed over
+ * through a lock-free buffer, an execution waits only while it is empty. The source is exhausted once the
+ * publisher completed and its items have been provided. If the publisher fails, the execution fails with an
+ * {@link IllegalStateException} caused by the publisher's error. The execution fails as well, and the subscription
+ * is cancelled, if the publisher published more items than requested or the execution has been interrupted while
+ * waiting for an item, as the items did not end.<p>
+ *
+ * The source is {@link Blocking}, so it waits on a virtual thread in {@link de.cau.dataprocessing.engine.ExecutionMode#VIRTUAL}.
+ * It subscribes once, so it can not be executed again.
+ *
+ * @param <T> the type of the items
+ * @see Flows#subscribe(de.cau.dataprocessing.engine.Graph, Flow.Publisher, de.cau.dataprocessing.reflect.InstanceMethod)
+ */
+@Blocking
+public class SubscriberSource<T> implements IDataMangler, Flow.Subscriber<T> {
+
+	public static final int DEFAULT_PREFETCH = 256;
+
+	private final Flow.Publisher<? extends T> publisher;
+
+	private final SpscRingBuffer<T> buffer;
+
+	private final int prefetch;
+
+	private volatile Flow.Subscription subscription;
+
+	private volatile boolean done;
+
+	private volatile Throwable failure;
+
+	// the worker waiting for items
+	private volatile Thread waiter;
+
+	private boolean requested;
+
+	// items provided since the last request
+	private int consumed;
+
+	private boolean ended;
+
+	private T value;
+
+	public SubscriberSource(Flow.Publisher<? extends T> publisher) {
+		this(publisher, DEFAULT_PREFETCH);
+	}
+
+	/**
+	 * @param publisher
+	 * @param prefetch the number of items requested in advance, rounded up to a power of two
+	 */
+	public SubscriberSource(Flow.Publisher<? extends T> publisher, int prefetch) {
+		if(prefetch < 1) {
+			throw new IllegalArgumentException("illegal prefetch: " + prefetch);
+		}
+		this.publisher = publisher;
+		this.prefetch = Math.max(2, Integer.highestOneBit(prefetch - 1) << 1);
+		this.buffer = new SpscRingBuffer<T>(this.prefetch);
+		publisher.subscribe(this);
+	}
+
+	public String getName() {
+		return "Subscriber source";
+	}
+
+	@OutputPort
+	public T getValue() {
+		return value;
+	}
+
+	public void onSubscribe(Flow.Subscription subscription) {
+		if(this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		wakeUp();
+	}
+
+	public void onNext(T item) {
+		if(!buffer.offer(item)) {
+			// the publisher must not signal anymore
+			subscription.cancel();
+			onError(new IllegalStateException(publisher + " published more items than requested"));
+			return;
+		}
+		wakeUp();
+	}
+
+	public void onError(Throwable throwable) {
+		failure = throwable;
+		done = true;
+		wakeUp();
+	}
+
+	public void onComplete() {
+		done = true;
+		wakeUp();
+	}
+
+	private void wakeUp() {
+		Thread thread = waiter;
+		if(thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	public void execute() {
+		value = null;
+		if(ended) {
+			return;
+		}
+		while(true) {
+			// items are published before the publisher is done
+			boolean finished = done;
+			T item = buffer.poll();
+			if(item != null) {
+				value = item;
+				if(++consumed >= prefetch / 2 && !finished) {
+					subscription.request(consumed);
+					consumed = 0;
+				}
+				return;
+			}
+			if(finished) {
+				ended = true;
+				if(failure != null) {
+					throw new IllegalStateException(publisher + " failed", failure);
+				}
+				return;
+			}
+			Flow.Subscription current = subscription;
+			if(current != null && !requested) {
+				requested = true;
+				current.request(prefetch);
+				continue;
+			}
+			waiter = Thread.currentThread();
+			if(buffer.size() == 0 && !done && (requested || subscription == null)) {
+				LockSupport.park(this);
+			}
+			waiter = null;
+			if(Thread.currentThread().isInterrupted()) {
+				if(current != null) {
+					current.cancel();
+				}
+				ended = true;
+				throw new IllegalStateException("interrupted while waiting for " + publisher);
+			}
+		}
+	}
+}
@@ -9,8 +9,11 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
 
+import de.cau.dataprocessing.channel.ChannelFactory;
+import de.cau.dataprocessing.channel.RingBufferChannelFactory;
 import de.cau.dataprocessing.engine.Result;
 import de.cau.dataprocessing.filters.IDataMangler;
 import de.cau.dataprocessing.reflect.InstanceMethod;
@@ -24,8 +27,15 @@ public class IPCModule extends AbstractModule {
 		bind(new TypeLiteral<Map<Method, IDataMangler>>(){})
 			.to(new TypeLiteral<ConcurrentHashMap<Method, IDataMangler>>(){});
 		bind(Map.class).to(HashMap.class);
-		bind(new TypeLiteral<BlockingQueue<Result>>(){})
-			.to(new TypeLiteral<LinkedBlockingQueue<Result>>(){});
+		bind(ChannelFactory.class).to(RingBufferChannelFactory.class);
+	}
+
+	/**
+	 * Queues are bounded, so producers outrunning their consumers are slowed down instead of filling the heap.
+	 */
+	@Provides
+	BlockingQueue<Result> provideQueue() {
+		return new LinkedBlockingQueue<Result>(RingBufferChannelFactory.DEFAULT_CAPACITY);
 	}
 
 }
@@ -0,0 +1,56 @@
+package de.cau.dataprocessing.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import de.cau.dataprocessing.channel.Channel;
+
+/**
+ * The depth of a channel into an operator along with the time its producers have been blocked by it and
+ * the number of results discarded because it was full.
+ */
+public class ChannelMetrics implements ChannelMetricsMBean {
+
+	private final String name;
+
+	private final Channel<?> channel;
+
+	private final LongAdder blocked = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	ChannelMetrics(String name, Channel<?> channel) {
+		this.name = name;
+		this.channel = channel;
+	}
+
+	/**
+	 * @param nanos time a producer waited for space
+	 */
+	public void recordBlocked(long nanos) {
+		blocked.add(nanos);
+	}
+
+	public void recordDropped() {
+		dropped.increment();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getDepth() {
+		return channel.size();
+	}
+
+	public int getCapacity() {
+		return channel.capacity();
+	}
+
+	public long getBlockedTime() {
+		return blocked.sum();
+	}
+
+	public long getDropped() {
+		return dropped.sum();
+	}
+}
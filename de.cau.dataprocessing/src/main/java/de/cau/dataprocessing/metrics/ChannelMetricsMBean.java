@@ -0,0 +1,17 @@
+package de.cau.dataprocessing.metrics;
+
+/**
+ * The metrics of a channel between operators as exposed through JMX. Times are given in nanoseconds.
+ */
+public interface ChannelMetricsMBean {
+
+	String getName();
+
+	int getDepth();
+
+	int getCapacity();
+
+	long getBlockedTime();
+
+	long getDropped();
+}
@@ -0,0 +1,162 @@
+package de.cau.dataprocessing.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.cau.dataprocessing.channel.Channel;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+
+/**
+ * The metrics of the executions of a {@link de.cau.dataprocessing.engine.Graph}. Metrics of manglers and
+ * ports accumulate over all executions, channels are those of the current or last execution. The executor
+ * looks the metrics up once when it starts, so recording them does not involve this registry.
+ */
+public class GraphMetrics {
+
+	public static final String DOMAIN = "de.cau.dataprocessing";
+
+	private final Map<IDataMangler, ManglerMetrics> manglers = new IdentityHashMap<IDataMangler, ManglerMetrics>();
+
+	private final ConcurrentHashMap<InstanceMethod<IDataMangler>, LongAdder> ports = new ConcurrentHashMap<InstanceMethod<IDataMangler>, LongAdder>();
+
+	private final List<ChannelMetrics> channels = new ArrayList<ChannelMetrics>();
+
+	private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+	/**
+	 * @param idm
+	 * @return the metrics of the given mangler, created if necessary
+	 */
+	public synchronized ManglerMetrics of(IDataMangler idm) {
+		ManglerMetrics metrics = manglers.get(idm);
+		if(metrics == null) {
+			metrics = new ManglerMetrics(idm);
+			manglers.put(idm, metrics);
+		}
+		return metrics;
+	}
+
+	/**
+	 * @param port
+	 * @return the counter of the values set on or provided by the given port, created if necessary
+	 */
+	public LongAdder counterOf(InstanceMethod<IDataMangler> port) {
+		LongAdder counter = ports.get(port);
+		if(counter == null) {
+			counter = new LongAdder();
+			LongAdder previous = ports.putIfAbsent(port, counter);
+			if(previous != null) {
+				counter = previous;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * @param port
+	 * @return the number of values set on or provided by the given port
+	 */
+	public long getValues(InstanceMethod<IDataMangler> port) {
+		LongAdder counter = ports.get(port);
+		return counter != null ? counter.sum() : 0;
+	}
+
+	public synchronized List<ManglerMetrics> getManglerMetrics() {
+		return Collections.unmodifiableList(new ArrayList<ManglerMetrics>(manglers.values()));
+	}
+
+	/**
+	 * Starts the metrics of a new execution, the channels of the previous one are dropped.
+	 */
+	public synchronized void started() {
+		long now = System.nanoTime();
+		for(ManglerMetrics metrics : manglers.values()) {
+			metrics.started(now);
+		}
+		channels.clear();
+	}
+
+	/**
+	 * @param name
+	 * @param channel
+	 * @return the metrics of a channel of the current execution
+	 */
+	public synchronized ChannelMetrics channel(String name, Channel<?> channel) {
+		ChannelMetrics metrics = new ChannelMetrics(name, channel);
+		channels.add(metrics);
+		return metrics;
+	}
+
+	public synchronized List<ChannelMetrics> getChannelMetrics() {
+		return Collections.unmodifiableList(new ArrayList<ChannelMetrics>(channels));
+	}
+
+	/**
+	 * Resets the metrics of all manglers and ports.
+	 */
+	public synchronized void reset() {
+		for(ManglerMetrics metrics : manglers.values()) {
+			metrics.reset();
+		}
+		for(LongAdder counter : ports.values()) {
+			counter.reset();
+		}
+	}
+
+	/**
+	 * Registers the metrics of all manglers and channels with the platform MBean server, replacing those
+	 * registered before.
+	 *
+	 * @throws IllegalStateException if the registration fails
+	 */
+	public synchronized void register() {
+		unregister();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for(ManglerMetrics metrics : manglers.values()) {
+				register(server, new ObjectName(DOMAIN + ":type=Mangler,name=" + quote(metrics.getName(), metrics)), metrics);
+			}
+			for(ChannelMetrics metrics : channels) {
+				register(server, new ObjectName(DOMAIN + ":type=Channel,name=" + quote(metrics.getName(), metrics)), metrics);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("cannot register metrics", e);
+		}
+	}
+
+	private void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+		server.registerMBean(mbean, name);
+		registered.add(name);
+	}
+
+	// names are not unique, so the identity of the metrics is appended
+	private static String quote(String name, Object metrics) {
+		return ObjectName.quote(name + "@" + Integer.toHexString(System.identityHashCode(metrics)));
+	}
+
+	/**
+	 * Removes all metrics registered by {@link #register()}.
+	 */
+	public synchronized void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(ObjectName name : registered) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				// already gone
+			}
+		}
+		registered.clear();
+	}
+}
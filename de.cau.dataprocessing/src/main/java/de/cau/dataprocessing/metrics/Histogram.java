@@ -0,0 +1,106 @@
+package de.cau.dataprocessing.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values with log-linear buckets, i.e. every power of two is divided into
+ * {@value #SUB_COUNT} buckets of equal width, so percentiles are accurate to about 3 percent. All buckets
+ * are allocated up front, recording does not allocate and is safe for concurrent threads.
+ */
+public class Histogram {
+
+	private static final int SUB_BITS = 5;
+
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_COUNT);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	static int indexOf(long value) {
+		if(value < SUB_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) (value >>> shift) - SUB_COUNT;
+	}
+
+	/**
+	 * @return the largest value counted in the bucket of the given index
+	 */
+	static long highestValueOf(int index) {
+		int group = index >>> SUB_BITS;
+		long sub = index & (SUB_COUNT - 1);
+		if(group == 0) {
+			return sub;
+		}
+		int shift = group - 1;
+		return ((SUB_COUNT + sub) << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * @param value negative values are counted as 0
+	 */
+	public void record(long value) {
+		if(value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(indexOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current = max.get();
+		while(value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the value the given percentage of the recorded values is less than or equal to, 0 if empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if(percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("illegal percentile: " + percentile);
+		}
+		long n = count.get();
+		if(n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for(int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if(seen >= rank) {
+				return Math.min(highestValueOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	public void reset() {
+		for(int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+}
@@ -0,0 +1,129 @@
+package de.cau.dataprocessing.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+
+/**
+ * Counts the values set on the input ports and provided by the output ports of an {@link IDataMangler}
+ * and records the latency of its executions.
+ */
+public class ManglerMetrics implements ManglerMetricsMBean {
+
+	private final IDataMangler idm;
+
+	private final LongAdder in = new LongAdder();
+
+	private final LongAdder out = new LongAdder();
+
+	private final Histogram latency = new Histogram();
+
+	private final LongAdder cacheHits = new LongAdder();
+
+	private final LongAdder cacheMisses = new LongAdder();
+
+	private volatile long since = System.nanoTime();
+
+	ManglerMetrics(IDataMangler idm) {
+		this.idm = idm;
+	}
+
+	public void recordIn() {
+		in.increment();
+	}
+
+	public void recordOut(int values) {
+		out.add(values);
+	}
+
+	/**
+	 * @param nanos the duration of an execution
+	 */
+	public void recordExecution(long nanos) {
+		latency.record(nanos);
+	}
+
+	/**
+	 * Records an execution skipped as the results have been memoized.
+	 */
+	public void recordCacheHit() {
+		cacheHits.increment();
+	}
+
+	public void recordCacheMiss() {
+		cacheMisses.increment();
+	}
+
+	void started(long now) {
+		since = now;
+	}
+
+	void reset() {
+		in.reset();
+		out.reset();
+		latency.reset();
+		cacheHits.reset();
+		cacheMisses.reset();
+	}
+
+	public IDataMangler getMangler() {
+		return idm;
+	}
+
+	public Histogram getLatency() {
+		return latency;
+	}
+
+	public String getName() {
+		return idm.getName();
+	}
+
+	public long getRecordsIn() {
+		return in.sum();
+	}
+
+	public long getRecordsOut() {
+		return out.sum();
+	}
+
+	public double getRecordsInPerSecond() {
+		return perSecond(in.sum());
+	}
+
+	public double getRecordsOutPerSecond() {
+		return perSecond(out.sum());
+	}
+
+	private double perSecond(long count) {
+		long elapsed = System.nanoTime() - since;
+		return elapsed <= 0 ? 0 : count * 1e9 / elapsed;
+	}
+
+	public long getInvocations() {
+		return latency.getCount();
+	}
+
+	public double getLatencyMean() {
+		return latency.getMean();
+	}
+
+	public long getLatencyP50() {
+		return latency.getValueAtPercentile(50);
+	}
+
+	public long getLatencyP99() {
+		return latency.getValueAtPercentile(99);
+	}
+
+	public long getLatencyMax() {
+		return latency.getMax();
+	}
+
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+}
@@ -0,0 +1,35 @@
+package de.cau.dataprocessing.metrics;
+
+/**
+ * The metrics of an {@link de.cau.dataprocessing.filters.IDataMangler} as exposed through JMX.
+ * Latencies are given in nanoseconds, rates per second since the start of the execution.
+ */
+public interface ManglerMetricsMBean {
+
+	String getName();
+
+	long getRecordsIn();
+
+	long getRecordsOut();
+
+	double getRecordsInPerSecond();
+
+	double getRecordsOutPerSecond();
+
+	long getInvocations();
+
+	double getLatencyMean();
+
+	long getLatencyP50();
+
+	long getLatencyP99();
+
+	long getLatencyMax();
+
+	/**
+	 * @return the number of executions skipped as the results of cacheable ports have been memoized
+	 */
+	long getCacheHits();
+
+	long getCacheMisses();
+}
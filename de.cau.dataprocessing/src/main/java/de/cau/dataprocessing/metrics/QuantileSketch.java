@@ -0,0 +1,130 @@
+package de.cau.dataprocessing.metrics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A single-threaded, mergeable counterpart of {@link Histogram} for short-lived aggregates such as windows.
+ * It uses the same log-linear buckets, but allocates them only up to the largest value recorded, so sketches of
+ * small values stay small. Recording and {@link #merge(QuantileSketch) merging} cost O(1) and O(buckets).
+ */
+public class QuantileSketch {
+
+	private static final long[] EMPTY = new long[0];
+
+	private long[] buckets = EMPTY;
+
+	private long count;
+
+	private long max;
+
+	/**
+	 * @param value negative values are counted as 0
+	 */
+	public void record(long value) {
+		if(value < 0) {
+			value = 0;
+		}
+		int index = Histogram.indexOf(value);
+		if(index >= buckets.length) {
+			grow(index + 1);
+		}
+		buckets[index]++;
+		count++;
+		if(value > max) {
+			max = value;
+		}
+	}
+
+	private void grow(int size) {
+		buckets = Arrays.copyOf(buckets, Math.max(size, Math.min(buckets.length * 2, Histogram.indexOf(Long.MAX_VALUE) + 1)));
+	}
+
+	/**
+	 * Adds the values recorded by another sketch.
+	 */
+	public void merge(QuantileSketch other) {
+		if(other.buckets.length > buckets.length) {
+			grow(other.buckets.length);
+		}
+		for(int i = 0; i < other.buckets.length; i++) {
+			buckets[i] += other.buckets[i];
+		}
+		count += other.count;
+		max = Math.max(max, other.max);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the value the given percentage of the recorded values is less than or equal to, 0 if empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if(percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("illegal percentile: " + percentile);
+		}
+		if(count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for(int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if(seen >= rank) {
+				return Math.min(Histogram.highestValueOf(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Forgets all values, the buckets are kept for reuse.
+	 */
+	public void reset() {
+		Arrays.fill(buckets, 0);
+		count = 0;
+		max = 0;
+	}
+
+	/**
+	 * Writes the non-empty buckets, so a sketch of few distinct values stays small.
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		int used = 0;
+		for(long bucket : buckets) {
+			if(bucket != 0) {
+				used++;
+			}
+		}
+		out.writeLong(count);
+		out.writeLong(max);
+		out.writeInt(used);
+		for(int i = 0; i < buckets.length; i++) {
+			if(buckets[i] != 0) {
+				out.writeInt(i);
+				out.writeLong(buckets[i]);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the values of this sketch by the ones written by {@link #writeTo(DataOutput)}.
+	 */
+	public void readFrom(DataInput in) throws IOException {
+		reset();
+		count = in.readLong();
+		max = in.readLong();
+		for(int i = in.readInt(); i > 0; i--) {
+			int index = in.readInt();
+			if(index >= buckets.length) {
+				grow(index + 1);
+			}
+			buckets[index] = in.readLong();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package de.cau.dataprocessing.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@link de.cau.dataprocessing.reflect.PortTable} for every concrete, accessible
+ * {@link de.cau.dataprocessing.filters.IDataMangler} compiled, so {@link de.cau.dataprocessing.reflect.ClassPorts}
+ * neither has to scan its methods nor to spin invokers at runtime. The ports include the ones inherited, so
+ * every class gets a table of its own. {@link de.cau.dataprocessing.filters.annotations.Configuration} is part of
+ * {@link de.cau.dataprocessing.filters.annotations.InputPort} and read from the port method as before.<p>
+ *
+ * The processor is registered as a service, so it runs whenever this module is on the classpath of the
+ * compiler. The annotations are matched by name, as they are compiled along with the processor itself.
+ */
+@SupportedAnnotationTypes("*")
+public class PortTableProcessor extends AbstractProcessor {
+
+	private static final String MANGLER = "de.cau.dataprocessing.filters.IDataMangler";
+
+	private static final String INPUT_PORT = "de.cau.dataprocessing.filters.annotations.InputPort";
+
+	private static final String OUTPUT_PORT = "de.cau.dataprocessing.filters.annotations.OutputPort";
+
+	private static final String SUFFIX = "$$PortTable";
+
+	// tables generated in earlier rounds
+	private final Set<String> generated = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement mangler = processingEnv.getElementUtils().getTypeElement(MANGLER);
+		if(mangler != null) {
+			for(Element root : roundEnv.getRootElements()) {
+				visit(root, mangler);
+			}
+		}
+		// the annotations are left to other processors
+		return false;
+	}
+
+	private void visit(Element element, TypeElement mangler) {
+		if(element.getKind() != ElementKind.CLASS) {
+			return;
+		}
+		TypeElement type = (TypeElement) element;
+		if(isTableOf(type, mangler)) {
+			try {
+				generate(type);
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+						"cannot generate the port table: " + e, type);
+			}
+		}
+		for(Element enclosed : type.getEnclosedElements()) {
+			visit(enclosed, mangler);
+		}
+	}
+
+	/**
+	 * @return true if the generated table can refer to the class and its instances may be manglers
+	 */
+	private boolean isTableOf(TypeElement type, TypeElement mangler) {
+		if(type.getModifiers().contains(Modifier.ABSTRACT)) {
+			return false;
+		}
+		for(Element e = type; e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+			TypeElement t = (TypeElement) e;
+			if(t.getModifiers().contains(Modifier.PRIVATE) || t.getNestingKind() == NestingKind.LOCAL
+					|| t.getNestingKind() == NestingKind.ANONYMOUS
+					|| (t.getNestingKind() == NestingKind.MEMBER && !t.getModifiers().contains(Modifier.STATIC)
+							&& e != type)) {
+				return false;
+			}
+		}
+		return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()),
+				processingEnv.getTypeUtils().erasure(mangler.asType()));
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		String binary = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String simpleName = (pkg.isUnnamed() ? binary : binary.substring(pkg.getQualifiedName().length() + 1)) + SUFFIX;
+		String name = pkg.isUnnamed() ? simpleName : pkg.getQualifiedName() + "." + simpleName;
+		if(!generated.add(name)) {
+			return;
+		}
+		List<ExecutableElement> inputs = new ArrayList<ExecutableElement>();
+		List<ExecutableElement> outputs = new ArrayList<ExecutableElement>();
+		for(Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+			if(member.getKind() != ElementKind.METHOD || !member.getModifiers().contains(Modifier.PUBLIC)
+					|| member.getModifiers().contains(Modifier.STATIC)) {
+				continue;
+			}
+			ExecutableElement method = (ExecutableElement) member;
+			if(isAnnotated(method, INPUT_PORT) && method.getParameters().size() == 1) {
+				inputs.add(method);
+			}
+			if(isAnnotated(method, OUTPUT_PORT) && method.getParameters().isEmpty()
+					&& method.getReturnType().getKind() != TypeKind.VOID) {
+				outputs.add(method);
+			}
+		}
+		String target = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+		StringBuilder src = new StringBuilder();
+		if(!pkg.isUnnamed()) {
+			src.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+		}
+		src.append("/**\n * The ports of {@link ").append(target).append("}, generated by ")
+				.append(getClass().getName()).append(".\n */\n");
+		src.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+		src.append("public final class ").append(simpleName)
+				.append(" implements de.cau.dataprocessing.reflect.PortTable {\n");
+		src.append("\n\tpublic String getSignature() {\n\t\treturn \"").append(signature(inputs, outputs))
+				.append("\";\n\t}\n");
+		methods(src, "getInputPorts", target, inputs);
+		methods(src, "getOutputPorts", target, outputs);
+		src.append("\n\tpublic de.cau.dataprocessing.reflect.InputInvoker bindInputPort(int index, Object instance) {\n");
+		src.append("\t\tfinal ").append(target).append(" target = (").append(target).append(") instance;\n");
+		src.append("\t\tswitch(index) {\n");
+		for(int i = 0; i < inputs.size(); i++) {
+			src.append("\t\tcase ").append(i).append(":\n\t\t\treturn ");
+			input(src, inputs.get(i));
+		}
+		src.append("\t\tdefault:\n\t\t\tthrow new IndexOutOfBoundsException(\"no input port \" + index);\n\t\t}\n\t}\n");
+		src.append("\n\tpublic de.cau.dataprocessing.reflect.OutputInvoker bindOutputPort(int index, Object instance) {\n");
+		src.append("\t\tfinal ").append(target).append(" target = (").append(target).append(") instance;\n");
+		src.append("\t\tswitch(index) {\n");
+		for(int i = 0; i < outputs.size(); i++) {
+			src.append("\t\tcase ").append(i).append(":\n\t\t\treturn ");
+			output(src, outputs.get(i));
+		}
+		src.append("\t\tdefault:\n\t\t\tthrow new IndexOutOfBoundsException(\"no output port \" + index);\n\t\t}\n\t}\n");
+		src.append("}\n");
+		Writer writer = processingEnv.getFiler().createSourceFile(name, type).openWriter();
+		try {
+			writer.write(src.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return the signature of the ports as described by {@link de.cau.dataprocessing.reflect.ClassPorts#signatureOf(Class)}
+	 */
+	private String signature(List<ExecutableElement> inputs, List<ExecutableElement> outputs) {
+		List<String> ports = new ArrayList<String>();
+		for(ExecutableElement port : inputs) {
+			ports.add("in " + port.getSimpleName() + "(" + erasure(port.getParameters().get(0).asType()) + ")");
+		}
+		for(ExecutableElement port : outputs) {
+			ports.add("out " + port.getSimpleName() + "():" + erasure(port.getReturnType()));
+		}
+		Collections.sort(ports);
+		StringBuilder signature = new StringBuilder();
+		for(String port : ports) {
+			if(signature.length() > 0) {
+				signature.append(';');
+			}
+			signature.append(port);
+		}
+		return signature.toString();
+	}
+
+	private static boolean isAnnotated(ExecutableElement method, String annotation) {
+		for(AnnotationMirror mirror : method.getAnnotationMirrors()) {
+			if(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void methods(StringBuilder src, String name, String target, List<ExecutableElement> ports) {
+		src.append("\n\tpublic java.lang.reflect.Method[] ").append(name).append("() throws NoSuchMethodException {\n");
+		src.append("\t\treturn new java.lang.reflect.Method[] {");
+		for(int i = 0; i < ports.size(); i++) {
+			ExecutableElement port = ports.get(i);
+			src.append(i > 0 ? ",\n\t\t\t\t" : "\n\t\t\t\t").append(target).append(".class.getMethod(\"")
+					.append(port.getSimpleName()).append('"');
+			if(!port.getParameters().isEmpty()) {
+				src.append(", ").append(erasure(port.getParameters().get(0).asType())).append(".class");
+			}
+			src.append(')');
+		}
+		src.append(" };\n\t}\n");
+	}
+
+	private void input(StringBuilder src, ExecutableElement port) {
+		TypeMirror type = port.getParameters().get(0).asType();
+		String call = "target." + port.getSimpleName() + "(value);\n";
+		switch(type.getKind()) {
+		case LONG:
+			src.append("new de.cau.dataprocessing.reflect.InputInvoker.OfLong() {\n\t\t\t\tpublic void setLong(long value) {\n");
+			break;
+		case INT:
+			src.append("new de.cau.dataprocessing.reflect.InputInvoker.OfInt() {\n\t\t\t\tpublic void setInt(int value) {\n");
+			break;
+		case DOUBLE:
+			src.append("new de.cau.dataprocessing.reflect.InputInvoker.OfDouble() {\n\t\t\t\tpublic void setDouble(double value) {\n");
+			break;
+		default:
+			src.append("new de.cau.dataprocessing.reflect.InputInvoker() {\n\t\t\t\tpublic void set(Object value) {\n");
+			call = "target." + port.getSimpleName() + "((" + boxed(type) + ") value);\n";
+		}
+		src.append("\t\t\t\t\t").append(call).append("\t\t\t\t}\n\t\t\t};\n");
+	}
+
+	private void output(StringBuilder src, ExecutableElement port) {
+		switch(port.getReturnType().getKind()) {
+		case LONG:
+			src.append("new de.cau.dataprocessing.reflect.OutputInvoker.OfLong() {\n\t\t\t\tpublic long getLong() {\n");
+			break;
+		case INT:
+			src.append("new de.cau.dataprocessing.reflect.OutputInvoker.OfInt() {\n\t\t\t\tpublic int getInt() {\n");
+			break;
+		case DOUBLE:
+			src.append("new de.cau.dataprocessing.reflect.OutputInvoker.OfDouble() {\n\t\t\t\tpublic double getDouble() {\n");
+			break;
+		default:
+			src.append("new de.cau.dataprocessing.reflect.OutputInvoker() {\n\t\t\t\tpublic Object get() {\n");
+		}
+		src.append("\t\t\t\t\treturn target.").append(port.getSimpleName()).append("();\n\t\t\t\t}\n\t\t\t};\n");
+	}
+
+	private String erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	/**
+	 * @return the class values of the given type are cast to, the wrapper of a primitive type
+	 */
+	private String boxed(TypeMirror type) {
+		if(type.getKind().isPrimitive()) {
+			return processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind()))
+					.getQualifiedName().toString();
+		}
+		return erasure(type);
+	}
+}
@@ -0,0 +1,315 @@
+package de.cau.dataprocessing.reflect;
+
+import java.io.Flushable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.annotations.Parallel;
+
+/**
+ * The ports of a class, i.e. its public methods annotated with {@link InputPort} or {@link OutputPort}, along
+ * with the factories of their invokers. The ports of a class are looked up once and cached for all of its instances.
+ * If a {@link PortTable} has been generated for the class, its ports and invokers are used, otherwise the ports are
+ * found by scanning the methods and the invokers are created by {@link PortInvokers}. A table is trusted without
+ * scanning the class, it is only recognized as stale if it lists a method the class does not have anymore or
+ * which is no port anymore, and ignored then. A table lacking ports added since it has been generated is not
+ * recognized, {@link #signatureOf(Class)} tells such tables apart for tests and tools.
+ */
+public final class ClassPorts {
+
+	private static final ClassValue<ClassPorts> CACHE = new ClassValue<ClassPorts>() {
+
+		@Override
+		protected ClassPorts computeValue(Class<?> type) {
+			return new ClassPorts(type);
+		}
+	};
+
+	private final List<Method> inputPorts;
+
+	private final List<Method> outputPorts;
+
+	private final List<InvokerFactory<InputInvoker>> inputFactories;
+
+	private final List<InvokerFactory<OutputInvoker>> outputFactories;
+
+	private final Parallel parallel;
+
+	private final Method keyPort;
+
+	private final int cacheSize;
+
+	// null unless generated
+	private final PortTable table;
+
+	private ClassPorts(Class<?> clazz) {
+		PortTable table = tableOf(clazz);
+		List<Method> inputs = null;
+		List<Method> outputs = null;
+		if(table != null) {
+			try {
+				inputs = Arrays.asList(table.getInputPorts());
+				outputs = Arrays.asList(table.getOutputPorts());
+				// the annotations of the ports are read anyway
+				if(!isAnnotated(inputs, InputPort.class) || !isAnnotated(outputs, OutputPort.class)) {
+					table = null;
+				}
+			} catch (NoSuchMethodException e) {
+				table = null;
+			}
+		}
+		if(table == null) {
+			inputs = new ArrayList<Method>();
+			outputs = new ArrayList<Method>();
+			for(Method m : clazz.getMethods()) {
+				if(m.isAnnotationPresent(InputPort.class)) {
+					inputs.add(m);
+				}
+				if(m.isAnnotationPresent(OutputPort.class)) {
+					outputs.add(m);
+				}
+			}
+		}
+		this.table = table;
+		List<InvokerFactory<InputInvoker>> inputFactories = new ArrayList<InvokerFactory<InputInvoker>>();
+		List<InvokerFactory<OutputInvoker>> outputFactories = new ArrayList<InvokerFactory<OutputInvoker>>();
+		Method key = null;
+		for(int i = 0; i < inputs.size(); i++) {
+			Method m = inputs.get(i);
+			InputPort in = m.getAnnotation(InputPort.class);
+			if(in.capacity() < 0) {
+				throw new IllegalArgumentException("negative capacity of input port " + m);
+			}
+			if(in.sampling() < 1) {
+				throw new IllegalArgumentException("illegal sampling of input port " + m);
+			}
+			if(in.batchSize() < 1 || in.maxLatency() < 0) {
+				throw new IllegalArgumentException("illegal batch of input port " + m);
+			}
+			if(in.batchSize() > 1 && !isObjectArray(m.getParameterTypes())) {
+				throw new IllegalArgumentException("batch input port " + m + " has to take an array of objects");
+			}
+			if(in.key()) {
+				if(key != null) {
+					throw new IllegalArgumentException(clazz + " has more than one key port");
+				}
+				key = m;
+			}
+			inputFactories.add(table != null ? inputFactory(table, i) : PortInvokers.inputFactory(m));
+		}
+		int cacheSize = 0;
+		int cacheable = 0;
+		for(int i = 0; i < outputs.size(); i++) {
+			Method m = outputs.get(i);
+			OutputPort out = m.getAnnotation(OutputPort.class);
+			if(out.batch() && !isObjectArray(m.getReturnType())) {
+				throw new IllegalArgumentException("batch output port " + m + " has to return an array of objects");
+			}
+			if(out.cache() < 0) {
+				throw new IllegalArgumentException("negative cache of output port " + m);
+			}
+			if(out.cache() > 0) {
+				cacheable++;
+				cacheSize = Math.max(cacheSize, out.cache());
+			}
+			outputFactories.add(table != null ? outputFactory(table, i) : PortInvokers.outputFactory(m));
+		}
+		if(cacheable > 0 && cacheable < outputs.size()) {
+			throw new IllegalArgumentException(clazz + " has both cacheable and other output ports");
+		}
+		if(cacheable > 0 && (inputs.isEmpty() || Flushable.class.isAssignableFrom(clazz))) {
+			throw new IllegalArgumentException(clazz + " has cacheable output ports, but no input ports or is flushed");
+		}
+		if(cacheable > 0) {
+			for(Method m : inputs) {
+				if(!isImmutable(m.getParameterTypes()[0])) {
+					throw new IllegalArgumentException(clazz + " has cacheable output ports, but input port " + m
+							+ " takes mutable values");
+				}
+			}
+		}
+		this.cacheSize = cacheSize;
+		this.parallel = clazz.getAnnotation(Parallel.class);
+		if(parallel != null) {
+			if(parallel.replicas() < 0) {
+				throw new IllegalArgumentException("illegal number of replicas of " + clazz);
+			}
+			if(parallel.partitioning() == Parallel.Partitioning.HASH && key == null) {
+				throw new IllegalArgumentException(clazz + " is partitioned by hash, but has no key port");
+			}
+		}
+		this.keyPort = key;
+		this.inputPorts = Collections.unmodifiableList(inputs);
+		this.outputPorts = Collections.unmodifiableList(outputs);
+		this.inputFactories = inputFactories;
+		this.outputFactories = outputFactories;
+	}
+
+	/**
+	 * Describes the ports of a class by scanning all of its methods, so it is not used when looking the ports of a
+	 * class up, but by tests and tools comparing a class with its {@link PortTable}: for each public instance method annotated with {@link InputPort} and one
+	 * parameter <code>in name(type)</code>, for each one annotated with {@link OutputPort}, no parameters and a result
+	 * <code>out name():type</code>, with the canonical names of the erased types, sorted and separated by
+	 * <code>;</code>. Bridge methods are left out.
+	 *
+	 * @return the signature of the ports, as in {@link PortTable#getSignature()}
+	 */
+	public static String signatureOf(Class<?> clazz) {
+		List<String> ports = new ArrayList<String>();
+		for(Method m : clazz.getMethods()) {
+			if(Modifier.isStatic(m.getModifiers()) || m.isBridge()) {
+				continue;
+			}
+			if(m.isAnnotationPresent(InputPort.class) && m.getParameterTypes().length == 1) {
+				ports.add("in " + m.getName() + "(" + nameOf(m.getParameterTypes()[0]) + ")");
+			}
+			if(m.isAnnotationPresent(OutputPort.class) && m.getParameterTypes().length == 0 && m.getReturnType() != void.class) {
+				ports.add("out " + m.getName() + "():" + nameOf(m.getReturnType()));
+			}
+		}
+		Collections.sort(ports);
+		StringBuilder signature = new StringBuilder();
+		for(String port : ports) {
+			if(signature.length() > 0) {
+				signature.append(';');
+			}
+			signature.append(port);
+		}
+		return signature.toString();
+	}
+
+	private static String nameOf(Class<?> type) {
+		String name = type.getCanonicalName();
+		return name != null ? name : type.getName();
+	}
+
+	/**
+	 * @return the table generated for the given class, null if there is none
+	 */
+	private static PortTable tableOf(Class<?> clazz) {
+		try {
+			Class<?> table = Class.forName(clazz.getName() + PortTable.SUFFIX, true, clazz.getClassLoader());
+			return table.asSubclass(PortTable.class).getConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("cannot create the port table of " + clazz, e);
+		}
+	}
+
+	private static boolean isAnnotated(List<Method> methods, Class<? extends Annotation> annotation) {
+		for(Method m : methods) {
+			if(!m.isAnnotationPresent(annotation)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static InvokerFactory<InputInvoker> inputFactory(final PortTable table, final int index) {
+		return new InvokerFactory<InputInvoker>() {
+
+			public InputInvoker bind(Object instance) {
+				return table.bindInputPort(index, instance);
+			}
+		};
+	}
+
+	private static InvokerFactory<OutputInvoker> outputFactory(final PortTable table, final int index) {
+		return new InvokerFactory<OutputInvoker>() {
+
+			public OutputInvoker bind(Object instance) {
+				return table.bindOutputPort(index, instance);
+			}
+		};
+	}
+
+	/**
+	 * @return true if values of the given type, or the elements of arrays of it, can not be changed, so they can
+	 * be kept as the keys of memoized results
+	 */
+	private static boolean isImmutable(Class<?> type) {
+		if(type.isArray()) {
+			return isImmutable(type.getComponentType());
+		}
+		return type.isPrimitive() || type.isEnum() || type == String.class || type == Long.class
+				|| type == Integer.class || type == Short.class || type == Byte.class || type == Character.class
+				|| type == Boolean.class || type == Double.class || type == Float.class;
+	}
+
+	private static boolean isObjectArray(Class<?>... types) {
+		return types.length == 1 && types[0].isArray() && !types[0].getComponentType().isPrimitive();
+	}
+
+	/**
+	 * @param clazz
+	 * @return the ports of the given class
+	 * @throws IllegalArgumentException if a batch port does not take or return an array of objects, the class
+	 * is partitioned by hash without exactly one key port, only some of its output ports are cacheable or an
+	 * input port of a class with cacheable output ports takes mutable values
+	 */
+	public static ClassPorts of(Class<?> clazz) {
+		return CACHE.get(clazz);
+	}
+
+	public List<Method> getInputPorts() {
+		return inputPorts;
+	}
+
+	public List<Method> getOutputPorts() {
+		return outputPorts;
+	}
+
+	/**
+	 * @return true if the ports are the ones of a generated {@link PortTable}
+	 */
+	public boolean isGenerated() {
+		return table != null;
+	}
+
+	/**
+	 * @return the replication of the class, null if it must not be replicated
+	 */
+	public Parallel getParallel() {
+		return parallel;
+	}
+
+	/**
+	 * @return the input port declared as {@link InputPort#key()}, null if none
+	 */
+	public Method getKeyPort() {
+		return keyPort;
+	}
+
+	/**
+	 * @return the number of results memoized, 0 unless the output ports are {@link OutputPort#cache() cacheable}
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * @param index of the port in {@link #getInputPorts()}
+	 * @param instance
+	 * @return an invoker for the input port bound to the given instance
+	 */
+	public InputInvoker bindInputPort(int index, Object instance) {
+		return inputFactories.get(index).bind(instance);
+	}
+
+	/**
+	 * @param index of the port in {@link #getOutputPorts()}
+	 * @param instance
+	 * @return an invoker for the output port bound to the given instance
+	 */
+	public OutputInvoker bindOutputPort(int index, Object instance) {
+		return outputFactories.get(index).bind(instance);
+	}
+}
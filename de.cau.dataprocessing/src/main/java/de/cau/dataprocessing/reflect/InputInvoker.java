@@ -0,0 +1,47 @@
+package de.cau.dataprocessing.reflect;
+
+/**
+ * Sets a value on an input port of a certain instance.
+ *
+ * @see PortInvokers
+ */
+public interface InputInvoker {
+
+	void set(Object value);
+
+	/**
+	 * Sets a <code>long</code> port without boxing. Boxed values have to be numbers.
+	 */
+	interface OfLong extends InputInvoker {
+
+		void setLong(long value);
+
+		default void set(Object value) {
+			setLong(((Number) value).longValue());
+		}
+	}
+
+	/**
+	 * Sets an <code>int</code> port without boxing. Boxed values have to be numbers.
+	 */
+	interface OfInt extends InputInvoker {
+
+		void setInt(int value);
+
+		default void set(Object value) {
+			setInt(((Number) value).intValue());
+		}
+	}
+
+	/**
+	 * Sets a <code>double</code> port without boxing. Boxed values have to be numbers.
+	 */
+	interface OfDouble extends InputInvoker {
+
+		void setDouble(double value);
+
+		default void set(Object value) {
+			setDouble(((Number) value).doubleValue());
+		}
+	}
+}
@@ -21,7 +21,7 @@ public class InstanceMethod<T> {
 	public boolean equals(Object obj) {
 		return obj instanceof InstanceMethod<?>
 			&& instance == ((InstanceMethod<?>)obj).instance
-			&& method == ((InstanceMethod<?>)obj).method;
+			&& method.equals(((InstanceMethod<?>)obj).method);
 	}
 
 	public Method getMethod() {
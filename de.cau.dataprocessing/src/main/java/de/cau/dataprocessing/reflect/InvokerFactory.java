@@ -0,0 +1,16 @@
+package de.cau.dataprocessing.reflect;
+
+/**
+ * Creates invokers of a certain port method bound to an instance.
+ *
+ * @param <T> {@link InputInvoker} or {@link OutputInvoker}
+ * @see PortInvokers
+ */
+public interface InvokerFactory<T> {
+
+	/**
+	 * @param instance of the class declaring the port method
+	 * @return an invoker calling the port method on the given instance
+	 */
+	T bind(Object instance);
+}
@@ -0,0 +1,47 @@
+package de.cau.dataprocessing.reflect;
+
+/**
+ * Reads the value of an output port of a certain instance.
+ *
+ * @see PortInvokers
+ */
+public interface OutputInvoker {
+
+	Object get();
+
+	/**
+	 * Reads a <code>long</code> port without boxing.
+	 */
+	interface OfLong extends OutputInvoker {
+
+		long getLong();
+
+		default Object get() {
+			return Long.valueOf(getLong());
+		}
+	}
+
+	/**
+	 * Reads an <code>int</code> port without boxing.
+	 */
+	interface OfInt extends OutputInvoker {
+
+		int getInt();
+
+		default Object get() {
+			return Integer.valueOf(getInt());
+		}
+	}
+
+	/**
+	 * Reads a <code>double</code> port without boxing.
+	 */
+	interface OfDouble extends OutputInvoker {
+
+		double getDouble();
+
+		default Object get() {
+			return Double.valueOf(getDouble());
+		}
+	}
+}
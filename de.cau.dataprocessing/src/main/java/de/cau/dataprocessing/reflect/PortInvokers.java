@@ -0,0 +1,199 @@
+package de.cau.dataprocessing.reflect;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Creates invokers bound to an instance for port methods, which do not pay for
+ * {@link Method#invoke(Object, Object...)} on every call. The expensive part is done once per method by an
+ * {@link InvokerFactory}, binding its invokers to instances is cheap.<p>
+ *
+ * If the declaring class of the method is public and visible to this class' loader the invoker is an
+ * implementation of the functional interface generated by the {@link LambdaMetafactory}, which calls the
+ * port method directly and can be inlined by the JIT. Ports of type <code>long</code>, <code>int</code> and
+ * <code>double</code> get invokers specialized for the primitive type, e.g. {@link OutputInvoker.OfLong}, which
+ * do not box the values. Otherwise it delegates to a bound {@link MethodHandle}.
+ */
+public final class PortInvokers {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private PortInvokers() {
+	}
+
+	/**
+	 * @param instance
+	 * @param getter a method without parameters returning the port's value
+	 * @return an invoker calling the getter on the given instance
+	 * @throws IllegalArgumentException if the method is no getter
+	 */
+	public static OutputInvoker forOutputPort(Object instance, Method getter) {
+		return outputFactory(getter).bind(instance);
+	}
+
+	/**
+	 * @param instance
+	 * @param setter a method taking exactly one parameter
+	 * @return an invoker calling the setter on the given instance
+	 * @throws IllegalArgumentException if the method is no setter
+	 */
+	public static InputInvoker forInputPort(Object instance, Method setter) {
+		return inputFactory(setter).bind(instance);
+	}
+
+	/**
+	 * Prepares the creation of invokers for a getter, which is expensive compared to binding them to an instance.
+	 *
+	 * @param getter a method without parameters returning the port's value
+	 * @return the factory of invokers for the getter
+	 * @throws IllegalArgumentException if the method is no getter
+	 */
+	public static InvokerFactory<OutputInvoker> outputFactory(Method getter) {
+		if(getter.getParameterTypes().length != 0 || getter.getReturnType() == void.class) {
+			throw new IllegalArgumentException(getter + " is not a getter");
+		}
+		try {
+			if(isGeneratable(getter)) {
+				Class<?> type = getter.getReturnType();
+				if(type == long.class) {
+					return generate(getter, OutputInvoker.OfLong.class, "getLong", MethodType.methodType(long.class),
+							MethodType.methodType(long.class));
+				} else if(type == int.class) {
+					return generate(getter, OutputInvoker.OfInt.class, "getInt", MethodType.methodType(int.class),
+							MethodType.methodType(int.class));
+				} else if(type == double.class) {
+					return generate(getter, OutputInvoker.OfDouble.class, "getDouble", MethodType.methodType(double.class),
+							MethodType.methodType(double.class));
+				}
+				return generate(getter, OutputInvoker.class, "get", MethodType.methodType(Object.class),
+						MethodType.methodType(wrap(type)));
+			}
+			getter.setAccessible(true);
+			final MethodHandle unbound = LOOKUP.unreflect(getter)
+					.asType(MethodType.methodType(Object.class, Object.class));
+			return new InvokerFactory<OutputInvoker>() {
+
+				public OutputInvoker bind(Object instance) {
+					final MethodHandle handle = unbound.bindTo(instance);
+					return new OutputInvoker() {
+
+						public Object get() {
+							try {
+								return (Object) handle.invokeExact();
+							} catch (Throwable t) {
+								throw Throwables.propagate(t);
+							}
+						}
+					};
+				}
+			};
+		} catch (Throwable t) {
+			throw new IllegalStateException("cannot create invoker for " + getter, t);
+		}
+	}
+
+	/**
+	 * Prepares the creation of invokers for a setter, which is expensive compared to binding them to an instance.
+	 *
+	 * @param setter a method taking exactly one parameter
+	 * @return the factory of invokers for the setter
+	 * @throws IllegalArgumentException if the method is no setter
+	 */
+	public static InvokerFactory<InputInvoker> inputFactory(Method setter) {
+		if(setter.getParameterTypes().length != 1) {
+			throw new IllegalArgumentException(setter + " is not a setter");
+		}
+		try {
+			if(isGeneratable(setter)) {
+				Class<?> type = setter.getParameterTypes()[0];
+				if(type == long.class) {
+					return generate(setter, InputInvoker.OfLong.class, "setLong", MethodType.methodType(void.class, long.class),
+							MethodType.methodType(void.class, long.class));
+				} else if(type == int.class) {
+					return generate(setter, InputInvoker.OfInt.class, "setInt", MethodType.methodType(void.class, int.class),
+							MethodType.methodType(void.class, int.class));
+				} else if(type == double.class) {
+					return generate(setter, InputInvoker.OfDouble.class, "setDouble",
+							MethodType.methodType(void.class, double.class), MethodType.methodType(void.class, double.class));
+				}
+				return generate(setter, InputInvoker.class, "set", MethodType.methodType(void.class, Object.class),
+						MethodType.methodType(void.class, wrap(type)));
+			}
+			setter.setAccessible(true);
+			final MethodHandle unbound = LOOKUP.unreflect(setter)
+					.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			return new InvokerFactory<InputInvoker>() {
+
+				public InputInvoker bind(Object instance) {
+					final MethodHandle handle = unbound.bindTo(instance);
+					return new InputInvoker() {
+
+						public void set(Object value) {
+							try {
+								handle.invokeExact(value);
+							} catch (Throwable t) {
+								throw Throwables.propagate(t);
+							}
+						}
+					};
+				}
+			};
+		} catch (Throwable t) {
+			throw new IllegalStateException("cannot create invoker for " + setter, t);
+		}
+	}
+
+	/**
+	 * Generates an implementation of the given functional interface calling the method.
+	 *
+	 * @param iface the interface, a subtype of the invoker type <code>T</code>
+	 * @param name of the single abstract method of the interface
+	 * @param samType type of the abstract method
+	 * @param instantiatedType type of the abstract method as implemented for the port method
+	 */
+	private static <T> InvokerFactory<T> generate(Method m, final Class<? extends T> iface, String name,
+			MethodType samType, MethodType instantiatedType) throws Throwable {
+		MethodHandle impl = LOOKUP.unreflect(m);
+		final MethodHandle factory = LambdaMetafactory.metafactory(LOOKUP, name,
+				MethodType.methodType(iface, m.getDeclaringClass()), samType, impl, instantiatedType).getTarget()
+				.asType(MethodType.methodType(Object.class, Object.class));
+		return new InvokerFactory<T>() {
+
+			public T bind(Object instance) {
+				try {
+					return iface.cast((Object) factory.invokeExact(instance));
+				} catch (Throwable t) {
+					throw Throwables.propagate(t);
+				}
+			}
+		};
+	}
+
+	private static boolean isGeneratable(Method m) {
+		if(!Modifier.isPublic(m.getModifiers()) || Modifier.isStatic(m.getModifiers())) {
+			return false;
+		}
+		Class<?> clazz = m.getDeclaringClass();
+		for(Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+			if(!Modifier.isPublic(c.getModifiers())) {
+				return false;
+			}
+		}
+		// the generated class is defined in our loader and has to resolve the port's class from there
+		try {
+			return Class.forName(clazz.getName(), false, PortInvokers.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		return MethodType.methodType(type).wrap().returnType();
+	}
+}
@@ -0,0 +1,42 @@
+package de.cau.dataprocessing.reflect;
+
+import java.lang.reflect.Method;
+
+/**
+ * The ports of a mangler class as generated at compile time by
+ * {@link de.cau.dataprocessing.processor.PortTableProcessor}, along with invokers calling the port methods
+ * directly. The table of a class is named after its binary name followed by {@link #SUFFIX} and is used by
+ * {@link ClassPorts} instead of scanning the class' methods and generating invokers at runtime.
+ */
+public interface PortTable {
+
+	String SUFFIX = "$$PortTable";
+
+	/**
+	 * @return the ports of the class when the table has been generated, see {@link ClassPorts#signatureOf(Class)},
+	 *         so tools can tell whether ports have been added or changed since
+	 */
+	String getSignature();
+
+	/**
+	 * @throws NoSuchMethodException if the table is stale, i.e. the class changed since it has been generated
+	 */
+	Method[] getInputPorts() throws NoSuchMethodException;
+
+	/**
+	 * @throws NoSuchMethodException if the table is stale
+	 */
+	Method[] getOutputPorts() throws NoSuchMethodException;
+
+	/**
+	 * @param index of the port in {@link #getInputPorts()}
+	 * @param instance of the class
+	 */
+	InputInvoker bindInputPort(int index, Object instance);
+
+	/**
+	 * @param index of the port in {@link #getOutputPorts()}
+	 * @param instance of the class
+	 */
+	OutputInvoker bindOutputPort(int index, Object instance);
+}
@@ -0,0 +1,130 @@
+package de.cau.dataprocessing.remote;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts the connections of the {@link RemoteSink}s sending values into a partition and hands each one to the
+ * {@link RemoteSource} of its bridge. The handshake of each connection runs on a thread of its own and fails
+ * if the sink does not complete it within {@link #HANDSHAKE_TIMEOUT}, so a silent client does not stall the
+ * other bridges.<p>
+ *
+ * The protocol: the sink opens the connection with {@link #MAGIC}, {@link #VERSION} and the id of the bridge
+ * (modified UTF-8), the server answers with a boolean telling whether it accepted the bridge. Then the sink
+ * sends batches, each one the number of values, the length of the values in bytes (at most
+ * {@link #MAX_BATCH_BYTES}) and the values, and ends with a batch of 0 values, or with {@link #ABORTED} instead
+ * of the number of values if its partition failed or has been stopped. All numbers are big endian, the values
+ * are written by {@link ValueCodec}.
+ */
+public class BridgeServer implements Closeable {
+
+	static final int MAGIC = 0x44504252;
+
+	static final int VERSION = 3;
+
+	// sent instead of the number of values of a batch
+	static final int ABORTED = -1;
+
+	static final int MAX_BATCH_BYTES = 1 << 26;
+
+	// in milliseconds
+	static final int HANDSHAKE_TIMEOUT = 10000;
+
+	private final ServerSocket server;
+
+	private final Map<String, RemoteSource> sources = new ConcurrentHashMap<String, RemoteSource>();
+
+	/**
+	 * Starts listening at the given address.
+	 *
+	 * @param address
+	 * @throws IOException if the address can not be bound
+	 */
+	public BridgeServer(InetSocketAddress address) throws IOException {
+		server = new ServerSocket();
+		server.setReuseAddress(true);
+		server.bind(address);
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				accept();
+			}
+		}, "bridge-server-" + address.getPort());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Registers the source receiving the values of its bridge.
+	 */
+	public void register(RemoteSource source) {
+		sources.put(source.getBridge(), source);
+	}
+
+	public InetSocketAddress getAddress() {
+		return (InetSocketAddress) server.getLocalSocketAddress();
+	}
+
+	private void accept() {
+		while(!server.isClosed()) {
+			final Socket socket;
+			try {
+				socket = server.accept();
+			} catch (IOException e) {
+				// closed
+				return;
+			}
+			Thread handshake = new Thread(new Runnable() {
+				public void run() {
+					try {
+						handshake(socket);
+					} catch (IOException e) {
+						close(socket);
+					}
+				}
+			}, "bridge-handshake-" + socket.getRemoteSocketAddress());
+			handshake.setDaemon(true);
+			handshake.start();
+		}
+	}
+
+	private void handshake(Socket socket) throws IOException {
+		socket.setTcpNoDelay(true);
+		socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+		if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+			close(socket);
+			return;
+		}
+		RemoteSource source = sources.get(in.readUTF());
+		boolean accepted = source != null && source.accept(socket, in);
+		out.writeBoolean(accepted);
+		out.flush();
+		if(!accepted) {
+			close(socket);
+		}
+	}
+
+	private static void close(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// ignored
+		}
+	}
+
+	/**
+	 * Stops accepting connections, the connections of the bridges stay open until their end.
+	 */
+	public void close() throws IOException {
+		server.close();
+	}
+}
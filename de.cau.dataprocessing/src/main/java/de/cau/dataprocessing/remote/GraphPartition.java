@@ -0,0 +1,142 @@
+package de.cau.dataprocessing.remote;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+
+/**
+ * The part of a {@link Graph} one JVM executes. Every JVM builds the whole graph in the same order and executes
+ * the partition {@link Placement} assigns to it. Each connection between manglers of different partitions is
+ * replaced by a bridge: a {@link RemoteSink} connected to the output port and a {@link RemoteSource} connected
+ * to the input port. A bridge is identified by the positions of both manglers in the graph and the names of
+ * their ports.<p>
+ *
+ * The partition starts listening for its bridges when it is created, so the partitions can be executed in
+ * any order. The graph of the partition is executed as any other one, e.g. by a
+ * {@link de.cau.dataprocessing.engine.GraphExecutor}.
+ */
+public class GraphPartition implements Closeable {
+
+	private final String name;
+
+	private final Graph graph = new Graph();
+
+	private final List<RemoteSink> sinks = new ArrayList<RemoteSink>();
+
+	private final List<RemoteSource> sources = new ArrayList<RemoteSource>();
+
+	// null unless values are sent into the partition
+	private BridgeServer server;
+
+	private GraphPartition(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Creates the given partition of a graph.
+	 *
+	 * @param graph
+	 * @param placement
+	 * @param partition
+	 * @throws IllegalStateException if the address of a partition connected to the given one has not been set
+	 * @throws IOException if the partition receives values and its address can not be bound
+	 */
+	public static GraphPartition of(Graph graph, Placement placement, String partition) throws IOException {
+		GraphPartition result = new GraphPartition(partition);
+		Map<IDataMangler, Integer> positions = new IdentityHashMap<IDataMangler, Integer>();
+		for(IDataMangler idm : graph.getAllIDMs()) {
+			positions.put(idm, positions.size());
+			if(partition.equals(placement.getPartition(idm))) {
+				result.graph.addMangler(idm);
+			}
+		}
+		try {
+			for(IDataMangler idm : graph.getAllIDMs()) {
+				String origin = placement.getPartition(idm);
+				for(InstanceMethod<IDataMangler> out : graph.getOutPortsOf(idm)) {
+					for(InstanceMethod<IDataMangler> in : graph.getConnectionsFromOutputPort(out)) {
+						String target = placement.getPartition(in.getInstance());
+						if(origin.equals(partition) && target.equals(partition)) {
+							result.graph.connect(out, in);
+						} else if(origin.equals(partition)) {
+							result.send(out, bridge(positions, out, in), placement, target);
+						} else if(target.equals(partition)) {
+							result.receive(in, bridge(positions, out, in), placement);
+						}
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			result.close();
+			throw e;
+		}
+		return result;
+	}
+
+	private static String bridge(Map<IDataMangler, Integer> positions, InstanceMethod<IDataMangler> out,
+			InstanceMethod<IDataMangler> in) {
+		return positions.get(out.getInstance()) + "." + out.getMethod().getName() + "->"
+				+ positions.get(in.getInstance()) + "." + in.getMethod().getName();
+	}
+
+	private void send(InstanceMethod<IDataMangler> out, String bridge, Placement placement, String target) {
+		RemoteSink sink = new RemoteSink(bridge, placement.getAddress(target), placement.getBatchSize(),
+				placement.getMaxLatency());
+		graph.addMangler(sink);
+		graph.connect(out, graph.getInPortsOf(sink).iterator().next());
+		sinks.add(sink);
+	}
+
+	private void receive(InstanceMethod<IDataMangler> in, String bridge, Placement placement) throws IOException {
+		if(server == null) {
+			server = new BridgeServer(placement.getAddress(name));
+		}
+		RemoteSource source = new RemoteSource(bridge, placement.getRecordClasses(), placement.getReadTimeout());
+		server.register(source);
+		graph.addMangler(source);
+		graph.connect(graph.getOutPortsOf(source).iterator().next(), in);
+		sources.add(source);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the manglers of the partition along with the ends of its bridges
+	 */
+	public Graph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the bridges sending values to other partitions
+	 */
+	public List<RemoteSink> getRemoteSinks() {
+		return Collections.unmodifiableList(sinks);
+	}
+
+	/**
+	 * @return the bridges receiving values from other partitions
+	 */
+	public List<RemoteSource> getRemoteSources() {
+		return Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * Stops listening for bridges, which should be done once the partition has been executed.
+	 */
+	public void close() throws IOException {
+		if(server != null) {
+			server.close();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package de.cau.dataprocessing.remote;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.data.Record;
+import de.cau.dataprocessing.filters.IDataMangler;
+
+/**
+ * Assigns the {@link IDataMangler}s of a graph to partitions, each of which is executed by a JVM of its own, and
+ * tells the addresses the partitions receive values at. A mangler is placed either by instance or by its
+ * {@link IDataMangler#getName() name}, which identifies it in every JVM building the graph. Manglers not placed
+ * explicitly belong to the default partition. Records passed over the bridges have to be of the
+ * {@link #record(Class) accepted} classes.
+ *
+ * @see GraphPartition
+ */
+public class Placement {
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final String defaultPartition;
+
+	private final Map<IDataMangler, String> instances = new IdentityHashMap<IDataMangler, String>();
+
+	private final Map<String, String> names = new HashMap<String, String>();
+
+	private final Map<String, InetSocketAddress> addresses = new HashMap<String, InetSocketAddress>();
+
+	private final Set<Class<? extends Record>> records = new LinkedHashSet<Class<? extends Record>>();
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private long maxLatency;
+
+	private int readTimeout = RemoteSource.DEFAULT_READ_TIMEOUT;
+
+	/**
+	 * @param defaultPartition the partition of all manglers not placed explicitly
+	 */
+	public Placement(String defaultPartition) {
+		if(defaultPartition == null) {
+			throw new IllegalArgumentException("default partition must not be null");
+		}
+		this.defaultPartition = defaultPartition;
+		records.add(MonitoringRecord.class);
+	}
+
+	public Placement place(IDataMangler idm, String partition) {
+		instances.put(idm, partition);
+		return this;
+	}
+
+	/**
+	 * Places all manglers with the given name.
+	 */
+	public Placement place(String name, String partition) {
+		names.put(name, partition);
+		return this;
+	}
+
+	/**
+	 * Sets the address the bridges into the given partition connect to.
+	 */
+	public Placement address(String partition, InetSocketAddress address) {
+		addresses.put(partition, address);
+		return this;
+	}
+
+	/**
+	 * Sets how values are sent over the bridges: a batch is sent once it is full, once its first value has been
+	 * waiting for the given latency, and at the end of the input.
+	 *
+	 * @param size number of values per batch
+	 * @param maxLatency 0 if unbounded
+	 * @param unit of the latency
+	 */
+	public Placement batch(int size, long maxLatency, TimeUnit unit) {
+		if(size < 1 || maxLatency < 0) {
+			throw new IllegalArgumentException("illegal batch: size " + size + ", latency " + maxLatency);
+		}
+		this.batchSize = size;
+		this.maxLatency = unit.toNanos(maxLatency);
+		return this;
+	}
+
+	/**
+	 * Sets how long the sources of the bridges wait for the next batch once connected, see {@link RemoteSource}.
+	 *
+	 * @param timeout 0 if unbounded
+	 * @param unit of the timeout
+	 */
+	public Placement readTimeout(long timeout, TimeUnit unit) {
+		if(timeout < 0 || unit.toMillis(timeout) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("illegal read timeout: " + timeout);
+		}
+		this.readTimeout = (int) unit.toMillis(timeout);
+		return this;
+	}
+
+	/**
+	 * Accepts records of the given class on the bridges, {@link MonitoringRecord}s are always accepted.
+	 */
+	public Placement record(Class<? extends Record> clazz) {
+		records.add(clazz);
+		return this;
+	}
+
+	public String getPartition(IDataMangler idm) {
+		String partition = instances.get(idm);
+		if(partition == null) {
+			partition = names.get(idm.getName());
+		}
+		return partition != null ? partition : defaultPartition;
+	}
+
+	/**
+	 * @throws IllegalStateException if no address has been set for the partition
+	 */
+	public InetSocketAddress getAddress(String partition) {
+		InetSocketAddress address = addresses.get(partition);
+		if(address == null) {
+			throw new IllegalStateException("no address of partition " + partition);
+		}
+		return address;
+	}
+
+	/**
+	 * @return the record classes accepted on the bridges
+	 */
+	public Set<Class<? extends Record>> getRecordClasses() {
+		return Collections.unmodifiableSet(records);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the maximum latency of a batch in nanoseconds, 0 if unbounded
+	 */
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * @return the read timeout of the sources in milliseconds, 0 if unbounded
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+}
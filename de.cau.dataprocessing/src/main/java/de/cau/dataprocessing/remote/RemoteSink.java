@@ -0,0 +1,291 @@
+package de.cau.dataprocessing.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import de.cau.dataprocessing.filters.Abortable;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+/**
+ * The end of a bridge within the partition of the output port. It sends the values set on its input port in
+ * batches to the {@link BridgeServer} of the partition of the input port, which hands them to the
+ * {@link RemoteSource} of the bridge. A batch is sent once it is full or, if the latency is bounded, by a timer
+ * once its first value has been waiting for the latency, even if no further values arrive. The connection is
+ * opened with the first batch and the end of the input is sent once the sink is closed, see {@link BridgeServer}
+ * for the protocol. A batch is sent early if further values would exceed {@link BridgeServer#MAX_BATCH_BYTES}.
+ * Aborting the sink tells the {@link RemoteSource} that the partition failed or has been stopped, connecting
+ * first if no value has been sent yet, and releases the connection and the timer.
+ */
+@Blocking
+public class RemoteSink implements IDataMangler, Closeable, Abortable {
+
+	// time to wait for the server of the remote partition to come up
+	private static final long CONNECT_TIMEOUT = 30000;
+
+	// time to wait for the server when aborting
+	private static final long ABORT_TIMEOUT = 1000;
+
+	private final String bridge;
+
+	private final InetSocketAddress address;
+
+	private final int batchSize;
+
+	private final long maxLatency;
+
+	private final ValueCodec codec = new ValueCodec();
+
+	// guards the batch and the connection, which are used by the worker and the timer
+	private final Object lock = new Object();
+
+	// sends batches waiting for the latency, null until the first value if the latency is bounded
+	private ScheduledExecutorService timer;
+
+	// the failure of the timer sending a batch
+	private IOException failure;
+
+	// number of batches started, tells the timer whether its batch is still pending
+	private long batches;
+
+	private boolean closed;
+
+	// the values of the current batch, grows as needed
+	private ByteBuffer batch = ByteBuffer.allocate(1 << 16);
+
+	private Object value;
+
+	private Socket socket;
+
+	private DataOutputStream out;
+
+	private int count;
+
+	/**
+	 * @param bridge id of the bridge, see {@link GraphPartition}
+	 * @param address of the server of the remote partition
+	 * @param batchSize number of values per batch
+	 * @param maxLatency in nanoseconds, 0 if unbounded
+	 */
+	public RemoteSink(String bridge, InetSocketAddress address, int batchSize, long maxLatency) {
+		this.bridge = bridge;
+		this.address = address;
+		this.batchSize = batchSize;
+		this.maxLatency = maxLatency;
+	}
+
+	public String getName() {
+		return "Remote sink " + bridge;
+	}
+
+	public String getBridge() {
+		return bridge;
+	}
+
+	@InputPort(required = true)
+	public void setValue(Object value) {
+		this.value = value;
+	}
+
+	public void execute() {
+		synchronized(lock) {
+			try {
+				if(failure != null) {
+					throw failure;
+				}
+				if(count == 0) {
+					started();
+				}
+				int position = batch.position();
+				while(true) {
+					try {
+						codec.write(batch, value);
+						break;
+					} catch (BufferOverflowException e) {
+						batch.position(position);
+						if(batch.capacity() < BridgeServer.MAX_BATCH_BYTES) {
+							ByteBuffer grown = ByteBuffer.allocate(Math.min(batch.capacity() * 2, BridgeServer.MAX_BATCH_BYTES));
+							batch.flip();
+							batch = grown.put(batch);
+						} else if(count > 0) {
+							// the value starts the next batch
+							flush();
+							started();
+							position = 0;
+						} else {
+							throw new IllegalArgumentException("value of bridge " + bridge + " exceeds "
+									+ BridgeServer.MAX_BATCH_BYTES + " bytes");
+						}
+					}
+				}
+				count++;
+				if(count == batchSize) {
+					flush();
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot send to bridge " + bridge, e);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the batch just started to be sent once its first value has been waiting for the latency.
+	 */
+	private void started() {
+		final long started = ++batches;
+		if(maxLatency == 0) {
+			return;
+		}
+		if(timer == null) {
+			timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "remote-sink-" + bridge);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		timer.schedule(new Runnable() {
+
+			public void run() {
+				synchronized(lock) {
+					if(!closed && failure == null && batches == started && count > 0) {
+						try {
+							flush();
+						} catch (IOException e) {
+							failure = e;
+						}
+					}
+				}
+			}
+		}, maxLatency, TimeUnit.NANOSECONDS);
+	}
+
+	private void flush() throws IOException {
+		if(out == null) {
+			connect();
+		}
+		if(count > 0) {
+			out.writeInt(count);
+			out.writeInt(batch.position());
+			out.write(batch.array(), 0, batch.position());
+			batch.clear();
+			count = 0;
+		}
+		out.flush();
+	}
+
+	private void connect() throws IOException {
+		connect(CONNECT_TIMEOUT);
+	}
+
+	/**
+	 * @param timeout in milliseconds to wait for the server to come up
+	 */
+	private void connect(long timeout) throws IOException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while(true) {
+			Socket attempt = new Socket();
+			try {
+				attempt.connect(address, (int) Math.max(1, deadline - System.currentTimeMillis()));
+				socket = attempt;
+				break;
+			} catch (IOException e) {
+				attempt.close();
+				if(System.currentTimeMillis() >= deadline) {
+					throw e;
+				}
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while connecting to " + address, ie);
+				}
+			}
+		}
+		socket.setTcpNoDelay(true);
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+		out.writeInt(BridgeServer.MAGIC);
+		out.writeInt(BridgeServer.VERSION);
+		out.writeUTF(bridge);
+		out.flush();
+		// the answer is the only value read
+		socket.setSoTimeout((int) CONNECT_TIMEOUT);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		if(!in.readBoolean()) {
+			socket.close();
+			throw new IllegalStateException("bridge " + bridge + " is unknown to " + address);
+		}
+	}
+
+	/**
+	 * Sends the pending values and the end of the input, connecting first if no value has been sent yet.
+	 */
+	public void close() throws IOException {
+		synchronized(lock) {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			if(timer != null) {
+				timer.shutdown();
+			}
+			if(failure != null) {
+				throw failure;
+			}
+			flush();
+			out.writeInt(0);
+			out.flush();
+			socket.close();
+		}
+	}
+
+	/**
+	 * Sends {@link BridgeServer#ABORTED} instead of the pending values, if the server can be reached at once, and
+	 * closes the connection.
+	 */
+	public void abort(Throwable cause) {
+		synchronized(lock) {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			if(timer != null) {
+				timer.shutdownNow();
+			}
+			try {
+				if(out == null) {
+					connect(ABORT_TIMEOUT);
+				}
+				out.writeInt(BridgeServer.ABORTED);
+				out.flush();
+			} catch (IOException e) {
+				// the source fails on its own then
+			} catch (IllegalStateException e) {
+				// the bridge is unknown to the server
+			} finally {
+				if(socket != null) {
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// ignored
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package de.cau.dataprocessing.remote;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.data.Record;
+import de.cau.dataprocessing.filters.Abortable;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * The end of a bridge within the partition of the input port. It provides the values the {@link RemoteSink} of
+ * the bridge sent, one per execution, and is exhausted once the sink sent the end of its input. The first
+ * execution waits for the sink to connect to the {@link BridgeServer} the source has been registered with.
+ * Once connected, an execution fails if the next batch does not arrive within the read timeout, which has to
+ * exceed the longest pause of the values, if the sink's partition has been aborted or if the sink sent a batch
+ * which is not valid. Only records of the classes the source has been given are accepted, see {@link ValueCodec}.
+ * Aborting the source closes the connection.
+ */
+@Blocking
+public class RemoteSource implements IDataMangler, Abortable {
+
+	// in milliseconds
+	public static final int DEFAULT_READ_TIMEOUT = 300000;
+
+	private final String bridge;
+
+	private final ValueCodec codec;
+
+	private final int readTimeout;
+
+	private final BlockingQueue<DataInputStream> connection = new ArrayBlockingQueue<DataInputStream>(1);
+
+	private DataInputStream in;
+
+	private volatile Socket socket;
+
+	// the values of the current batch
+	private ByteBuffer batch = ByteBuffer.allocate(1 << 16);
+
+	// values left in the current batch
+	private int remaining;
+
+	private boolean ended;
+
+	private Object value;
+
+	/**
+	 * Creates a source accepting {@link MonitoringRecord}s.
+	 *
+	 * @param bridge id of the bridge, see {@link GraphPartition}
+	 */
+	public RemoteSource(String bridge) {
+		this(bridge, Collections.<Class<? extends Record>> singleton(MonitoringRecord.class));
+	}
+
+	/**
+	 * @param bridge id of the bridge, see {@link GraphPartition}
+	 * @param records the record classes accepted
+	 */
+	public RemoteSource(String bridge, Collection<Class<? extends Record>> records) {
+		this(bridge, records, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * @param bridge id of the bridge, see {@link GraphPartition}
+	 * @param records the record classes accepted
+	 * @param readTimeout in milliseconds to wait for the next batch once connected, 0 if unbounded
+	 */
+	public RemoteSource(String bridge, Collection<Class<? extends Record>> records, int readTimeout) {
+		if(readTimeout < 0) {
+			throw new IllegalArgumentException("negative read timeout: " + readTimeout);
+		}
+		this.bridge = bridge;
+		this.codec = new ValueCodec(records);
+		this.readTimeout = readTimeout;
+	}
+
+	public String getName() {
+		return "Remote source " + bridge;
+	}
+
+	public String getBridge() {
+		return bridge;
+	}
+
+	@OutputPort
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Called by the server once the sink of the bridge connected.
+	 *
+	 * @return false if the bridge is already connected
+	 */
+	boolean accept(Socket socket, DataInputStream in) throws IOException {
+		synchronized(connection) {
+			if(this.socket != null || !connection.isEmpty()) {
+				return false;
+			}
+			socket.setSoTimeout(readTimeout);
+			this.socket = socket;
+			return connection.offer(in);
+		}
+	}
+
+	public void execute() {
+		value = null;
+		if(ended) {
+			return;
+		}
+		try {
+			if(in == null) {
+				in = connection.take();
+			}
+			if(remaining == 0) {
+				remaining = in.readInt();
+				if(remaining == 0) {
+					ended = true;
+					socket.close();
+					return;
+				}
+				if(remaining == BridgeServer.ABORTED) {
+					throw new IllegalStateException("bridge " + bridge + " has been aborted by its sink");
+				}
+				if(remaining < 0) {
+					throw new IllegalStateException("bridge " + bridge + " sent a batch of " + remaining + " values");
+				}
+				int length = in.readInt();
+				if(length < 0 || length > BridgeServer.MAX_BATCH_BYTES) {
+					throw new IllegalStateException("bridge " + bridge + " sent a batch of " + length + " bytes");
+				}
+				if(length > batch.capacity()) {
+					batch = ByteBuffer.allocate(Integer.highestOneBit(length - 1) << 1);
+				}
+				in.readFully(batch.array(), 0, length);
+				batch.clear().limit(length);
+			}
+			value = codec.read(batch);
+			remaining--;
+		} catch (EOFException e) {
+			throw new IllegalStateException("bridge " + bridge + " closed before the end of its input", e);
+		} catch (SocketTimeoutException e) {
+			throw new IllegalStateException("no batch from bridge " + bridge + " for " + readTimeout + " ms", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot receive from bridge " + bridge, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Closes the connection, so the sink fails instead of waiting to send.
+	 */
+	public void abort(Throwable cause) {
+		ended = true;
+		Socket current = socket;
+		if(current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				// ignored
+			}
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package de.cau.dataprocessing.remote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.cau.dataprocessing.codec.RecordCodec;
+import de.cau.dataprocessing.codec.Varint;
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.data.Record;
+
+/**
+ * Writes and reads the values passed over one bridge. Each value starts with a tag byte. Numbers, strings and
+ * byte arrays are written as is, {@link Record}s by the {@link RecordCodec} of their class. The first record of
+ * a class is preceded by the name of the class, which gets the next id of the bridge, further records of the class
+ * only carry the id. The reading end only accepts the record classes it has been given, no other classes are
+ * loaded, and values of any other type can not be passed. Both ends are expected to use the same version of a
+ * record class.
+ */
+final class ValueCodec {
+
+	private static final byte LONG = 1;
+
+	private static final byte INT = 2;
+
+	private static final byte DOUBLE = 3;
+
+	private static final byte STRING = 4;
+
+	private static final byte BYTES = 5;
+
+	// a record of a class not seen before: the name of the class, then the record
+	private static final byte RECORD_CLASS = 6;
+
+	// a record: the id of its class, then the record
+	private static final byte RECORD = 7;
+
+	// the classes the reading end accepts, by name
+	private final Map<String, Class<? extends Record>> accepted = new HashMap<String, Class<? extends Record>>();
+
+	// writing end: record class -> id
+	private final Map<Class<?>, Integer> ids = new HashMap<Class<?>, Integer>();
+
+	// reading end: id -> codec
+	private final List<RecordCodec<?>> codecs = new ArrayList<RecordCodec<?>>();
+
+	/**
+	 * Creates the writing end of a bridge.
+	 */
+	ValueCodec() {
+	}
+
+	/**
+	 * Creates the reading end of a bridge.
+	 *
+	 * @param records the record classes accepted
+	 */
+	ValueCodec(Collection<Class<? extends Record>> records) {
+		for(Class<? extends Record> clazz : records) {
+			accepted.put(clazz.getName(), clazz);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the value can not be written
+	 * @throws java.nio.BufferOverflowException if the buffer is too small, its position is undefined then, but
+	 *         the value can be written again
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	void write(ByteBuffer buffer, Object value) throws IOException {
+		if(value instanceof Long) {
+			buffer.put(LONG);
+			buffer.putLong((Long) value);
+		} else if(value instanceof Integer) {
+			buffer.put(INT);
+			buffer.putInt((Integer) value);
+		} else if(value instanceof Double) {
+			buffer.put(DOUBLE);
+			buffer.putDouble((Double) value);
+		} else if(value instanceof String) {
+			buffer.put(STRING);
+			putBytes(buffer, ((String) value).getBytes("UTF-8"));
+		} else if(value instanceof byte[]) {
+			buffer.put(BYTES);
+			putBytes(buffer, (byte[]) value);
+		} else if(value instanceof Record) {
+			// flyweights are read back as the records they stand for
+			Class<? extends Record> clazz = value instanceof FlyweightMonitoringRecord ? MonitoringRecord.class
+					: ((Record) value).getClass();
+			Integer id = ids.get(clazz);
+			if(id != null) {
+				buffer.put(RECORD);
+				Varint.putUnsignedLong(buffer, id);
+			} else {
+				buffer.put(RECORD_CLASS);
+				putBytes(buffer, clazz.getName().getBytes("UTF-8"));
+			}
+			((RecordCodec) RecordCodec.of(clazz)).encode((Record) value, buffer);
+			// only once written, the value is written again if the buffer overflowed
+			if(id == null) {
+				ids.put(clazz, ids.size());
+			}
+		} else {
+			throw new IllegalArgumentException("cannot pass " + value + " over a bridge");
+		}
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static byte[] getBytes(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0 || length > buffer.remaining()) {
+			throw new IllegalStateException("illegal length " + length);
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @throws IllegalStateException if the buffer does not start with a known tag or a record of a class not
+	 *         accepted
+	 */
+	Object read(ByteBuffer buffer) throws IOException {
+		byte tag = buffer.get();
+		switch(tag) {
+		case LONG:
+			return buffer.getLong();
+		case INT:
+			return buffer.getInt();
+		case DOUBLE:
+			return buffer.getDouble();
+		case STRING:
+			return new String(getBytes(buffer), "UTF-8");
+		case BYTES:
+			return getBytes(buffer);
+		case RECORD_CLASS:
+			String name = new String(getBytes(buffer), "UTF-8");
+			Class<? extends Record> clazz = accepted.get(name);
+			if(clazz == null) {
+				throw new IllegalStateException("record class " + name + " is not accepted");
+			}
+			codecs.add(RecordCodec.of(clazz));
+			return codecs.get(codecs.size() - 1).decode(buffer);
+		case RECORD:
+			long id = Varint.getUnsignedLong(buffer);
+			if(id >= codecs.size()) {
+				throw new IllegalStateException("unknown record class id " + id);
+			}
+			return codecs.get((int) id).decode(buffer);
+		default:
+			throw new IllegalStateException("unknown value tag " + tag);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.channel.RingBufferChannelFactory;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.annotations.OverflowPolicy;
+import de.cau.dataprocessing.inject.IPCModule;
+
+public class TestBackpressure {
+
+	private static final int LIMIT = 2000;
+
+	public static class TrackedSource implements IDataMangler {
+
+		final AtomicInteger produced = new AtomicInteger();
+
+		private Integer current;
+
+		public String getName() {
+			return "Tracked Source";
+		}
+
+		@OutputPort
+		public Integer getValue() {
+			return current;
+		}
+
+		public void execute() {
+			int count = produced.get();
+			current = count < LIMIT ? Integer.valueOf(count) : null;
+			if(current != null) {
+				produced.incrementAndGet();
+			}
+		}
+	}
+
+	public static abstract class SlowSink implements IDataMangler {
+
+		TrackedSource source;
+
+		int maxLag;
+
+		final List<Integer> collected = new ArrayList<Integer>();
+
+		private Integer current;
+
+		public String getName() {
+			return "Slow Sink";
+		}
+
+		protected void set(Integer value) {
+			this.current = value;
+		}
+
+		public void execute() {
+			collected.add(current);
+			maxLag = Math.max(maxLag, source.produced.get() - collected.size());
+			try {
+				Thread.sleep(0, 200000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public static class BlockingSink extends SlowSink {
+
+		@InputPort(required = true, capacity = 16)
+		public void setValue(Integer value) {
+			set(value);
+		}
+	}
+
+	public static class DroppingSink extends SlowSink {
+
+		@InputPort(required = true, capacity = 16, overflow = OverflowPolicy.DROP_OLDEST)
+		public void setValue(Integer value) {
+			set(value);
+		}
+	}
+
+	public static class SamplingSink extends SlowSink {
+
+		@InputPort(required = true, capacity = 16, overflow = OverflowPolicy.SAMPLE, sampling = 4)
+		public void setValue(Integer value) {
+			set(value);
+		}
+	}
+
+	private Injector inj;
+	private Graph g;
+	private GraphExecutor executor;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+		executor = inj.getInstance(GraphExecutor.class);
+	}
+
+	private void run(SlowSink... sinks) throws Exception {
+		TrackedSource source = new TrackedSource();
+		g.addMangler(source);
+		for(SlowSink sink : sinks) {
+			sink.source = source;
+			g.addMangler(sink);
+			g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		}
+		executor.run(g);
+	}
+
+	private static void assertIncreasing(List<Integer> values) {
+		for(int i = 1; i < values.size(); i++) {
+			assertTrue("Results reordered", values.get(i - 1) < values.get(i));
+		}
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		SlowSink sink = new BlockingSink();
+		// two followers, so the sink is not fused with the source
+		run(sink, new BlockingSink());
+		assertEquals(LIMIT, sink.collected.size());
+		assertIncreasing(sink.collected);
+		// capacity plus the values held by the source and the sink
+		assertTrue("Source not slowed down: " + sink.maxLag, sink.maxLag <= 16 + 2);
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+		SlowSink sink = new DroppingSink();
+		run(sink);
+		assertTrue("Nothing dropped", sink.collected.size() < LIMIT);
+		assertIncreasing(sink.collected);
+		assertEquals("Newest result dropped", Integer.valueOf(LIMIT - 1), sink.collected.get(sink.collected.size() - 1));
+	}
+
+	@Test
+	public void testSample() throws Exception {
+		SlowSink sink = new SamplingSink();
+		run(sink);
+		assertTrue("Nothing dropped", sink.collected.size() < LIMIT);
+		assertFalse(sink.collected.isEmpty());
+		assertIncreasing(sink.collected);
+		// one in four of the results arriving while the inbox is full are kept
+		assertTrue(sink.collected.size() >= LIMIT / 4);
+		for(int i = 1; i < sink.collected.size(); i++) {
+			assertTrue("Not sampled", sink.collected.get(i) - sink.collected.get(i - 1) <= 4);
+		}
+	}
+
+	@Test
+	public void testCapacityRoundedUp() {
+		RingBufferChannelFactory factory = new RingBufferChannelFactory();
+		assertEquals(128, factory.create(1, 1, 100).capacity());
+		assertEquals(16, factory.create(2, 1, 16).capacity());
+		assertEquals(RingBufferChannelFactory.DEFAULT_CAPACITY, factory.create(1, 1, 0).capacity());
+	}
+}
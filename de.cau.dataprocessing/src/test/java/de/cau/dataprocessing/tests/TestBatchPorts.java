@@ -0,0 +1,160 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.BatchTestSink;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+
+public class TestBatchPorts {
+
+	private Injector inj;
+	private Graph g;
+	private GraphExecutor executor;
+
+	public static class DuplicatingFilter implements IDataMangler {
+
+		private Integer in;
+
+		public String getName() {
+			return "Duplicating test Filter";
+		}
+
+		@InputPort
+		public void setIn(Integer in) {
+			this.in = in;
+		}
+
+		@OutputPort(batch = true)
+		public Integer[] getOut() {
+			return new Integer[] { in, in };
+		}
+
+		public void execute() {
+		}
+	}
+
+	public static class StallingSource extends CountingTestSource {
+
+		private volatile long end;
+
+		@Override
+		public void execute() {
+			super.execute();
+			if(getCount() != null && getCount() == 3) {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				end = System.nanoTime();
+			}
+		}
+
+		public long getEnd() {
+			return end;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+		executor = inj.getInstance(GraphExecutor.class);
+	}
+
+	private InstanceMethod<IDataMangler> in(IDataMangler idm) {
+		return g.getInPortsOf(idm).iterator().next();
+	}
+
+	private InstanceMethod<IDataMangler> out(IDataMangler idm) {
+		return g.getOutPortsOf(idm).iterator().next();
+	}
+
+	@Test
+	public void testBatchBySize() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		BatchTestSink sink = inj.getInstance(BatchTestSink.class);
+		source.setLimit(1050);
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.connect(out(source), in(sink));
+		executor.run(g);
+		assertEquals(11, sink.getBatches().size());
+		int expected = 0;
+		for(Integer[] batch : sink.getBatches()) {
+			assertEquals(expected < 1000 ? 100 : 50, batch.length);
+			for(Integer i : batch) {
+				assertEquals(Integer.valueOf(expected++), i);
+			}
+		}
+	}
+
+	@Test
+	public void testBatchByLatency() throws Exception {
+		StallingSource source = new StallingSource();
+		CountingTestSource source2 = inj.getInstance(CountingTestSource.class);
+		BatchTestSink sink = inj.getInstance(BatchTestSink.class);
+		source.setLimit(5);
+		source2.setLimit(0);
+		g.addMangler(source);
+		g.addMangler(source2);
+		g.addMangler(sink);
+		g.connect(out(source), in(sink));
+		g.connect(out(source2), in(sink));
+		executor.run(g);
+		assertEquals(2, sink.getBatches().size());
+		assertEquals("Incomplete batch not set after max latency", 3, sink.getBatches().get(0).length);
+		assertTrue(sink.getArrivals().get(0) < source.getEnd());
+		assertEquals(2, sink.getBatches().get(1).length);
+	}
+
+	@Test
+	public void testBatchOutput() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		DuplicatingFilter filter = new DuplicatingFilter();
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		CollectingTestSink sink2 = inj.getInstance(CollectingTestSink.class);
+		source.setLimit(10);
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.addMangler(sink2);
+		g.connect(out(source), in(filter));
+		g.connect(out(filter), in(sink));
+		g.connect(out(filter), in(sink2));
+		executor.run(g);
+		assertEquals(20, sink.getCollected().size());
+		assertEquals(sink.getCollected(), sink2.getCollected());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBatchPortWithoutArray() throws Exception {
+		g.addMangler(new IDataMangler() {
+
+			public String getName() {
+				return "Illegal batch port";
+			}
+
+			@InputPort(batchSize = 10)
+			public void setIn(Integer i) {
+			}
+
+			public void execute() {
+			}
+		});
+	}
+}
@@ -0,0 +1,99 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.cau.dataprocessing.channel.Channel;
+import de.cau.dataprocessing.channel.MpmcRingBuffer;
+import de.cau.dataprocessing.channel.RingBufferChannelFactory;
+import de.cau.dataprocessing.channel.SpscRingBuffer;
+
+public class TestChannels {
+
+	private static final int COUNT = 200000;
+
+	private static Thread produce(final Channel<Long> channel, final long offset, final int count) {
+		Thread producer = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					for(long i = 0; i < count; i++) {
+						channel.put(offset + i);
+					}
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		producer.start();
+		return producer;
+	}
+
+	@Test
+	public void testBounds() throws Exception {
+		Channel<Long> channel = new SpscRingBuffer<Long>(4);
+		for(long i = 0; i < 4; i++) {
+			assertTrue(channel.offer(i));
+		}
+		assertFalse("Offer into full channel succeeded", channel.offer(4L));
+		assertEquals(4, channel.size());
+		assertEquals(Long.valueOf(0), channel.poll());
+		assertTrue(channel.offer(4L));
+		for(long i = 1; i <= 4; i++) {
+			assertEquals(Long.valueOf(i), channel.take());
+		}
+		assertNull(channel.poll());
+		assertNull(channel.poll(1, TimeUnit.MILLISECONDS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCapacityPowerOfTwo() throws Exception {
+		new MpmcRingBuffer<Long>(1000);
+	}
+
+	@Test
+	public void testSingleProducer() throws Exception {
+		Channel<Long> channel = new SpscRingBuffer<Long>(64);
+		Thread producer = produce(channel, 0, COUNT);
+		for(long i = 0; i < COUNT; i++) {
+			assertEquals(Long.valueOf(i), channel.take());
+		}
+		producer.join();
+		assertEquals(0, channel.size());
+	}
+
+	@Test
+	public void testMultipleProducers() throws Exception {
+		Channel<Long> channel = new MpmcRingBuffer<Long>(64);
+		int producers = 4;
+		Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++) {
+			threads[p] = produce(channel, (long) p * COUNT, COUNT);
+		}
+		long[] last = new long[producers];
+		for(int p = 0; p < producers; p++) {
+			last[p] = p * (long) COUNT - 1;
+		}
+		for(int i = 0; i < producers * COUNT; i++) {
+			long value = channel.take();
+			int p = (int) (value / COUNT);
+			assertEquals("Elements of a producer reordered", last[p] + 1, value);
+			last[p] = value;
+		}
+		for(Thread producer : threads) {
+			producer.join();
+		}
+		assertNull(channel.poll());
+	}
+
+	@Test
+	public void testFactorySelection() throws Exception {
+		RingBufferChannelFactory factory = new RingBufferChannelFactory(16);
+		assertTrue(factory.create(1, 1) instanceof SpscRingBuffer<?>);
+		assertTrue(factory.create(3, 1) instanceof MpmcRingBuffer<?>);
+		assertEquals(16, factory.create(3, 1).capacity());
+	}
+}
@@ -0,0 +1,224 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.inject.Guice;
+
+import de.cau.dataprocessing.checkpoint.Checkpoint;
+import de.cau.dataprocessing.checkpoint.CheckpointStore;
+import de.cau.dataprocessing.checkpoint.Checkpointable;
+import de.cau.dataprocessing.checkpoint.Topology;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestCheckpoints {
+
+	private static final int LIMIT = 2000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private CheckpointStore store;
+
+	private GraphExecutor executor;
+
+	/**
+	 * Counts up to {@link TestCheckpoints#LIMIT}, slowly from {@link #throttleFrom} on.
+	 */
+	public static class ThrottledSource implements IDataMangler, Checkpointable {
+
+		static volatile int throttleFrom = Integer.MAX_VALUE;
+
+		static volatile boolean throttled;
+
+		private int count;
+
+		private Integer current;
+
+		public String getName() {
+			return "Throttled Source";
+		}
+
+		@OutputPort
+		public Integer getCount() {
+			return current;
+		}
+
+		public void execute() {
+			if(count >= throttleFrom) {
+				throttled = true;
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			current = count < LIMIT ? Integer.valueOf(count++) : null;
+		}
+
+		public void snapshot(DataOutput out) throws IOException {
+			out.writeInt(count);
+		}
+
+		public void restore(DataInput in) throws IOException {
+			count = in.readInt();
+		}
+	}
+
+	public static class SummingSink implements IDataMangler, Checkpointable {
+
+		private Integer value;
+
+		long sum;
+
+		int count;
+
+		public String getName() {
+			return "Summing Sink";
+		}
+
+		@InputPort(required = true)
+		public void setValue(Integer value) {
+			this.value = value;
+		}
+
+		public void execute() {
+			sum += value;
+			count++;
+		}
+
+		public void snapshot(DataOutput out) throws IOException {
+			out.writeLong(sum);
+			out.writeInt(count);
+		}
+
+		public void restore(DataInput in) throws IOException {
+			sum = in.readLong();
+			count = in.readInt();
+		}
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		store = new CheckpointStore(folder.newFolder("checkpoints"), 2);
+		executor = Guice.createInjector(new IPCModule()).getInstance(GraphExecutor.class);
+	}
+
+	@After
+	public void tearDown() {
+		ThrottledSource.throttleFrom = Integer.MAX_VALUE;
+		ThrottledSource.throttled = false;
+		store.close();
+	}
+
+	private static Graph graph(IDataMangler filter) {
+		Graph g = new Graph();
+		IDataMangler source = new ThrottledSource();
+		IDataMangler sink = new SummingSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(filter).iterator().next());
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		return g;
+	}
+
+	/**
+	 * Takes a checkpoint, kills the execution and restarts a rebuilt graph from the checkpoint. Every value
+	 * has to reach the sink exactly once.
+	 */
+	private void restart(IDataMangler filter) throws Exception {
+		ThrottledSource.throttleFrom = LIMIT / 4;
+		executor.setCheckpointing(store, 0, TimeUnit.MILLISECONDS);
+		executor.start(graph(filter));
+		while(!ThrottledSource.throttled) {
+			Thread.sleep(1);
+		}
+		Checkpoint checkpoint = executor.checkpoint().get(10, TimeUnit.SECONDS);
+		executor.stop();
+		executor.await();
+		int position = new DataInputStream(new ByteArrayInputStream(checkpoint.getState(Checkpoint.key(0, 0)))).readInt();
+		assertTrue(position >= LIMIT / 4 && position < LIMIT);
+
+		ThrottledSource.throttleFrom = Integer.MAX_VALUE;
+		Checkpoint latest = store.latest();
+		assertEquals(checkpoint.getId(), latest.getId());
+		Graph restored = latest.getTopology().rebuild();
+		executor.start(restored, latest);
+		executor.await();
+		SummingSink sink = (SummingSink) restored.getAllSinks().iterator().next();
+		assertEquals(LIMIT, sink.count);
+		assertEquals((long) LIMIT * (LIMIT + 1) / 2, sink.sum);
+	}
+
+	@Test
+	public void testRestart() throws Exception {
+		restart(new IncrementTestFilter());
+	}
+
+	@Test
+	public void testRestartReplicated() throws Exception {
+		restart(new TestParallelManglers.UnorderedIncrementFilter());
+	}
+
+	@Test
+	public void testRestartOrdered() throws Exception {
+		restart(new TestParallelManglers.OrderedIncrementFilter());
+	}
+
+	@Test
+	public void testPeriodic() throws Exception {
+		ThrottledSource.throttleFrom = LIMIT - 200;
+		executor.setCheckpointing(store, 20, TimeUnit.MILLISECONDS);
+		executor.run(graph(new IncrementTestFilter()));
+		// older checkpoints have been deleted
+		assertEquals(2, store.getIds().size());
+		assertEquals(store.getIds().get(1).longValue(), store.latest().getId());
+		// the ids continue in the next execution
+		executor.setCheckpointing(store, 0, TimeUnit.MILLISECONDS);
+		executor.start(graph(new IncrementTestFilter()));
+		assertEquals(store.latest().getId() + 1, executor.checkpoint().get(10, TimeUnit.SECONDS).getId());
+		executor.stop();
+		executor.await();
+	}
+
+	@Test
+	public void testStore() throws Exception {
+		Topology topology = Topology.of(graph(new IncrementTestFilter()));
+		for(int i = 1; i <= 3; i++) {
+			store.write(new Checkpoint(i, i, topology, Collections.singletonMap("0#0", new byte[] { (byte) i }))).get();
+		}
+		assertEquals(Arrays.asList(2L, 3L), store.getIds());
+		Checkpoint latest = store.latest();
+		assertEquals(3, latest.getId());
+		assertEquals(topology, latest.getTopology());
+		assertArrayEquals(new byte[] { 3 }, latest.getState("0#0"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherTopology() throws Exception {
+		Topology topology = Topology.of(graph(new IncrementTestFilter()));
+		Checkpoint checkpoint = new Checkpoint(1, 1, topology, Collections.<String, byte[]>emptyMap());
+		executor.start(graph(new TestParallelManglers.UnorderedIncrementFilter()), checkpoint);
+	}
+}
@@ -0,0 +1,153 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.io.ColumnarRecordSink;
+import de.cau.dataprocessing.filters.io.ColumnarRecordSource;
+import de.cau.dataprocessing.filters.io.ColumnarSegments;
+import de.cau.dataprocessing.filters.io.RecordSegments;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.tests.data.RecordCollectingTestSink;
+
+public class TestColumnarRecordFiles {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Injector inj;
+	private Graph g;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+	}
+
+	private void write(int records, int recordsPerSegment) {
+		write(0, records, recordsPerSegment);
+	}
+
+	private void write(int first, int records, int recordsPerSegment) {
+		ColumnarRecordSink sink = new ColumnarRecordSink(folder.getRoot(), "test", recordsPerSegment);
+		MonitoringRecord record = new MonitoringRecord();
+		for(int i = first; i < first + records; i++) {
+			record.setTimestamp(10 * i);
+			record.setTraceId(i / 10);
+			record.setOperationId(1000 + i % 7);
+			record.setDuration(2 * i);
+			sink.setRecord(record);
+			sink.execute();
+		}
+		sink.close();
+	}
+
+	private RecordCollectingTestSink replay(ColumnarRecordSource source) throws Exception {
+		RecordCollectingTestSink sink = new RecordCollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		inj.getInstance(GraphExecutor.class).run(g);
+		return sink;
+	}
+
+	private static void assertRecord(int i, MonitoringRecord record) {
+		assertEquals(10 * i, record.getTimestamp());
+		assertEquals(i / 10, record.getTraceId());
+		assertEquals(1000 + i % 7, record.getOperationId());
+		assertEquals(2 * i, record.getDuration());
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		write(2500, 1000);
+		assertEquals(3, ColumnarSegments.list(folder.getRoot(), "test").size());
+		RecordCollectingTestSink sink = replay(new ColumnarRecordSource(folder.getRoot(), "test"));
+		assertEquals(2500, sink.getCollected().size());
+		for(int i = 0; i < 2500; i++) {
+			assertRecord(i, sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testRestartedSink() throws Exception {
+		write(1500, 1000);
+		// continues after the segments written before
+		write(1500, 1000, 1000);
+		assertEquals(3, ColumnarSegments.list(folder.getRoot(), "test").size());
+		assertEquals(3, ColumnarSegments.next(folder.getRoot(), "test"));
+		RecordCollectingTestSink sink = replay(new ColumnarRecordSource(folder.getRoot(), "test"));
+		assertEquals(2500, sink.getCollected().size());
+		for(int i = 0; i < 2500; i++) {
+			assertRecord(i, sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testLongReplay() throws Exception {
+		// more records than the source used to have in flight, into a built-in sink keeping none of them
+		write(100000, 10000);
+		ColumnarRecordSource source = new ColumnarRecordSource(folder.getRoot(), "test");
+		ColumnarRecordSink copy = new ColumnarRecordSink(folder.getRoot(), "copy", 10000);
+		g.addMangler(source);
+		g.addMangler(copy);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(copy).iterator().next());
+		inj.getInstance(GraphExecutor.class).run(g);
+		g = inj.getInstance(Graph.class);
+		RecordCollectingTestSink sink = replay(new ColumnarRecordSource(folder.getRoot(), "copy"));
+		assertEquals(100000, sink.getCollected().size());
+		for(int i = 0; i < 100000; i++) {
+			assertRecord(i, sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testCompression() throws Exception {
+		write(1000, 1000);
+		long size = ColumnarSegments.segment(folder.getRoot(), "test", 0).length();
+		assertTrue("segment of " + size + " bytes", size * 4 < RecordSegments.size(1000));
+	}
+
+	@Test
+	public void testTimeRange() throws Exception {
+		write(2500, 1000);
+		ColumnarRecordSource source = new ColumnarRecordSource(folder.getRoot(), "test", 12000, 15000);
+		RecordCollectingTestSink sink = replay(source);
+		assertEquals(300, sink.getCollected().size());
+		for(int i = 0; i < 300; i++) {
+			assertRecord(1200 + i, sink.getCollected().get(i));
+		}
+		// the first and the last segment
+		assertEquals(2, source.getSkippedSegments());
+	}
+
+	@Test
+	public void testEmptyStream() throws Exception {
+		ColumnarRecordSource source = new ColumnarRecordSource(folder.getRoot(), "test");
+		source.execute();
+		assertNull(source.getRecord());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTruncatedSegment() throws Exception {
+		write(100, 100);
+		File file = ColumnarSegments.segment(folder.getRoot(), "test", 0);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 1);
+		raf.close();
+		new ColumnarRecordSource(folder.getRoot(), "test").execute();
+	}
+}
@@ -0,0 +1,405 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.data.Record;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.remote.BridgeServer;
+import de.cau.dataprocessing.remote.GraphPartition;
+import de.cau.dataprocessing.remote.Placement;
+import de.cau.dataprocessing.remote.RemoteSink;
+import de.cau.dataprocessing.remote.RemoteSource;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestDistributedExecution {
+
+	private static final int LIMIT = 10000;
+
+	/**
+	 * Executes the upstream partition in a JVM of its own.
+	 */
+	public static class Upstream {
+
+		public static void main(String[] args) throws Exception {
+			Graph graph = build(new CollectingTestSink());
+			GraphPartition partition = GraphPartition.of(graph, placement(Integer.parseInt(args[0])), "up");
+			try {
+				executor().run(partition.getGraph());
+			} finally {
+				partition.close();
+			}
+		}
+	}
+
+	private static Graph build(CollectingTestSink sink) {
+		Graph g = new Graph();
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(LIMIT);
+		IncrementTestFilter filter = new IncrementTestFilter();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(filter).iterator().next());
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		return g;
+	}
+
+	private static Placement placement(int port) {
+		return new Placement("up").place("Collecting test Sink", "down")
+				.address("down", new InetSocketAddress(InetAddress.getLoopbackAddress(), port))
+				.batch(64, 10, TimeUnit.MILLISECONDS);
+	}
+
+	private static GraphExecutor executor() {
+		Injector inj = Guice.createInjector(new IPCModule());
+		return inj.getInstance(GraphExecutor.class);
+	}
+
+	private static int freePort() throws IOException {
+		ServerSocket socket = new ServerSocket(0);
+		try {
+			return socket.getLocalPort();
+		} finally {
+			socket.close();
+		}
+	}
+
+	private static void assertCollected(CollectingTestSink sink) {
+		assertEquals(LIMIT, sink.getCollected().size());
+		for(int i = 0; i < LIMIT; i++) {
+			assertEquals(Integer.valueOf(i + 1), sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testPartitions() throws Exception {
+		CollectingTestSink sink = new CollectingTestSink();
+		Graph graph = build(sink);
+		Placement placement = placement(freePort());
+		GraphPartition up = GraphPartition.of(graph, placement, "up");
+		GraphPartition down = GraphPartition.of(graph, placement, "down");
+		assertEquals(1, up.getRemoteSinks().size());
+		assertTrue(up.getRemoteSources().isEmpty());
+		assertEquals(1, down.getRemoteSources().size());
+		assertEquals(up.getRemoteSinks().get(0).getBridge(), down.getRemoteSources().get(0).getBridge());
+		GraphExecutor upstream = executor();
+		GraphExecutor downstream = executor();
+		try {
+			downstream.start(down.getGraph());
+			upstream.start(up.getGraph());
+			upstream.await();
+			downstream.await();
+		} finally {
+			up.close();
+			down.close();
+		}
+		assertCollected(sink);
+	}
+
+	@Test
+	public void testEmptyInput() throws Exception {
+		CollectingTestSink sink = new CollectingTestSink();
+		Graph graph = build(sink);
+		((CountingTestSource) graph.getAllSources().iterator().next()).setLimit(0);
+		Placement placement = placement(freePort());
+		GraphPartition up = GraphPartition.of(graph, placement, "up");
+		GraphPartition down = GraphPartition.of(graph, placement, "down");
+		GraphExecutor upstream = executor();
+		GraphExecutor downstream = executor();
+		try {
+			downstream.start(down.getGraph());
+			upstream.run(up.getGraph());
+			downstream.await();
+		} finally {
+			up.close();
+			down.close();
+		}
+		assertTrue(sink.getCollected().isEmpty());
+	}
+
+	@Test
+	public void testSeparateJvms() throws Exception {
+		int port = freePort();
+		CollectingTestSink sink = new CollectingTestSink();
+		GraphPartition down = GraphPartition.of(build(sink), placement(port), "down");
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process upstream = new ProcessBuilder(java, "--add-opens", "java.base/java.lang=ALL-UNNAMED", "-cp",
+				System.getProperty("java.class.path"), Upstream.class.getName(), String.valueOf(port)).inheritIO().start();
+		GraphExecutor executor = executor();
+		executor.start(down.getGraph());
+		try {
+			assertTrue("upstream partition did not finish", upstream.waitFor(60, TimeUnit.SECONDS));
+			assertEquals(0, upstream.exitValue());
+		} catch (AssertionError e) {
+			executor.stop();
+			throw e;
+		} finally {
+			upstream.destroy();
+			executor.await();
+			down.close();
+		}
+		assertCollected(sink);
+	}
+
+	public static class OtherRecord extends Record {
+
+		private long value;
+
+		public long getValue() {
+			return value;
+		}
+
+		public void setValue(long value) {
+			this.value = value;
+		}
+	}
+
+	private static InetSocketAddress loopback(int port) {
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Reads the given number of values from the source, failing if they do not arrive in time.
+	 */
+	private static Object[] receive(final RemoteSource source, final int values) throws Exception {
+		ExecutorService receiver = Executors.newSingleThreadExecutor();
+		try {
+			Future<Object[]> received = receiver.submit(new Callable<Object[]>() {
+
+				public Object[] call() {
+					Object[] result = new Object[values];
+					for(int i = 0; i < values; i++) {
+						source.execute();
+						result[i] = source.getValue();
+					}
+					return result;
+				}
+			});
+			return received.get(10, TimeUnit.SECONDS);
+		} finally {
+			receiver.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRecords() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 2, 0);
+		try {
+			MonitoringRecord record = new MonitoringRecord();
+			for(int i = 0; i < 4; i++) {
+				record.setTimestamp(i);
+				sink.setValue(record);
+				sink.execute();
+			}
+			Object[] values = receive(source, 4);
+			for(int i = 0; i < 4; i++) {
+				assertEquals(i, ((MonitoringRecord) values[i]).getTimestamp());
+			}
+		} finally {
+			sink.close();
+			server.close();
+		}
+	}
+
+	@Test
+	public void testRejectedRecordClass() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 1, 0);
+		try {
+			sink.setValue(new OtherRecord());
+			sink.execute();
+			receive(source, 1);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertTrue(e.getCause().getMessage().contains(OtherRecord.class.getName()));
+		} finally {
+			sink.close();
+			server.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSerializableRejected() throws Exception {
+		RemoteSink sink = new RemoteSink("bridge", loopback(freePort()), 1, 0);
+		sink.setValue(new Date());
+		sink.execute();
+	}
+
+	@Test
+	public void testLatencyWhilePaused() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 1000, TimeUnit.MILLISECONDS.toNanos(20));
+		try {
+			for(int i = 0; i < 5; i++) {
+				sink.setValue(i);
+				sink.execute();
+			}
+			// no further values, the timer sends the incomplete batch
+			Object[] values = receive(source, 5);
+			for(int i = 0; i < 5; i++) {
+				assertEquals(i, values[i]);
+			}
+		} finally {
+			sink.close();
+			server.close();
+		}
+	}
+
+	private static void assertFailure(String message, RemoteSource source, int values) throws Exception {
+		try {
+			receive(source, values);
+			fail("Failure not propagated");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains(message));
+		}
+	}
+
+	@Test
+	public void testAbortedSink() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 1, 0);
+		try {
+			sink.setValue(1);
+			sink.execute();
+			assertEquals(1, receive(source, 1)[0]);
+			sink.abort(new IllegalStateException("failed"));
+			assertFailure("aborted", source, 1);
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testAbortedBeforeFirstBatch() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 1, 0);
+		try {
+			// connects to tell the source
+			sink.abort(new IllegalStateException("failed"));
+			assertFailure("aborted", source, 1);
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testReadTimeout() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge", Collections.<Class<? extends Record>> emptySet(), 100);
+		server.register(source);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 1, 0);
+		try {
+			sink.setValue(1);
+			sink.execute();
+			// no further batch
+			assertFailure("no batch", source, 2);
+		} finally {
+			sink.close();
+			server.close();
+		}
+	}
+
+	/**
+	 * Connects to the bridge as a sink would.
+	 */
+	private static DataOutputStream connect(Socket socket, String bridge) throws IOException {
+		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+		out.writeInt(0x44504252);
+		out.writeInt(3);
+		out.writeUTF(bridge);
+		out.flush();
+		assertTrue(new DataInputStream(socket.getInputStream()).readBoolean());
+		return out;
+	}
+
+	private void assertIllegalBatch(int values, int length, String message) throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			DataOutputStream out = connect(socket, "bridge");
+			out.writeInt(values);
+			out.writeInt(length);
+			out.flush();
+			assertFailure(message, source, 1);
+		} finally {
+			socket.close();
+			server.close();
+		}
+	}
+
+	@Test
+	public void testIllegalBatches() throws Exception {
+		assertIllegalBatch(-2, 0, "-2 values");
+		assertIllegalBatch(1, -1, "-1 bytes");
+		assertIllegalBatch(1, Integer.MAX_VALUE, Integer.MAX_VALUE + " bytes");
+	}
+
+	@Test
+	public void testSilentClient() throws Exception {
+		int port = freePort();
+		BridgeServer server = new BridgeServer(loopback(port));
+		RemoteSource source = new RemoteSource("bridge");
+		server.register(source);
+		// never completes its handshake
+		Socket silent = new Socket(InetAddress.getLoopbackAddress(), port);
+		RemoteSink sink = new RemoteSink("bridge", loopback(port), 1, 0);
+		try {
+			sink.setValue(1);
+			sink.execute();
+			assertEquals(1, receive(source, 1)[0]);
+		} finally {
+			sink.close();
+			silent.close();
+			server.close();
+		}
+	}
+}
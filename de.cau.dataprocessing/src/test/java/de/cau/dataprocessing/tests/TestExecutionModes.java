@@ -0,0 +1,130 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.ExecutionMode;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.Blocking;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+
+public class TestExecutionModes {
+
+	public static class ThreadRecordingSink implements IDataMangler {
+
+		Thread thread;
+
+		int count;
+
+		public String getName() {
+			return "Thread recording Sink";
+		}
+
+		@InputPort(required = true)
+		public void setValue(Integer value) {
+		}
+
+		public void execute() {
+			thread = Thread.currentThread();
+			count++;
+		}
+	}
+
+	@Blocking
+	public static class SleepingSink extends ThreadRecordingSink {
+
+		@Override
+		public void execute() {
+			super.execute();
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private Injector inj;
+	private Graph g;
+	private GraphExecutor executor;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+		executor = inj.getInstance(GraphExecutor.class);
+	}
+
+	private static boolean isVirtual(Thread thread) throws Exception {
+		if(!GraphExecutor.isVirtualThreadSupported()) {
+			return false;
+		}
+		return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+	}
+
+	private List<ThreadRecordingSink> fanOut(int blocking) {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		source.setLimit(20);
+		g.addMangler(source);
+		List<ThreadRecordingSink> sinks = new ArrayList<ThreadRecordingSink>();
+		sinks.add(new ThreadRecordingSink());
+		for(int i = 0; i < blocking; i++) {
+			sinks.add(new SleepingSink());
+		}
+		for(ThreadRecordingSink sink : sinks) {
+			g.addMangler(sink);
+			g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		}
+		return sinks;
+	}
+
+	@Test
+	public void testPlatformByDefault() throws Exception {
+		assertEquals(ExecutionMode.PLATFORM, executor.getMode());
+		List<ThreadRecordingSink> sinks = fanOut(1);
+		executor.run(g);
+		for(ThreadRecordingSink sink : sinks) {
+			assertEquals(20, sink.count);
+			assertFalse(isVirtual(sink.thread));
+		}
+	}
+
+	@Test
+	public void testVirtual() throws Exception {
+		assumeTrue(GraphExecutor.isVirtualThreadSupported());
+		executor.setMode(ExecutionMode.VIRTUAL);
+		List<ThreadRecordingSink> sinks = fanOut(200);
+		executor.run(g);
+		for(ThreadRecordingSink sink : sinks) {
+			assertEquals(20, sink.count);
+			assertEquals("Blocking mangler not on a virtual thread", sink instanceof SleepingSink, isVirtual(sink.thread));
+			assertTrue("Worker thread not named", sink.thread.getName().startsWith("operator"));
+		}
+	}
+
+	@Test
+	public void testVirtualFallback() throws Exception {
+		assumeTrue(!GraphExecutor.isVirtualThreadSupported());
+		executor.setMode(ExecutionMode.VIRTUAL);
+		List<ThreadRecordingSink> sinks = fanOut(200);
+		executor.run(g);
+		for(ThreadRecordingSink sink : sinks) {
+			assertEquals(20, sink.count);
+			assertFalse(isVirtual(sink.thread));
+			assertTrue("Fallback thread not a daemon", sink.thread.isDaemon());
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.ExecutionPlan;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.Operator;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestExecutionPlan {
+
+	private Injector inj;
+	private Graph g;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector();
+		g = inj.getInstance(Graph.class);
+	}
+
+	private InstanceMethod<IDataMangler> in(IDataMangler idm) {
+		return g.getInPortsOf(idm).iterator().next();
+	}
+
+	private InstanceMethod<IDataMangler> out(IDataMangler idm) {
+		return g.getOutPortsOf(idm).iterator().next();
+	}
+
+	@Test
+	public void testChainFusion() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		IncrementTestFilter filter = inj.getInstance(IncrementTestFilter.class);
+		IncrementTestFilter filter2 = inj.getInstance(IncrementTestFilter.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		// added in reverse order to check the sorting
+		g.addMangler(sink);
+		g.addMangler(filter2);
+		g.addMangler(filter);
+		g.addMangler(source);
+		g.connect(out(source), in(filter));
+		g.connect(out(filter), in(filter2));
+		g.connect(out(filter2), in(sink));
+		ExecutionPlan plan = g.compile();
+		assertEquals(Arrays.asList(source, filter, filter2, sink), plan.getOrder());
+		assertEquals("Linear chain not fused", 1, plan.getOperators().size());
+		Operator operator = plan.getOperators().get(0);
+		assertEquals(Arrays.asList(source, filter, filter2, sink), operator.getManglers());
+		assertTrue(operator.isSource());
+	}
+
+	@Test
+	public void testNoFusionOnFanOut() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		IncrementTestFilter filter = inj.getInstance(IncrementTestFilter.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		CollectingTestSink sink2 = inj.getInstance(CollectingTestSink.class);
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.addMangler(sink2);
+		g.connect(out(source), in(filter));
+		g.connect(out(filter), in(sink));
+		g.connect(out(filter), in(sink2));
+		ExecutionPlan plan = g.compile();
+		assertEquals(3, plan.getOperators().size());
+		Operator head = plan.getOperatorOf(source);
+		assertSame(head, plan.getOperatorOf(filter));
+		assertEquals(2, head.getFollowers().size());
+		assertEquals(Arrays.asList(head), plan.getOperatorOf(sink).getPredecessors());
+	}
+
+	@Test
+	public void testPlanIsFrozen() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.connect(out(source), in(sink));
+		ExecutionPlan plan = g.compile();
+		g.removeIDM(sink);
+		assertEquals(Arrays.asList(source, sink), plan.getOrder());
+		assertEquals(2, plan.getOperatorOf(sink).getManglers().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCycleRejected() throws Exception {
+		IncrementTestFilter filter = inj.getInstance(IncrementTestFilter.class);
+		IncrementTestFilter filter2 = inj.getInstance(IncrementTestFilter.class);
+		g.addMangler(filter);
+		g.addMangler(filter2);
+		g.connect(out(filter), in(filter2));
+		g.connect(out(filter2), in(filter));
+		g.compile();
+	}
+}
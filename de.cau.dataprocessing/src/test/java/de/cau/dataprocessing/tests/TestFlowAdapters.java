@@ -0,0 +1,285 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import de.cau.dataprocessing.engine.ExecutionMode;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.flow.Flows;
+import de.cau.dataprocessing.flow.PublisherSink;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestFlowAdapters {
+
+	private static final int LIMIT = 1000;
+
+	private Graph g;
+
+	private GraphExecutor executor;
+
+	/**
+	 * Records the values and how many of them have been requested.
+	 */
+	private static class RecordingSubscriber implements Flow.Subscriber<Object> {
+
+		final List<Object> values = new ArrayList<Object>();
+
+		final AtomicLong requested = new AtomicLong();
+
+		final CountDownLatch completed = new CountDownLatch(1);
+
+		final CountDownLatch failed = new CountDownLatch(1);
+
+		volatile Throwable error;
+
+		volatile boolean overrun;
+
+		volatile Flow.Subscription subscription;
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		void request(long n) {
+			requested.addAndGet(n);
+			subscription.request(n);
+		}
+
+		public synchronized void onNext(Object item) {
+			values.add(item);
+			if(values.size() > requested.get()) {
+				overrun = true;
+			}
+		}
+
+		public void onError(Throwable throwable) {
+			error = throwable;
+			failed.countDown();
+		}
+
+		public void onComplete() {
+			completed.countDown();
+		}
+
+		synchronized int size() {
+			return values.size();
+		}
+	}
+
+	@Before
+	public void setUp() {
+		g = new Graph();
+		executor = Guice.createInjector(new IPCModule()).getInstance(GraphExecutor.class);
+		executor.setMode(ExecutionMode.VIRTUAL);
+	}
+
+	private IncrementTestFilter counting() {
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(LIMIT);
+		IncrementTestFilter filter = new IncrementTestFilter();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(filter).iterator().next());
+		return filter;
+	}
+
+	@Test
+	public void testPublisherDemand() throws Exception {
+		IncrementTestFilter filter = counting();
+		Flow.Publisher<Object> publisher = Flows.publish(g, g.getOutPortsOf(filter).iterator().next());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		subscriber.request(5);
+		executor.start(g);
+		long deadline = System.currentTimeMillis() + 5000;
+		while(subscriber.size() < 5 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+		assertEquals(5, subscriber.size());
+		assertEquals(1, subscriber.completed.getCount());
+		for(int i = 5; i < LIMIT; i += 7) {
+			subscriber.request(7);
+		}
+		executor.await();
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		assertFalse(subscriber.overrun);
+		assertEquals(LIMIT, subscriber.size());
+		for(int i = 0; i < LIMIT; i++) {
+			assertEquals(Integer.valueOf(i + 1), subscriber.values.get(i));
+		}
+	}
+
+	@Test
+	public void testPublisherCancel() throws Exception {
+		IncrementTestFilter filter = counting();
+		Flow.Publisher<Object> publisher = Flows.publish(g, g.getOutPortsOf(filter).iterator().next());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		subscriber.request(3);
+		executor.start(g);
+		long deadline = System.currentTimeMillis() + 5000;
+		while(subscriber.size() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		subscriber.subscription.cancel();
+		executor.await();
+		assertEquals(3, subscriber.size());
+		assertEquals(1, subscriber.completed.getCount());
+	}
+
+	@Test
+	public void testPublisherFailure() throws Exception {
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(LIMIT);
+		final RuntimeException failure = new UnsupportedOperationException();
+		IDataMangler failing = new IDataMangler() {
+
+			public String getName() {
+				return "Failing test mangler";
+			}
+
+			@InputPort
+			public void setValue(Integer i) {
+			}
+
+			public void execute() {
+				throw failure;
+			}
+		};
+		g.addMangler(source);
+		g.addMangler(failing);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(failing).iterator().next());
+		Flow.Publisher<Object> publisher = Flows.publish(g, g.getOutPortsOf(source).iterator().next());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		executor.start(g);
+		try {
+			executor.await();
+			fail();
+		} catch(ExecutionException e) {
+			assertSame(failure, e.getCause());
+		}
+		assertTrue(subscriber.failed.await(5, TimeUnit.SECONDS));
+		assertSame(failure, subscriber.error);
+		assertEquals(1, subscriber.completed.getCount());
+	}
+
+	@Test
+	public void testPublisherStop() throws Exception {
+		IncrementTestFilter filter = counting();
+		Flow.Publisher<Object> publisher = Flows.publish(g, g.getOutPortsOf(filter).iterator().next());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		subscriber.request(3);
+		executor.start(g);
+		long deadline = System.currentTimeMillis() + 5000;
+		while(subscriber.size() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		executor.stop();
+		executor.await();
+		assertTrue(subscriber.failed.await(5, TimeUnit.SECONDS));
+		assertTrue(subscriber.error instanceof CancellationException);
+		assertEquals(3, subscriber.size());
+	}
+
+	@Test
+	public void testIllegalRequest() throws Exception {
+		IncrementTestFilter filter = counting();
+		Flow.Publisher<Object> publisher = Flows.publish(g, g.getOutPortsOf(filter).iterator().next());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		publisher.subscribe(subscriber);
+		subscriber.request(2);
+		subscriber.subscription.request(0);
+		executor.run(g);
+		assertTrue(subscriber.failed.await(5, TimeUnit.SECONDS));
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+		assertTrue(subscriber.size() <= 2);
+		assertEquals(1, subscriber.completed.getCount());
+	}
+
+	@Test
+	public void testNoSubscriber() throws Exception {
+		IncrementTestFilter filter = counting();
+		PublisherSink<Object> sink = new PublisherSink<Object>(100, TimeUnit.MILLISECONDS);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		try {
+			executor.run(g);
+			fail();
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// a subscriber subscribing late is signalled the failure
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		sink.subscribe(subscriber);
+		assertTrue(subscriber.error instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testSubscriberSource() throws Exception {
+		IncrementTestFilter filter = new IncrementTestFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		SubmissionPublisher<Integer> publisher = new SubmissionPublisher<Integer>();
+		Flows.subscribe(g, publisher, g.getInPortsOf(filter).iterator().next());
+		executor.start(g);
+		for(int i = 0; i < LIMIT; i++) {
+			publisher.submit(i);
+		}
+		publisher.close();
+		executor.await();
+		assertEquals(LIMIT, sink.getCollected().size());
+		for(int i = 0; i < LIMIT; i++) {
+			assertEquals(Integer.valueOf(i + 1), sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testSubscriberSourceError() throws Exception {
+		IncrementTestFilter filter = new IncrementTestFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		SubmissionPublisher<Integer> publisher = new SubmissionPublisher<Integer>();
+		Flows.subscribe(g, publisher, g.getInPortsOf(filter).iterator().next());
+		executor.start(g);
+		publisher.submit(1);
+		RuntimeException failure = new RuntimeException("failed");
+		publisher.closeExceptionally(failure);
+		try {
+			executor.await();
+			fail();
+		} catch(ExecutionException e) {
+			Throwable cause = e;
+			while(cause != null && cause != failure) {
+				cause = cause.getCause();
+			}
+			assertSame(failure, cause);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.channel.Channel;
+import de.cau.dataprocessing.channel.MpmcRingBuffer;
+import de.cau.dataprocessing.engine.Frame;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.engine.Result;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+import de.cau.dataprocessing.reflect.PortInvokers;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+
+public class TestFrames {
+
+	private static final int LIMIT = 1000;
+
+	public static class SquareFilter implements IDataMangler {
+
+		private long in;
+
+		private long out;
+
+		public String getName() {
+			return "Square Filter";
+		}
+
+		@InputPort
+		public void setIn(long in) {
+			this.in = in;
+		}
+
+		@OutputPort
+		public long getOut() {
+			return out;
+		}
+
+		public void execute() {
+			out = in * in;
+		}
+	}
+
+	public static class PrimitiveSink implements IDataMangler {
+
+		private long value;
+
+		long sum;
+
+		public String getName() {
+			return "Primitive Sink";
+		}
+
+		@InputPort
+		public void setValue(long value) {
+			this.value = value;
+		}
+
+		public void execute() {
+			sum += value;
+		}
+	}
+
+	public static class BoxedSink implements IDataMangler {
+
+		private Long value;
+
+		long sum;
+
+		public String getName() {
+			return "Boxed Sink";
+		}
+
+		@InputPort
+		public void setValue(Long value) {
+			this.value = value;
+		}
+
+		public void execute() {
+			sum += value;
+		}
+	}
+
+	private GraphExecutor executor;
+
+	@Before
+	public void setUp() {
+		Injector inj = Guice.createInjector(new IPCModule());
+		executor = inj.getInstance(GraphExecutor.class);
+	}
+
+	@Test
+	public void testSlots() {
+		Frame frame = new Frame(4);
+		assertTrue(frame.isEmpty());
+		frame.put(0, "a");
+		frame.putLong(1, Long.MAX_VALUE);
+		frame.putInt(2, -3);
+		frame.putDouble(3, 0.5);
+		assertEquals("a", frame.get(0));
+		assertEquals(Long.MAX_VALUE, frame.getLong(1));
+		assertEquals(-3, frame.getInt(2));
+		assertEquals(0.5, frame.getDouble(3), 0);
+		assertEquals(Frame.DOUBLE, frame.getKind(3));
+		assertEquals(Long.valueOf(Long.MAX_VALUE), frame.get(1));
+		assertEquals(Long.valueOf(Long.MAX_VALUE).hashCode(), frame.hashOf(1));
+		assertEquals(Double.valueOf(0.5).hashCode(), frame.hashOf(3));
+		frame.clear();
+		assertTrue(frame.isEmpty());
+		assertFalse(frame.isSet(0));
+		assertNull(frame.get(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWrongKind() {
+		Frame frame = new Frame(1);
+		frame.putInt(0, 1);
+		frame.getLong(0);
+	}
+
+	@Test
+	public void testPrimitiveInvokers() throws Exception {
+		SquareFilter filter = new SquareFilter();
+		InputInvoker in = PortInvokers.forInputPort(filter, SquareFilter.class.getMethod("setIn", long.class));
+		OutputInvoker out = PortInvokers.forOutputPort(filter, SquareFilter.class.getMethod("getOut"));
+		assertTrue(in instanceof InputInvoker.OfLong);
+		assertTrue(out instanceof OutputInvoker.OfLong);
+		((InputInvoker.OfLong) in).setLong(12);
+		filter.execute();
+		assertEquals(144, ((OutputInvoker.OfLong) out).getLong());
+		in.set(Integer.valueOf(3));
+		filter.execute();
+		assertEquals(Long.valueOf(9), out.get());
+	}
+
+	@Test
+	public void testRecycling() {
+		Channel<Result> pool = new MpmcRingBuffer<Result>(2);
+		Result result = new Result(2, pool);
+		result.putLong(1, 5);
+		result.retain(2);
+		result.release();
+		assertEquals(0, pool.size());
+		assertTrue(result.isSet(1));
+		result.release();
+		assertSame(result, pool.poll());
+		assertTrue(result.isEmpty());
+		assertNull(result.getSrc());
+	}
+
+	@Test
+	public void testPrimitivePipeline() throws Exception {
+		Graph g = new Graph();
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(LIMIT);
+		SquareFilter filter = new SquareFilter();
+		PrimitiveSink primitive = new PrimitiveSink();
+		BoxedSink boxed = new BoxedSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(primitive);
+		g.addMangler(boxed);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(filter).iterator().next());
+		// two followers, so the values of the filter are passed on in results
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(primitive).iterator().next());
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(boxed).iterator().next());
+		executor.run(g);
+		long expected = 0;
+		for(long i = 0; i < LIMIT; i++) {
+			expected += i * i;
+		}
+		assertEquals(expected, primitive.sum);
+		assertEquals(expected, boxed.sum);
+	}
+}
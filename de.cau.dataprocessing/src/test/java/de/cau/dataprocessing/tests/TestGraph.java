@@ -15,6 +15,7 @@ import com.google.inject.Injector;
 import de.cau.dataprocessing.engine.Graph;
 import de.cau.dataprocessing.filters.IDataMangler;
 import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
 import de.cau.dataprocessing.tests.data.SimpleTestSink;
 import de.cau.dataprocessing.tests.data.SimpleTestSource;
 
@@ -108,4 +109,49 @@ public class TestGraph {
 		} catch (IllegalArgumentException e) {
 		}
 	}
+
+	@Test
+	public void testRemoveKeepsOtherConnections() throws Exception {
+		IDataMangler source = inj.getInstance(SimpleTestSource.class);
+		IDataMangler sink = inj.getInstance(SimpleTestSink.class);
+		IDataMangler sink2 = inj.getInstance(SimpleTestSink.class);
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.addMangler(sink2);
+		InstanceMethod<IDataMangler> sourcePort = g.getOutPortsOf(source).iterator().next();
+		InstanceMethod<IDataMangler> sinkPort = g.getInPortsOf(sink).iterator().next();
+		InstanceMethod<IDataMangler> sink2Port = g.getInPortsOf(sink2).iterator().next();
+		g.connect(sourcePort, sinkPort);
+		g.connect(sourcePort, sink2Port);
+		g.removeIDM(sink);
+		assertTrue("Connection to remaining sink lost", g.isConnected(sourcePort, sink2Port));
+		assertEquals(1, Iterables.size(g.getConnectionsFromOutputPort(sourcePort)));
+		assertEquals(1, Iterables.size(g.getFollowerIDMsOfIDM(source)));
+		assertTrue(Iterables.contains(g.getPredecessorIDMsOfIDM(sink2), source));
+		assertTrue(g.disconnect(sourcePort, sink2Port));
+		assertFalse("Disconnecting twice succeeded", g.disconnect(sourcePort, sink2Port));
+		assertTrue(Iterables.isEmpty(g.getFollowerIDMsOfIDM(source)));
+		assertTrue(Iterables.isEmpty(g.getPredecessorIDMsOfIDM(sink2)));
+		assertTrue(Iterables.isEmpty(g.getAllConnectionsToIDM(sink2)));
+	}
+
+	@Test(timeout = 20000)
+	public void testLargeGraph() throws Exception {
+		int size = 20000;
+		IncrementTestFilter[] filters = new IncrementTestFilter[size];
+		for(int i = 0; i < size; i++) {
+			filters[i] = new IncrementTestFilter();
+			g.addMangler(filters[i]);
+			if(i > 0) {
+				g.connect(g.getOutPortsOf(filters[i - 1]).iterator().next(), g.getInPortsOf(filters[i]).iterator().next());
+			}
+		}
+		for(int i = 1; i < size; i++) {
+			assertSame(filters[i - 1], g.getAllConnectionsToIDM(filters[i]).iterator().next().getInstance());
+		}
+		for(int i = 0; i < size; i++) {
+			g.removeIDM(filters[i]);
+		}
+		assertTrue(Iterables.isEmpty(g.getAllIDMs()));
+	}
 }
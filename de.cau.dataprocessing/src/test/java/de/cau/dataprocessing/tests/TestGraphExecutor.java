@@ -0,0 +1,117 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestGraphExecutor {
+
+	private Injector inj;
+	private Graph g;
+	private GraphExecutor executor;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+		executor = inj.getInstance(GraphExecutor.class);
+	}
+
+	private static InstanceMethod<IDataMangler> port(Graph g, IDataMangler idm) {
+		return g.getAllPortsOf(idm).iterator().next();
+	}
+
+	@Test
+	public void testPipeline() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		IncrementTestFilter filter = inj.getInstance(IncrementTestFilter.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(port(g, source), g.getInPortsOf(filter).iterator().next());
+		g.connect(g.getOutPortsOf(filter).iterator().next(), port(g, sink));
+		executor.run(g);
+		assertEquals(1000, sink.getCollected().size());
+		for(int i = 0; i < 1000; i++) {
+			assertEquals("Records reordered or lost", Integer.valueOf(i + 1), sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testFanOut() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		CollectingTestSink sink2 = inj.getInstance(CollectingTestSink.class);
+		source.setLimit(10);
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.addMangler(sink2);
+		g.connect(port(g, source), port(g, sink));
+		g.connect(port(g, source), port(g, sink2));
+		executor.run(g);
+		assertEquals(10, sink.getCollected().size());
+		assertEquals(sink.getCollected(), sink2.getCollected());
+	}
+
+	@Test
+	public void testFanIn() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		CountingTestSource source2 = inj.getInstance(CountingTestSource.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		source2.setLimit(500);
+		g.addMangler(source);
+		g.addMangler(source2);
+		g.addMangler(sink);
+		g.connect(port(g, source), port(g, sink));
+		g.connect(port(g, source2), port(g, sink));
+		executor.run(g);
+		assertEquals(1500, sink.getCollected().size());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		IDataMangler failing = new IDataMangler() {
+
+			@Override
+			public String getName() {
+				return "Failing test mangler";
+			}
+
+			@InputPort
+			public void setValue(Integer i) {
+			}
+
+			@Override
+			public void execute() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		g.addMangler(source);
+		g.addMangler(failing);
+		g.connect(port(g, source), port(g, failing));
+		try {
+			executor.run(g);
+			fail("Failure of mangler not reported");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof UnsupportedOperationException);
+		}
+	}
+}
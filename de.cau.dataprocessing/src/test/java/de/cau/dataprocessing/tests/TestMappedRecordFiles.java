@@ -0,0 +1,132 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.io.MappedRecordFileSink;
+import de.cau.dataprocessing.filters.io.MappedRecordFileSource;
+import de.cau.dataprocessing.filters.io.RecordSegments;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.tests.data.RecordCollectingTestSink;
+
+public class TestMappedRecordFiles {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Injector inj;
+	private Graph g;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+	}
+
+	private void write(int records, int recordsPerSegment) {
+		write(0, records, recordsPerSegment);
+	}
+
+	private void write(int first, int records, int recordsPerSegment) {
+		MappedRecordFileSink sink = new MappedRecordFileSink(folder.getRoot(), "test", recordsPerSegment);
+		MonitoringRecord record = new MonitoringRecord();
+		for(int i = first; i < first + records; i++) {
+			record.setTimestamp(i);
+			record.setTraceId(i / 10);
+			record.setOperationId(i % 7);
+			record.setDuration(2 * i);
+			sink.setRecord(record);
+			sink.execute();
+		}
+		sink.close();
+	}
+
+	@Test
+	public void testRolling() throws Exception {
+		write(2500, 1000);
+		assertEquals(3, RecordSegments.list(folder.getRoot(), "test").size());
+		RandomAccessFile last = new RandomAccessFile(RecordSegments.segment(folder.getRoot(), "test", 2), "r");
+		try {
+			assertEquals("Segment not pre-sized", RecordSegments.size(1000), last.length());
+		} finally {
+			last.close();
+		}
+	}
+
+	private RecordCollectingTestSink replay() throws Exception {
+		MappedRecordFileSource source = new MappedRecordFileSource(folder.getRoot(), "test");
+		RecordCollectingTestSink sink = new RecordCollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		inj.getInstance(GraphExecutor.class).run(g);
+		return sink;
+	}
+
+	private static void assertRecords(int records, RecordCollectingTestSink sink) {
+		assertEquals(records, sink.getCollected().size());
+		for(int i = 0; i < records; i++) {
+			MonitoringRecord record = sink.getCollected().get(i);
+			assertEquals(i, record.getTimestamp());
+			assertEquals(i / 10, record.getTraceId());
+			assertEquals(i % 7, record.getOperationId());
+			assertEquals(2 * i, record.getDuration());
+		}
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		write(2500, 1000);
+		assertRecords(2500, replay());
+	}
+
+	@Test
+	public void testRestartedSink() throws Exception {
+		write(15, 10);
+		// continues after the segments written before
+		write(15, 1, 10);
+		assertEquals(3, RecordSegments.list(folder.getRoot(), "test").size());
+		assertEquals(3, RecordSegments.next(folder.getRoot(), "test"));
+		assertRecords(16, replay());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testExistingSegment() throws Exception {
+		MappedRecordFileSink sink = new MappedRecordFileSink(folder.getRoot(), "test", 10);
+		sink.setRecord(new MonitoringRecord());
+		sink.execute();
+		sink.close();
+		// created after the sink looked the segments up
+		assertTrue(RecordSegments.segment(folder.getRoot(), "test", 1).createNewFile());
+		sink.execute();
+	}
+
+	@Test
+	public void testEmptyStream() throws Exception {
+		MappedRecordFileSource source = new MappedRecordFileSource(folder.getRoot(), "test");
+		source.execute();
+		assertNull(source.getRecord());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCorruptSegment() throws Exception {
+		File file = RecordSegments.segment(folder.getRoot(), "test", 0);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(RecordSegments.size(1));
+		raf.close();
+		new MappedRecordFileSource(folder.getRoot(), "test").execute();
+	}
+}
@@ -0,0 +1,249 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import de.cau.dataprocessing.cache.TinyLfuCache;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.engine.PullExecution;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.metrics.ManglerMetrics;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+
+public class TestMemoization {
+
+	private static final int LIMIT = 1000;
+
+	private Graph g;
+
+	/**
+	 * Provides the values 0 to 9 over and over again.
+	 */
+	public static class RepeatingSource implements IDataMangler {
+
+		private int count;
+
+		private Integer current;
+
+		public String getName() {
+			return "Repeating Source";
+		}
+
+		@OutputPort
+		public Integer getValue() {
+			return current;
+		}
+
+		public void execute() {
+			current = count < LIMIT ? Integer.valueOf(count++ % 10) : null;
+		}
+	}
+
+	public static class SquareFilter implements IDataMangler {
+
+		private Integer value;
+
+		private Integer square;
+
+		int executions;
+
+		public String getName() {
+			return "Square Filter";
+		}
+
+		@InputPort(required = true)
+		public void setValue(Integer value) {
+			this.value = value;
+		}
+
+		@OutputPort(cache = 100)
+		public Integer getSquare() {
+			return square;
+		}
+
+		public void execute() {
+			executions++;
+			square = value * value;
+		}
+	}
+
+	public static class MixedFilter extends SquareFilter {
+
+		@OutputPort
+		public Integer getValue() {
+			return 0;
+		}
+	}
+
+	public static class PrimitiveSquareFilter implements IDataMangler {
+
+		private int value;
+
+		private int square;
+
+		int executions;
+
+		public String getName() {
+			return "Primitive Square Filter";
+		}
+
+		@InputPort(required = true)
+		public void setValue(int value) {
+			this.value = value;
+		}
+
+		@OutputPort(cache = 100)
+		public int getSquare() {
+			return square;
+		}
+
+		public void execute() {
+			executions++;
+			square = value * value;
+		}
+	}
+
+	public static class RecordFilter implements IDataMangler {
+
+		public String getName() {
+			return "Record Filter";
+		}
+
+		@InputPort
+		public void setRecord(MonitoringRecord record) {
+		}
+
+		@OutputPort(cache = 10)
+		public String getHost() {
+			return null;
+		}
+
+		public void execute() {
+		}
+	}
+
+	@Before
+	public void setUp() {
+		g = new Graph();
+	}
+
+	private SquareFilter pipeline(CollectingTestSink sink) {
+		RepeatingSource source = new RepeatingSource();
+		SquareFilter filter = new SquareFilter();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(filter).iterator().next());
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		return filter;
+	}
+
+	private void assertMemoized(SquareFilter filter, CollectingTestSink sink) {
+		assertEquals(10, filter.executions);
+		assertEquals(LIMIT, sink.getCollected().size());
+		for(int i = 0; i < LIMIT; i++) {
+			assertEquals(Integer.valueOf((i % 10) * (i % 10)), sink.getCollected().get(i));
+		}
+		ManglerMetrics metrics = g.getMetrics().of(filter);
+		assertEquals(LIMIT - 10, metrics.getCacheHits());
+		assertEquals(10, metrics.getCacheMisses());
+		assertEquals(10, metrics.getInvocations());
+	}
+
+	@Test
+	public void testGraphExecutor() throws Exception {
+		CollectingTestSink sink = new CollectingTestSink();
+		SquareFilter filter = pipeline(sink);
+		Guice.createInjector(new IPCModule()).getInstance(GraphExecutor.class).run(g);
+		assertMemoized(filter, sink);
+	}
+
+	@Test
+	public void testPullExecution() throws Exception {
+		CollectingTestSink sink = new CollectingTestSink();
+		SquareFilter filter = pipeline(sink);
+		new PullExecution(g).run();
+		assertMemoized(filter, sink);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMixedPorts() {
+		ClassPorts.of(MixedFilter.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMutableInput() {
+		ClassPorts.of(RecordFilter.class);
+	}
+
+	@Test
+	public void testPrimitivePorts() throws Exception {
+		RepeatingSource source = new RepeatingSource();
+		PrimitiveSquareFilter filter = new PrimitiveSquareFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(filter).iterator().next());
+		g.connect(g.getOutPortsOf(filter).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		new PullExecution(g).run();
+		assertEquals(10, filter.executions);
+		assertEquals(LIMIT, sink.getCollected().size());
+		for(int i = 0; i < LIMIT; i++) {
+			assertEquals(Integer.valueOf((i % 10) * (i % 10)), sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testCounters() {
+		TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>(10);
+		assertNull(cache.get(1));
+		cache.put(1, "1");
+		assertEquals("1", cache.get(1));
+		assertEquals("1", cache.get(1));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		for(int i = 0; i < 100; i++) {
+			cache.put(i, String.valueOf(i));
+		}
+		assertEquals(10, cache.size());
+		assertTrue(cache.getEvictions() > 0);
+	}
+
+	@Test
+	public void testScanResistance() {
+		TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<Integer, Integer>(100);
+		// popular keys
+		for(int round = 0; round < 5; round++) {
+			for(int i = 0; i < 50; i++) {
+				if(cache.get(i) == null) {
+					cache.put(i, i);
+				}
+			}
+		}
+		// a scan of keys seen once
+		for(int i = 1000; i < 1500; i++) {
+			if(cache.get(i) == null) {
+				cache.put(i, i);
+			}
+		}
+		int kept = 0;
+		for(int i = 0; i < 50; i++) {
+			if(cache.containsKey(i)) {
+				kept++;
+			}
+		}
+		assertTrue("popular keys evicted by a scan: " + kept, kept >= 45);
+		assertTrue(cache.size() <= 100);
+	}
+}
@@ -0,0 +1,123 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.metrics.ChannelMetrics;
+import de.cau.dataprocessing.metrics.GraphMetrics;
+import de.cau.dataprocessing.metrics.Histogram;
+import de.cau.dataprocessing.metrics.ManglerMetrics;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestMetrics {
+
+	private Injector inj;
+	private Graph g;
+	private GraphExecutor executor;
+	private CountingTestSource source;
+	private IncrementTestFilter filter;
+	private CollectingTestSink sink;
+	private CollectingTestSink sink2;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+		executor = inj.getInstance(GraphExecutor.class);
+		source = inj.getInstance(CountingTestSource.class);
+		filter = inj.getInstance(IncrementTestFilter.class);
+		sink = inj.getInstance(CollectingTestSink.class);
+		sink2 = inj.getInstance(CollectingTestSink.class);
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.addMangler(sink2);
+		g.connect(out(source), in(filter));
+		g.connect(out(filter), in(sink));
+		g.connect(out(filter), in(sink2));
+	}
+
+	private InstanceMethod<IDataMangler> in(IDataMangler idm) {
+		return g.getInPortsOf(idm).iterator().next();
+	}
+
+	private InstanceMethod<IDataMangler> out(IDataMangler idm) {
+		return g.getOutPortsOf(idm).iterator().next();
+	}
+
+	@Test
+	public void testHistogram() {
+		Histogram histogram = new Histogram();
+		for(int i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertEquals(50000, histogram.getValueAtPercentile(50), 50000 * 0.04);
+		assertEquals(99000, histogram.getValueAtPercentile(99), 99000 * 0.04);
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+		histogram.reset();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+
+	@Test
+	public void testManglerAndPortMetrics() throws Exception {
+		executor.run(g);
+		GraphMetrics metrics = g.getMetrics();
+		ManglerMetrics filterMetrics = metrics.of(filter);
+		assertEquals(1000, filterMetrics.getRecordsIn());
+		assertEquals(1000, filterMetrics.getRecordsOut());
+		assertEquals(1000, filterMetrics.getInvocations());
+		assertTrue(filterMetrics.getLatencyMax() >= filterMetrics.getLatencyP50());
+		assertTrue(filterMetrics.getRecordsInPerSecond() > 0);
+		// the source is executed once more to find out it is exhausted
+		assertEquals(1001, metrics.of(source).getInvocations());
+		assertEquals(1000, metrics.of(sink).getRecordsIn());
+		assertEquals(0, metrics.of(sink).getRecordsOut());
+		assertEquals(1000, metrics.getValues(out(filter)));
+		assertEquals(1000, metrics.getValues(in(sink2)));
+		// fused source->filter plus one inbox per sink
+		assertEquals(2, metrics.getChannelMetrics().size());
+		for(ChannelMetrics channel : metrics.getChannelMetrics()) {
+			assertEquals(0, channel.getDepth());
+			assertEquals(0, channel.getDropped());
+		}
+		metrics.reset();
+		assertEquals(0, metrics.of(filter).getRecordsIn());
+		assertEquals(0, metrics.getValues(out(filter)));
+	}
+
+	@Test
+	public void testJmx() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName query = new ObjectName(GraphMetrics.DOMAIN + ":*");
+		int before = server.queryNames(query, null).size();
+		executor.start(g);
+		Set<ObjectName> names = server.queryNames(query, null);
+		assertEquals("Manglers and channels not registered", before + 4 + 2, names.size());
+		ObjectName name = server.queryNames(new ObjectName(GraphMetrics.DOMAIN + ":type=Mangler,name=\"Increment test Filter@*\""), null)
+				.iterator().next();
+		executor.await();
+		assertEquals(before, server.queryNames(query, null).size());
+		assertFalse(server.isRegistered(name));
+	}
+}
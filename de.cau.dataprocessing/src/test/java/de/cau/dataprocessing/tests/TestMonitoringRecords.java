@@ -0,0 +1,72 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecordAllocator;
+import de.cau.dataprocessing.data.MonitoringRecordSlab;
+
+public class TestMonitoringRecords {
+
+	@Test
+	public void testFlyweight() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(2 * FlyweightMonitoringRecord.SIZE);
+		FlyweightMonitoringRecord record = new FlyweightMonitoringRecord().wrap(buffer, FlyweightMonitoringRecord.SIZE);
+		MonitoringRecord heap = new MonitoringRecord();
+		heap.setTimestamp(1L);
+		heap.setTraceId(2L);
+		heap.setOperationId(3);
+		heap.setDuration(4L);
+		record.copyFrom(heap);
+		assertEquals(1L, record.getTimestamp());
+		assertEquals(2L, record.getTraceId());
+		assertEquals(3, record.getOperationId());
+		assertEquals(4L, record.getDuration());
+		assertEquals("Record not written in place", 1L, buffer.getLong(FlyweightMonitoringRecord.SIZE));
+		assertEquals(0L, buffer.getLong(0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testWrapOutOfBounds() throws Exception {
+		new FlyweightMonitoringRecord().wrap(ByteBuffer.allocate(FlyweightMonitoringRecord.SIZE), 1);
+	}
+
+	@Test
+	public void testSlab() throws Exception {
+		MonitoringRecordSlab slab = new MonitoringRecordSlab(2);
+		FlyweightMonitoringRecord first = slab.allocate();
+		first.setTraceId(7L);
+		FlyweightMonitoringRecord second = slab.allocate();
+		second.setTraceId(8L);
+		assertNull("Full slab allocated a record", slab.allocate());
+		assertEquals(7L, slab.get(0).getTraceId());
+		assertEquals(8L, slab.get(1).getTraceId());
+		slab.clear();
+		assertSame("Slots not reused", first, slab.allocate());
+	}
+
+	@Test
+	public void testAllocatorRecyclesSlabs() throws Exception {
+		MonitoringRecordAllocator allocator = new MonitoringRecordAllocator(16, 2);
+		for(int round = 0; round < 100; round++) {
+			List<FlyweightMonitoringRecord> records = new ArrayList<FlyweightMonitoringRecord>();
+			for(int i = 0; i < 16; i++) {
+				FlyweightMonitoringRecord record = allocator.allocate();
+				record.setTimestamp(round * 16 + i);
+				records.add(record);
+			}
+			for(int i = 0; i < 16; i++) {
+				assertEquals(round * 16 + i, records.get(i).getTimestamp());
+				records.get(i).release();
+			}
+		}
+		assertTrue("Released slabs not reused", allocator.getSlabCount() <= 2);
+	}
+}
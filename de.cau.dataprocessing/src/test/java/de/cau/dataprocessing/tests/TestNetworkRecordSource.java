@@ -0,0 +1,295 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.inject.Guice;
+
+import de.cau.dataprocessing.data.FlyweightMonitoringRecord;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.io.ColumnarRecordSink;
+import de.cau.dataprocessing.filters.io.ColumnarRecordSource;
+import de.cau.dataprocessing.filters.io.ColumnarSegments;
+import de.cau.dataprocessing.filters.io.NetworkRecordSource;
+import de.cau.dataprocessing.inject.IPCModule;
+
+public class TestNetworkRecordSource {
+
+	private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Graph g;
+
+	private GraphExecutor executor;
+
+	private NetworkRecordSource source;
+
+	private final RecordSink sink = new RecordSink();
+
+	public static class RecordSink implements IDataMangler {
+
+		private MonitoringRecord record;
+
+		final Queue<MonitoringRecord> records = new ConcurrentLinkedQueue<MonitoringRecord>();
+
+		public String getName() {
+			return "Record sink";
+		}
+
+		@InputPort(required = true)
+		public void setRecord(MonitoringRecord record) {
+			this.record = record;
+		}
+
+		public void execute() {
+			records.add(record);
+		}
+	}
+
+	public static class FailingSink implements IDataMangler {
+
+		public String getName() {
+			return "Failing sink";
+		}
+
+		@InputPort(required = true)
+		public void setRecord(MonitoringRecord record) {
+		}
+
+		public void execute() {
+			throw new IllegalStateException("failed");
+		}
+	}
+
+	@Before
+	public void setUp() {
+		g = new Graph();
+		executor = Guice.createInjector(new IPCModule()).getInstance(GraphExecutor.class);
+	}
+
+	@After
+	public void tearDown() {
+		if(source != null) {
+			source.close();
+		}
+	}
+
+	private void start(NetworkRecordSource source) {
+		start(source, sink);
+	}
+
+	private void start(NetworkRecordSource source, IDataMangler sink) {
+		this.source = source;
+		g.addMangler(source);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		executor.start(g);
+	}
+
+	private static ByteBuffer encode(int producer, int from, int count) {
+		ByteBuffer buffer = ByteBuffer.allocate(count * FlyweightMonitoringRecord.SIZE).order(NetworkRecordSource.ORDER);
+		FlyweightMonitoringRecord record = new FlyweightMonitoringRecord();
+		for(int i = 0; i < count; i++) {
+			record.wrap(buffer, i * FlyweightMonitoringRecord.SIZE);
+			record.setTraceId(producer);
+			record.setTimestamp(from + i);
+			record.setOperationId(producer * 10);
+			record.setDuration(from + i + 1);
+		}
+		return buffer;
+	}
+
+	private void awaitRecords(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(sink.records.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, sink.records.size());
+	}
+
+	@Test
+	public void testTcpProducers() throws Exception {
+		final int producers = 50;
+		final int records = 200;
+		start(new NetworkRecordSource(LOOPBACK, null, 256));
+		final InetSocketAddress address = source.getTcpAddress();
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int p = 0; p < producers; p++) {
+			final int producer = p;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						SocketChannel channel = SocketChannel.open(address);
+						ByteBuffer buffer = encode(producer, 0, records);
+						// split records across writes
+						while(buffer.hasRemaining()) {
+							ByteBuffer chunk = buffer.slice();
+							chunk.limit(Math.min(chunk.remaining(), 45));
+							while(chunk.hasRemaining()) {
+								channel.write(chunk);
+							}
+							buffer.position(buffer.position() + chunk.position());
+						}
+						channel.close();
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		awaitRecords(producers * records);
+		source.stop();
+		executor.await();
+		long[] next = new long[producers];
+		for(MonitoringRecord record : sink.records) {
+			int producer = (int) record.getTraceId();
+			assertEquals(next[producer]++, record.getTimestamp());
+			assertEquals(producer * 10, record.getOperationId());
+			assertEquals(record.getTimestamp() + 1, record.getDuration());
+		}
+		for(int p = 0; p < producers; p++) {
+			assertEquals(records, next[p]);
+		}
+		assertEquals(0, source.getConnectionCount());
+		// buffers are only held while records are split, not per connection
+		assertTrue(source.getAllocatedBuffers() <= producers);
+	}
+
+	@Test
+	public void testUdpProducers() throws Exception {
+		start(new NetworkRecordSource(null, LOOPBACK));
+		DatagramChannel channel = DatagramChannel.open();
+		channel.connect(source.getUdpAddress());
+		for(int i = 0; i < 20; i++) {
+			channel.write(encode(1, i * 10, 10));
+		}
+		// no whole record
+		channel.write(ByteBuffer.allocate(FlyweightMonitoringRecord.SIZE + 1));
+		channel.close();
+		awaitRecords(200);
+		long deadline = System.currentTimeMillis() + 10000;
+		while(source.getDroppedDatagrams() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		source.stop();
+		executor.await();
+		assertEquals(1, source.getDroppedDatagrams());
+		long timestamp = 0;
+		for(MonitoringRecord record : sink.records) {
+			assertEquals(timestamp++, record.getTimestamp());
+		}
+	}
+
+	@Test
+	public void testTruncatedDatagrams() throws Exception {
+		start(new NetworkRecordSource(null, LOOPBACK, 2 * FlyweightMonitoringRecord.SIZE));
+		DatagramChannel channel = DatagramChannel.open();
+		channel.connect(source.getUdpAddress());
+		// whole records, but more than fit into a buffer
+		channel.write(encode(1, 0, 3));
+		channel.write(encode(1, 3, 2));
+		channel.close();
+		awaitRecords(2);
+		source.stop();
+		executor.await();
+		assertEquals(1, source.getTruncatedDatagrams());
+		assertEquals(1, source.getDroppedDatagrams());
+		long timestamp = 3;
+		for(MonitoringRecord record : sink.records) {
+			assertEquals(timestamp++, record.getTimestamp());
+		}
+	}
+
+	@Test
+	public void testBuiltInSink() throws Exception {
+		// a sink keeping none of the records, more records than the source used to have in flight
+		final int records = 100000;
+		File directory = folder.getRoot();
+		start(new NetworkRecordSource(LOOPBACK, null), new ColumnarRecordSink(directory, "test", 10000));
+		SocketChannel channel = SocketChannel.open(source.getTcpAddress());
+		ByteBuffer buffer = encode(1, 0, records);
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.close();
+		long deadline = System.currentTimeMillis() + 20000;
+		while(ColumnarSegments.list(directory, "test").size() < 10 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		source.stop();
+		executor.await();
+		ColumnarRecordSource replay = new ColumnarRecordSource(directory, "test");
+		long timestamp = 0;
+		for(replay.execute(); replay.getRecord() != null; replay.execute()) {
+			assertEquals(timestamp++, replay.getRecord().getTimestamp());
+		}
+		assertEquals(records, timestamp);
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		start(new NetworkRecordSource(LOOPBACK, LOOPBACK), new FailingSink());
+		InetSocketAddress tcp = source.getTcpAddress();
+		InetSocketAddress udp = source.getUdpAddress();
+		DatagramChannel channel = DatagramChannel.open();
+		channel.connect(udp);
+		channel.write(encode(1, 0, 1));
+		channel.close();
+		try {
+			executor.await();
+			fail("Failure not propagated");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// the failed execution does not hold the addresses anymore
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.bind(tcp);
+		server.close();
+		DatagramChannel datagrams = DatagramChannel.open();
+		datagrams.bind(udp);
+		datagrams.close();
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		start(new NetworkRecordSource(LOOPBACK, LOOPBACK));
+		Thread.sleep(50);
+		source.stop();
+		executor.await();
+		assertTrue(sink.records.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoAddress() throws Exception {
+		new NetworkRecordSource(null, null);
+	}
+}
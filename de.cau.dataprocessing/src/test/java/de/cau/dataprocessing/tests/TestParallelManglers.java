@@ -0,0 +1,193 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import de.cau.dataprocessing.engine.ExecutionPlan;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.engine.Operator;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.annotations.Parallel;
+import de.cau.dataprocessing.inject.IPCModule;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestParallelManglers {
+
+	@Parallel(replicas = 4, ordered = true)
+	public static class OrderedIncrementFilter extends IncrementTestFilter {
+	}
+
+	@Parallel(replicas = 4)
+	public static class UnorderedIncrementFilter extends IncrementTestFilter {
+	}
+
+	public static class ModuloFilter implements IDataMangler {
+
+		private Integer in;
+
+		private Integer out;
+
+		public String getName() {
+			return "Modulo Filter";
+		}
+
+		@InputPort(required = true)
+		public void setIn(Integer in) {
+			this.in = in;
+		}
+
+		@OutputPort
+		public Integer getOut() {
+			return out;
+		}
+
+		public void execute() {
+			out = in % 10;
+		}
+	}
+
+	/**
+	 * Counts the occurrences of each key, which only works if all of them reach the same replica.
+	 */
+	@Parallel(replicas = 3, partitioning = Parallel.Partitioning.HASH)
+	public static class KeyedCountFilter implements IDataMangler {
+
+		private final Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+
+		private Integer key;
+
+		private Integer count;
+
+		public String getName() {
+			return "Keyed count Filter";
+		}
+
+		@InputPort(required = true, key = true)
+		public void setKey(Integer key) {
+			this.key = key;
+		}
+
+		@OutputPort
+		public Integer getCount() {
+			return count;
+		}
+
+		public void execute() {
+			count = counts.containsKey(key) ? counts.get(key) + 1 : 1;
+			counts.put(key, count);
+		}
+	}
+
+	@Parallel(partitioning = Parallel.Partitioning.HASH)
+	public static class KeylessFilter extends IncrementTestFilter {
+	}
+
+	private Injector inj;
+	private Graph g;
+	private GraphExecutor executor;
+
+	@Before
+	public void setUp() throws Exception {
+		inj = Guice.createInjector(new IPCModule());
+		g = inj.getInstance(Graph.class);
+		executor = inj.getInstance(GraphExecutor.class);
+	}
+
+	private InstanceMethod<IDataMangler> in(IDataMangler idm) {
+		return g.getInPortsOf(idm).iterator().next();
+	}
+
+	private InstanceMethod<IDataMangler> out(IDataMangler idm) {
+		return g.getOutPortsOf(idm).iterator().next();
+	}
+
+	private CollectingTestSink pipeline(IDataMangler... filters) {
+		CountingTestSource source = inj.getInstance(CountingTestSource.class);
+		CollectingTestSink sink = inj.getInstance(CollectingTestSink.class);
+		g.addMangler(source);
+		g.addMangler(sink);
+		IDataMangler last = source;
+		for(IDataMangler filter : filters) {
+			g.addMangler(filter);
+			g.connect(out(last), in(filter));
+			last = filter;
+		}
+		g.connect(out(last), in(sink));
+		return sink;
+	}
+
+	@Test
+	public void testReplicasNotFused() throws Exception {
+		OrderedIncrementFilter filter = new OrderedIncrementFilter();
+		pipeline(filter);
+		ExecutionPlan plan = g.compile();
+		assertEquals(3, plan.getOperators().size());
+		Operator operator = plan.getOperatorOf(filter);
+		assertEquals(4, operator.getReplicas().size());
+		assertSame(operator, operator.getReplicas().get(0));
+		HashSet<IDataMangler> manglers = new HashSet<IDataMangler>();
+		for(Operator replica : operator.getReplicas()) {
+			manglers.addAll(replica.getManglers());
+		}
+		assertEquals("Replicas share manglers", 4, manglers.size());
+		assertTrue(operator.isOrdered());
+	}
+
+	@Test
+	public void testOrdered() throws Exception {
+		CollectingTestSink sink = pipeline(new OrderedIncrementFilter());
+		executor.run(g);
+		assertEquals(1000, sink.getCollected().size());
+		for(int i = 0; i < 1000; i++) {
+			assertEquals("Records reordered or lost", Integer.valueOf(i + 1), sink.getCollected().get(i));
+		}
+	}
+
+	@Test
+	public void testUnordered() throws Exception {
+		CollectingTestSink sink = pipeline(new UnorderedIncrementFilter(), new IncrementTestFilter());
+		executor.run(g);
+		List<Integer> collected = new ArrayList<Integer>(sink.getCollected());
+		Collections.sort(collected);
+		assertEquals(1000, collected.size());
+		for(int i = 0; i < 1000; i++) {
+			assertEquals("Records lost", Integer.valueOf(i + 2), collected.get(i));
+		}
+	}
+
+	@Test
+	public void testHashPartitioning() throws Exception {
+		CollectingTestSink sink = pipeline(new ModuloFilter(), new KeyedCountFilter());
+		executor.run(g);
+		List<Integer> collected = new ArrayList<Integer>(sink.getCollected());
+		Collections.sort(collected);
+		assertEquals(1000, collected.size());
+		// each of the ten keys is counted up to 100
+		for(int i = 0; i < 1000; i++) {
+			assertEquals("Keys split across replicas", Integer.valueOf(i / 10 + 1), collected.get(i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHashWithoutKey() {
+		g.addMangler(new KeylessFilter());
+	}
+}
@@ -0,0 +1,187 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.window.TumblingWindowAggregator;
+import de.cau.dataprocessing.reflect.ClassPorts;
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+import de.cau.dataprocessing.reflect.PortInvokers;
+import de.cau.dataprocessing.reflect.PortTable;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+import de.cau.dataprocessing.tests.data.StalePortsFilter;
+
+public class TestPortInvokers {
+
+	public static class PrimitivePorts {
+
+		private long value;
+
+		public void setValue(long value) {
+			this.value = value;
+		}
+
+		public long getValue() {
+			return value;
+		}
+	}
+
+	static class HiddenPorts {
+
+		private String value;
+
+		public void setValue(String value) {
+			this.value = value;
+		}
+
+		public String getValue() {
+			return value;
+		}
+	}
+
+	public static class PrimitiveMangler implements IDataMangler {
+
+		private long value;
+
+		public String getName() {
+			return "Primitive Mangler";
+		}
+
+		@InputPort
+		public void setValue(long value) {
+			this.value = value;
+		}
+
+		@OutputPort
+		public long getDoubled() {
+			return value * 2;
+		}
+
+		public void execute() {
+		}
+	}
+
+	private static class PrivateMangler extends PrimitiveMangler {
+	}
+
+	@Test
+	public void testGeneratedInvokers() throws Exception {
+		IncrementTestFilter filter = new IncrementTestFilter();
+		InputInvoker in = PortInvokers.forInputPort(filter, IncrementTestFilter.class.getMethod("setIn", Integer.class));
+		OutputInvoker out = PortInvokers.forOutputPort(filter, IncrementTestFilter.class.getMethod("getOut"));
+		assertTrue("Invoker for public port not generated", in.getClass().isSynthetic() && out.getClass().isSynthetic());
+		in.set(41);
+		filter.execute();
+		assertEquals(42, out.get());
+	}
+
+	@Test
+	public void testPrimitivePorts() throws Exception {
+		PrimitivePorts ports = new PrimitivePorts();
+		PortInvokers.forInputPort(ports, PrimitivePorts.class.getMethod("setValue", long.class)).set(7L);
+		assertEquals(7L, PortInvokers.forOutputPort(ports, PrimitivePorts.class.getMethod("getValue")).get());
+	}
+
+	@Test
+	public void testNonPublicClass() throws Exception {
+		HiddenPorts ports = new HiddenPorts();
+		PortInvokers.forInputPort(ports, HiddenPorts.class.getMethod("setValue", String.class)).set("foo");
+		assertEquals("foo", PortInvokers.forOutputPort(ports, HiddenPorts.class.getMethod("getValue")).get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalPort() throws Exception {
+		PortInvokers.forOutputPort(new PrimitivePorts(), PrimitivePorts.class.getMethod("setValue", long.class));
+	}
+
+	@Test
+	public void testClassPortsCached() throws Exception {
+		ClassPorts ports = ClassPorts.of(IncrementTestFilter.class);
+		assertSame(ports, ClassPorts.of(IncrementTestFilter.class));
+		assertEquals(1, ports.getInputPorts().size());
+		assertEquals(1, ports.getOutputPorts().size());
+		IncrementTestFilter first = new IncrementTestFilter();
+		IncrementTestFilter second = new IncrementTestFilter();
+		ports.bindInputPort(0, first).set(1);
+		ports.bindInputPort(0, second).set(10);
+		first.execute();
+		second.execute();
+		assertEquals(2, ports.bindOutputPort(0, first).get());
+		assertEquals(11, ports.bindOutputPort(0, second).get());
+	}
+
+	@Test
+	public void testStablePorts() {
+		Graph graph = new Graph();
+		IncrementTestFilter filter = new IncrementTestFilter();
+		graph.addMangler(filter);
+		assertSame(graph.getInPortsOf(filter).iterator().next(), graph.getInPortsOf(filter).iterator().next());
+		assertSame(graph.getInPortsOf(filter).iterator().next(), Iterables.get(graph.getAllPortsOf(filter), 0));
+		assertSame(graph.getOutPortsOf(filter).iterator().next(), Iterables.get(graph.getAllPortsOf(filter), 1));
+	}
+
+	@Test
+	public void testPortTables() throws Exception {
+		assertTrue(ClassPorts.of(IncrementTestFilter.class).isGenerated());
+		assertTrue(ClassPorts.of(TumblingWindowAggregator.class).isGenerated());
+		ClassPorts ports = ClassPorts.of(PrimitiveMangler.class);
+		assertTrue(ports.isGenerated());
+		PrimitiveMangler mangler = new PrimitiveMangler();
+		InputInvoker in = ports.bindInputPort(0, mangler);
+		OutputInvoker out = ports.bindOutputPort(0, mangler);
+		assertTrue(in instanceof InputInvoker.OfLong && out instanceof OutputInvoker.OfLong);
+		((InputInvoker.OfLong) in).setLong(21);
+		assertEquals(42L, ((OutputInvoker.OfLong) out).getLong());
+		in.set(Integer.valueOf(5));
+		assertEquals(10L, out.get());
+	}
+
+	@Test
+	public void testPortTablesMatchReflection() throws Exception {
+		ClassPorts ports = ClassPorts.of(PrimitiveMangler.class);
+		assertEquals(new HashSet<Object>(Arrays.asList(PrimitiveMangler.class.getMethod("setValue", long.class))),
+				new HashSet<Object>(ports.getInputPorts()));
+		assertEquals(new HashSet<Object>(Arrays.asList(PrimitiveMangler.class.getMethod("getDoubled"))),
+				new HashSet<Object>(ports.getOutputPorts()));
+	}
+
+	@Test
+	public void testPortTableFallback() throws Exception {
+		// no table can refer to a private class, its ports are found by reflection
+		ClassPorts ports = ClassPorts.of(PrivateMangler.class);
+		assertFalse(ports.isGenerated());
+		assertEquals(1, ports.getInputPorts().size());
+		PrivateMangler mangler = new PrivateMangler();
+		ports.bindInputPort(0, mangler).set(4L);
+		assertEquals(8L, ports.bindOutputPort(0, mangler).get());
+	}
+
+	@Test
+	public void testStalePortTable() throws Exception {
+		// the table lists a port renamed since, the ports are found by reflection
+		ClassPorts ports = ClassPorts.of(StalePortsFilter.class);
+		assertFalse(ports.isGenerated());
+		assertEquals(Arrays.asList(StalePortsFilter.class.getMethod("setIn", Integer.class)), ports.getInputPorts());
+		// tools tell the table apart by its signature
+		assertEquals("in setIn(java.lang.Integer);out getOut():java.lang.Integer",
+				ClassPorts.signatureOf(StalePortsFilter.class));
+	}
+
+	@Test
+	public void testPortTableSignature() throws Exception {
+		assertEquals(ClassPorts.signatureOf(PrimitiveMangler.class),
+				Class.forName(PrimitiveMangler.class.getName() + PortTable.SUFFIX).asSubclass(PortTable.class)
+						.getConstructor().newInstance().getSignature());
+	}
+}
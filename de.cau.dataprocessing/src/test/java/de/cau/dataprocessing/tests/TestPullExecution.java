@@ -0,0 +1,270 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.Flushable;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.PullExecution;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.reflect.InstanceMethod;
+import de.cau.dataprocessing.tests.data.CollectingTestSink;
+import de.cau.dataprocessing.tests.data.CountingTestSource;
+import de.cau.dataprocessing.tests.data.IncrementTestFilter;
+
+public class TestPullExecution {
+
+	private Graph g;
+
+	/**
+	 * Counts up to 100 and counts the reads of its ports.
+	 */
+	public static class TwoPortSource implements IDataMangler {
+
+		private int count;
+
+		private Integer current;
+
+		int valueReads;
+
+		int squareReads;
+
+		public String getName() {
+			return "Two port Source";
+		}
+
+		@OutputPort
+		public Integer getValue() {
+			valueReads++;
+			return current;
+		}
+
+		@OutputPort
+		public Integer getSquare() {
+			squareReads++;
+			return current != null ? current * current : null;
+		}
+
+		public void execute() {
+			current = count < 100 ? Integer.valueOf(count++) : null;
+		}
+	}
+
+	public static class CountingFilter extends IncrementTestFilter {
+
+		int executions;
+
+		@Override
+		public void execute() {
+			executions++;
+			super.execute();
+		}
+	}
+
+	/**
+	 * Provides the size of each batch.
+	 */
+	public static class BatchSizeFilter implements IDataMangler {
+
+		private Integer[] values;
+
+		public String getName() {
+			return "Batch size filter";
+		}
+
+		@InputPort(batchSize = 100)
+		public void setValues(Integer[] values) {
+			this.values = values;
+		}
+
+		@OutputPort
+		public Integer getSize() {
+			return values != null ? Integer.valueOf(values.length) : null;
+		}
+
+		public void execute() {
+		}
+	}
+
+	/**
+	 * Provides the sum of all values once flushed.
+	 */
+	public static class SummingFilter implements IDataMangler, Flushable {
+
+		private Integer value;
+
+		private int sum;
+
+		private Integer result;
+
+		public String getName() {
+			return "Summing filter";
+		}
+
+		@InputPort(required = true)
+		public void setValue(Integer value) {
+			this.value = value;
+		}
+
+		@OutputPort
+		public Integer getSum() {
+			return result;
+		}
+
+		public void execute() {
+			sum += value;
+		}
+
+		public void flush() {
+			result = sum;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		g = new Graph();
+	}
+
+	private static InstanceMethod<IDataMangler> in(Graph g, IDataMangler idm) {
+		return g.getInPortsOf(idm).iterator().next();
+	}
+
+	private static InstanceMethod<IDataMangler> out(Graph g, IDataMangler idm) {
+		return g.getOutPortsOf(idm).iterator().next();
+	}
+
+	@Test
+	public void testPruning() throws Exception {
+		TwoPortSource source = new TwoPortSource();
+		CountingFilter used = new CountingFilter();
+		CountingFilter dangling = new CountingFilter();
+		CountingFilter disabled = new CountingFilter();
+		CountingFilter unconnected = new CountingFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		CollectingTestSink detached = new CollectingTestSink();
+		for(IDataMangler idm : Arrays.asList(source, used, dangling, disabled, unconnected, sink, detached)) {
+			g.addMangler(idm);
+		}
+		InstanceMethod<IDataMangler> value = null;
+		InstanceMethod<IDataMangler> square = null;
+		for(InstanceMethod<IDataMangler> port : g.getOutPortsOf(source)) {
+			if(port.getMethod().getName().equals("getValue")) {
+				value = port;
+			} else {
+				square = port;
+			}
+		}
+		g.connect(value, in(g, used));
+		g.connect(out(g, used), in(g, sink));
+		// a branch without a sink, one ending at a filter without input and a sink without input
+		g.connect(square, in(g, dangling));
+		g.connect(out(g, dangling), in(g, disabled));
+		g.connect(out(g, unconnected), in(g, disabled));
+		PullExecution execution = new PullExecution(g);
+		assertEquals(new HashSet<IDataMangler>(Arrays.asList(source, used, sink)), execution.getManglers());
+		assertEquals(Arrays.asList(source, used, sink), Arrays.asList(execution.getManglers().toArray()));
+		execution.run();
+		assertEquals(100, sink.getCollected().size());
+		for(int i = 0; i < 100; i++) {
+			assertEquals(Integer.valueOf(i + 1), sink.getCollected().get(i));
+		}
+		assertEquals(100, used.executions);
+		assertEquals(0, dangling.executions);
+		assertEquals(0, disabled.executions);
+		assertEquals(0, unconnected.executions);
+		assertEquals(0, source.squareReads);
+		assertEquals(101, source.valueReads);
+		assertEquals(100, g.getMetrics().getValues(value));
+		assertEquals(0, g.getMetrics().getValues(square));
+	}
+
+	@Test
+	public void testSharedValues() throws Exception {
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(50);
+		CountingFilter filter = new CountingFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		CollectingTestSink sink2 = new CollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.addMangler(sink2);
+		g.connect(out(g, source), in(g, filter));
+		g.connect(out(g, filter), in(g, sink));
+		g.connect(out(g, filter), in(g, sink2));
+		new PullExecution(g).run();
+		// both sinks consume the values of a single execution
+		assertEquals(50, filter.executions);
+		assertEquals(50, sink.getCollected().size());
+		assertEquals(sink.getCollected(), sink2.getCollected());
+	}
+
+	@Test
+	public void testPullOnDemand() throws Exception {
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(3);
+		CountingFilter filter = new CountingFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(out(g, source), in(g, filter));
+		g.connect(out(g, filter), in(g, sink));
+		PullExecution execution = new PullExecution(g);
+		assertEquals(0, filter.executions);
+		assertTrue(execution.pull(sink));
+		assertEquals(1, filter.executions);
+		assertEquals(Arrays.asList(1), sink.getCollected());
+		assertTrue(execution.pull(sink));
+		assertTrue(execution.pull(sink));
+		assertFalse(execution.pull(sink));
+		assertFalse(execution.pull(sink));
+		assertEquals(Arrays.asList(1, 2, 3), sink.getCollected());
+	}
+
+	private CollectingTestSink runThrough(IDataMangler filter, int values) throws Exception {
+		CountingTestSource source = new CountingTestSource();
+		source.setLimit(values);
+		CollectingTestSink sink = new CollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(out(g, source), in(g, filter));
+		g.connect(out(g, filter), in(g, sink));
+		new PullExecution(g).run();
+		return sink;
+	}
+
+	@Test
+	public void testTrailingBatch() throws Exception {
+		CollectingTestSink sink = runThrough(new BatchSizeFilter(), 250);
+		// the last batch is set as the input of the filter ends
+		assertEquals(Arrays.asList(100, 100, 50), sink.getCollected());
+	}
+
+	@Test
+	public void testFlushedFilter() throws Exception {
+		CollectingTestSink sink = runThrough(new SummingFilter(), 250);
+		assertEquals(Arrays.asList(250 * 249 / 2), sink.getCollected());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPullFromFilter() throws Exception {
+		CountingTestSource source = new CountingTestSource();
+		CountingFilter filter = new CountingFilter();
+		CollectingTestSink sink = new CollectingTestSink();
+		g.addMangler(source);
+		g.addMangler(filter);
+		g.addMangler(sink);
+		g.connect(out(g, source), in(g, filter));
+		g.connect(out(g, filter), in(g, sink));
+		new PullExecution(g).pull(filter);
+	}
+}
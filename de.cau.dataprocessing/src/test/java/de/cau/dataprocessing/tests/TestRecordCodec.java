@@ -0,0 +1,205 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.cau.dataprocessing.codec.FieldType;
+import de.cau.dataprocessing.codec.RecordCodec;
+import de.cau.dataprocessing.codec.RecordSchema;
+import de.cau.dataprocessing.codec.RecordVersion;
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.data.Record;
+
+public class TestRecordCodec {
+
+	public static class TraceV1 extends Record {
+
+		private String operation;
+
+		private long duration;
+
+		private int hops;
+
+		public String getOperation() {
+			return operation;
+		}
+
+		public void setOperation(String operation) {
+			this.operation = operation;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public void setDuration(long duration) {
+			this.duration = duration;
+		}
+
+		public int getHops() {
+			return hops;
+		}
+
+		public void setHops(int hops) {
+			this.hops = hops;
+		}
+	}
+
+	// hops removed, failed and host added
+	@RecordVersion(2)
+	public static class TraceV2 extends Record {
+
+		private String operation;
+
+		private long duration;
+
+		private boolean failed;
+
+		private String host = "unknown";
+
+		public String getOperation() {
+			return operation;
+		}
+
+		public void setOperation(String operation) {
+			this.operation = operation;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public void setDuration(long duration) {
+			this.duration = duration;
+		}
+
+		public boolean isFailed() {
+			return failed;
+		}
+
+		public void setFailed(boolean failed) {
+			this.failed = failed;
+		}
+
+		public String getHost() {
+			return host;
+		}
+
+		public void setHost(String host) {
+			this.host = host;
+		}
+	}
+
+	public static class Incompatible extends Record {
+
+		private String hops;
+
+		public String getHops() {
+			return hops;
+		}
+
+		public void setHops(String hops) {
+			this.hops = hops;
+		}
+	}
+
+	private static MonitoringRecord record(long timestamp) {
+		MonitoringRecord record = new MonitoringRecord();
+		record.setTimestamp(timestamp);
+		record.setTraceId(-42);
+		record.setOperationId(7);
+		record.setDuration(123456789);
+		return record;
+	}
+
+	@Test
+	public void testSchema() {
+		RecordSchema schema = RecordCodec.of(MonitoringRecord.class).getSchema();
+		assertEquals(MonitoringRecord.class.getName(), schema.getName());
+		assertEquals(1, schema.getVersion());
+		assertEquals(Arrays.asList(new RecordSchema.Field("duration", FieldType.LONG),
+				new RecordSchema.Field("operationId", FieldType.INT), new RecordSchema.Field("timestamp", FieldType.LONG),
+				new RecordSchema.Field("traceId", FieldType.LONG)), schema.getFields());
+		assertSame(RecordCodec.of(MonitoringRecord.class), RecordCodec.of(MonitoringRecord.class));
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		schema.writeTo(buffer);
+		buffer.flip();
+		assertEquals(schema, RecordSchema.readFrom(buffer));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void testRoundTrip() {
+		RecordCodec<MonitoringRecord> codec = RecordCodec.of(MonitoringRecord.class);
+		for(ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024) }) {
+			for(int i = 0; i < 10; i++) {
+				codec.encode(record(1000L * i), buffer);
+			}
+			buffer.flip();
+			MonitoringRecord reused = new MonitoringRecord();
+			for(int i = 0; i < 10; i++) {
+				assertSame(reused, codec.decode(buffer, reused));
+				assertEquals(record(1000L * i).toString(), reused.toString());
+			}
+			assertFalse(buffer.hasRemaining());
+		}
+	}
+
+	@Test
+	public void testCompact() {
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		RecordCodec.of(MonitoringRecord.class).encode(record(1), buffer);
+		// varints instead of 28 bytes of fixed size fields
+		assertTrue(buffer.position() < 16);
+	}
+
+	@Test
+	public void testStrings() {
+		RecordCodec<TraceV1> codec = RecordCodec.of(TraceV1.class);
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		String[] operations = { null, "", "ascii", "\u00e4\u00f6\u00fc \u20ac \ud83d\ude00" };
+		for(String operation : operations) {
+			TraceV1 trace = new TraceV1();
+			trace.setOperation(operation);
+			codec.encode(trace, buffer);
+		}
+		buffer.flip();
+		for(String operation : operations) {
+			assertEquals(operation, codec.decode(buffer).getOperation());
+		}
+	}
+
+	@Test
+	public void testVersions() {
+		TraceV1 old = new TraceV1();
+		old.setOperation("op");
+		old.setDuration(99);
+		old.setHops(3);
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		RecordCodec<TraceV1> writer = RecordCodec.of(TraceV1.class);
+		writer.getSchema().writeTo(buffer);
+		writer.encode(old, buffer);
+		writer.encode(old, buffer);
+		buffer.flip();
+		RecordCodec<TraceV2> reader = RecordCodec.of(TraceV2.class).forWriter(RecordSchema.readFrom(buffer));
+		assertEquals(2, reader.getSchema().getVersion());
+		assertEquals(1, reader.getWriterSchema().getVersion());
+		for(int i = 0; i < 2; i++) {
+			TraceV2 trace = reader.decode(buffer);
+			assertEquals("op", trace.getOperation());
+			assertEquals(99, trace.getDuration());
+			assertFalse(trace.isFailed());
+			assertEquals("unknown", trace.getHost());
+		}
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleVersion() {
+		RecordCodec.of(Incompatible.class).forWriter(RecordCodec.of(TraceV1.class).getSchema());
+	}
+}
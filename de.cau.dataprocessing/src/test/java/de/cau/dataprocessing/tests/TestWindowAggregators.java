@@ -0,0 +1,242 @@
+package de.cau.dataprocessing.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.engine.Graph;
+import de.cau.dataprocessing.engine.GraphExecutor;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+import de.cau.dataprocessing.filters.window.SessionWindowAggregator;
+import de.cau.dataprocessing.filters.window.SlidingWindowAggregator;
+import de.cau.dataprocessing.filters.window.TumblingWindowAggregator;
+import de.cau.dataprocessing.filters.window.WindowAggregator;
+import de.cau.dataprocessing.filters.window.WindowResult;
+import de.cau.dataprocessing.inject.IPCModule;
+
+public class TestWindowAggregators {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	public static class RecordSource implements IDataMangler {
+
+		private final MonitoringRecord[] records;
+
+		private int next;
+
+		private MonitoringRecord current;
+
+		RecordSource(MonitoringRecord... records) {
+			this.records = records;
+		}
+
+		public String getName() {
+			return "Record Source";
+		}
+
+		@OutputPort
+		public MonitoringRecord getRecord() {
+			return current;
+		}
+
+		public void execute() {
+			current = next < records.length ? records[next++] : null;
+		}
+	}
+
+	public static class ResultSink implements IDataMangler {
+
+		final List<WindowResult> results = new ArrayList<WindowResult>();
+
+		private WindowResult current;
+
+		public String getName() {
+			return "Result Sink";
+		}
+
+		@InputPort(required = true)
+		public void setResult(WindowResult result) {
+			current = result;
+		}
+
+		public void execute() {
+			results.add(current);
+		}
+	}
+
+	private static MonitoringRecord record(long timestampMs, int operation, long duration) {
+		MonitoringRecord record = new MonitoringRecord();
+		record.setTimestamp(timestampMs * MS);
+		record.setOperationId(operation);
+		record.setDuration(duration);
+		return record;
+	}
+
+	// feeds the records directly
+	private static List<WindowResult> feed(WindowAggregator aggregator, MonitoringRecord... records) {
+		List<WindowResult> results = new ArrayList<WindowResult>();
+		for(MonitoringRecord record : records) {
+			aggregator.setRecord(record);
+			aggregator.execute();
+			results.addAll(Arrays.asList(aggregator.getResults()));
+		}
+		return results;
+	}
+
+	// feeds the records directly and flushes at the end
+	private static List<WindowResult> aggregate(WindowAggregator aggregator, MonitoringRecord... records) {
+		List<WindowResult> results = feed(aggregator, records);
+		aggregator.flush();
+		results.addAll(Arrays.asList(aggregator.getResults()));
+		return results;
+	}
+
+	private static void assertWindow(WindowResult result, int key, long startMs, long endMs, long count, long sum) {
+		assertEquals(key, result.getKey());
+		assertEquals(startMs * MS, result.getStart());
+		assertEquals(endMs * MS, result.getEnd());
+		assertEquals(count, result.getCount());
+		assertEquals(sum, result.getSum());
+	}
+
+	@Test
+	public void testTumbling() {
+		TumblingWindowAggregator aggregator = new TumblingWindowAggregator(10, 5, TimeUnit.MILLISECONDS, false);
+		List<WindowResult> results = aggregate(aggregator, record(1, 0, 10), record(8, 0, 30), record(12, 0, 5),
+				// out of order within the bound
+				record(9, 0, 20), record(16, 0, 1), record(25, 0, 100),
+				// late: window [10, 20) has been emitted at watermark 20
+				record(11, 0, 7));
+		assertEquals(3, results.size());
+		assertWindow(results.get(0), WindowAggregator.ALL, 0, 10, 3, 60);
+		assertEquals(10, results.get(0).getMin());
+		assertEquals(30, results.get(0).getMax());
+		assertEquals(20, results.get(0).getP50());
+		assertWindow(results.get(1), WindowAggregator.ALL, 10, 20, 2, 6);
+		assertWindow(results.get(2), WindowAggregator.ALL, 20, 30, 1, 100);
+		assertEquals(1, aggregator.getLateRecords());
+	}
+
+	@Test
+	public void testByOperation() {
+		List<WindowResult> results = aggregate(new TumblingWindowAggregator(10, 0, TimeUnit.MILLISECONDS, true),
+				record(1, 2, 10), record(2, 1, 20), record(3, 2, 30), record(11, 1, 40));
+		assertEquals(3, results.size());
+		assertWindow(results.get(0), 1, 0, 10, 1, 20);
+		assertWindow(results.get(1), 2, 0, 10, 2, 40);
+		assertWindow(results.get(2), 1, 10, 20, 1, 40);
+	}
+
+	@Test
+	public void testSliding() {
+		List<WindowResult> results = aggregate(new SlidingWindowAggregator(20, 10, 0, TimeUnit.MILLISECONDS, false),
+				record(5, 0, 1), record(15, 0, 2), record(25, 0, 4), record(65, 0, 8));
+		assertEquals(6, results.size());
+		assertWindow(results.get(0), WindowAggregator.ALL, -10, 10, 1, 1);
+		assertWindow(results.get(1), WindowAggregator.ALL, 0, 20, 2, 3);
+		assertWindow(results.get(2), WindowAggregator.ALL, 10, 30, 2, 6);
+		assertWindow(results.get(3), WindowAggregator.ALL, 20, 40, 1, 4);
+		// no windows without records in between
+		assertWindow(results.get(4), WindowAggregator.ALL, 50, 70, 1, 8);
+		assertWindow(results.get(5), WindowAggregator.ALL, 60, 80, 1, 8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSlidingMisaligned() {
+		new SlidingWindowAggregator(25, 10, 0, TimeUnit.MILLISECONDS, false);
+	}
+
+	@Test
+	public void testSessions() {
+		SessionWindowAggregator aggregator = new SessionWindowAggregator(20, 20, TimeUnit.MILLISECONDS, false);
+		List<WindowResult> results = aggregate(aggregator, record(0, 0, 1), record(5, 0, 2), record(30, 0, 4),
+				// joins the sessions [0, 25) and [30, 50)
+				record(22, 0, 8), record(100, 0, 16));
+		assertEquals(2, results.size());
+		assertWindow(results.get(0), WindowAggregator.ALL, 0, 50, 4, 15);
+		assertWindow(results.get(1), WindowAggregator.ALL, 100, 120, 1, 16);
+	}
+
+	@Test
+	public void testLateWithinSession() {
+		SessionWindowAggregator aggregator = new SessionWindowAggregator(5, 2, TimeUnit.MILLISECONDS, false);
+		List<WindowResult> results = aggregate(aggregator, record(100, 0, 1), record(103, 0, 2), record(106, 0, 4),
+				record(109, 0, 8),
+				// behind the watermark of 107, but within the session [100, 114) which is still open
+				record(101, 0, 16),
+				// a session [90, 95) of its own would have been emitted
+				record(90, 0, 32));
+		assertEquals(1, results.size());
+		assertWindow(results.get(0), WindowAggregator.ALL, 100, 114, 5, 31);
+		assertEquals(1, aggregator.getLateRecords());
+	}
+
+	/**
+	 * Snapshots an aggregator halfway, restores a new one and feeds the rest of the records to both.
+	 */
+	private static void assertRestored(WindowAggregator aggregator, WindowAggregator restored) throws Exception {
+		MonitoringRecord[] records = new MonitoringRecord[200];
+		for(int i = 0; i < records.length; i++) {
+			// out of order by up to 5 ms, a gap of 40 ms every 50 records
+			records[i] = record(i + (i % 3) * 2 + i / 50 * 40, i % 2, i * 7 % 100);
+		}
+		feed(aggregator, Arrays.copyOfRange(records, 0, 100));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		aggregator.snapshot(new DataOutputStream(bytes));
+		restored.restore(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		List<WindowResult> expected = aggregate(aggregator, Arrays.copyOfRange(records, 100, records.length));
+		List<WindowResult> actual = aggregate(restored, Arrays.copyOfRange(records, 100, records.length));
+		assertFalse(expected.isEmpty());
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(aggregator.getWatermark(), restored.getWatermark());
+	}
+
+	@Test
+	public void testCheckpoint() throws Exception {
+		assertRestored(new TumblingWindowAggregator(10, 5, TimeUnit.MILLISECONDS, true),
+				new TumblingWindowAggregator(10, 5, TimeUnit.MILLISECONDS, true));
+		assertRestored(new SlidingWindowAggregator(20, 5, 5, TimeUnit.MILLISECONDS, true),
+				new SlidingWindowAggregator(20, 5, 5, TimeUnit.MILLISECONDS, true));
+		assertRestored(new SessionWindowAggregator(15, 5, TimeUnit.MILLISECONDS, true),
+				new SessionWindowAggregator(15, 5, TimeUnit.MILLISECONDS, true));
+	}
+
+	@Test
+	public void testGraph() throws Exception {
+		List<MonitoringRecord> records = new ArrayList<MonitoringRecord>();
+		for(int i = 0; i < 1000; i++) {
+			records.add(record(i, i % 3, i));
+		}
+		RecordSource source = new RecordSource(records.toArray(new MonitoringRecord[0]));
+		TumblingWindowAggregator aggregator = new TumblingWindowAggregator(100, 0, TimeUnit.MILLISECONDS, true);
+		ResultSink sink = new ResultSink();
+		Graph g = new Graph();
+		g.addMangler(source);
+		g.addMangler(aggregator);
+		g.addMangler(sink);
+		g.connect(g.getOutPortsOf(source).iterator().next(), g.getInPortsOf(aggregator).iterator().next());
+		g.connect(g.getOutPortsOf(aggregator).iterator().next(), g.getInPortsOf(sink).iterator().next());
+		Guice.createInjector(new IPCModule()).getInstance(GraphExecutor.class).run(g);
+		// the last windows are emitted once the input ended
+		assertEquals(30, sink.results.size());
+		long count = 0;
+		for(WindowResult result : sink.results) {
+			count += result.getCount();
+		}
+		assertEquals(1000, count);
+	}
+}
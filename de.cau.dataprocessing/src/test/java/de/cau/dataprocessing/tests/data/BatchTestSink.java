@@ -0,0 +1,41 @@
+package de.cau.dataprocessing.tests.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+
+public class BatchTestSink implements IDataMangler {
+
+	private Integer[] current;
+
+	private final List<Integer[]> batches = new ArrayList<Integer[]>();
+
+	private final List<Long> arrivals = new ArrayList<Long>();
+
+	@Override
+	public String getName() {
+		return "Batch test Sink";
+	}
+
+	@InputPort(batchSize = 100, maxLatency = 20)
+	public void setValues(Integer[] values) {
+		this.current = values;
+	}
+
+	@Override
+	public void execute() {
+		batches.add(current);
+		arrivals.add(System.nanoTime());
+	}
+
+	public List<Integer[]> getBatches() {
+		return batches;
+	}
+
+	public List<Long> getArrivals() {
+		return arrivals;
+	}
+}
@@ -0,0 +1,34 @@
+package de.cau.dataprocessing.tests.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+
+public class CollectingTestSink implements IDataMangler {
+
+	private Integer current;
+
+	private final List<Integer> collected = new ArrayList<Integer>();
+
+	@Override
+	public String getName() {
+		return "Collecting test Sink";
+	}
+
+	@InputPort(required = true)
+	public void setValue(Integer i) {
+		this.current = i;
+	}
+
+	@Override
+	public void execute() {
+		collected.add(current);
+	}
+
+	public List<Integer> getCollected() {
+		return collected;
+	}
+}
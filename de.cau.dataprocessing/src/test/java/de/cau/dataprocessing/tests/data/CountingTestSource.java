@@ -0,0 +1,33 @@
+package de.cau.dataprocessing.tests.data;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+
+public class CountingTestSource implements IDataMangler {
+
+	private int count;
+
+	private int limit = 1000;
+
+	private Integer current;
+
+	@Override
+	public String getName() {
+		return "Counting test Source";
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	@OutputPort
+	public Integer getCount() {
+		return current;
+	}
+
+	@Override
+	public void execute() {
+		current = count < limit ? Integer.valueOf(count++) : null;
+	}
+}
@@ -0,0 +1,33 @@
+package de.cau.dataprocessing.tests.data;
+
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+
+public class IncrementTestFilter implements IDataMangler {
+
+	private Integer in;
+
+	private Integer out;
+
+	@Override
+	public String getName() {
+		return "Increment test Filter";
+	}
+
+	@InputPort(required = true)
+	public void setIn(Integer i) {
+		this.in = i;
+	}
+
+	@OutputPort
+	public Integer getOut() {
+		return out;
+	}
+
+	@Override
+	public void execute() {
+		out = in + 1;
+	}
+}
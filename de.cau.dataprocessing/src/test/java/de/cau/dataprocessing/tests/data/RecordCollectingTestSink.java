@@ -0,0 +1,35 @@
+package de.cau.dataprocessing.tests.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.cau.dataprocessing.data.MonitoringRecord;
+import de.cau.dataprocessing.filters.IDataMangler;
+import de.cau.dataprocessing.filters.annotations.InputPort;
+
+
+public class RecordCollectingTestSink implements IDataMangler {
+
+	private MonitoringRecord current;
+
+	private final List<MonitoringRecord> collected = new ArrayList<MonitoringRecord>();
+
+	@Override
+	public String getName() {
+		return "Record collecting test Sink";
+	}
+
+	@InputPort(required = true)
+	public void setRecord(MonitoringRecord record) {
+		this.current = record;
+	}
+
+	@Override
+	public void execute() {
+		collected.add(current);
+	}
+
+	public List<MonitoringRecord> getCollected() {
+		return collected;
+	}
+}
@@ -0,0 +1,43 @@
+package de.cau.dataprocessing.tests.data;
+
+import java.lang.reflect.Method;
+
+import de.cau.dataprocessing.reflect.InputInvoker;
+import de.cau.dataprocessing.reflect.OutputInvoker;
+import de.cau.dataprocessing.reflect.PortTable;
+
+/**
+ * The table of {@link StalePortsFilter} before {@link StalePortsFilter#setIn(Integer)} has been renamed.
+ */
+public final class StalePortsFilter$$PortTable implements PortTable {
+
+	public String getSignature() {
+		return "in setInput(java.lang.Integer);out getOut():java.lang.Integer";
+	}
+
+	public Method[] getInputPorts() throws NoSuchMethodException {
+		return new Method[] { StalePortsFilter.class.getMethod("setInput", Integer.class) };
+	}
+
+	public Method[] getOutputPorts() throws NoSuchMethodException {
+		return new Method[] { StalePortsFilter.class.getMethod("getOut") };
+	}
+
+	public InputInvoker bindInputPort(int index, Object instance) {
+		final StalePortsFilter target = (StalePortsFilter) instance;
+		return new InputInvoker() {
+			public void set(Object value) {
+				target.setIn((Integer) value);
+			}
+		};
+	}
+
+	public OutputInvoker bindOutputPort(int index, Object instance) {
+		final StalePortsFilter target = (StalePortsFilter) instance;
+		return new OutputInvoker() {
+			public Object get() {
+				return target.getOut();
+			}
+		};
+	}
+}
@@ -0,0 +1,24 @@
+package de.cau.dataprocessing.tests.data;
+
+import de.cau.dataprocessing.filters.annotations.InputPort;
+import de.cau.dataprocessing.filters.annotations.OutputPort;
+
+/**
+ * Has a hand-written port table listing a port renamed since, as if the table had been generated before. It is no
+ * mangler, so no table is generated for it.
+ */
+public class StalePortsFilter {
+
+	private Integer in;
+
+	// called setInput when the table has been generated
+	@InputPort(required = true)
+	public void setIn(Integer in) {
+		this.in = in;
+	}
+
+	@OutputPort
+	public Integer getOut() {
+		return in;
+	}
+}